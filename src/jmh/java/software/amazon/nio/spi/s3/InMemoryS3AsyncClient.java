@@ -0,0 +1,115 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+/**
+ * A minimal {@code S3AsyncClient} that serves objects from memory so that benchmarks measure this library rather
+ * than the network. Supports {@code headObject} and (ranged) {@code getObject}. A latency may be given to delay every
+ * response of {@code getObject}, which stands for the time to first byte of S3.
+ */
+class InMemoryS3AsyncClient implements S3AsyncClient {
+
+    private static final Instant LAST_MODIFIED = Instant.now();
+
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final long latencyMillis;
+
+    InMemoryS3AsyncClient() {
+        this(0L);
+    }
+
+    InMemoryS3AsyncClient(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    void putObject(String key, byte[] bytes) {
+        objects.put(key, bytes);
+    }
+
+    @Override
+    public CompletableFuture<HeadObjectResponse> headObject(HeadObjectRequest request) {
+        var bytes = objects.get(request.key());
+        if (bytes == null) {
+            return CompletableFuture.failedFuture(NoSuchKeyException.builder().build());
+        }
+        return CompletableFuture.completedFuture(HeadObjectResponse.builder()
+            .contentLength((long) bytes.length)
+            .eTag(eTag(request.key()))
+            .lastModified(LAST_MODIFIED)
+            .build());
+    }
+
+    @Override
+    public <T> CompletableFuture<T> getObject(GetObjectRequest request,
+                                              AsyncResponseTransformer<GetObjectResponse, T> transformer) {
+        var bytes = objects.get(request.key());
+        if (bytes == null) {
+            return CompletableFuture.failedFuture(NoSuchKeyException.builder().build());
+        }
+
+        long from = 0;
+        long to = bytes.length - 1L;
+        if (request.range() != null) {
+            var range = request.range().substring("bytes=".length()).split("-", -1);
+            from = Long.parseLong(range[0]);
+            if (!range[1].isEmpty()) {
+                to = Math.min(Long.parseLong(range[1]), to);
+            }
+        }
+
+        var future = transformer.prepare();
+        if (latencyMillis > 0) {
+            var start = from;
+            var end = to;
+            CompletableFuture.delayedExecutor(latencyMillis, TimeUnit.MILLISECONDS)
+                .execute(() -> respond(request, bytes, start, end, transformer));
+        } else {
+            respond(request, bytes, from, to, transformer);
+        }
+        return future;
+    }
+
+    private void respond(GetObjectRequest request, byte[] bytes, long from, long to,
+                         AsyncResponseTransformer<GetObjectResponse, ?> transformer) {
+        transformer.onResponse(GetObjectResponse.builder()
+            .contentLength(to - from + 1)
+            .contentRange("bytes " + from + "-" + to + "/" + bytes.length)
+            .eTag(eTag(request.key()))
+            .lastModified(LAST_MODIFIED)
+            .build());
+        // fromByteBuffer copies from the start of the backing array, so the range is sliced first
+        var body = ByteBuffer.wrap(bytes, (int) from, (int) (to - from + 1)).slice();
+        transformer.onStream(AsyncRequestBody.fromByteBuffer(body));
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static String eTag(String key) {
+        return "\"" + Integer.toHexString(key.hashCode()) + "\"";
+    }
+}
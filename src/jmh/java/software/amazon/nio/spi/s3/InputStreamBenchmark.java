@@ -0,0 +1,103 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+
+/**
+ * Compares reading a whole in-memory object through {@code Files.newInputStream}, which returns an
+ * {@code S3InputStream}, with reading it through {@code Channels.newInputStream} over an {@code S3SeekableByteChannel},
+ * which is what {@code Files.newInputStream} returned before. Each operation reads the whole object, e.g.
+ * {@code ./gradlew jmh -PjmhArgs="InputStreamBenchmark -prof gc"}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class InputStreamBenchmark {
+
+    private static final int OBJECT_SIZE = 64 * 1024 * 1024;
+
+    @Param({"stream", "channelAdapter"})
+    public String api;
+
+    @Param({"8192", "65536"})
+    public int readSize;
+
+    private S3FileSystem fileSystem;
+    private Path path;
+    private byte[] buffer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var bytes = new byte[OBJECT_SIZE];
+        new Random(42).nextBytes(bytes);
+        var client = new InMemoryS3AsyncClient();
+        client.putObject("object", bytes);
+
+        fileSystem = new S3FileSystemProvider().getFileSystem(URI.create("s3://benchmark-bucket"), true);
+        fileSystem.clientProvider(new S3ClientProvider(null) {
+            @Override
+            protected S3AsyncClient generateClient(String bucket, boolean crt) {
+                return client;
+            }
+        });
+        path = fileSystem.getPath("/object");
+        buffer = new byte[readSize];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fileSystem.close();
+    }
+
+    @Benchmark
+    public long read() throws IOException {
+        try (var in = open()) {
+            long total = 0;
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                total += read;
+            }
+            return total;
+        }
+    }
+
+    @Benchmark
+    public long transferTo() throws IOException {
+        try (var in = open()) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private InputStream open() throws IOException {
+        return "stream".equals(api) ? Files.newInputStream(path) : Channels.newInputStream(Files.newByteChannel(path));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency between opening a read channel on an S3 object and receiving its first byte.
+ * <p>
+ * With {@code sharedReadClient=true} the file system is kept open, so every channel re-uses the read client of the
+ * file system. With {@code sharedReadClient=false} the file system is closed after every read which forces a new
+ * client (and bucket location lookup) for every channel, as was the case before read clients were shared.
+ * <p>
+ * The benchmark needs access to a real object, e.g.
+ * {@code ./gradlew jmh -PjmhArgs="OpenToFirstByteBenchmark -p uri=s3://my-bucket/my-object"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class OpenToFirstByteBenchmark {
+
+    @Param({"s3://my-bucket/my-object"})
+    public String uri;
+
+    @Param({"true", "false"})
+    public boolean sharedReadClient;
+
+    private Path path;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        path = Paths.get(URI.create(uri));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        path.getFileSystem().close();
+    }
+
+    @Benchmark
+    public int openAndReadFirstByte() throws IOException {
+        int read;
+        try (var channel = Files.newByteChannel(path)) {
+            read = channel.read(ByteBuffer.allocate(1));
+        }
+        if (!sharedReadClient) {
+            path.getFileSystem().close();
+            path = Paths.get(URI.create(uri));
+        }
+        return read;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.nio.spi.s3.config.S3NioSpiConfiguration;
+
+/**
+ * Measures downloading a whole in-memory object into a local file with {@code S3FileSystem.download}, with one part
+ * in flight and with many. Every GET is answered after a latency that stands for the time to first byte of S3, so the
+ * benchmark shows how much of that latency concurrent parts hide, e.g.
+ * {@code ./gradlew jmh -PjmhArgs="ParallelDownloadBenchmark"}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ParallelDownloadBenchmark {
+
+    private static final int OBJECT_SIZE = 256 * 1024 * 1024;
+    private static final int PART_SIZE = 8 * 1024 * 1024;
+
+    @Param({"1", "16"})
+    public int concurrency;
+
+    @Param({"0", "20"})
+    public long latencyMillis;
+
+    private S3FileSystem fileSystem;
+    private Path path;
+    private Path destination;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        var bytes = new byte[OBJECT_SIZE];
+        new Random(42).nextBytes(bytes);
+        var client = new InMemoryS3AsyncClient(latencyMillis);
+        client.putObject("object", bytes);
+
+        var configuration = new S3NioSpiConfiguration()
+            .withBucketName("benchmark-bucket")
+            .withParallelPartSize(PART_SIZE)
+            .withParallelConcurrency(concurrency);
+        fileSystem = new S3FileSystem(new S3FileSystemProvider(), configuration);
+        fileSystem.clientProvider(new S3ClientProvider(null) {
+            @Override
+            protected S3AsyncClient generateClient(String bucket, boolean crt) {
+                return client;
+            }
+        });
+        path = fileSystem.getPath("/object");
+        destination = Files.createTempFile("parallel-download-", ".bin");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fileSystem.close();
+        Files.deleteIfExists(destination);
+    }
+
+    @Benchmark
+    public long download() throws IOException {
+        return fileSystem.download(path, destination);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+
+/**
+ * Measures sequential read throughput of an {@code S3SeekableByteChannel} against an in-memory object. The
+ * {@code bytes} counter is reported in bytes per second; run with {@code -prof gc} to see the allocation rate, e.g.
+ * {@code ./gradlew jmh -PjmhArgs="ReadThroughputBenchmark -prof gc"}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReadThroughputBenchmark {
+
+    private static final int OBJECT_SIZE = 64 * 1024 * 1024;
+
+    @Param({"4096", "65536", "1048576"})
+    public int readSize;
+
+    private S3FileSystem fileSystem;
+    private SeekableByteChannel channel;
+    private ByteBuffer dst;
+
+    /**
+     * Counts the bytes read, reported by JMH as a rate
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class ReadCounters {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        var bytes = new byte[OBJECT_SIZE];
+        new Random(42).nextBytes(bytes);
+        var client = new InMemoryS3AsyncClient();
+        client.putObject("object", bytes);
+
+        fileSystem = new S3FileSystemProvider().getFileSystem(URI.create("s3://benchmark-bucket"), true);
+        fileSystem.clientProvider(new S3ClientProvider(null) {
+            @Override
+            protected S3AsyncClient generateClient(String bucket, boolean crt) {
+                return client;
+            }
+        });
+        channel = Files.newByteChannel(fileSystem.getPath("/object"));
+        dst = ByteBuffer.allocate(readSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        channel.close();
+        fileSystem.close();
+    }
+
+    @Benchmark
+    public int read(ReadCounters counters) throws IOException {
+        dst.clear();
+        var read = channel.read(dst);
+        if (read < 0) {
+            channel.position(0L);
+            read = channel.read(dst);
+        }
+        counters.bytes += read;
+        return read;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+/**
+ * Measures the cost of the checksums a write channel computes while the bytes are written. Each operation writes
+ * 1 GiB in 1 MiB writes to a multipart upload whose parts are accepted at once without being sent anywhere, so the
+ * time of an operation is the time to copy and checksum a GiB, e.g.
+ * {@code ./gradlew jmh -PjmhArgs="WriteChecksumBenchmark"}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WriteChecksumBenchmark {
+
+    private static final int WRITE_SIZE = 1024 * 1024;
+    private static final int WRITES = 1024;
+
+    @Param({"NONE", "CRC32C", "CRC32"})
+    public String algorithm;
+
+    private final S3AsyncClient client = new DiscardingS3AsyncClient();
+    private S3FileSystem fileSystem;
+    private S3Path path;
+    private ChecksumAlgorithm checksumAlgorithm;
+    private ByteBuffer bytes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var source = new byte[WRITE_SIZE];
+        new Random(42).nextBytes(source);
+        bytes = ByteBuffer.wrap(source);
+
+        fileSystem = new S3FileSystemProvider().getFileSystem(URI.create("s3://benchmark-bucket"), true);
+        path = (S3Path) fileSystem.getPath("/object");
+        checksumAlgorithm = fileSystem.configuration().withWriteChecksumAlgorithm(algorithm).getWriteChecksumAlgorithm();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fileSystem.close();
+    }
+
+    @Benchmark
+    public Object writeOneGibibyte() {
+        var upload = new S3MultipartUpload(client, path, S3MultipartUpload.DEFAULT_PART_SIZE, checksumAlgorithm);
+        for (var i = 0; i < WRITES; i++) {
+            upload.write(bytes.clear());
+        }
+        return upload.finish().join();
+    }
+
+    /**
+     * Accepts the parts of multipart uploads without reading their bodies
+     */
+    private static class DiscardingS3AsyncClient implements S3AsyncClient {
+
+        @Override
+        public CompletableFuture<CreateMultipartUploadResponse> createMultipartUpload(
+                CreateMultipartUploadRequest request) {
+            return CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder().uploadId("id").build());
+        }
+
+        @Override
+        public CompletableFuture<UploadPartResponse> uploadPart(UploadPartRequest request, AsyncRequestBody body) {
+            return CompletableFuture.completedFuture(UploadPartResponse.builder().eTag("etag").build());
+        }
+
+        @Override
+        public CompletableFuture<CompleteMultipartUploadResponse> completeMultipartUpload(
+                CompleteMultipartUploadRequest request) {
+            return CompletableFuture.completedFuture(CompleteMultipartUploadResponse.builder().build());
+        }
+
+        @Override
+        public String serviceName() {
+            return "s3";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Classifies the reads of a channel as sequential, strided or random so that the channel can adapt how much it fetches
+ * and prefetches. A read is sequential if it starts where the previous read ended, strided if it skips forward by the
+ * same number of bytes as the previous read did, and random otherwise. The pattern only changes after
+ * {@link #SWITCH_THRESHOLD} consecutive reads agree on a new pattern, so a single seek does not disturb a sequential
+ * reader.
+ */
+class AccessPatternTracker {
+
+    /**
+     * The number of consecutive reads that must agree before the access pattern changes
+     */
+    static final int SWITCH_THRESHOLD = 2;
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessPatternTracker.class);
+
+    private final Consumer<S3AccessPattern> switchListener;
+    private S3AccessPattern accessPattern = S3AccessPattern.SEQUENTIAL;
+    private long nextSequentialPosition;
+    private long lastGap = Long.MIN_VALUE;
+    private int sequentialReads;
+    private int stridedReads;
+    private int randomReads;
+    private long switches;
+    private boolean sequentialFromStart = true;
+
+    AccessPatternTracker() {
+        this(null);
+    }
+
+    /**
+     * @param switchListener told of the new access pattern whenever it changes, e.g. to count the changes of all the
+     *                       channels of a file system, {@code null} for none
+     */
+    AccessPatternTracker(Consumer<S3AccessPattern> switchListener) {
+        this.switchListener = switchListener;
+    }
+
+    /**
+     * Records a read that starts at {@code position} and returns the access pattern that applies to it.
+     *
+     * @param position the position of the first byte of the read
+     * @return the access pattern after taking the read into account
+     */
+    synchronized S3AccessPattern onRead(long position) {
+        var gap = position - nextSequentialPosition;
+        if (gap == 0) {
+            sequentialReads++;
+            stridedReads = 0;
+            randomReads = 0;
+        } else if (gap > 0 && gap == lastGap) {
+            stridedReads++;
+            sequentialReads = 0;
+            randomReads = 0;
+        } else {
+            randomReads++;
+            sequentialReads = 0;
+            stridedReads = 0;
+        }
+        if (gap != 0) {
+            sequentialFromStart = false;
+        }
+        lastGap = gap;
+
+        if (sequentialReads >= SWITCH_THRESHOLD) {
+            switchTo(S3AccessPattern.SEQUENTIAL);
+        } else if (stridedReads >= SWITCH_THRESHOLD) {
+            switchTo(S3AccessPattern.STRIDED);
+        } else if (randomReads >= SWITCH_THRESHOLD) {
+            switchTo(S3AccessPattern.RANDOM);
+        }
+        return accessPattern;
+    }
+
+    /**
+     * Records where the last read ended, i.e. the position at which the next sequential read would start.
+     *
+     * @param position the position following the last byte read
+     */
+    synchronized void onReadCompleted(long position) {
+        nextSequentialPosition = position;
+    }
+
+    /**
+     * @return the current access pattern
+     */
+    synchronized S3AccessPattern accessPattern() {
+        return accessPattern;
+    }
+
+    /**
+     * Tells whether the object has been read strictly sequentially from its first byte, by at least
+     * {@link #SWITCH_THRESHOLD} reads, such as when it is copied or read completely.
+     *
+     * @return {@code true} if every read so far started where the previous one ended and the first one started at 0
+     */
+    synchronized boolean isSequentialFromStart() {
+        return sequentialFromStart && sequentialReads >= SWITCH_THRESHOLD;
+    }
+
+    /**
+     * @return the number of bytes skipped between the last two reads, i.e. the stride of a strided reader
+     */
+    synchronized long stride() {
+        return lastGap;
+    }
+
+    /**
+     * @return the number of times the access pattern changed
+     */
+    synchronized long switches() {
+        return switches;
+    }
+
+    private void switchTo(S3AccessPattern newAccessPattern) {
+        if (accessPattern != newAccessPattern) {
+            logger.debug("access pattern changed from {} to {}", accessPattern, newAccessPattern);
+            accessPattern = newAccessPattern;
+            switches++;
+            if (switchListener != null) {
+                switchListener.accept(newAccessPattern);
+            }
+        }
+    }
+}
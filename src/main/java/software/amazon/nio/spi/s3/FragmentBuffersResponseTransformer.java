@@ -0,0 +1,109 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+/**
+ * An {@code AsyncResponseTransformer} that copies the body of a GET response into given buffers, filling one buffer
+ * after the other, instead of collecting it into a new array. Once the body is complete every buffer is flipped, so
+ * that it holds its part of the body from its position to its limit.
+ */
+class FragmentBuffersResponseTransformer implements AsyncResponseTransformer<GetObjectResponse, GetObjectResponse> {
+
+    private final List<ByteBuffer> buffers;
+    private volatile CompletableFuture<GetObjectResponse> future;
+    private volatile GetObjectResponse response;
+
+    /**
+     * @param buffers the buffers to fill, together large enough for the body
+     */
+    FragmentBuffersResponseTransformer(List<ByteBuffer> buffers) {
+        this.buffers = buffers;
+    }
+
+    @Override
+    public CompletableFuture<GetObjectResponse> prepare() {
+        // called again if the request is retried
+        buffers.forEach(ByteBuffer::clear);
+        future = new CompletableFuture<>();
+        return future;
+    }
+
+    @Override
+    public void onResponse(GetObjectResponse response) {
+        this.response = response;
+    }
+
+    @Override
+    public void onStream(SdkPublisher<ByteBuffer> publisher) {
+        publisher.subscribe(new BodySubscriber(future));
+    }
+
+    @Override
+    public void exceptionOccurred(Throwable error) {
+        future.completeExceptionally(error);
+    }
+
+    private final class BodySubscriber implements Subscriber<ByteBuffer> {
+
+        private final CompletableFuture<GetObjectResponse> future;
+        private Subscription subscription;
+        private int bufferIndex;
+
+        private BodySubscriber(CompletableFuture<GetObjectResponse> future) {
+            this.future = future;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(ByteBuffer bytes) {
+            if (future.isDone()) {
+                return;
+            }
+            while (bytes.hasRemaining()) {
+                while (bufferIndex < buffers.size() && !buffers.get(bufferIndex).hasRemaining()) {
+                    bufferIndex++;
+                }
+                if (bufferIndex == buffers.size()) {
+                    subscription.cancel();
+                    future.completeExceptionally(new IOException("the response body does not fit into "
+                        + buffers.size() + " buffer(s)"));
+                    return;
+                }
+                var buffer = buffers.get(bufferIndex);
+                var chunk = bytes.duplicate();
+                chunk.limit(chunk.position() + Math.min(chunk.remaining(), buffer.remaining()));
+                buffer.put(chunk);
+                bytes.position(chunk.position());
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            future.completeExceptionally(t);
+        }
+
+        @Override
+        public void onComplete() {
+            buffers.forEach(ByteBuffer::flip);
+            future.complete(response);
+        }
+    }
+}
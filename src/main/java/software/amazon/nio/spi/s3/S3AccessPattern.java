@@ -0,0 +1,29 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+/**
+ * The way a read channel is read, as detected from the positions of its reads. The channel sizes its fetches and its
+ * prefetching after it, see {@link S3SeekableByteChannel#accessPattern()}.
+ */
+public enum S3AccessPattern {
+
+    /**
+     * Each read starts where the previous one ended. The channel prefetches ahead of the reader.
+     */
+    SEQUENTIAL,
+
+    /**
+     * Each read skips forward by the same number of bytes. The channel prefetches a single fragment, or reads like a
+     * random reader if the reads skip whole fragments.
+     */
+    STRIDED,
+
+    /**
+     * Reads start at unrelated positions. The channel fetches about the requested bytes without any prefetch.
+     */
+    RANDOM
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static software.amazon.nio.spi.s3.util.TimeOutUtils.TIMEOUT_TIME_LENGTH_1;
+import static software.amazon.nio.spi.s3.util.TimeOutUtils.TIMEOUT_TIME_LENGTH_5;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileLock;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.nio.spi.s3.util.TimeOutUtils;
+
+/**
+ * An {@code AsynchronousFileChannel} for an S3 object, opened either for reading or for writing.
+ * <p>
+ * Every read is a ranged GET of the requested bytes whose body is written straight into the destination buffer. No
+ * thread waits for a read: the future, or the completion handler, is completed by the thread of the S3 client that
+ * receives the response, or by the executor given when the channel was opened. Reads may be issued concurrently, so a
+ * few threads can drive many reads of many objects at once. A read at or beyond the end of the object completes with
+ * {@code -1}.
+ * <p>
+ * Writes are uploaded as the parts of a multipart upload of {@link #PART_SIZE} bytes, which is completed when the
+ * channel is closed. An object that is smaller than
+ * {@link software.amazon.nio.spi.s3.config.S3NioSpiConfiguration#getWriteSinglePutThreshold()} is uploaded with a single
+ * PUT on close instead. As the parts
+ * of a multipart upload are uploaded in order, writes must be sequential: each write must start where the previous one
+ * ended. A write completes once the parts it filled are uploaded, so a writer that waits for its writes cannot get
+ * ahead of the upload. Existing objects are replaced as a whole, so they can only be opened for writing with
+ * {@link StandardOpenOption#TRUNCATE_EXISTING TRUNCATE_EXISTING}. Nothing is visible in S3 before the channel is
+ * closed. Like a {@link S3WritableByteChannel}, a channel opened with {@link StandardOpenOption#CREATE_NEW CREATE_NEW},
+ * or with both {@link StandardOpenOption#CREATE CREATE} and {@code TRUNCATE_EXISTING}, does not send a HEAD request:
+ * with {@code CREATE_NEW} the upload is conditional on no object existing when it completes, so an existing object is
+ * only reported by {@link #close()}, with a {@link FileAlreadyExistsException}.
+ */
+class S3AsynchronousFileChannel extends AsynchronousFileChannel {
+
+    /**
+     * The size of the parts uploaded by a channel opened for writing
+     */
+    static final int PART_SIZE = S3MultipartUpload.DEFAULT_PART_SIZE;
+
+    private static final Logger logger = LoggerFactory.getLogger(S3AsynchronousFileChannel.class);
+
+    private final S3Path path;
+    private final S3AsyncClient client;
+    private final ExecutorService executor;
+    private final boolean writable;
+    private final boolean createNew;
+    private volatile boolean open = true;
+    private volatile long size = -1L;
+    private final S3MultipartUpload upload;
+
+    /**
+     * @param path     the path of the object
+     * @param options  the options the channel is opened with
+     * @param executor the executor that runs the completion handlers, or {@code null} to run them on the threads of
+     *                 the S3 client
+     * @throws IOException if the channel cannot be opened with the given options
+     */
+    S3AsynchronousFileChannel(S3Path path, Set<? extends OpenOption> options, ExecutorService executor)
+            throws IOException {
+        Objects.requireNonNull(path);
+        Objects.requireNonNull(options);
+        if (options.contains(StandardOpenOption.WRITE) && options.contains(StandardOpenOption.READ)) {
+            throw new IOException("This channel does not support read and write access simultaneously");
+        }
+        if (options.contains(StandardOpenOption.APPEND)) {
+            throw new UnsupportedOperationException("The APPEND option is not supported");
+        }
+        if (options.contains(StandardOpenOption.SYNC) || options.contains(StandardOpenOption.DSYNC)) {
+            throw new IOException("The SYNC/DSYNC options is not supported");
+        }
+
+        this.path = path;
+        this.executor = executor;
+        this.writable = options.contains(StandardOpenOption.WRITE);
+        this.createNew = writable && options.contains(StandardOpenOption.CREATE_NEW);
+        var fileSystem = path.getFileSystem();
+        if (writable) {
+            client = fileSystem.client();
+            checkWritable(options);
+            var config = fileSystem.configuration();
+            upload = new S3MultipartUpload(client, path, PART_SIZE, config.getWriteMaxInFlightParts(),
+                config.getWriteMaxBufferedBytes(), config.getWriteSinglePutThreshold(),
+                config.getWriteChecksumAlgorithm(), fileSystem.writeMetrics());
+            upload.contentType(S3ContentType.contentType(path, options));
+            if (createNew) {
+                upload.createNew();
+            }
+            size = 0L;
+        } else {
+            client = fileSystem.acquireReadClient();
+            upload = null;
+        }
+        fileSystem.registerOpenChannel(this);
+    }
+
+    private void checkWritable(Set<? extends OpenOption> options) throws IOException {
+        if (createNew
+            || options.contains(StandardOpenOption.CREATE) && options.contains(StandardOpenOption.TRUNCATE_EXISTING)) {
+            // whether the object exists does not change how it is written, CREATE_NEW is checked by the upload
+            return;
+        }
+        final boolean exists;
+        try {
+            exists = ((S3FileSystemProvider) path.getFileSystem().provider()).exists(client, path);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Could not open the path:" + path, e);
+        } catch (TimeoutException e) {
+            throw new IOException("Could not open the path:" + path, e);
+        }
+
+        if (!exists && !options.contains(StandardOpenOption.CREATE)) {
+            throw new NoSuchFileException("File at path:" + path + " does not exist yet");
+        }
+        if (exists && !options.contains(StandardOpenOption.TRUNCATE_EXISTING)) {
+            throw new UnsupportedOperationException("Writes replace the object at path:" + path
+                + " as a whole, open it with TRUNCATE_EXISTING");
+        }
+    }
+
+    /**
+     * Returns the size of the object. A channel opened for reading sends a HEAD request unless a read already
+     * learned the size. The size of a channel opened for writing is the number of bytes written so far.
+     *
+     * @return the size of the object in bytes
+     * @throws ClosedChannelException if this channel is closed
+     * @throws IOException            if the size cannot be requested
+     */
+    @Override
+    public long size() throws IOException {
+        validateOpen();
+        if (size >= 0) {
+            return size;
+        }
+        try {
+            var response = client.headObject(builder -> builder.bucket(path.bucketName()).key(path.getKey()))
+                .get(TIMEOUT_TIME_LENGTH_1, MINUTES);
+            size = response.contentLength();
+            return size;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } catch (TimeoutException e) {
+            throw TimeOutUtils.logAndGenerateExceptionOnTimeOut(logger, "size", TIMEOUT_TIME_LENGTH_1, MINUTES);
+        }
+    }
+
+    /**
+     * Objects cannot be truncated, so this only succeeds if {@code size} is not less than the bytes written so far.
+     *
+     * @param size the new size
+     * @return this channel
+     * @throws NonWritableChannelException   if this channel was not opened for writing
+     * @throws UnsupportedOperationException if {@code size} is less than the number of bytes written so far
+     */
+    @Override
+    public synchronized AsynchronousFileChannel truncate(long size) throws IOException {
+        if (size < 0) {
+            throw new IllegalArgumentException("size cannot be < 0");
+        }
+        validateOpen();
+        if (!writable) {
+            throw new NonWritableChannelException();
+        }
+        if (size < upload.bytesWritten()) {
+            throw new UnsupportedOperationException("Currently not supported");
+        }
+        return this;
+    }
+
+    /**
+     * Does nothing: the bytes written to this channel only become visible in S3 once the channel is closed.
+     */
+    @Override
+    public void force(boolean metaData) throws IOException {
+        validateOpen();
+    }
+
+    @Override
+    public <A> void lock(long position, long size, boolean shared, A attachment,
+                         CompletionHandler<FileLock, ? super A> handler) {
+        throw new UnsupportedOperationException("S3 objects cannot be locked");
+    }
+
+    @Override
+    public Future<FileLock> lock(long position, long size, boolean shared) {
+        throw new UnsupportedOperationException("S3 objects cannot be locked");
+    }
+
+    @Override
+    public FileLock tryLock(long position, long size, boolean shared) {
+        throw new UnsupportedOperationException("S3 objects cannot be locked");
+    }
+
+    @Override
+    public <A> void read(ByteBuffer dst, long position, A attachment,
+                         CompletionHandler<Integer, ? super A> handler) {
+        Objects.requireNonNull(handler);
+        complete(readRange(dst, position), attachment, handler);
+    }
+
+    @Override
+    public Future<Integer> read(ByteBuffer dst, long position) {
+        return readRange(dst, position);
+    }
+
+    @Override
+    public <A> void write(ByteBuffer src, long position, A attachment,
+                          CompletionHandler<Integer, ? super A> handler) {
+        Objects.requireNonNull(handler);
+        complete(writeAt(src, position), attachment, handler);
+    }
+
+    @Override
+    public Future<Integer> write(ByteBuffer src, long position) {
+        return writeAt(src, position);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Closes this channel. A channel opened for writing uploads the bytes that are not uploaded yet and completes the
+     * multipart upload, or aborts it if a part failed, waiting for the upload to finish.
+     *
+     * @throws FileAlreadyExistsException if the channel was opened with {@code CREATE_NEW} and the object exists
+     * @throws IOException                if the object could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (!open) {
+                return;
+            }
+            open = false;
+        }
+
+        var fileSystem = path.getFileSystem();
+        try {
+            if (writable) {
+                awaitUpload(upload.finish());
+            }
+        } finally {
+            if (!writable) {
+                fileSystem.releaseReadClient();
+            }
+            fileSystem.deregisterClosedChannel(this);
+        }
+    }
+
+    private CompletableFuture<Integer> readRange(ByteBuffer dst, long position) {
+        Objects.requireNonNull(dst);
+        if (position < 0) {
+            throw new IllegalArgumentException("position cannot be < 0");
+        }
+        if (dst.isReadOnly()) {
+            throw new IllegalArgumentException("Read-only buffer");
+        }
+        if (writable) {
+            throw new NonReadableChannelException();
+        }
+        if (!open) {
+            return CompletableFuture.failedFuture(new ClosedChannelException());
+        }
+        if (size >= 0 && position >= size) {
+            return CompletableFuture.completedFuture(-1);
+        }
+        if (!dst.hasRemaining()) {
+            return CompletableFuture.completedFuture(0);
+        }
+
+        // the body is written into a view of the remaining bytes of dst, whose position is advanced once it is read
+        var target = dst.slice();
+        var range = "bytes=" + position + "-" + (position + target.remaining() - 1);
+        logger.debug("byte range for {} is '{}'", path.getKey(), range);
+
+        return client.getObject(
+                builder -> builder
+                    .bucket(path.bucketName())
+                    .key(path.getKey())
+                    .range(range),
+                new FragmentBuffersResponseTransformer(List.of(target)))
+            .handle((response, e) -> {
+                if (e != null) {
+                    if (S3ReadAheadByteChannel.isRangeNotSatisfiable(e)) {
+                        return -1;
+                    }
+                    var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    throw new CompletionException(cause instanceof IOException ? cause
+                        : new IOException("Could not read from path:" + path, cause));
+                }
+                var objectSize = S3ReadAheadByteChannel.objectSize(response);
+                if (objectSize >= 0) {
+                    size = objectSize;
+                }
+                dst.position(dst.position() + target.limit());
+                return target.limit();
+            });
+    }
+
+    private CompletableFuture<Integer> writeAt(ByteBuffer src, long position) {
+        Objects.requireNonNull(src);
+        if (position < 0) {
+            throw new IllegalArgumentException("position cannot be < 0");
+        }
+        if (!writable) {
+            throw new NonWritableChannelException();
+        }
+
+        var length = src.remaining();
+        CompletableFuture<Void> uploads;
+        synchronized (this) {
+            if (!open) {
+                return CompletableFuture.failedFuture(new ClosedChannelException());
+            }
+            var writePosition = upload.bytesWritten();
+            if (position != writePosition) {
+                return CompletableFuture.failedFuture(new IOException(String.format(
+                    "writes to '%s' must be sequential, the next write must start at position %d but starts at %d",
+                    path.toUri(), writePosition, position)));
+            }
+
+            uploads = upload.write(src);
+            size = upload.bytesWritten();
+        }
+
+        return uploads.thenApply(ignored -> length);
+    }
+
+    private void awaitUpload(CompletableFuture<?> upload) throws IOException {
+        try {
+            upload.get(TIMEOUT_TIME_LENGTH_5, MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Could not write to path:" + path, e);
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (createNew && cause instanceof S3Exception && ((S3Exception) cause).statusCode() == 412) {
+                throw new FileAlreadyExistsException("File at path:" + path + " already exists");
+            }
+            throw new IOException("Could not write to path:" + path, cause);
+        } catch (TimeoutException e) {
+            throw TimeOutUtils.logAndGenerateExceptionOnTimeOut(logger, "close", TIMEOUT_TIME_LENGTH_5, MINUTES);
+        }
+    }
+
+    /**
+     * Completes {@code handler} with the outcome of {@code future}, on the executor of this channel if it has one
+     */
+    private <V, A> void complete(CompletableFuture<V> future, A attachment,
+                                 CompletionHandler<V, ? super A> handler) {
+        BiConsumer<V, Throwable> callback = (result, e) -> {
+            if (e == null) {
+                handler.completed(result, attachment);
+            } else {
+                handler.failed(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e,
+                    attachment);
+            }
+        };
+        if (executor != null) {
+            future.whenCompleteAsync(callback, executor);
+        } else {
+            future.whenComplete(callback);
+        }
+    }
+
+    private void validateOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+}
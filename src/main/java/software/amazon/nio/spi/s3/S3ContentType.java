@@ -0,0 +1,119 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import java.nio.file.OpenOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An option that sets the {@code Content-Type} of an object written through a channel or an output stream, e.g.
+ * {@code Files.newOutputStream(path, S3ContentType.of("application/json"))}. Without it, the content type of an object
+ * is derived from the extension of its key with a fixed table of common types, and is left to S3, which stores
+ * {@code binary/octet-stream}, if the extension is unknown. No file is ever probed for its content type.
+ */
+public final class S3ContentType implements OpenOption {
+
+    private static final Map<String, String> BY_EXTENSION = Map.ofEntries(
+        Map.entry("avro", "application/avro"),
+        Map.entry("bz2", "application/x-bzip2"),
+        Map.entry("css", "text/css"),
+        Map.entry("csv", "text/csv"),
+        Map.entry("gif", "image/gif"),
+        Map.entry("gz", "application/gzip"),
+        Map.entry("htm", "text/html"),
+        Map.entry("html", "text/html"),
+        Map.entry("jar", "application/java-archive"),
+        Map.entry("jpeg", "image/jpeg"),
+        Map.entry("jpg", "image/jpeg"),
+        Map.entry("js", "text/javascript"),
+        Map.entry("json", "application/json"),
+        Map.entry("jsonl", "application/x-ndjson"),
+        Map.entry("md", "text/markdown"),
+        Map.entry("mp3", "audio/mpeg"),
+        Map.entry("mp4", "video/mp4"),
+        Map.entry("ndjson", "application/x-ndjson"),
+        Map.entry("parquet", "application/vnd.apache.parquet"),
+        Map.entry("pdf", "application/pdf"),
+        Map.entry("png", "image/png"),
+        Map.entry("svg", "image/svg+xml"),
+        Map.entry("tar", "application/x-tar"),
+        Map.entry("tsv", "text/tab-separated-values"),
+        Map.entry("txt", "text/plain"),
+        Map.entry("webp", "image/webp"),
+        Map.entry("xml", "application/xml"),
+        Map.entry("yaml", "application/yaml"),
+        Map.entry("yml", "application/yaml"),
+        Map.entry("zip", "application/zip"),
+        Map.entry("zst", "application/zstd")
+    );
+
+    private final String value;
+
+    private S3ContentType(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Create an option
+     *
+     * @param contentType the content type of the object, e.g. {@code text/plain; charset=utf-8}
+     * @return the option
+     */
+    public static S3ContentType of(String contentType) {
+        Objects.requireNonNull(contentType);
+        if (contentType.isBlank()) {
+            throw new IllegalArgumentException("contentType cannot be blank");
+        }
+        return new S3ContentType(contentType);
+    }
+
+    /**
+     * @return the content type
+     */
+    public String value() {
+        return value;
+    }
+
+    /**
+     * The content type to upload an object with: the one given by an {@code S3ContentType} option, or the one of the
+     * extension of the key
+     *
+     * @param path    the path of the object
+     * @param options the options the object is opened with
+     * @return the content type, or {@code null} if there is no option and the extension is unknown
+     */
+    static String contentType(S3Path path, Set<? extends OpenOption> options) {
+        for (var option : options) {
+            if (option instanceof S3ContentType) {
+                return ((S3ContentType) option).value;
+            }
+        }
+        var key = path.getKey();
+        var dot = key.lastIndexOf('.');
+        if (dot < 0 || dot < key.lastIndexOf(Constants.PATH_SEPARATOR)) {
+            return null;
+        }
+        return BY_EXTENSION.get(key.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof S3ContentType && value.equals(((S3ContentType) o).value);
+    }
+
+    @Override
+    public int hashCode() {
+        return value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "S3ContentType[" + value + "]";
+    }
+}
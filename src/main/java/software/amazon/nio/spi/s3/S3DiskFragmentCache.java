@@ -0,0 +1,350 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An on-disk cache of object fragments that outlives the JVM, so that repeated scans of large objects are served from
+ * local disk instead of S3. Each fragment is stored in its own file under the cache directory and cache hits are
+ * returned as read-only slices of a {@code MappedByteBuffer}, so reading a cached fragment costs neither a download nor
+ * a copy into the heap.
+ * <p>
+ * A fragment file is named after a hash of bucket, key, ETag, fragment size and fragment index and starts with a header
+ * holding the ETag and the length of the fragment. A fragment is only served if the ETag in its header matches the ETag
+ * of the object being read and the file is complete, so a changed object is never served stale. Files are written to a
+ * temporary file first and then moved into place.
+ * <p>
+ * The cache holds at most {@code maxBytes} bytes of fragment files and evicts the least recently used files first. The
+ * last modified time of a file records its last use, which lets the eviction order survive restarts: the directory is
+ * scanned when the cache is created. Several caches must not share a directory as they would not see each other's
+ * files in their size accounting, so the file systems of a JVM, one per bucket, share the cache of a directory, see
+ * {@link #forDirectory(Path, long)}. Temporary files are named after the process writing them and a cache only deletes
+ * the ones left behind by a process that is no longer running.
+ */
+class S3DiskFragmentCache {
+
+    /**
+     * The suffix of the fragment files
+     */
+    static final String FILE_SUFFIX = ".fragment";
+
+    private static final Logger logger = LoggerFactory.getLogger(S3DiskFragmentCache.class);
+
+    private static final int MAGIC = 0x53334643;
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+    private static final long PID = ProcessHandle.current().pid();
+
+    // guarded by itself, the caches of the JVM by absolute directory
+    private static final Map<Path, S3DiskFragmentCache> CACHES = new HashMap<>();
+
+    private final Path directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Long> fileSizes = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private long cachedBytes;
+
+    /**
+     * Creates a cache in {@code directory}, which is created if needed, and takes over the fragment files found in it.
+     *
+     * @param directory the directory holding the fragment files
+     * @param maxBytes  the maximum number of bytes held by the cache. Must be {@code > 0}.
+     * @throws IOException if the directory cannot be created or read
+     */
+    S3DiskFragmentCache(Path directory, long maxBytes) throws IOException {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be > 0");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+
+        final List<Path> files;
+        try (var paths = Files.list(this.directory)) {
+            files = paths.collect(Collectors.toList());
+        }
+
+        var fragmentFiles = new ArrayList<Path>();
+        for (var file : files) {
+            var name = file.getFileName().toString();
+            if (name.endsWith(TEMPORARY_FILE_SUFFIX)) {
+                if (!writerIsRunning(name)) {
+                    // left behind by a JVM that stopped while writing a fragment
+                    Files.deleteIfExists(file);
+                }
+            } else if (name.endsWith(FILE_SUFFIX)) {
+                fragmentFiles.add(file);
+            }
+        }
+        fragmentFiles.sort(Comparator.comparing(S3DiskFragmentCache::lastModifiedTime));
+        synchronized (this) {
+            for (var file : fragmentFiles) {
+                var fileSize = Files.size(file);
+                fileSizes.put(file.getFileName().toString(), fileSize);
+                cachedBytes += fileSize;
+            }
+            evict();
+        }
+
+        logger.debug("disk fragment cache in '{}' holds {} fragment(s) of {} bytes", directory, fileSizes.size(),
+            cachedBytes);
+    }
+
+    /**
+     * Returns the cache of {@code directory} shared by the JVM, creating it on first use.
+     *
+     * @param directory the directory holding the fragment files
+     * @param maxBytes  the maximum number of bytes held by the cache, only used when the cache is created
+     * @return the cache of the directory
+     * @throws IOException if the directory cannot be created or read
+     */
+    static S3DiskFragmentCache forDirectory(Path directory, long maxBytes) throws IOException {
+        var key = directory.toAbsolutePath().normalize();
+        synchronized (CACHES) {
+            var cache = CACHES.get(key);
+            if (cache == null) {
+                cache = new S3DiskFragmentCache(key, maxBytes);
+                CACHES.put(key, cache);
+            } else if (cache.maxBytes != maxBytes) {
+                logger.warn("disk fragment cache in '{}' already holds at most {} bytes, ignoring the size of {} bytes",
+                    key, cache.maxBytes, maxBytes);
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * Returns the cached fragment, if any.
+     *
+     * @param path          the path of the object
+     * @param eTag          the ETag of the object
+     * @param fragmentSize  the size of the fragments the object is split into
+     * @param fragmentIndex the index of the fragment
+     * @return a read-only buffer over the mapped bytes of the fragment, or {@code null} if it is not cached
+     */
+    ByteBuffer get(S3Path path, String eTag, int fragmentSize, int fragmentIndex) {
+        var name = fileName(path, eTag, fragmentSize, fragmentIndex);
+        synchronized (this) {
+            if (fileSizes.get(name) == null) {
+                misses.increment();
+                return null;
+            }
+        }
+
+        var file = directory.resolve(name);
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            var fragment = validFragment(mapped, eTag);
+            if (fragment == null) {
+                logger.warn("discarding invalid fragment file '{}' of '{}'", file, path.toUri());
+                remove(name);
+                misses.increment();
+                return null;
+            }
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            hits.increment();
+            return fragment;
+        } catch (NoSuchFileException e) {
+            remove(name);
+        } catch (IOException e) {
+            logger.warn("could not read fragment file '{}' of '{}'", file, path.toUri(), e);
+            remove(name);
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Stores a fragment, evicting the least recently used fragments if the cache grows beyond its maximum size. Errors
+     * are logged and otherwise ignored, the fragment is then simply not cached.
+     *
+     * @param path          the path of the object
+     * @param eTag          the ETag of the object
+     * @param fragmentSize  the size of the fragments the object is split into
+     * @param fragmentIndex the index of the fragment
+     * @param fragment      the bytes of the fragment, from its position to its limit. The buffer is not modified.
+     */
+    void put(S3Path path, String eTag, int fragmentSize, int fragmentIndex, ByteBuffer fragment) {
+        var name = fileName(path, eTag, fragmentSize, fragmentIndex);
+        var eTagBytes = eTag.getBytes(StandardCharsets.UTF_8);
+        var header = ByteBuffer.allocate(Integer.BYTES * 2 + Long.BYTES + eTagBytes.length)
+            .putInt(MAGIC)
+            .putLong(fragment.remaining())
+            .putInt(eTagBytes.length)
+            .put(eTagBytes)
+            .flip();
+        var fileSize = (long) header.remaining() + fragment.remaining();
+
+        synchronized (this) {
+            if (fileSize > maxBytes || fileSizes.containsKey(name)) {
+                return;
+            }
+        }
+
+        Path temporaryFile = null;
+        try {
+            temporaryFile = Files.createTempFile(directory, PID + "-" + name, TEMPORARY_FILE_SUFFIX);
+            try (var channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                var bytes = fragment.duplicate();
+                while (header.hasRemaining() || bytes.hasRemaining()) {
+                    channel.write(new ByteBuffer[]{header, bytes});
+                }
+            }
+            Files.move(temporaryFile, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+            temporaryFile = null;
+        } catch (IOException e) {
+            logger.warn("could not store fragment {} of '{}' in '{}'", fragmentIndex, path.toUri(), directory, e);
+            return;
+        } finally {
+            deleteQuietly(temporaryFile);
+        }
+
+        synchronized (this) {
+            var previous = fileSizes.put(name, fileSize);
+            cachedBytes += fileSize - (previous == null ? 0 : previous);
+            evict();
+        }
+    }
+
+    /**
+     * @return the number of lookups that were served from disk
+     */
+    long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that were not served from disk
+     */
+    long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of bytes of fragment files currently held by the cache
+     */
+    synchronized long cachedBytes() {
+        return cachedBytes;
+    }
+
+    /**
+     * @return the maximum number of bytes held by the cache
+     */
+    long maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return the directory holding the fragment files
+     */
+    Path directory() {
+        return directory;
+    }
+
+    private static ByteBuffer validFragment(ByteBuffer mapped, String eTag) {
+        var eTagBytes = eTag.getBytes(StandardCharsets.UTF_8);
+        var headerSize = Integer.BYTES * 2 + Long.BYTES + eTagBytes.length;
+        if (mapped.remaining() < headerSize || mapped.getInt() != MAGIC) {
+            return null;
+        }
+        var fragmentSize = mapped.getLong();
+        if (mapped.getInt() != eTagBytes.length) {
+            return null;
+        }
+        var storedETag = new byte[eTagBytes.length];
+        mapped.get(storedETag);
+        if (!MessageDigest.isEqual(eTagBytes, storedETag) || mapped.remaining() != fragmentSize) {
+            return null;
+        }
+        return mapped.slice().asReadOnlyBuffer();
+    }
+
+    private void evict() {
+        var eldest = fileSizes.entrySet().iterator();
+        while (cachedBytes > maxBytes && eldest.hasNext()) {
+            var entry = eldest.next();
+            eldest.remove();
+            cachedBytes -= entry.getValue();
+            deleteQuietly(directory.resolve(entry.getKey()));
+        }
+    }
+
+    private synchronized void remove(String name) {
+        var fileSize = fileSizes.remove(name);
+        if (fileSize != null) {
+            cachedBytes -= fileSize;
+            deleteQuietly(directory.resolve(name));
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // e.g. a file that is still mapped on some platforms; it is no longer accounted for and gets overwritten
+            logger.debug("could not delete '{}'", file, e);
+        }
+    }
+
+    /**
+     * @return whether the process named by a temporary file, if any, is running
+     */
+    private static boolean writerIsRunning(String temporaryFileName) {
+        var dash = temporaryFileName.indexOf('-');
+        try {
+            var pid = Long.parseLong(temporaryFileName.substring(0, Math.max(dash, 0)));
+            return ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static FileTime lastModifiedTime(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0L);
+        }
+    }
+
+    private static String fileName(S3Path path, String eTag, int fragmentSize, int fragmentIndex) {
+        var id = String.join("\n", path.bucketName(), path.getKey(), eTag, String.valueOf(fragmentSize),
+            String.valueOf(fragmentIndex));
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(id.getBytes(StandardCharsets.UTF_8));
+            return String.format("%064x", new BigInteger(1, digest)) + FILE_SUFFIX;
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
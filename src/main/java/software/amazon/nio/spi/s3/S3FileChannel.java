@@ -0,0 +1,393 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static software.amazon.nio.spi.s3.util.TimeOutUtils.TIMEOUT_TIME_LENGTH_1;
+import static software.amazon.nio.spi.s3.util.TimeOutUtils.TIMEOUT_TIME_LENGTH_5;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.nio.spi.s3.util.TimeOutUtils;
+
+/**
+ * A read-only {@code FileChannel} for an S3 object, for libraries that need a {@code FileChannel} rather than a
+ * {@code SeekableByteChannel}, e.g. to memory-map a file or to {@link #transferTo transfer} it.
+ * <p>
+ * The object is mirrored in a sparse local file, which is deleted when the channel is closed. The local file is filled
+ * lazily in blocks of {@code s3.spi.read.max-fragment-size} bytes: each read, transfer or {@link #map map} first
+ * downloads the blocks of its range that are not local yet, with one ranged GET per block, and is then served from
+ * the local file. The downloaded blocks are written to the local file by the
+ * {@link S3FileSystem#readExecutor() read executor} of the file system rather than by the threads of the S3 client.
+ * Only the ranges that are used are downloaded, and each of them only once. {@code map} returns a
+ * mapping of the local file, so it is a real {@code MappedByteBuffer} that stays valid after the channel is closed.
+ * <p>
+ * The size and ETag of the object are taken when the channel is opened, and blocks are requested with
+ * {@code If-Match} on that ETag, so a channel never mixes the bytes of two versions of an object.
+ */
+class S3FileChannel extends FileChannel {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3FileChannel.class);
+
+    private final S3Path path;
+    private final S3AsyncClient client;
+    private final int blockSize;
+    private final long size;
+    private final String eTag;
+    private final FileChannel local;
+    private final Executor executor;
+    private final Map<Long, CompletableFuture<Void>> blocks = new ConcurrentHashMap<>();
+    private long position;
+
+    /**
+     * @param path    the path of the object
+     * @param options the options the channel is opened with
+     * @throws NoSuchFileException           if the object does not exist
+     * @throws UnsupportedOperationException if {@code options} ask for write access
+     * @throws IOException                   if the object or the local file cannot be opened
+     */
+    S3FileChannel(S3Path path, Set<? extends OpenOption> options) throws IOException {
+        Objects.requireNonNull(path);
+        Objects.requireNonNull(options);
+        if (options.contains(StandardOpenOption.WRITE) || options.contains(StandardOpenOption.APPEND)) {
+            throw new UnsupportedOperationException("File channels of S3 objects are read-only");
+        }
+
+        this.path = path;
+        var fileSystem = path.getFileSystem();
+        blockSize = fileSystem.configuration().getMaxFragmentSize();
+        client = fileSystem.acquireReadClient();
+        executor = fileSystem.readExecutor();
+        try {
+            var response = head();
+            size = response.contentLength();
+            eTag = response.eTag();
+            local = openLocalFile(size);
+        } catch (IOException | RuntimeException e) {
+            fileSystem.releaseReadClient();
+            throw e;
+        }
+        fileSystem.registerOpenChannel(this);
+    }
+
+    private HeadObjectResponse head() throws IOException {
+        try {
+            return client.headObject(builder -> builder.bucket(path.bucketName()).key(path.getKey()))
+                .get(TIMEOUT_TIME_LENGTH_1, MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Could not open the path:" + path, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof NoSuchKeyException) {
+                throw new NoSuchFileException(path.toString());
+            }
+            throw new IOException("Could not open the path:" + path, e.getCause());
+        } catch (TimeoutException e) {
+            throw TimeOutUtils.logAndGenerateExceptionOnTimeOut(logger, "open", TIMEOUT_TIME_LENGTH_1, MINUTES);
+        }
+    }
+
+    /**
+     * Creates the sparse local file that mirrors an object of {@code size} bytes
+     */
+    private static FileChannel openLocalFile(long size) throws IOException {
+        // SPARSE is only a hint when the file is created, so the file is created by the channel itself
+        var file = Files.createTempFile("aws-s3-nio-", ".tmp");
+        Files.delete(file);
+        var channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.SPARSE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        if (size > 0) {
+            channel.write(ByteBuffer.allocate(1), size - 1);
+        }
+        return channel;
+    }
+
+    @Override
+    public synchronized int read(ByteBuffer dst) throws IOException {
+        var bytesRead = read(dst, position);
+        if (bytesRead > 0) {
+            position += bytesRead;
+        }
+        return bytesRead;
+    }
+
+    @Override
+    public synchronized long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+        Objects.checkFromIndexSize(offset, length, dsts.length);
+        long total = 0;
+        for (var i = offset; i < offset + length; i++) {
+            var bytesRead = read(dsts[i]);
+            if (bytesRead < 0) {
+                return total == 0 ? -1 : total;
+            }
+            total += bytesRead;
+            if (dsts[i].hasRemaining()) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Reads bytes from the object starting at {@code position}, downloading the blocks of the range that are not
+     * local yet. The position of the channel is not changed.
+     *
+     * @param dst      the buffer into which bytes are to be transferred
+     * @param position the position in the object at which the read starts
+     * @return the number of bytes read, or {@code -1} if {@code position} is at or beyond the end of the object
+     * @throws ClosedChannelException if this channel is closed
+     * @throws IOException            if the bytes cannot be downloaded
+     */
+    @Override
+    public int read(ByteBuffer dst, long position) throws IOException {
+        Objects.requireNonNull(dst);
+        if (position < 0) {
+            throw new IllegalArgumentException("position cannot be < 0");
+        }
+        validateOpen();
+        if (position >= size) {
+            return -1;
+        }
+
+        var length = (int) Math.min(dst.remaining(), size - position);
+        load(position, length);
+        var view = dst.duplicate();
+        view.limit(view.position() + length);
+        while (view.hasRemaining()) {
+            local.read(view, position + view.position() - dst.position());
+        }
+        dst.position(view.position());
+        return length;
+    }
+
+    /**
+     * Transfers bytes of the object to {@code target}, downloading the blocks of the range that are not local yet.
+     *
+     * @param position the position in the object at which the transfer starts
+     * @param count    the maximum number of bytes to transfer
+     * @param target   the target channel
+     * @return the number of bytes transferred
+     * @throws IOException if the bytes cannot be downloaded or written to {@code target}
+     */
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        Objects.requireNonNull(target);
+        if (position < 0 || count < 0) {
+            throw new IllegalArgumentException("position and count cannot be < 0");
+        }
+        validateOpen();
+        if (position >= size) {
+            return 0;
+        }
+
+        var length = Math.min(count, size - position);
+        load(position, length);
+        return local.transferTo(position, length, target);
+    }
+
+    /**
+     * Maps a range of the object into memory. The blocks of the range that are not local yet are downloaded before
+     * the range of the local file is mapped.
+     *
+     * @param mode     {@link MapMode#READ_ONLY READ_ONLY} or {@link MapMode#PRIVATE PRIVATE}
+     * @param position the position in the object at which the mapped region starts
+     * @param size     the size of the region to be mapped
+     * @return the mapped byte buffer
+     * @throws NonWritableChannelException if {@code mode} is {@link MapMode#READ_WRITE READ_WRITE}
+     * @throws IOException                 if the region extends beyond the end of the object, or cannot be downloaded
+     */
+    @Override
+    public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+        Objects.requireNonNull(mode);
+        if (position < 0 || size < 0) {
+            throw new IllegalArgumentException("position and size cannot be < 0");
+        }
+        if (mode == MapMode.READ_WRITE) {
+            throw new NonWritableChannelException();
+        }
+        validateOpen();
+        if (position + size > this.size) {
+            throw new IOException("Cannot map " + size + " bytes at position " + position + " of path:" + path
+                + " which has " + this.size + " bytes");
+        }
+
+        load(position, size);
+        return local.map(mode, position, size);
+    }
+
+    @Override
+    public synchronized long position() throws IOException {
+        validateOpen();
+        return position;
+    }
+
+    @Override
+    public synchronized FileChannel position(long newPosition) throws IOException {
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("newPosition cannot be < 0");
+        }
+        validateOpen();
+        position = newPosition;
+        return this;
+    }
+
+    /**
+     * Returns the size of the object when the channel was opened.
+     *
+     * @return the size of the object in bytes
+     * @throws ClosedChannelException if this channel is closed
+     */
+    @Override
+    public long size() throws IOException {
+        validateOpen();
+        return size;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public int write(ByteBuffer src, long position) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long transferFrom(ReadableByteChannel src, long position, long count) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public FileChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    /**
+     * Does nothing, as the channel is read-only.
+     */
+    @Override
+    public void force(boolean metaData) throws IOException {
+        validateOpen();
+    }
+
+    @Override
+    public FileLock lock(long position, long size, boolean shared) {
+        throw new UnsupportedOperationException("S3 objects cannot be locked");
+    }
+
+    @Override
+    public FileLock tryLock(long position, long size, boolean shared) {
+        throw new UnsupportedOperationException("S3 objects cannot be locked");
+    }
+
+    @Override
+    protected void implCloseChannel() throws IOException {
+        var fileSystem = path.getFileSystem();
+        try {
+            local.close();
+        } finally {
+            fileSystem.releaseReadClient();
+            fileSystem.deregisterClosedChannel(this);
+        }
+    }
+
+    /**
+     * Downloads the blocks of {@code [position, position + length)} that are not local yet and waits for all blocks of
+     * the range. Blocks that other reads are downloading are waited for rather than requested again, and blocks that
+     * failed to download are requested again by the next read.
+     */
+    private void load(long position, long length) throws IOException {
+        var end = Math.min(size, position + length);
+        var downloads = new ArrayList<Map.Entry<Long, CompletableFuture<Void>>>();
+        for (var block = position / blockSize; block * blockSize < end; block++) {
+            downloads.add(Map.entry(block, blocks.computeIfAbsent(block, this::download)));
+        }
+
+        try {
+            CompletableFuture.allOf(downloads.stream().map(Map.Entry::getValue).toArray(CompletableFuture[]::new))
+                .get(TIMEOUT_TIME_LENGTH_5, MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            downloads.stream()
+                .filter(download -> download.getValue().isCompletedExceptionally())
+                .forEach(download -> blocks.remove(download.getKey(), download.getValue()));
+            var cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new IOException("Could not read from path:" + path, cause);
+        } catch (TimeoutException e) {
+            throw TimeOutUtils.logAndGenerateExceptionOnTimeOut(logger, "load", TIMEOUT_TIME_LENGTH_5, MINUTES);
+        }
+    }
+
+    private CompletableFuture<Void> download(long block) {
+        var from = block * blockSize;
+        var length = (int) Math.min(blockSize, size - from);
+        var buffer = ByteBuffer.allocate(length);
+        var range = "bytes=" + from + "-" + (from + length - 1);
+        logger.debug("byte range for {} is '{}'", path.getKey(), range);
+
+        return client.getObject(
+                builder -> builder
+                    .bucket(path.bucketName())
+                    .key(path.getKey())
+                    .range(range)
+                    .ifMatch(eTag),
+                new FragmentBuffersResponseTransformer(List.of(buffer)))
+            .thenAcceptAsync(response -> {
+                // the transformer leaves the buffer ready to be read, which is written off the threads of the client
+                try {
+                    while (buffer.hasRemaining()) {
+                        local.write(buffer, from + buffer.position());
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor);
+    }
+
+    private void validateOpen() throws ClosedChannelException {
+        if (!isOpen()) {
+            throw new ClosedChannelException();
+        }
+    }
+}
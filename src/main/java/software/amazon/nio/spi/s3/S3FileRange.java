@@ -0,0 +1,79 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A range of bytes of an S3 object requested by a vectored read, see
+ * {@link S3SeekableByteChannel#readVectored(java.util.List)}. Once the bytes are read, {@link #data()} completes with a
+ * read-only buffer holding exactly {@link #length()} bytes from {@link #offset()}.
+ */
+public final class S3FileRange {
+
+    private final long offset;
+    private final int length;
+    private final CompletableFuture<ByteBuffer> data = new CompletableFuture<>();
+
+    private S3FileRange(long offset, int length) {
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Create a range
+     *
+     * @param offset the position of the first byte of the range in the object. Must be {@code >= 0}.
+     * @param length the number of bytes of the range. Must be {@code >= 0}.
+     * @return the range
+     */
+    public static S3FileRange of(long offset, int length) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset cannot be < 0");
+        }
+        if (length < 0) {
+            throw new IllegalArgumentException("length cannot be < 0");
+        }
+        return new S3FileRange(offset, length);
+    }
+
+    /**
+     * @return the position of the first byte of the range in the object
+     */
+    public long offset() {
+        return offset;
+    }
+
+    /**
+     * @return the number of bytes of the range
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * The bytes of the range. The future completes exceptionally if the bytes could not be read, e.g. with an
+     * {@code EOFException} if the range extends beyond the end of the object.
+     *
+     * @return a future completing with a read-only buffer of the bytes of the range
+     */
+    public CompletableFuture<ByteBuffer> data() {
+        return data;
+    }
+
+    /**
+     * @return the position following the last byte of the range
+     */
+    long end() {
+        return offset + length;
+    }
+
+    @Override
+    public String toString() {
+        return "S3FileRange{offset=" + offset + ", length=" + length + '}';
+    }
+}
@@ -5,11 +5,15 @@
 
 package software.amazon.nio.spi.s3;
 
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.util.concurrent.TimeUnit.MINUTES;
 import static software.amazon.nio.spi.s3.Constants.PATH_SEPARATOR;
+import static software.amazon.nio.spi.s3.util.TimeOutUtils.TIMEOUT_TIME_LENGTH_5;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.channels.Channel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.ClosedFileSystemException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileStore;
@@ -17,21 +21,36 @@ import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.WatchService;
 import java.nio.file.attribute.UserPrincipalLookupService;
 import java.nio.file.spi.FileSystemProvider;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
+import software.amazon.awssdk.transfer.s3.model.DirectoryDownload;
+import software.amazon.awssdk.transfer.s3.model.DirectoryUpload;
+import software.amazon.awssdk.transfer.s3.progress.TransferListener;
 import software.amazon.nio.spi.s3.config.S3NioSpiConfiguration;
+import software.amazon.nio.spi.s3.util.TimeOutUtils;
 
 /**
  * A Java NIO FileSystem for an S3 bucket as seen through the lens of the AWS Principal calling the class.
@@ -52,9 +71,20 @@ public class S3FileSystem extends FileSystem {
     private final String bucketName;
     private final S3FileSystemProvider provider;
     private boolean open = true;
-    private final Set<S3SeekableByteChannel> openChannels = new HashSet<>();
+    private final Set<Channel> openChannels = new HashSet<>();
 
     private S3AsyncClient client;
+    private S3AsyncClient readClient;
+    private int readClientReferences;
+    private S3FragmentCache fragmentCache;
+    private S3DiskFragmentCache diskFragmentCache;
+    private S3RequestHedger requestHedger;
+    private S3TransferManager transferManager;
+    private ExecutorService transferExecutor;
+    private ExecutorService readExecutor;
+    private final S3WriteMetrics writeMetrics = new S3WriteMetrics();
+    private final Map<S3AccessPattern, LongAdder> accessPatternSwitches = new EnumMap<>(S3AccessPattern.class);
+    private final S3PendingUploads pendingUploads;
     private final S3NioSpiConfiguration configuration;
 
     /**
@@ -71,6 +101,11 @@ public class S3FileSystem extends FileSystem {
 
         clientProvider = new S3ClientProvider(configuration);
         this.provider = provider;
+        var maxPendingUploads = configuration.getWriteMaxPendingUploads();
+        pendingUploads = maxPendingUploads > 0 ? new S3PendingUploads(maxPendingUploads) : null;
+        for (var accessPattern : S3AccessPattern.values()) {
+            accessPatternSwitches.put(accessPattern, new LongAdder());
+        }
     }
 
     /**
@@ -96,17 +131,28 @@ public class S3FileSystem extends FileSystem {
      * {@link WatchService watch-service}, and other closeable objects associated
      * with this file system. The {@link FileSystems#getDefault default} file
      * system cannot be closed.
+     *
+     * <p> Closing a file system waits for the objects written behind, see
+     * {@link #flushPendingWrites()}, and throws if any of them failed.
      */
     @Override
     public void close() throws IOException {
         open = false;
-        for (var channel : openChannels) {
+        for (var channel : new HashSet<>(openChannels)) {
             if (channel.isOpen()) {
                 channel.close();
             }
             deregisterClosedChannel(channel);
         }
-        provider.closeFileSystem(this);
+        try {
+            flushPendingWrites();
+        } finally {
+            closeTransferManager();
+            closeReadExecutor();
+            closeReadClient();
+            closeFragmentCache();
+            provider.closeFileSystem(this);
+        }
     }
 
     /**
@@ -418,8 +464,509 @@ public class S3FileSystem extends FileSystem {
         return client;
     }
 
-    S3AsyncClient readClient() {
-        return clientProvider.generateClient(bucketName, false);
+    /**
+     * Obtain the client used by read channels of this {@code FileSystem}. The client is created on first use and shared
+     * by all read channels until the {@code FileSystem} is closed. Each call must be balanced by a call to
+     * {@link #releaseReadClient()} once the caller no longer needs the client.
+     *
+     * @return the S3AsyncClient shared by the read channels of this FileSystem
+     * @throws ClosedFileSystemException if this {@code FileSystem} is closed, as a client created now would never be
+     *                                   closed
+     */
+    synchronized S3AsyncClient acquireReadClient() {
+        if (!open) {
+            throw new ClosedFileSystemException();
+        }
+        if (readClient == null) {
+            logger.debug("creating shared read client for bucket '{}'", bucketName);
+            readClient = clientProvider.generateClient(bucketName, false);
+        }
+        readClientReferences++;
+        return readClient;
+    }
+
+    /**
+     * Signals that a caller of {@link #acquireReadClient()} no longer uses the read client. The client itself is kept
+     * open for re-use and is only closed when this {@code FileSystem} is closed.
+     */
+    synchronized void releaseReadClient() {
+        if (readClientReferences > 0) {
+            readClientReferences--;
+        }
+    }
+
+    /**
+     * The number of read channels currently holding a reference to the shared read client. Exposed mainly for testing
+     *
+     * @return the number of outstanding references
+     */
+    synchronized int readClientReferences() {
+        return readClientReferences;
+    }
+
+    private synchronized void closeReadClient() {
+        if (readClient != null) {
+            if (readClientReferences > 0) {
+                logger.debug("closing shared read client of bucket '{}' with {} outstanding reference(s)",
+                    bucketName, readClientReferences);
+            }
+            readClient.close();
+            readClient = null;
+            readClientReferences = 0;
+        }
+    }
+
+    /**
+     * Obtain the fragment cache shared by the read channels of this {@code FileSystem}. The cache is created on first
+     * use with the size given by {@link S3NioSpiConfiguration#getReadCacheMaxBytes()} and dropped when the
+     * {@code FileSystem} is closed.
+     *
+     * @return the shared fragment cache or {@code null} if it is disabled
+     */
+    synchronized S3FragmentCache fragmentCache() {
+        if (fragmentCache == null && configuration.getReadCacheMaxBytes() > 0) {
+            fragmentCache = new S3FragmentCache(configuration.getReadCacheMaxBytes(),
+                configuration.getReadTailCacheMaxBytes());
+        }
+        return fragmentCache;
+    }
+
+    /**
+     * The number of fragments the read channels of this file system found in the shared fragment cache, see
+     * {@link S3NioSpiConfiguration#withReadCacheMaxBytes(long)}
+     *
+     * @return the number of cache hits since the cache was created, {@code 0} if the cache is disabled or not used yet
+     */
+    public synchronized long fragmentCacheHits() {
+        return fragmentCache == null ? 0L : fragmentCache.stats().hitCount();
+    }
+
+    /**
+     * The number of fragments the read channels of this file system did not find in the shared fragment cache
+     *
+     * @return the number of cache misses since the cache was created, {@code 0} if the cache is disabled or not used
+     * yet
+     */
+    public synchronized long fragmentCacheMisses() {
+        return fragmentCache == null ? 0L : fragmentCache.stats().missCount();
+    }
+
+    /**
+     * The number of fragments evicted from the shared fragment cache to stay within its size
+     *
+     * @return the number of evictions since the cache was created, {@code 0} if the cache is disabled or not used yet
+     */
+    public synchronized long fragmentCacheEvictions() {
+        return fragmentCache == null ? 0L : fragmentCache.stats().evictionCount();
+    }
+
+    /**
+     * The number of bytes of fragments currently held by the shared fragment cache, not counting the pinned tails
+     *
+     * @return the size of the cached fragments, {@code 0} if the cache is disabled or not used yet
+     */
+    public synchronized long fragmentCacheBytes() {
+        return fragmentCache == null ? 0L : fragmentCache.cachedBytes();
+    }
+
+    /**
+     * Obtain the hedger of the ranged GETs sent by the read channels of this {@code FileSystem}. The hedger is created on
+     * first use with the settings given by {@link S3NioSpiConfiguration#getHedgePercentile()},
+     * {@link S3NioSpiConfiguration#getHedgeMinDelayMillis()} and {@link S3NioSpiConfiguration#getHedgeMaxRatePercent()}.
+     *
+     * @return the request hedger or {@code null} if hedging is disabled
+     */
+    synchronized S3RequestHedger requestHedger() {
+        if (requestHedger == null && configuration.getHedgePercentile() > 0) {
+            requestHedger = new S3RequestHedger(configuration.getHedgePercentile(),
+                configuration.getHedgeMinDelayMillis(), configuration.getHedgeMaxRatePercent());
+        }
+        return requestHedger;
+    }
+
+    /**
+     * The number of ranged GETs of the read channels of this file system that were hedged with a second request,
+     * see {@link S3NioSpiConfiguration#withHedgePercentile(int)}
+     *
+     * @return the number of hedging requests sent, {@code 0} if hedging is disabled
+     */
+    public synchronized long hedgedRequests() {
+        return requestHedger == null ? 0L : requestHedger.hedgesIssued();
+    }
+
+    /**
+     * The number of hedging requests that completed before the request they hedged
+     *
+     * @return the number of hedging requests whose response was used, {@code 0} if hedging is disabled
+     */
+    public synchronized long hedgedRequestsWon() {
+        return requestHedger == null ? 0L : requestHedger.hedgesWon();
+    }
+
+    /**
+     * The number of bytes of the read buffer pool that the read channels of the process hold their fragments in, see
+     * {@link S3NioSpiConfiguration#withReadBufferPoolTargetBytes(long)}. The pool is shared by the file systems of the
+     * process that configure it alike.
+     *
+     * @return the number of bytes of the buffers currently taken from the pool, {@code 0} if no read channel of this
+     * configuration uses the pool
+     */
+    public long readBufferPoolBytesInUse() {
+        var pool = readBufferPool();
+        return pool == null ? 0L : pool.bytesInUse();
+    }
+
+    /**
+     * The number of bytes of direct buffers allocated by the read buffer pool, see {@link #readBufferPoolBytesInUse()}.
+     * It exceeds the target size of the pool while reads hold buffers allocated beyond it.
+     *
+     * @return the number of bytes of the buffers allocated by the pool, in use or free, {@code 0} if no read channel of
+     * this configuration uses the pool
+     */
+    public long readBufferPoolAllocatedBytes() {
+        var pool = readBufferPool();
+        return pool == null ? 0L : pool.allocatedBytes();
+    }
+
+    /**
+     * The number of times prefetching backed off because the target size of the read buffer pool was in use, see
+     * {@link #readBufferPoolBytesInUse()}
+     *
+     * @return the number of buffers refused to prefetching, {@code 0} if no read channel of this configuration uses
+     * the pool
+     */
+    public long readBufferPoolBackOffs() {
+        var pool = readBufferPool();
+        return pool == null ? 0L : pool.backOffCount();
+    }
+
+    /**
+     * The number of times the read channels of this file system changed their access pattern, see
+     * {@link S3SeekableByteChannel#accessPattern()}. Frequent changes mean the reads defeat the prefetching of the
+     * channels; changes to {@link S3AccessPattern#RANDOM random} that dominate those to
+     * {@link S3AccessPattern#SEQUENTIAL sequential} suggest smaller fragments, see
+     * {@link S3NioSpiConfiguration#withMaxFragmentSize(int)}.
+     *
+     * @param accessPattern the access pattern changed to
+     * @return the number of changes of the access pattern of a read channel to {@code accessPattern}
+     */
+    public long accessPatternSwitches(S3AccessPattern accessPattern) {
+        return accessPatternSwitches.get(Objects.requireNonNull(accessPattern)).sum();
+    }
+
+    /**
+     * The number of times the read channels of this file system changed their access pattern, to any pattern, see
+     * {@link #accessPatternSwitches(S3AccessPattern)}
+     *
+     * @return the number of access pattern changes
+     */
+    public long accessPatternSwitches() {
+        return accessPatternSwitches.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * Counts a change of the access pattern of a read channel of this file system
+     *
+     * @param accessPattern the access pattern the channel changed to
+     */
+    void accessPatternSwitched(S3AccessPattern accessPattern) {
+        accessPatternSwitches.get(accessPattern).increment();
+    }
+
+    private S3FragmentBufferPool readBufferPool() {
+        return S3FragmentBufferPool.sharedIfPresent(configuration.getMaxFragmentSize(),
+            configuration.getReadBufferPoolTargetBytes());
+    }
+
+    /**
+     * Obtain the transfer manager of this {@code FileSystem}, which uploads and downloads local files and directories.
+     * The transfer manager is created on first use with the client of this {@code FileSystem} and its own executor of
+     * {@link S3NioSpiConfiguration#getTransferExecutorThreads()} daemon threads, and is shared by all transfers until
+     * the {@code FileSystem} is closed.
+     *
+     * @return the transfer manager of this FileSystem
+     */
+    synchronized S3TransferManager transferManager() {
+        if (transferManager == null) {
+            var threads = configuration.getTransferExecutorThreads();
+            logger.debug("creating transfer manager for bucket '{}' with {} thread(s)", bucketName, threads);
+            var threadNumber = new AtomicInteger();
+            transferExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+                var thread = new Thread(runnable, "s3-nio-transfer-" + bucketName + "-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            transferManager = S3TransferManager.builder().s3Client(client()).executor(transferExecutor).build();
+        }
+        return transferManager;
+    }
+
+    private synchronized void closeTransferManager() {
+        if (transferManager != null) {
+            // the transfer manager does not shut down an executor it was given
+            transferManager.close();
+            transferExecutor.shutdown();
+            transferManager = null;
+            transferExecutor = null;
+        }
+    }
+
+    /**
+     * Obtain the read executor of this {@code FileSystem}, which runs the work of read channels that must not block the
+     * threads of the S3 client. The executor is created on first use with
+     * {@link S3NioSpiConfiguration#getReadExecutorThreads()} daemon threads, and is shut down when the
+     * {@code FileSystem} is closed.
+     *
+     * @return the read executor of this FileSystem
+     */
+    synchronized Executor readExecutor() {
+        if (readExecutor == null) {
+            var threads = configuration.getReadExecutorThreads();
+            logger.debug("creating read executor for bucket '{}' with {} thread(s)", bucketName, threads);
+            var threadNumber = new AtomicInteger();
+            readExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+                var thread = new Thread(runnable, "s3-nio-read-" + bucketName + "-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return readExecutor;
+    }
+
+    private synchronized void closeReadExecutor() {
+        if (readExecutor != null) {
+            readExecutor.shutdown();
+            readExecutor = null;
+        }
+    }
+
+    /**
+     * Uploads the files of a local directory and its subdirectories to a directory of this file system, with the
+     * transfer manager of this file system. The key of each object is the relative path of its file under the target.
+     *
+     * @param source    the local directory to upload
+     * @param target    the directory of this file system to upload to
+     * @param listeners the listeners notified of the progress of the upload of each file
+     * @return the upload, whose completion future completes once all files are uploaded and tells which failed
+     */
+    public DirectoryUpload uploadDirectory(Path source, Path target, TransferListener... listeners) {
+        var prefix = directoryKey(S3FileSystemProvider.checkPath(target));
+        return transferManager().uploadDirectory(request -> request
+            .source(source)
+            .bucket(bucketName)
+            .s3Prefix(prefix)
+            .uploadFileRequestTransformer(file -> {
+                for (var listener : listeners) {
+                    file.addTransferListener(listener);
+                }
+            }));
+    }
+
+    /**
+     * Downloads the objects under a directory of this file system into a local directory, with the transfer manager of
+     * this file system. The path of each file is the key of its object relative to the source.
+     *
+     * @param source    the directory of this file system to download
+     * @param target    the local directory to download to
+     * @param listeners the listeners notified of the progress of the download of each object
+     * @return the download, whose completion future completes once all objects are downloaded and tells which failed
+     */
+    public DirectoryDownload downloadDirectory(Path source, Path target, TransferListener... listeners) {
+        var prefix = directoryKey(S3FileSystemProvider.checkPath(source));
+        return transferManager().downloadDirectory(request -> request
+            .destination(target)
+            .bucket(bucketName)
+            .listObjectsV2RequestTransformer(list -> list.prefix(prefix.isEmpty() ? null : prefix + PATH_SEPARATOR))
+            .downloadFileRequestTransformer(file -> {
+                for (var listener : listeners) {
+                    file.addTransferListener(listener);
+                }
+            }));
+    }
+
+    private static String directoryKey(S3Path directory) {
+        var key = directory.toRealPath(NOFOLLOW_LINKS).getKey();
+        return key.endsWith(PATH_SEPARATOR) ? key.substring(0, key.length() - 1) : key;
+    }
+
+    /**
+     * @return the metrics of the part uploads of the write channels of this {@code FileSystem}
+     */
+    S3WriteMetrics writeMetrics() {
+        return writeMetrics;
+    }
+
+    /**
+     * The number of parts the write channels of this file system are uploading, see
+     * {@link S3NioSpiConfiguration#withWriteMaxInFlightParts(int)}
+     *
+     * @return the number of part uploads in flight
+     */
+    public int queuedUploadParts() {
+        return writeMetrics.queuedParts();
+    }
+
+    /**
+     * The throughput of the part uploads of the write channels of this file system, measured over the time at least
+     * one part was uploading
+     *
+     * @return the bytes uploaded per second, {@code 0} if nothing was uploaded yet
+     */
+    public double uploadThroughput() {
+        return writeMetrics.throughput();
+    }
+
+    /**
+     * The time writers of the write channels of this file system spent waiting for parts to finish uploading, because
+     * too many parts were in flight
+     *
+     * @return the time writers were blocked in nanoseconds
+     */
+    public long writeBlockedNanos() {
+        return writeMetrics.blockedNanos();
+    }
+
+    /**
+     * @return the uploads written behind by the write channels of this {@code FileSystem}, or {@code null} if writing
+     *     behind is disabled, see {@link S3NioSpiConfiguration#withWriteMaxPendingUploads(int)}
+     */
+    S3PendingUploads pendingUploads() {
+        return pendingUploads;
+    }
+
+    /**
+     * Waits for the objects written behind by the write channels of this file system, i.e. whose channels were closed
+     * before they were uploaded, see {@link S3NioSpiConfiguration#withWriteMaxPendingUploads(int)}, for at most five
+     * minutes, after which the wait fails like the other timeouts of the file system. Returns at once if writing behind
+     * is disabled.
+     *
+     * @throws IOException if objects written behind could not be uploaded since the last flush, with the first failure
+     *                     as cause and the others suppressed
+     */
+    public void flushPendingWrites() throws IOException {
+        if (pendingUploads != null) {
+            pendingUploads.flush();
+        }
+    }
+
+    /**
+     * The number of objects written behind by the write channels of this file system that are not uploaded yet
+     *
+     * @return the number of pending uploads, {@code 0} if writing behind is disabled
+     */
+    public int pendingWrites() {
+        return pendingUploads != null ? pendingUploads.pendingUploads() : 0;
+    }
+
+    /**
+     * Registers a listener notified of every object written behind that could not be uploaded. Has no effect if
+     * writing behind is disabled.
+     *
+     * @param listener the listener
+     */
+    public void addWriteFailureListener(S3WriteFailureListener listener) {
+        if (pendingUploads != null) {
+            pendingUploads.addListener(Objects.requireNonNull(listener));
+        }
+    }
+
+    /**
+     * Removes a listener registered with {@link #addWriteFailureListener(S3WriteFailureListener)}
+     *
+     * @param listener the listener
+     */
+    public void removeWriteFailureListener(S3WriteFailureListener listener) {
+        if (pendingUploads != null) {
+            pendingUploads.removeListener(listener);
+        }
+    }
+
+    /**
+     * Downloads an object of this file system into a local file with concurrent ranged GETs, see
+     * {@link S3NioSpiConfiguration#withParallelPartSize(int)} and
+     * {@link S3NioSpiConfiguration#withParallelConcurrency(int)}. Each part is written at its position in the file as
+     * soon as it arrives. The file is created, or truncated if it exists. The download fails like the other timeouts of
+     * the file system if a part takes longer than five minutes.
+     *
+     * @param source      the object to download
+     * @param destination the local file to write
+     * @return the number of bytes downloaded
+     * @throws NoSuchFileException if the object does not exist
+     * @throws IOException         if the object cannot be downloaded or the file cannot be written
+     */
+    public long download(Path source, Path destination) throws IOException {
+        var path = S3FileSystemProvider.checkPath(source);
+        var downloader = new S3ParallelDownloader(acquireReadClient(), configuration.getParallelPartSize(),
+            configuration.getParallelConcurrency());
+        try {
+            // every part is bounded by the timeout, so the download completes
+            return downloader.downloadToFile(path, destination, TIMEOUT_TIME_LENGTH_5, MINUTES).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Could not download " + path.toUri(), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw TimeOutUtils.logAndGenerateExceptionOnTimeOut(logger, "download", TIMEOUT_TIME_LENGTH_5, MINUTES);
+            }
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Could not download " + path.toUri(), e.getCause());
+        } finally {
+            releaseReadClient();
+        }
+    }
+
+    /**
+     * Downloads an object of this file system with concurrent ranged GETs and writes it in order into a channel. At
+     * most {@link S3NioSpiConfiguration#getParallelConcurrency()} parts are held in memory at any time.
+     *
+     * @param source the object to download
+     * @param target the channel to write to
+     * @return the number of bytes written
+     * @throws NoSuchFileException if the object does not exist
+     * @throws IOException         if the object cannot be downloaded or the channel cannot be written
+     */
+    public long download(Path source, WritableByteChannel target) throws IOException {
+        var path = S3FileSystemProvider.checkPath(source);
+        var downloader = new S3ParallelDownloader(acquireReadClient(), configuration.getParallelPartSize(),
+            configuration.getParallelConcurrency());
+        try {
+            return downloader.download(path, target, TIMEOUT_TIME_LENGTH_5, MINUTES);
+        } finally {
+            releaseReadClient();
+        }
+    }
+
+    /**
+     * Obtain the on-disk fragment cache used by the read channels of this {@code FileSystem}. The cache is created on
+     * first use in the directory given by {@link S3NioSpiConfiguration#getReadDiskCacheDirectory()} with the size given
+     * by {@link S3NioSpiConfiguration#getReadDiskCacheMaxBytes()}, and shared with the other file systems of the JVM
+     * that use the same directory. Its files are kept when the {@code FileSystem} is closed so that they can be used
+     * again by later file systems, including in later JVMs.
+     *
+     * @return the disk fragment cache or {@code null} if it is disabled
+     * @throws IOException if the cache directory cannot be created or read
+     */
+    synchronized S3DiskFragmentCache diskFragmentCache() throws IOException {
+        var directory = configuration.getReadDiskCacheDirectory();
+        if (diskFragmentCache == null && directory != null) {
+            diskFragmentCache = S3DiskFragmentCache.forDirectory(directory, configuration.getReadDiskCacheMaxBytes());
+        }
+        return diskFragmentCache;
+    }
+
+    private synchronized void closeFragmentCache() {
+        if (fragmentCache != null) {
+            logger.debug("dropping shared fragment cache of bucket '{}', {}", bucketName, fragmentCache.stats());
+            fragmentCache.invalidateAll();
+            fragmentCache = null;
+        }
+        if (diskFragmentCache != null) {
+            logger.debug("disk fragment cache in '{}' shared with bucket '{}' had {} hit(s) and {} miss(es)",
+                diskFragmentCache.directory(), bucketName, diskFragmentCache.hitCount(), diskFragmentCache.missCount());
+            diskFragmentCache = null;
+        }
     }
 
     /**
@@ -440,11 +987,11 @@ public class S3FileSystem extends FileSystem {
         return Collections.unmodifiableSet(openChannels);
     }
 
-    void registerOpenChannel(S3SeekableByteChannel channel) {
+    void registerOpenChannel(Channel channel) {
         openChannels.add(channel);
     }
 
-    boolean deregisterClosedChannel(S3SeekableByteChannel closedChannel) {
+    boolean deregisterClosedChannel(Channel closedChannel) {
         assert !closedChannel.isOpen();
 
         return openChannels.remove(closedChannel);
@@ -12,7 +12,11 @@ import static software.amazon.nio.spi.s3.util.TimeOutUtils.TIMEOUT_TIME_LENGTH_1
 import static software.amazon.nio.spi.s3.util.TimeOutUtils.logAndGenerateExceptionOnTimeOut;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.AccessDeniedException;
 import java.nio.file.AccessMode;
@@ -41,6 +45,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -48,6 +53,7 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
@@ -230,6 +236,115 @@ public class S3FileSystemProvider extends FileSystemProvider {
         return channel;
     }
 
+    /**
+     * Opens an object, returning an input stream that reads it with a single streaming GET (see
+     * {@link S3InputStream}). The stream does not pay for the read-ahead fragments of a channel.
+     *
+     * @param path    the path of the object to open
+     * @param options options specifying how the object is opened
+     * @return a new input stream
+     * @throws UnsupportedOperationException if an option that asks for write access is specified
+     */
+    @Override
+    public InputStream newInputStream(Path path, OpenOption... options) {
+        for (var option : options) {
+            if (option == StandardOpenOption.APPEND || option == StandardOpenOption.WRITE) {
+                throw new UnsupportedOperationException("'" + option + "' not allowed");
+            }
+        }
+
+        return new S3InputStream(checkPath(path));
+    }
+
+    /**
+     * Opens or creates an object, returning an output stream that replaces it. Unless the object is opened with
+     * {@code TRUNCATE_EXISTING} or {@code CREATE_NEW}, as it is by default, the stream writes to a channel like
+     * {@link FileSystemProvider#newOutputStream}. Otherwise the stream uploads the object as a multipart upload
+     * while it is written (see {@link S3OutputStream}).
+     *
+     * @param path    the path of the object to open or create
+     * @param options options specifying how the object is opened
+     * @return a new output stream
+     * @throws IllegalArgumentException      if {@code options} contains {@code READ}
+     * @throws UnsupportedOperationException if an unsupported open option is specified
+     * @throws IOException                   if an I/O error occurs
+     */
+    @Override
+    public OutputStream newOutputStream(Path path, OpenOption... options) throws IOException {
+        var openOptions = new HashSet<OpenOption>(Arrays.asList(options));
+        // an S3ContentType alone leaves the default options of an output stream
+        if (openOptions.stream().allMatch(S3ContentType.class::isInstance)) {
+            openOptions.add(StandardOpenOption.CREATE);
+            openOptions.add(StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        if (openOptions.contains(StandardOpenOption.READ)) {
+            throw new IllegalArgumentException("READ not allowed");
+        }
+        if (!openOptions.contains(StandardOpenOption.TRUNCATE_EXISTING)
+            && !openOptions.contains(StandardOpenOption.CREATE_NEW)) {
+            return super.newOutputStream(path, options);
+        }
+        openOptions.add(StandardOpenOption.WRITE);
+
+        return new S3OutputStream(checkPath(path), openOptions);
+    }
+
+    /**
+     * Opens or creates an object, returning an asynchronous file channel to access it. A channel is opened either for
+     * reading or for writing. Reads are ranged GETs that complete without blocking a thread, writes are uploaded as a
+     * multipart upload that is completed when the channel is closed (see {@link S3AsynchronousFileChannel}).
+     *
+     * @param path     the path of the object to open or create
+     * @param options  options specifying how the object is opened
+     * @param executor the thread pool that runs the completion handlers, or {@code null} to run them on the threads of
+     *                 the S3 client
+     * @param attrs    an optional list of file attributes to set atomically when creating the object
+     * @return a new asynchronous file channel
+     * @throws IllegalArgumentException      if the set contains an invalid combination of options
+     * @throws UnsupportedOperationException if an unsupported open option is specified, e.g. {@code APPEND}, or if an
+     *                                       existing object is opened for writing without {@code TRUNCATE_EXISTING}
+     * @throws IOException                   if an I/O error occurs
+     */
+    @Override
+    public AsynchronousFileChannel newAsynchronousFileChannel(
+        Path path,
+        Set<? extends OpenOption> options,
+        ExecutorService executor,
+        FileAttribute<?>... attrs
+    ) throws IOException {
+        if (Objects.isNull(options)) {
+            options = Collections.emptySet();
+        }
+
+        return new S3AsynchronousFileChannel(checkPath(path), options, executor);
+    }
+
+    /**
+     * Opens an object for reading, returning a file channel to access it. The channel is read-only and mirrors the
+     * object in a sparse local file that is filled with the ranges that are read, transferred or mapped (see
+     * {@link S3FileChannel}).
+     *
+     * @param path    the path of the object to open
+     * @param options options specifying how the object is opened
+     * @param attrs   ignored, as no object is created
+     * @return a new file channel
+     * @throws UnsupportedOperationException if an option that asks for write access is specified
+     * @throws NoSuchFileException           if the object does not exist
+     * @throws IOException                   if an I/O error occurs
+     */
+    @Override
+    public FileChannel newFileChannel(
+        Path path,
+        Set<? extends OpenOption> options,
+        FileAttribute<?>... attrs
+    ) throws IOException {
+        if (Objects.isNull(options)) {
+            options = Collections.emptySet();
+        }
+
+        return new S3FileChannel(checkPath(path), options);
+    }
+
     /**
      * Opens a directory, returning a {@code DirectoryStream} to iterate over
      * the entries in the directory. This method works in exactly the manner
@@ -377,12 +492,11 @@ public class S3FileSystemProvider extends FileSystemProvider {
         try {
             var sourceKeys = getContainedObjectBatches(s3Client, sourceBucket, sourcePrefix, timeOut, unit);
             final var prefixWithSeparator = sourcePrefix + PATH_SEPARATOR;
-            try (var s3TransferManager = S3TransferManager.builder().s3Client(s3Client).build()) {
-                for (var keyList : sourceKeys) {
-                    for (var objectIdentifier : keyList) {
-                        copyKey(objectIdentifier.key(), prefixWithSeparator, sourceBucket, s3TargetPath, s3TransferManager,
-                            fileExistsAndCannotReplace).get(timeOut, unit);
-                    }
+            var s3TransferManager = s3SourcePath.getFileSystem().transferManager();
+            for (var keyList : sourceKeys) {
+                for (var objectIdentifier : keyList) {
+                    copyKey(objectIdentifier.key(), prefixWithSeparator, sourceBucket, s3TargetPath, s3TransferManager,
+                        fileExistsAndCannotReplace).get(timeOut, unit);
                 }
             }
         } catch (TimeoutException e) {
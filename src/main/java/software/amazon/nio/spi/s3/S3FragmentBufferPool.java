@@ -0,0 +1,192 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pool of fixed-size direct buffers that the read channels of the process hold their read ahead fragments in, so
+ * that the memory used for fragments is bounded for the whole process rather than per channel and is not churned
+ * through the heap.
+ * <p>
+ * The read channels of all file systems with the same fragment size and target share one pool, see
+ * {@link #shared(int, long)}. File systems configured differently use pools of their own, each with its own target, so
+ * they do not take buffers of the wrong size from each other.
+ * <p>
+ * The size of the pool is a soft target rather than a hard cap. The pool allocates at most {@code targetBytes} bytes of
+ * buffers for prefetching: {@link #tryAcquire()} returns {@code null} once the target is in use, and prefetching backs
+ * off until fragments are released. A read that needs a fragment to make progress uses {@link #acquire()}, which never
+ * waits, as the fragments in use may be held by the very channel that reads: if the target is in use it allocates a
+ * buffer beyond the target, which is dropped instead of pooled when released. Memory is therefore bounded by the target
+ * plus one fragment per thread that is reading.
+ */
+class S3FragmentBufferPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3FragmentBufferPool.class);
+
+    // guarded by itself, the shared pools of the JVM by buffer size and target
+    private static final Map<List<Long>, S3FragmentBufferPool> SHARED = new HashMap<>();
+
+    private final int bufferSize;
+    private final long targetBytes;
+    private final ArrayDeque<ByteBuffer> freeBuffers = new ArrayDeque<>();
+    private final LongAdder backOffs = new LongAdder();
+    private long allocatedBytes;
+    private long bytesInUse;
+
+    /**
+     * @param bufferSize  the size of the buffers of the pool. Must be {@code > 0}.
+     * @param targetBytes the maximum number of bytes of buffers allocated for prefetching. Must be
+     *                    {@code >= bufferSize}.
+     */
+    S3FragmentBufferPool(int bufferSize, long targetBytes) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be > 0");
+        }
+        if (targetBytes < bufferSize) {
+            throw new IllegalArgumentException("targetBytes must be >= bufferSize");
+        }
+        this.bufferSize = bufferSize;
+        this.targetBytes = targetBytes;
+    }
+
+    /**
+     * Returns the pool shared by the read channels of the process that use the given configuration, creating it on
+     * first use. A pool is never replaced, so the buffers it hands out are always released to it.
+     *
+     * @param bufferSize  the size of the buffers, i.e. the fragment size of the read channels
+     * @param targetBytes the target size of the pool; {@code 0} disables pooling
+     * @return the shared pool or {@code null} if pooling is disabled
+     */
+    static S3FragmentBufferPool shared(int bufferSize, long targetBytes) {
+        if (targetBytes <= 0) {
+            return null;
+        }
+        var target = Math.max(targetBytes, bufferSize);
+        synchronized (SHARED) {
+            return SHARED.computeIfAbsent(List.of((long) bufferSize, target), key -> {
+                logger.debug("creating read buffer pool of '{}' bytes in buffers of '{}' bytes", target, bufferSize);
+                return new S3FragmentBufferPool(bufferSize, target);
+            });
+        }
+    }
+
+    /**
+     * Returns the pool shared by the read channels of the process that use the given configuration, without creating
+     * it
+     *
+     * @param bufferSize  the size of the buffers, i.e. the fragment size of the read channels
+     * @param targetBytes the target size of the pool
+     * @return the shared pool or {@code null} if no read channel uses a pool of this configuration
+     */
+    static S3FragmentBufferPool sharedIfPresent(int bufferSize, long targetBytes) {
+        if (targetBytes <= 0) {
+            return null;
+        }
+        synchronized (SHARED) {
+            return SHARED.get(List.of((long) bufferSize, Math.max(targetBytes, bufferSize)));
+        }
+    }
+
+    /**
+     * Takes a buffer for prefetching.
+     *
+     * @return a cleared buffer or {@code null} if the target size of the pool is in use
+     */
+    synchronized ByteBuffer tryAcquire() {
+        var buffer = takeWithinTarget();
+        if (buffer == null) {
+            backOffs.increment();
+        }
+        return buffer;
+    }
+
+    /**
+     * Takes a buffer for a read that cannot proceed without it, allocating beyond the target size if needed.
+     *
+     * @return a cleared buffer
+     */
+    synchronized ByteBuffer acquire() {
+        var buffer = takeWithinTarget();
+        if (buffer == null) {
+            logger.debug("read buffer pool exhausted, allocating '{}' bytes beyond its target", bufferSize);
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+            allocatedBytes += bufferSize;
+            bytesInUse += bufferSize;
+        }
+        return buffer;
+    }
+
+    private ByteBuffer takeWithinTarget() {
+        var buffer = freeBuffers.poll();
+        if (buffer == null) {
+            if (allocatedBytes + bufferSize > targetBytes) {
+                return null;
+            }
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+            allocatedBytes += bufferSize;
+        }
+        bytesInUse += bufferSize;
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer taken from this pool. The buffer must not be used afterwards.
+     *
+     * @param buffer the buffer
+     */
+    synchronized void release(ByteBuffer buffer) {
+        bytesInUse -= bufferSize;
+        if (allocatedBytes > targetBytes) {
+            // allocated beyond the target by acquire(), left to the garbage collector
+            allocatedBytes -= bufferSize;
+        } else {
+            freeBuffers.push(buffer.clear());
+        }
+    }
+
+    /**
+     * @return the size of the buffers of the pool
+     */
+    int bufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return the maximum number of bytes of buffers allocated for prefetching
+     */
+    long targetBytes() {
+        return targetBytes;
+    }
+
+    /**
+     * @return the number of bytes of the buffers currently taken from the pool
+     */
+    synchronized long bytesInUse() {
+        return bytesInUse;
+    }
+
+    /**
+     * @return the number of bytes of the buffers allocated by the pool, in use or free
+     */
+    synchronized long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return the number of times a buffer for prefetching was refused because the target size was in use
+     */
+    long backOffCount() {
+        return backOffs.sum();
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache of object fragments shared by all read channels of an {@code S3FileSystem}, so that re-opening an object
+ * does not download its bytes again. Fragments are keyed by bucket, key, ETag, fragment size and fragment index; a new
+ * version of an object has a new ETag and therefore never sees the fragments of the old one. The cache holds at most
+ * {@code maxBytes} bytes of fragments, evicting the least valuable fragments first, and records hit and miss
+ * statistics.
+ * <p>
+ * The pinned tails of objects, i.e. their last bytes, are held apart from the fragments with a budget of their own of
+ * {@code tailsMaxBytes} bytes, so that prefetched fragments never push a footer out of the cache. The cache holds at
+ * most {@code maxBytes + tailsMaxBytes} bytes in all.
+ * <p>
+ * Cached buffers are shared between channels and must not be modified; readers work on read-only duplicates.
+ */
+class S3FragmentCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3FragmentCache.class);
+
+    private final long maxBytes;
+    private final long tailsMaxBytes;
+    private final AsyncCache<FragmentKey, ByteBuffer> fragments;
+    private final AsyncCache<FragmentKey, ByteBuffer> tails;
+
+    /**
+     * @param maxBytes      the maximum number of bytes of fragments held by the cache. Must be {@code > 0}.
+     * @param tailsMaxBytes the maximum number of bytes of tails held by the cache. Must be {@code > 0}.
+     */
+    S3FragmentCache(long maxBytes, long tailsMaxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be > 0");
+        }
+        if (tailsMaxBytes <= 0) {
+            throw new IllegalArgumentException("tailsMaxBytes must be > 0");
+        }
+        logger.debug("creating shared fragment cache of '{}' bytes and '{}' bytes of tails", maxBytes, tailsMaxBytes);
+        this.maxBytes = maxBytes;
+        this.tailsMaxBytes = tailsMaxBytes;
+        this.fragments = Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((FragmentKey key, ByteBuffer fragment) -> fragment.remaining())
+            .recordStats()
+            .buildAsync();
+        this.tails = Caffeine.newBuilder()
+            .maximumWeight(tailsMaxBytes)
+            .weigher((FragmentKey key, ByteBuffer tail) -> tail.remaining())
+            .buildAsync();
+    }
+
+    /**
+     * Returns the cached fragment or, if it is not cached, the fragment supplied by {@code loader} which is then cached.
+     * Concurrent callers asking for the same missing fragment share a single load. Fragments that fail to load are not
+     * cached.
+     *
+     * @param path          the path of the object
+     * @param eTag          the ETag of the object
+     * @param fragmentSize  the size of the fragments the object is split into
+     * @param fragmentIndex the index of the fragment
+     * @param loader        supplies the fragment on a cache miss
+     * @return the fragment
+     */
+    CompletableFuture<ByteBuffer> get(S3Path path, String eTag, int fragmentSize, int fragmentIndex,
+                                      Supplier<CompletableFuture<ByteBuffer>> loader) {
+        return fragments.get(new FragmentKey(path, eTag, fragmentSize, fragmentIndex), (key, executor) -> loader.get());
+    }
+
+    /**
+     * Returns the cached fragment, if any. A call is counted as a hit or a miss in the {@link #stats() statistics}.
+     *
+     * @param path          the path of the object
+     * @param eTag          the ETag of the object
+     * @param fragmentSize  the size of the fragments the object is split into
+     * @param fragmentIndex the index of the fragment
+     * @return the fragment or {@code null} if it is not cached
+     */
+    CompletableFuture<ByteBuffer> getIfPresent(S3Path path, String eTag, int fragmentSize, int fragmentIndex) {
+        return fragments.getIfPresent(new FragmentKey(path, eTag, fragmentSize, fragmentIndex));
+    }
+
+    /**
+     * Caches a fragment that was loaded together with other fragments, replacing any cached fragment with the same key.
+     *
+     * @param path          the path of the object
+     * @param eTag          the ETag of the object
+     * @param fragmentSize  the size of the fragments the object is split into
+     * @param fragmentIndex the index of the fragment
+     * @param fragment      the fragment
+     */
+    void put(S3Path path, String eTag, int fragmentSize, int fragmentIndex, CompletableFuture<ByteBuffer> fragment) {
+        fragments.put(new FragmentKey(path, eTag, fragmentSize, fragmentIndex), fragment);
+    }
+
+    /**
+     * Returns the cached tail of an object or, if it is not cached, the tail supplied by {@code loader} which is then
+     * cached. Tails that fail to load are not cached.
+     *
+     * @param path      the path of the object
+     * @param eTag      the ETag of the object
+     * @param tailBytes the number of bytes at the end of the object the tail was requested with
+     * @param loader    supplies the tail on a cache miss
+     * @return the tail
+     */
+    CompletableFuture<ByteBuffer> getTail(S3Path path, String eTag, int tailBytes,
+                                          Supplier<CompletableFuture<ByteBuffer>> loader) {
+        return tails.get(new FragmentKey(path, eTag, tailBytes, -1), (key, executor) -> loader.get());
+    }
+
+    /**
+     * Obtain a snapshot of the statistics of the cache: hits, misses, evictions etc.
+     *
+     * @return the statistics of the cache
+     */
+    CacheStats stats() {
+        return fragments.synchronous().stats();
+    }
+
+    /**
+     * @return the maximum number of bytes of fragments held by the cache
+     */
+    long maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return the maximum number of bytes of tails held by the cache
+     */
+    long tailsMaxBytes() {
+        return tailsMaxBytes;
+    }
+
+    /**
+     * The number of bytes of fragments currently held by the cache.
+     *
+     * @return the total size of the cached fragments after any pending evictions have happened
+     */
+    long cachedBytes() {
+        return weightedSize(fragments);
+    }
+
+    /**
+     * The number of bytes of tails currently held by the cache.
+     *
+     * @return the total size of the cached tails after any pending evictions have happened
+     */
+    long cachedTailBytes() {
+        return weightedSize(tails);
+    }
+
+    private static long weightedSize(AsyncCache<FragmentKey, ByteBuffer> cache) {
+        cache.synchronous().cleanUp();
+        return cache.synchronous().policy().eviction()
+            .map(eviction -> eviction.weightedSize().orElse(0L))
+            .orElse(0L);
+    }
+
+    /**
+     * Drops all cached fragments and tails
+     */
+    void invalidateAll() {
+        fragments.synchronous().invalidateAll();
+        fragments.synchronous().cleanUp();
+        tails.synchronous().invalidateAll();
+    }
+
+    private static final class FragmentKey {
+        private final String bucket;
+        private final String key;
+        private final String eTag;
+        private final int fragmentSize;
+        private final int fragmentIndex;
+
+        private FragmentKey(S3Path path, String eTag, int fragmentSize, int fragmentIndex) {
+            this.bucket = path.bucketName();
+            this.key = path.getKey();
+            this.eTag = Objects.requireNonNull(eTag);
+            this.fragmentSize = fragmentSize;
+            this.fragmentIndex = fragmentIndex;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            var that = (FragmentKey) o;
+            return fragmentSize == that.fragmentSize && fragmentIndex == that.fragmentIndex
+                && bucket.equals(that.bucket) && key.equals(that.key) && eTag.equals(that.eTag);
+        }
+
+        @Override
+        public int hashCode() {
+            //CHECKSTYLE:OFF - There is no hashCode for multiple values
+            return Objects.hash(bucket, key, eTag, fragmentSize, fragmentIndex);
+            //CHECKSTYLE:ON
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static software.amazon.nio.spi.s3.util.TimeOutUtils.TIMEOUT_TIME_LENGTH_5;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.nio.spi.s3.util.TimeOutUtils;
+
+/**
+ * An {@code InputStream} that reads an S3 object with a single streaming GET, without the fragments, caches and
+ * locking of a {@link S3SeekableByteChannel}. The GET is sent by the first read and reads copy the bytes of the body
+ * straight into the caller's array. {@link #skip(long) Skipping} past the bytes already received cancels the GET and
+ * a new one is sent from the new position by the next read.
+ * <p>
+ * The number of bytes received but not yet read is bounded by {@code s3.spi.read.max-fragment-number} times
+ * {@code s3.spi.read.max-fragment-size}.
+ */
+class S3InputStream extends InputStream {
+
+    private static final int TRANSFER_BUFFER_SIZE = 64 * 1024;
+
+    private static final Logger logger = LoggerFactory.getLogger(S3InputStream.class);
+
+    private final S3Path path;
+    private final S3AsyncClient client;
+    private final long maxBufferedBytes;
+    private S3StreamingReader reader;
+    private long position;
+    private boolean closed;
+
+    /**
+     * @param path the path of the object to read
+     */
+    S3InputStream(S3Path path) {
+        this.path = Objects.requireNonNull(path);
+        var fileSystem = path.getFileSystem();
+        var config = fileSystem.configuration();
+        maxBufferedBytes = (long) config.getMaxFragmentNumber() * config.getMaxFragmentSize();
+        client = fileSystem.acquireReadClient();
+    }
+
+    @Override
+    public int read() throws IOException {
+        var b = new byte[1];
+        var bytesRead = read(b, 0, 1);
+        return bytesRead < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        validateOpen();
+        if (len == 0) {
+            return 0;
+        }
+
+        if (reader == null) {
+            reader = S3StreamingReader.open(client, path, position, -1L, maxBufferedBytes);
+        }
+        var bytesRead = readStream(ByteBuffer.wrap(b, off, len));
+        if (bytesRead > 0) {
+            position += bytesRead;
+        }
+        return bytesRead;
+    }
+
+    /**
+     * Skips {@code n} bytes. Bytes that were already received are dropped, otherwise the current GET is cancelled
+     * and the next read requests the rest of the object from the new position. Like a file, the stream may be skipped
+     * past its end, after which reads return {@code -1}.
+     *
+     * @param n the number of bytes to skip
+     * @return the number of bytes skipped
+     * @throws IOException if the stream is closed
+     */
+    @Override
+    public synchronized long skip(long n) throws IOException {
+        validateOpen();
+        if (n <= 0) {
+            return 0;
+        }
+
+        if (reader != null && n <= reader.bufferedBytes()) {
+            var skipped = 0L;
+            var buffer = new byte[(int) Math.min(n, TRANSFER_BUFFER_SIZE)];
+            while (skipped < n) {
+                var bytesRead = read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+                if (bytesRead < 0) {
+                    break;
+                }
+                skipped += bytesRead;
+            }
+            return skipped;
+        }
+
+        if (reader != null) {
+            logger.debug("skipping {} bytes of '{}' at position {}", n, path.toUri(), position);
+            reader.cancel();
+            reader = null;
+        }
+        position += n;
+        return n;
+    }
+
+    /**
+     * @return the number of bytes received but not yet read
+     */
+    @Override
+    public synchronized int available() throws IOException {
+        validateOpen();
+        return reader == null ? 0 : (int) Math.min(reader.bufferedBytes(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Writes the rest of the object to {@code out} as it is received, through a single buffer.
+     *
+     * @param out the output stream to write to
+     * @return the number of bytes transferred
+     * @throws IOException if the object cannot be read or {@code out} cannot be written
+     */
+    @Override
+    public synchronized long transferTo(OutputStream out) throws IOException {
+        Objects.requireNonNull(out);
+        var transferred = 0L;
+        var buffer = new byte[TRANSFER_BUFFER_SIZE];
+        int bytesRead;
+        while ((bytesRead = read(buffer, 0, buffer.length)) >= 0) {
+            out.write(buffer, 0, bytesRead);
+            transferred += bytesRead;
+        }
+        return transferred;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (reader != null) {
+            reader.cancel();
+            reader = null;
+        }
+        path.getFileSystem().releaseReadClient();
+    }
+
+    private int readStream(ByteBuffer dst) throws IOException {
+        try {
+            return reader.read(dst, TIMEOUT_TIME_LENGTH_5, MINUTES);
+        } catch (IOException e) {
+            var cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if (S3ReadAheadByteChannel.isRangeNotSatisfiable(cause)) {
+                // the stream was skipped past the end of the object
+                return -1;
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (TimeoutException e) {
+            throw TimeOutUtils.logAndGenerateExceptionOnTimeOut(logger, "read", TIMEOUT_TIME_LENGTH_5, MINUTES);
+        }
+    }
+
+    private void validateOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
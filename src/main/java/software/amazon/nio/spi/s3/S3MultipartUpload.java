@@ -0,0 +1,596 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.awscore.AwsRequest;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.nio.spi.s3.util.TimeOutUtils;
+
+/**
+ * The upload of an S3 object whose bytes are written sequentially, without staging them in a local file. The bytes are
+ * collected in parts and each part is uploaded as soon as it is full, while the writer fills the next one. The parts
+ * double in size every {@link #PARTS_PER_PART_SIZE} parts, up to {@link #MAX_GROWN_PART_SIZE} bytes, so that the
+ * {@link #MAX_PARTS} parts S3 allows hold objects of terabytes; a write beyond the last part fails. An object smaller
+ * than a threshold is kept in memory and uploaded with a single PUT when the upload is {@link #finish() finished}; the
+ * multipart upload is only started once the bytes written reach the threshold, with the parts filled so far. A failed
+ * multipart upload is aborted. Nothing is visible in S3 before the upload is finished, and an upload may
+ * {@link #createNew() require} that nothing was at its path by then.
+ * <p>
+ * An upload may bound the memory it holds: a new part is only started while fewer than a maximum number of parts are
+ * uploading and the parts in flight plus the new one fit into a maximum number of bytes. {@link #tryWrite} copies only
+ * what fits into these bounds and {@link #awaitCapacity} waits until a part finished uploading. The buffers of the
+ * uploaded parts are reused for the next parts. The parts kept below the single PUT threshold are not in flight and
+ * do not count against these bounds.
+ * <p>
+ * An upload may also start with a {@link #copyExisting copy} of the object it replaces, which S3 copies into the first
+ * parts of the upload without the bytes of the object being downloaded, so that the bytes written are appended to it.
+ * <p>
+ * An upload may send a checksum of every part, or of the object if it is put with a single request, which S3 verifies
+ * before it stores the bytes. The checksums are updated as the bytes are copied into the parts, so the bytes are not
+ * read a second time to checksum them.
+ */
+class S3MultipartUpload {
+
+    /**
+     * The default size of the parts of an upload
+     */
+    static final int DEFAULT_PART_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * The minimum size of every part of a multipart upload but the last
+     */
+    static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    /**
+     * The maximum size of a part of a multipart upload
+     */
+    static final long MAX_PART_SIZE = 5L * 1024 * 1024 * 1024;
+
+    /**
+     * The maximum number of parts of a multipart upload
+     */
+    static final int MAX_PARTS = 10_000;
+
+    /**
+     * The number of parts uploaded before the size of the parts doubles
+     */
+    static final int PARTS_PER_PART_SIZE = 1_000;
+
+    /**
+     * The size the parts of an upload grow to at most, unless they start larger
+     */
+    static final int MAX_GROWN_PART_SIZE = 1024 * 1024 * 1024;
+
+    private static final Logger logger = LoggerFactory.getLogger(S3MultipartUpload.class);
+
+    private final S3AsyncClient client;
+    private final S3Path path;
+    private final int partSize;
+    private final int maxInFlightParts;
+    private final long maxBufferedBytes;
+    private final long singlePutThreshold;
+    private final ChecksumAlgorithm checksumAlgorithm;
+    private final Checksum partChecksum;
+    private final Checksum objectChecksum;
+    private final S3WriteMetrics metrics;
+
+    // the state of the upload, guarded by this
+    private ByteBuffer part;
+    private long bytesWritten;
+    private CompletableFuture<String> uploadId;
+    private final List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+    private final ArrayDeque<ByteBuffer> freeParts = new ArrayDeque<>();
+    private final List<ByteBuffer> heldParts = new ArrayList<>();
+    // the checksums of the held parts, in the same order
+    private final List<String> heldChecksums = new ArrayList<>();
+    private int partsInFlight;
+    private Throwable failure;
+    private boolean createNew;
+    private String contentType;
+
+    /**
+     * Creates an upload whose memory is only bounded by its writer, and that puts objects smaller than a part with a
+     * single request.
+     *
+     * @param client            the client to upload with
+     * @param path              the path of the object to upload
+     * @param partSize          the size of the first parts in bytes, at least the 5 MiB required by S3 for all but the
+     *                          last part
+     * @param checksumAlgorithm the algorithm of the checksums sent with the parts, {@code CRC32C}, {@code CRC32} or
+     *                          {@code null} to send none
+     */
+    S3MultipartUpload(S3AsyncClient client, S3Path path, int partSize, ChecksumAlgorithm checksumAlgorithm) {
+        this(client, path, partSize, Integer.MAX_VALUE, Long.MAX_VALUE, partSize, checksumAlgorithm, null);
+    }
+
+    /**
+     * @param client             the client to upload with
+     * @param path               the path of the object to upload
+     * @param partSize           the size of the first parts in bytes, at least the 5 MiB required by S3 for all but
+     *                           the last part
+     * @param maxInFlightParts   the maximum number of parts uploading at the same time
+     * @param maxBufferedBytes   the maximum number of bytes of the parts being filled and uploaded, though at least
+     *                           one part is always allowed
+     * @param singlePutThreshold the size in bytes from which the object is uploaded in parts, smaller objects are
+     *                           kept in memory and put with a single request
+     * @param checksumAlgorithm  the algorithm of the checksums sent with the parts, {@code CRC32C}, {@code CRC32} or
+     *                           {@code null} to send none
+     * @param metrics            the metrics to record the part uploads in, may be {@code null}
+     */
+    S3MultipartUpload(S3AsyncClient client, S3Path path, int partSize, int maxInFlightParts, long maxBufferedBytes,
+                      long singlePutThreshold, ChecksumAlgorithm checksumAlgorithm, S3WriteMetrics metrics) {
+        this.client = Objects.requireNonNull(client);
+        this.path = Objects.requireNonNull(path);
+        if (partSize <= 0) {
+            throw new IllegalArgumentException("partSize must be positive");
+        }
+        if (maxInFlightParts <= 0) {
+            throw new IllegalArgumentException("maxInFlightParts must be positive");
+        }
+        if (maxBufferedBytes <= 0) {
+            throw new IllegalArgumentException("maxBufferedBytes must be positive");
+        }
+        if (singlePutThreshold <= 0) {
+            throw new IllegalArgumentException("singlePutThreshold must be positive");
+        }
+        this.partSize = partSize;
+        this.maxInFlightParts = maxInFlightParts;
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.singlePutThreshold = singlePutThreshold;
+        this.checksumAlgorithm = checksumAlgorithm;
+        this.partChecksum = newChecksum(checksumAlgorithm);
+        this.objectChecksum = newChecksum(checksumAlgorithm);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Copies the remaining bytes of {@code src} into the parts of the upload and starts the upload of every part they
+     * fill, regardless of the bounds of this upload. The bytes of {@code src} are consumed before this method returns.
+     *
+     * @param src the bytes to write
+     * @return a future that completes once the parts filled by the bytes are uploaded, or exceptionally with an
+     * {@code IOException} if the bytes do not fit into the last part of the upload
+     */
+    synchronized CompletableFuture<Void> write(ByteBuffer src) {
+        var uploads = new ArrayList<CompletableFuture<CompletedPart>>();
+        try {
+            while (src.hasRemaining()) {
+                var uploaded = fill(src);
+                if (uploaded != null) {
+                    uploads.add(uploaded);
+                }
+            }
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return CompletableFuture.allOf(uploads.toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Copies as many of the remaining bytes of {@code src} into the parts of the upload as fit into its bounds, and
+     * starts the upload of every part they fill. Never waits.
+     *
+     * @param src the bytes to write
+     * @return the number of bytes copied, {@code 0} if no new part can be started before a part finished uploading
+     * @throws IOException if the upload of a part failed or the bytes do not fit into the last part of the upload
+     */
+    synchronized int tryWrite(ByteBuffer src) throws IOException {
+        checkFailure();
+        var remaining = src.remaining();
+        while (src.hasRemaining() && (part != null || canStartPart())) {
+            fill(src);
+        }
+        checkFailure();
+        return remaining - src.remaining();
+    }
+
+    /**
+     * Waits until a new part can be started within the bounds of this upload.
+     *
+     * @param timeout  the maximum time to wait
+     * @param timeUnit the unit of {@code timeout}
+     * @throws IOException if the upload of a part failed, the wait timed out or was interrupted
+     */
+    synchronized void awaitCapacity(long timeout, TimeUnit timeUnit) throws IOException {
+        var start = System.nanoTime();
+        var deadline = start + timeUnit.toNanos(timeout);
+        try {
+            while (part == null && !canStartPart() && failure == null) {
+                var remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw TimeOutUtils.logAndGenerateExceptionOnTimeOut(logger, "write", timeout, timeUnit);
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Could not write to path:" + path, e);
+        } finally {
+            if (metrics != null) {
+                metrics.blocked(System.nanoTime() - start);
+            }
+        }
+        checkFailure();
+    }
+
+    /**
+     * Starts the upload with a copy of the object at the path of the upload, so that the bytes written next are
+     * appended to it. S3 copies the object into the first parts of the upload with {@code UploadPartCopy}, splitting it
+     * into parts of at most {@link #MAX_PART_SIZE} bytes, and the upload fails if the object changes before it is
+     * copied. Must be called before anything is written.
+     *
+     * @param size the size of the object, at least {@link #MIN_PART_SIZE} as the copy cannot be the last part
+     * @param eTag the ETag of the object
+     */
+    synchronized void copyExisting(long size, String eTag) {
+        if (bytesWritten > 0) {
+            throw new IllegalStateException("the object must be copied before anything is written");
+        }
+        if (size < MIN_PART_SIZE) {
+            throw new IllegalArgumentException("size must be at least " + MIN_PART_SIZE);
+        }
+
+        startMultipartUpload();
+        var copyParts = Math.floorDiv(size + MAX_PART_SIZE - 1, MAX_PART_SIZE);
+        var copyPartSize = Math.floorDiv(size + copyParts - 1, copyParts);
+        for (var start = 0L; start < size; start += copyPartSize) {
+            var partNumber = parts.size() + 1;
+            var range = "bytes=" + start + "-" + (Math.min(size, start + copyPartSize) - 1);
+            logger.debug("copying {} of '{}' into part {}", range, path.getKey(), partNumber);
+            var copied = uploadId
+                .thenCompose(id -> client.uploadPartCopy(
+                    builder -> builder
+                        .sourceBucket(path.bucketName())
+                        .sourceKey(path.getKey())
+                        .destinationBucket(path.bucketName())
+                        .destinationKey(path.getKey())
+                        .uploadId(id)
+                        .partNumber(partNumber)
+                        .copySourceRange(range)
+                        .copySourceIfMatch(eTag)))
+                .thenApply(response -> CompletedPart.builder()
+                    .partNumber(partNumber)
+                    .eTag(response.copyPartResult().eTag())
+                    .checksumCRC32C(response.copyPartResult().checksumCRC32C())
+                    .checksumCRC32(response.copyPartResult().checksumCRC32())
+                    .build());
+            copied.whenComplete((completed, e) -> {
+                if (e != null) {
+                    failed(e);
+                }
+            });
+            parts.add(copied);
+        }
+        bytesWritten = size;
+    }
+
+    /**
+     * Makes the upload fail if an object exists at its path when it is finished, which S3 checks atomically with an
+     * {@code If-None-Match: *} condition on the request that creates the object. The upload then fails with an
+     * {@link S3Exception} with the status code {@code 412}.
+     */
+    synchronized void createNew() {
+        createNew = true;
+    }
+
+    /**
+     * Sets the {@code Content-Type} the object is uploaded with. Must be called before anything is written.
+     *
+     * @param contentType the content type, or {@code null} to leave it to S3
+     */
+    synchronized void contentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    /**
+     * @return the number of bytes written so far
+     */
+    synchronized long bytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Uploads the rest of the bytes written and completes the multipart upload, or puts the object with a single
+     * request if fewer bytes than the single PUT threshold were written. The multipart upload is aborted if it fails,
+     * also if it failed before, e.g. because more bytes were written than its parts hold.
+     *
+     * @return a future that completes once the object is uploaded
+     */
+    synchronized CompletableFuture<?> finish() {
+        freeParts.clear();
+        if (failure != null) {
+            if (uploadId != null) {
+                abort(uploadId);
+            }
+            return CompletableFuture.failedFuture(new IOException("Could not write to path:" + path, failure));
+        }
+        if (uploadId == null && bytesWritten < singlePutThreshold) {
+            if (part != null) {
+                heldParts.add(part.flip());
+                part = null;
+            }
+            var body = heldParts.toArray(ByteBuffer[]::new);
+            heldParts.clear();
+            heldChecksums.clear();
+            var checksum = checksumValue(objectChecksum);
+            logger.debug("uploading '{}' with {} bytes", path.getKey(), bytesWritten);
+            return client.putObject(
+                builder -> conditional(builder
+                    .bucket(path.bucketName())
+                    .key(path.getKey())
+                    .contentLength(bytesWritten)
+                    .contentType(contentType)
+                    .checksumAlgorithm(checksumAlgorithm)
+                    .checksumCRC32C(checksumAlgorithm == ChecksumAlgorithm.CRC32_C ? checksum : null)
+                    .checksumCRC32(checksumAlgorithm == ChecksumAlgorithm.CRC32 ? checksum : null)),
+                AsyncRequestBody.fromRemainingByteBuffersUnsafe(body));
+        }
+
+        uploadHeldParts();
+        if (part != null) {
+            uploadPart(part.flip(), checksumValue(partChecksum));
+            part = null;
+        }
+        var uploadedParts = List.copyOf(parts);
+        var id = uploadId;
+        return CompletableFuture.allOf(uploadedParts.toArray(CompletableFuture[]::new))
+            .thenCompose(ignored -> id)
+            .thenCompose(uploadIdValue -> client.completeMultipartUpload(
+                builder -> conditional(builder
+                    .bucket(path.bucketName())
+                    .key(path.getKey())
+                    .uploadId(uploadIdValue)
+                    .multipartUpload(upload -> upload.parts(uploadedParts.stream()
+                        .map(CompletableFuture::join)
+                        .collect(Collectors.toList()))))))
+            .whenComplete((response, e) -> {
+                if (e != null) {
+                    abort(id);
+                }
+            });
+    }
+
+    /**
+     * Copies bytes of {@code src} into the current part, starting a new part if needed. Must hold the lock of this
+     * upload.
+     *
+     * @return the upload of the current part if it is full and uploaded, or {@code null}
+     * @throws IOException if the upload has no part left for the bytes, which fails the upload
+     */
+    private CompletableFuture<CompletedPart> fill(ByteBuffer src) throws IOException {
+        if (part == null) {
+            var partNumber = nextPartNumber();
+            if (partNumber > MAX_PARTS) {
+                var e = new IOException(String.format("'%s' exceeds the %d parts of a multipart upload after %d bytes",
+                    path.toUri(), MAX_PARTS, bytesWritten));
+                failed(e);
+                throw e;
+            }
+            var size = partSize(partNumber);
+            if (!freeParts.isEmpty() && freeParts.peek().capacity() != size) {
+                // the parts grew
+                freeParts.clear();
+            }
+            part = freeParts.isEmpty() ? ByteBuffer.allocate(size) : freeParts.pop();
+        }
+        var chunk = src.duplicate();
+        chunk.limit(chunk.position() + Math.min(chunk.remaining(), part.remaining()));
+        var start = part.position();
+        part.put(chunk);
+        var length = chunk.position() - src.position();
+        bytesWritten += length;
+        src.position(chunk.position());
+        if (partChecksum != null) {
+            // the copied bytes are still in the cache
+            partChecksum.update(part.array(), part.arrayOffset() + start, length);
+            if (uploadId == null) {
+                objectChecksum.update(part.array(), part.arrayOffset() + start, length);
+            }
+        }
+        if (part.hasRemaining()) {
+            return null;
+        }
+
+        var full = part.flip();
+        part = null;
+        var checksum = checksumValue(partChecksum);
+        if (uploadId == null && bytesWritten < singlePutThreshold) {
+            // may still become the body of a single PUT
+            heldParts.add(full);
+            heldChecksums.add(checksum);
+            return null;
+        }
+        uploadHeldParts();
+        return uploadPart(full, checksum);
+    }
+
+    /**
+     * Adds the {@code If-None-Match: *} condition to the request creating the object if the upload must create a new
+     * object.
+     */
+    private void conditional(AwsRequest.Builder builder) {
+        if (createNew) {
+            builder.overrideConfiguration(override -> override.putHeader("If-None-Match", "*"));
+        }
+    }
+
+    /**
+     * Whether a new part fits into the bounds of this upload. Must hold the lock of this upload.
+     */
+    private boolean canStartPart() {
+        return partsInFlight == 0 || partsInFlight < maxInFlightParts
+            && (partsInFlight + 1L) * partSize(nextPartNumber()) <= maxBufferedBytes;
+    }
+
+    /**
+     * The number of the next part to fill, counting the parts kept for a single PUT. Must hold the lock of this upload.
+     */
+    private int nextPartNumber() {
+        return parts.size() + heldParts.size() + 1;
+    }
+
+    /**
+     * The size of the part with the given number, which doubles every {@link #PARTS_PER_PART_SIZE} parts up to
+     * {@link #MAX_GROWN_PART_SIZE} bytes
+     */
+    private int partSize(int partNumber) {
+        var doublings = Math.min((partNumber - 1) / PARTS_PER_PART_SIZE, 31);
+        return (int) Math.min((long) partSize << doublings, Math.max(partSize, MAX_GROWN_PART_SIZE));
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("Could not write to path:" + path, failure);
+        }
+    }
+
+    /**
+     * Called once a part finished uploading, recycles its buffer and wakes up the writers waiting for it
+     */
+    private synchronized void partDone(ByteBuffer body, Throwable e) {
+        partsInFlight--;
+        if (metrics != null) {
+            metrics.partDone(e == null ? body.limit() : 0L);
+        }
+        if (e != null) {
+            failed(e);
+        } else {
+            freeParts.push(body.clear());
+        }
+        notifyAll();
+    }
+
+    private synchronized void failed(Throwable e) {
+        failure = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        notifyAll();
+    }
+
+    /**
+     * Starts the multipart upload unless it is started. Must hold the lock of this upload.
+     */
+    private void startMultipartUpload() {
+        if (uploadId == null) {
+            logger.debug("starting multipart upload of '{}'", path.getKey());
+            uploadId = client.createMultipartUpload(
+                    builder -> builder
+                        .bucket(path.bucketName())
+                        .key(path.getKey())
+                        .contentType(contentType)
+                        .checksumAlgorithm(checksumAlgorithm))
+                .thenApply(CreateMultipartUploadResponse::uploadId);
+        }
+    }
+
+    /**
+     * Uploads the parts kept for a single PUT once the object turned out to be too large for it. Must hold the lock of
+     * this upload.
+     */
+    private void uploadHeldParts() {
+        for (var i = 0; i < heldParts.size(); i++) {
+            uploadPart(heldParts.get(i), heldChecksums.get(i));
+        }
+        heldParts.clear();
+        heldChecksums.clear();
+    }
+
+    /**
+     * Uploads a full or the last part, starting the multipart upload with the first part. Must hold the lock of this
+     * upload.
+     *
+     * @param body     the bytes of the part, from its position to its limit
+     * @param checksum the encoded checksum of the part, or {@code null}
+     */
+    private CompletableFuture<CompletedPart> uploadPart(ByteBuffer body, String checksum) {
+        startMultipartUpload();
+        var partNumber = parts.size() + 1;
+        logger.debug("uploading part {} of '{}' with {} bytes", partNumber, path.getKey(), body.remaining());
+        partsInFlight++;
+        if (metrics != null) {
+            metrics.partQueued();
+        }
+        var uploaded = uploadId
+            .thenCompose(id -> client.uploadPart(
+                builder -> builder
+                    .bucket(path.bucketName())
+                    .key(path.getKey())
+                    .uploadId(id)
+                    .partNumber(partNumber)
+                    .contentLength((long) body.remaining())
+                    .checksumAlgorithm(checksumAlgorithm)
+                    .checksumCRC32C(checksumAlgorithm == ChecksumAlgorithm.CRC32_C ? checksum : null)
+                    .checksumCRC32(checksumAlgorithm == ChecksumAlgorithm.CRC32 ? checksum : null),
+                AsyncRequestBody.fromRemainingByteBufferUnsafe(body)))
+            .thenApply(response -> CompletedPart.builder()
+                .partNumber(partNumber)
+                .eTag(response.eTag())
+                .checksumCRC32C(checksumAlgorithm == ChecksumAlgorithm.CRC32_C ? checksum : null)
+                .checksumCRC32(checksumAlgorithm == ChecksumAlgorithm.CRC32 ? checksum : null)
+                .build());
+        uploaded.whenComplete((completed, e) -> partDone(body, e));
+        parts.add(uploaded);
+        return uploaded;
+    }
+
+    private static Checksum newChecksum(ChecksumAlgorithm algorithm) {
+        if (algorithm == null) {
+            return null;
+        }
+        switch (algorithm) {
+            case CRC32_C:
+                return new CRC32C();
+            case CRC32:
+                return new CRC32();
+            default:
+                throw new IllegalArgumentException("unsupported checksum algorithm: " + algorithm);
+        }
+    }
+
+    /**
+     * Encodes the value of a checksum the way S3 expects it, as the base64 of its four big-endian bytes, and resets it
+     *
+     * @return the encoded value, or {@code null} if {@code checksum} is {@code null}
+     */
+    private static String checksumValue(Checksum checksum) {
+        if (checksum == null) {
+            return null;
+        }
+        var value = ByteBuffer.allocate(Integer.BYTES).putInt((int) checksum.getValue()).array();
+        checksum.reset();
+        return Base64.getEncoder().encodeToString(value);
+    }
+
+    private void abort(CompletableFuture<String> id) {
+        id.thenAccept(uploadIdValue -> {
+            logger.debug("aborting multipart upload of '{}'", path.getKey());
+            client.abortMultipartUpload(
+                builder -> builder
+                    .bucket(path.bucketName())
+                    .key(path.getKey())
+                    .uploadId(uploadIdValue));
+        });
+    }
+}
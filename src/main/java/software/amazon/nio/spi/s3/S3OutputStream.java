@@ -0,0 +1,86 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.OpenOption;
+import java.util.Objects;
+import java.util.Set;
+import software.amazon.nio.spi.s3.config.S3NioSpiConfiguration;
+
+/**
+ * An {@code OutputStream} that streams an S3 object to a multipart upload, instead of gathering it in a temporary file
+ * that is uploaded on close. The stream writes to a {@link S3WritableByteChannel}, so it uploads the object exactly
+ * like a channel opened with the same options: full parts are uploaded while the caller keeps writing, a write waits
+ * once the parts in flight reach {@link S3NioSpiConfiguration#getWriteMaxInFlightParts()} or
+ * {@link S3NioSpiConfiguration#getWriteMaxBufferedBytes()}, an object smaller than
+ * {@link S3NioSpiConfiguration#getWriteSinglePutThreshold()} is uploaded with a single PUT on close, and the upload is
+ * written behind if the file system does so. Closing the stream uploads the last part and completes the upload.
+ */
+class S3OutputStream extends OutputStream {
+
+    private final S3Path path;
+    private final S3WritableByteChannel channel;
+    private boolean closed;
+
+    /**
+     * @param path    the path of the object to write
+     * @param options the options the object is opened with, which must include {@code WRITE}
+     * @throws IOException if the object cannot be opened with the given options
+     */
+    S3OutputStream(S3Path path, Set<? extends OpenOption> options) throws IOException {
+        this.path = Objects.requireNonNull(path);
+        var fileSystem = path.getFileSystem();
+        var config = fileSystem.configuration();
+        var client = fileSystem.client();
+        var transferUtil = new S3TransferUtil(client, null, null, config, fileSystem::transferManager);
+        channel = new S3WritableByteChannel(path, client, transferUtil, options, config);
+        fileSystem.registerOpenChannel(channel);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        validateOpen();
+        if (len == 0) {
+            return;
+        }
+
+        // the channel waits for a part to finish uploading whenever the parts in flight reach the bounds of the upload
+        channel.write(ByteBuffer.wrap(b, off, len));
+    }
+
+    /**
+     * Uploads the bytes written that are not uploaded yet and completes the upload.
+     *
+     * @throws IOException if the object could not be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            channel.close();
+        } finally {
+            path.getFileSystem().deregisterClosedChannel(channel);
+        }
+    }
+
+    private void validateOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.nio.spi.s3.util.TimeOutUtils;
+
+/**
+ * Downloads a whole S3 object with many concurrent ranged GETs, which is how a single large object is read at several
+ * Gbps. The object is split into parts of a fixed size and up to a given number of parts are fetched at the same time.
+ * <p>
+ * The first part is requested on its own, as its response tells the size and the ETag of the object. The other parts
+ * are requested with {@code If-Match} on that ETag, so a download fails rather than mixing two versions of an object.
+ * A download {@link #downloadToFile to a local file} writes every part at its position as its bytes arrive, and starts
+ * the next part from the completion of the previous one. A download {@link #download to a channel} writes the parts
+ * in order and keeps at most the given number of parts in memory.
+ */
+class S3ParallelDownloader {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3ParallelDownloader.class);
+
+    private final S3AsyncClient client;
+    private final int partSize;
+    private final int concurrency;
+
+    /**
+     * @param client      the client to send the ranged GETs with
+     * @param partSize    the size of each ranged GET in bytes
+     * @param concurrency the maximum number of ranged GETs in flight
+     */
+    S3ParallelDownloader(S3AsyncClient client, int partSize, int concurrency) {
+        if (partSize <= 0) {
+            throw new IllegalArgumentException("partSize must be positive");
+        }
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency must be positive");
+        }
+        this.client = client;
+        this.partSize = partSize;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Downloads an object into a local file, which is created or truncated.
+     *
+     * @param path        the object to download
+     * @param destination the local file to write
+     * @param timeout     the maximum time to wait for each part
+     * @param timeUnit    the unit of {@code timeout}
+     * @return the number of bytes downloaded, which fails with a {@link NoSuchFileException} if the object does not
+     *     exist and with a {@link TimeoutException} if a part is not downloaded in time
+     */
+    CompletableFuture<Long> downloadToFile(S3Path path, Path destination, long timeout, TimeUnit timeUnit) {
+        AsynchronousFileChannel file;
+        try {
+            file = AsynchronousFileChannel.open(destination, WRITE, CREATE, TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        var result = new CompletableFuture<Long>();
+        result.whenComplete((size, e) -> {
+            try {
+                file.close();
+            } catch (IOException closeFailure) {
+                logger.warn("could not close '{}'", destination, closeFailure);
+            }
+        });
+
+        var firstPart = getPart(path, 0, null, new PositionalWriteTransformer(file, 0)).orTimeout(timeout, timeUnit);
+        firstPart.whenComplete((first, e) -> {
+            if (e != null) {
+                completeFirstPartExceptionally(path, result, e);
+                return;
+            }
+            var size = objectSize(first);
+            var parts = numberOfParts(first, size);
+            if (parts <= 1) {
+                result.complete(size);
+                return;
+            }
+            logger.debug("downloading {} bytes of '{}' in {} parts", size, path.toUri(), parts);
+            var nextPart = new AtomicLong(1);
+            var remaining = new AtomicInteger(Math.toIntExact(parts - 1));
+            for (var i = 0; i < Math.min(concurrency, parts - 1); i++) {
+                downloadNextPart(path, first.eTag(), file, parts, nextPart, remaining, size, result, timeout, timeUnit);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Downloads an object and writes it in order into a channel. Blocks until the whole object is written.
+     *
+     * @param path     the object to download
+     * @param target   the channel to write to
+     * @param timeout  the maximum time to wait for each part
+     * @param timeUnit the unit of {@code timeout}
+     * @return the number of bytes written
+     * @throws NoSuchFileException if the object does not exist
+     * @throws IOException         if a part cannot be downloaded or written
+     */
+    long download(S3Path path, WritableByteChannel target, long timeout, TimeUnit timeUnit) throws IOException {
+        ResponseBytes<GetObjectResponse> first;
+        try {
+            first = await(getPart(path, 0, null, AsyncResponseTransformer.toBytes()), timeout, timeUnit);
+        } catch (IOException e) {
+            if (S3ReadAheadByteChannel.isRangeNotSatisfiable(e.getCause())) {
+                return 0L;
+            }
+            if (e.getCause() instanceof NoSuchKeyException) {
+                throw new NoSuchFileException(path.toUri().toString());
+            }
+            throw e;
+        }
+        var size = objectSize(first.response());
+        var parts = numberOfParts(first.response(), size);
+        var eTag = first.response().eTag();
+        writeFully(target, first.asByteBuffer());
+
+        var inFlight = new ArrayDeque<CompletableFuture<ResponseBytes<GetObjectResponse>>>();
+        var nextPart = 1L;
+        try {
+            while (nextPart < parts || !inFlight.isEmpty()) {
+                while (nextPart < parts && inFlight.size() < concurrency) {
+                    inFlight.add(getPart(path, nextPart++, eTag, AsyncResponseTransformer.toBytes()));
+                }
+                writeFully(target, await(inFlight.remove(), timeout, timeUnit).asByteBuffer());
+            }
+        } finally {
+            inFlight.forEach(part -> part.cancel(true));
+        }
+        return size;
+    }
+
+    private void downloadNextPart(S3Path path, String eTag, AsynchronousFileChannel file, long parts,
+                                  AtomicLong nextPart, AtomicInteger remaining, long size,
+                                  CompletableFuture<Long> result, long timeout, TimeUnit timeUnit) {
+        var part = nextPart.getAndIncrement();
+        if (part >= parts || result.isDone()) {
+            return;
+        }
+        var download = getPart(path, part, eTag, new PositionalWriteTransformer(file, part * partSize));
+        download.orTimeout(timeout, timeUnit).whenComplete((r, e) -> {
+            if (e != null) {
+                result.completeExceptionally(e);
+            } else if (remaining.decrementAndGet() == 0) {
+                result.complete(size);
+            } else {
+                downloadNextPart(path, eTag, file, parts, nextPart, remaining, size, result, timeout, timeUnit);
+            }
+        });
+    }
+
+    private <T> CompletableFuture<T> getPart(S3Path path, long part, String eTag,
+                                             AsyncResponseTransformer<GetObjectResponse, T> transformer) {
+        var start = part * partSize;
+        var range = "bytes=" + start + "-" + (start + partSize - 1);
+        return client.getObject(builder -> builder
+            .bucket(path.bucketName())
+            .key(path.getKey())
+            .range(range)
+            .ifMatch(eTag), transformer);
+    }
+
+    private void completeFirstPartExceptionally(S3Path path, CompletableFuture<Long> result, Throwable e) {
+        if (S3ReadAheadByteChannel.isRangeNotSatisfiable(e)) {
+            // the object is empty
+            result.complete(0L);
+        } else if (unwrap(e) instanceof NoSuchKeyException) {
+            result.completeExceptionally(new NoSuchFileException(path.toUri().toString()));
+        } else {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private long objectSize(GetObjectResponse response) {
+        var size = S3ReadAheadByteChannel.objectSize(response);
+        // a response without Content-Range holds the whole object
+        return size < 0 ? response.contentLength() : size;
+    }
+
+    private long numberOfParts(GetObjectResponse first, long size) {
+        if (first.contentRange() == null) {
+            return 1;
+        }
+        return Math.floorDiv(size + partSize - 1, (long) partSize);
+    }
+
+    private <T> T await(CompletableFuture<T> future, long timeout, TimeUnit timeUnit) throws IOException {
+        try {
+            return future.get(timeout, timeUnit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } catch (TimeoutException e) {
+            throw TimeOutUtils.logAndGenerateExceptionOnTimeOut(logger, "download", timeout, timeUnit);
+        }
+    }
+
+    private static void writeFully(WritableByteChannel target, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            target.write(bytes);
+        }
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    /**
+     * Writes the body of a ranged GET into a file at the position of the range, one chunk after the other
+     */
+    private static final class PositionalWriteTransformer
+        implements AsyncResponseTransformer<GetObjectResponse, GetObjectResponse> {
+
+        private final AsynchronousFileChannel file;
+        private final long position;
+        private volatile CompletableFuture<GetObjectResponse> future;
+        private volatile GetObjectResponse response;
+
+        private PositionalWriteTransformer(AsynchronousFileChannel file, long position) {
+            this.file = file;
+            this.position = position;
+        }
+
+        @Override
+        public CompletableFuture<GetObjectResponse> prepare() {
+            // called again if the request is retried, which writes the range again from its start
+            future = new CompletableFuture<>();
+            return future;
+        }
+
+        @Override
+        public void onResponse(GetObjectResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public void onStream(SdkPublisher<ByteBuffer> publisher) {
+            publisher.subscribe(new BodySubscriber(future));
+        }
+
+        @Override
+        public void exceptionOccurred(Throwable error) {
+            future.completeExceptionally(error);
+        }
+
+        private final class BodySubscriber implements Subscriber<ByteBuffer>, CompletionHandler<Integer, ByteBuffer> {
+
+            private final CompletableFuture<GetObjectResponse> future;
+            private final CompletableFuture<Void> written = new CompletableFuture<>();
+            private Subscription subscription;
+            private volatile long offset = position;
+            private volatile boolean complete;
+            private volatile boolean writing;
+
+            private BodySubscriber(CompletableFuture<GetObjectResponse> future) {
+                this.future = future;
+            }
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(ByteBuffer bytes) {
+                if (future.isDone()) {
+                    return;
+                }
+                writing = true;
+                file.write(bytes, offset, bytes, this);
+            }
+
+            @Override
+            public void completed(Integer count, ByteBuffer bytes) {
+                offset += count;
+                if (bytes.hasRemaining()) {
+                    file.write(bytes, offset, bytes, this);
+                    return;
+                }
+                writing = false;
+                if (complete) {
+                    written.complete(null);
+                } else {
+                    subscription.request(1);
+                }
+            }
+
+            @Override
+            public void failed(Throwable e, ByteBuffer bytes) {
+                subscription.cancel();
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                future.completeExceptionally(t);
+            }
+
+            @Override
+            public void onComplete() {
+                // the last chunk may still be written
+                complete = true;
+                if (!writing) {
+                    written.complete(null);
+                }
+                written.thenRun(() -> future.complete(response));
+            }
+        }
+    }
+}
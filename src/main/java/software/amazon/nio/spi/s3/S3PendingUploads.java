@@ -0,0 +1,177 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static software.amazon.nio.spi.s3.util.TimeOutUtils.TIMEOUT_TIME_LENGTH_5;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.nio.spi.s3.util.TimeOutUtils;
+
+/**
+ * The uploads of the objects written behind by the write channels of a file system: a channel closed in write-behind
+ * mode hands the upload of its object to this class and returns without waiting for it. At most a maximum number of
+ * uploads are pending, a channel closed beyond that waits for one of them to complete, which bounds the memory and the
+ * temporary files held by the pending uploads. {@link #flush()} waits for the pending uploads and reports those that
+ * failed since the last flush, which are also reported to the listeners as soon as they fail.
+ */
+class S3PendingUploads {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3PendingUploads.class);
+
+    private final int maxPendingUploads;
+    private final List<S3WriteFailureListener> listeners = new CopyOnWriteArrayList<>();
+
+    // guarded by this, completed once the failure of their upload is recorded and reported
+    private final Set<CompletableFuture<Void>> pending = new HashSet<>();
+    private final List<IOException> failures = new ArrayList<>();
+
+    /**
+     * @param maxPendingUploads the maximum number of uploads pending at the same time
+     */
+    S3PendingUploads(int maxPendingUploads) {
+        if (maxPendingUploads <= 0) {
+            throw new IllegalArgumentException("maxPendingUploads must be positive");
+        }
+        this.maxPendingUploads = maxPendingUploads;
+    }
+
+    void addListener(S3WriteFailureListener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(S3WriteFailureListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts an upload once fewer than the maximum number of uploads are pending, and returns without waiting for it
+     *
+     * @param path     the path of the object uploaded
+     * @param upload   starts the upload, which must not block
+     * @param timeout  the maximum time to wait for a pending upload to complete
+     * @param timeUnit the unit of {@code timeout}
+     * @throws IOException if the wait was interrupted, in which case the upload is not started; a timeout is reported
+     *                     like the other timeouts of the file system, see {@link TimeOutUtils}
+     */
+    void submit(S3Path path, Supplier<CompletableFuture<?>> upload, long timeout, TimeUnit timeUnit)
+            throws IOException {
+        CompletableFuture<?> uploaded;
+        var recorded = new CompletableFuture<Void>();
+        synchronized (this) {
+            var deadline = System.nanoTime() + timeUnit.toNanos(timeout);
+            try {
+                while (pending.size() >= maxPendingUploads) {
+                    var remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw TimeOutUtils.logAndGenerateExceptionOnTimeOut(logger, "write", timeout, timeUnit);
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Could not write to path:" + path, e);
+            }
+            logger.debug("writing '{}' behind, {} upload(s) pending", path.getKey(), pending.size());
+            uploaded = upload.get();
+            pending.add(recorded);
+        }
+        uploaded.whenComplete((result, e) -> done(path, recorded, e));
+    }
+
+    /**
+     * @return the number of uploads pending
+     */
+    synchronized int pendingUploads() {
+        return pending.size();
+    }
+
+    /**
+     * Waits at most {@link TimeOutUtils#TIMEOUT_TIME_LENGTH_5} minutes for the uploads pending when called to complete
+     *
+     * @throws IOException if uploads failed since the last flush, with the first failure as cause and the others
+     *                     suppressed, or if the wait was interrupted
+     */
+    void flush() throws IOException {
+        flush(TIMEOUT_TIME_LENGTH_5, MINUTES);
+    }
+
+    /**
+     * Waits for the uploads pending when called to complete
+     *
+     * @param timeout  the maximum time to wait for the pending uploads
+     * @param timeUnit the unit of {@code timeout}
+     * @throws IOException if uploads failed since the last flush, with the first failure as cause and the others
+     *                     suppressed, or if the wait was interrupted; a timeout is reported like the other timeouts
+     *                     of the file system, see {@link TimeOutUtils}
+     */
+    void flush(long timeout, TimeUnit timeUnit) throws IOException {
+        CompletableFuture<?>[] waitFor;
+        synchronized (this) {
+            waitFor = pending.toArray(CompletableFuture[]::new);
+        }
+        try {
+            CompletableFuture.allOf(waitFor).get(timeout, timeUnit);
+        } catch (TimeoutException e) {
+            throw TimeOutUtils.logAndGenerateExceptionOnTimeOut(logger, "flush", timeout, timeUnit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the pending uploads", e);
+        } catch (ExecutionException e) {
+            // never happens, the futures waited for complete normally
+            throw new IllegalStateException(e);
+        }
+
+        List<IOException> failed;
+        synchronized (this) {
+            failed = List.copyOf(failures);
+            failures.clear();
+        }
+        if (!failed.isEmpty()) {
+            var exception = new IOException(failed.size() + " upload(s) written behind failed", failed.get(0));
+            failed.subList(1, failed.size()).forEach(exception::addSuppressed);
+            throw exception;
+        }
+    }
+
+    private void done(S3Path path, CompletableFuture<Void> recorded, Throwable e) {
+        var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        synchronized (this) {
+            pending.remove(recorded);
+            if (cause != null) {
+                failures.add(cause instanceof FileAlreadyExistsException ? (IOException) cause
+                    : new IOException("Could not write to path:" + path, cause));
+            }
+            notifyAll();
+        }
+        if (cause != null) {
+            logger.warn("could not write '{}' behind", path.getKey(), cause);
+            for (var listener : listeners) {
+                try {
+                    listener.uploadFailed(path, cause);
+                } catch (RuntimeException listenerFailure) {
+                    logger.warn("write failure listener failed", listenerFailure);
+                }
+            }
+        }
+        // a flush returns once the listeners are notified
+        recorded.complete(null);
+    }
+}
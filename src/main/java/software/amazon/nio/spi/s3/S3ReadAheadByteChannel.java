@@ -8,23 +8,42 @@ package software.amazon.nio.spi.s3;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ReadPendingException;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import software.amazon.awssdk.core.BytesWrapper;
+import software.amazon.awssdk.core.ResponseBytes;
 import software.amazon.awssdk.core.async.AsyncResponseTransformer;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.nio.spi.s3.config.S3NioSpiConfiguration;
 import software.amazon.nio.spi.s3.util.TimeOutUtils;
 
 /**
@@ -33,76 +52,321 @@ import software.amazon.nio.spi.s3.util.TimeOutUtils;
  * requests to S3. If the bytes required by a read are already in the buffer, they will be fulfilled from the buffer
  * rather than making another S3 request.
  * <p>As reads are made this object will update the current read position of the delegating {@code S3SeekableByteChannel}</p>
+ * <p>The size of the object is not requested when the channel is created. The first read learns it from the
+ * {@code Content-Range} of the response to its ranged GET and passes it on to the delegator.</p>
+ * <p>The channel adapts to the way it is read (see {@link AccessPatternTracker}). Sequential readers get a prefetch
+ * depth that doubles up to {@code maxNumberFragments - 1} and fetch several fragments per request, strided readers
+ * prefetch a single fragment and random readers fetch about the requested bytes without any prefetch.</p>
+ * <p>Prefetching is scheduled ahead of the read position rather than by the reads themselves: once a read enters a
+ * fragment (the first fragment read only once it is half read), the fragments following it up to the prefetch depth
+ * form the prefetch window, and the window is filled with at most {@code prefetchTargetBytes} bytes in flight at any
+ * time. Whenever a prefetched fragment completes, a callback on the executor of the {@link Options} loads the next
+ * fragments of the window, so the window keeps filling while the reader is busy with the bytes it already has.</p>
+ * <p>Besides the blocking {@link #read(ByteBuffer)}, {@link #readAsync(ByteBuffer)} reads without parking the calling
+ * thread. Only one read, blocking or not, may be outstanding at a time.</p>
+ * <p>An object that is read strictly sequentially from its first byte, e.g. by {@code Files.copy}, is not split into
+ * ranged GETs of one fragment each: once the fragments cached by the first reads are consumed, the rest of the object is
+ * read with a single streaming GET (see {@link S3StreamingReader}) that buffers at most {@code maxNumberFragments}
+ * fragments worth of bytes. Any seek ends the streaming GET and the channel falls back to fragments. Streaming is not
+ * used with a shared or disk cache, as streamed bytes are not cached.</p>
+ * <p>Columnar and archive formats such as Parquet, ORC and ZIP read the last bytes of a file first and often again
+ * later. With {@code tailBytes > 0} the last {@code tailBytes} bytes of the object are requested with a suffix range
+ * together with the first read and pinned for the lifetime of the channel, or of the shared cache if there is one,
+ * apart from the read ahead fragments, so that reading the footer neither downloads a whole fragment nor is undone by
+ * the prefetches that follow. Reads of the tail do not count as reads for the access pattern.</p>
  */
 class S3ReadAheadByteChannel implements ReadableByteChannel {
 
+    /**
+     * The minimum number of bytes fetched by a read in random access mode
+     */
+    static final int RANDOM_READ_MIN_SIZE = 64 * 1024;
+
+    /**
+     * The maximum number of fragments fetched by a single request when reading sequentially
+     */
+    static final int MAX_FRAGMENTS_PER_REQUEST = 8;
+
+    private static final int RANGE_NOT_SATISFIABLE = 416;
+    private static final int NOT_FOUND = 404;
+
     private static final Logger logger = LoggerFactory.getLogger(S3ReadAheadByteChannel.class);
+    private final Options options;
     private final S3AsyncClient client;
     private final S3Path path;
     private final S3SeekableByteChannel delegator;
     private final int maxFragmentSize;
     private final int maxNumberFragments;
-    private final int numFragmentsInObject;
-    private final long size;
-    private final Long timeout;
+    private volatile long size = -1L;
+    private final long timeout;
     private final TimeUnit timeUnit;
-    private boolean open;
+    private volatile boolean open;
     private final Cache<Integer, CompletableFuture<ByteBuffer>> readAheadBuffersCache;
-
-
+    private final S3FragmentCache sharedCache;
+    private final S3DiskFragmentCache diskCache;
+    private final S3FragmentBufferPool bufferPool;
+    private final S3RequestHedger hedger;
+    private final Executor executor;
+    private final int tailBytes;
+    private final Object tailLock = new Object();
+    private volatile CompletableFuture<ByteBuffer> tail;
+    private final ReadWriteLock pooledFragmentsLock = new ReentrantReadWriteLock();
+    private final String eTag;
+    private final AccessPatternTracker accessPatternTracker;
+    private int prefetchDepth = 1;
+    private long randomBlockPosition = -1L;
+    private ByteBuffer randomBlock;
+    private S3StreamingReader streamingReader;
+    private boolean streamingDisabled;
+    private final AtomicBoolean readPending = new AtomicBoolean();
+    private final long prefetchTargetBytes;
+    private int prefetchFragmentIndex = -1;
+    // the prefetch window, filled by the reader and by the callbacks of completed fragments
+    private final Object prefetchLock = new Object();
+    private int prefetchNext;
+    private int prefetchLast = -1;
+    private int prefetchFragmentsPerRequest = 1;
+    private long prefetchBytesInFlight;
 
     /**
      * Construct a new {@code S3ReadAheadByteChannel} which is used by its parent delegator to perform read operations.
-     * The channel is backed by a cache that holds the buffered fragments of the object identified
-     * by the {@code path}.
-     *
-     * @param path               the path to the S3 object being read
-     * @param maxFragmentSize    the maximum amount of bytes in a read ahead fragment. Must be {@code >= 1}.
-     * @param maxNumberFragments the maximum number of read ahead fragments to hold. Must be {@code >= 2}.
-     * @param client             the client used to read from the {@code path}
-     * @param delegator          the {@code S3SeekableByteChannel} that delegates reading to this object.
-     * @param timeout            the amount of time to wait for a read ahead fragment to be available.
-     * @param timeUnit           the {@code TimeUnit} for the {@code timeout}.
+     * The channel is backed by a cache that holds the buffered fragments of the object identified by the {@code path}.
+     * Besides its own read ahead fragments, it takes fragments from and adds fragments to the shared and the disk cache
+     * of the {@code options}, if any, looking them up in the shared cache first, then on disk and only then downloading
+     * them. Unless it uses a cache, it holds its read ahead fragments in direct buffers taken from the buffer pool of
+     * the {@code options}, if any.
+     *
+     * @param path      the path to the S3 object being read
+     * @param client    the client used to read from the {@code path}. The client is shared and is not closed by this
+     *                  channel.
+     * @param delegator the {@code S3SeekableByteChannel} that delegates reading to this object.
+     * @param options   the settings of this channel and the caches, buffer pool and hedger it shares with the other
+     *                  read channels of the file system
      * @throws IOException if a problem occurs initializing the cached fragments
      */
-    S3ReadAheadByteChannel(S3Path path, int maxFragmentSize, int maxNumberFragments, S3AsyncClient client,
-                           S3SeekableByteChannel delegator, Long timeout, TimeUnit timeUnit) throws IOException {
+    S3ReadAheadByteChannel(S3Path path, S3AsyncClient client, S3SeekableByteChannel delegator, Options options)
+            throws IOException {
         Objects.requireNonNull(path);
         Objects.requireNonNull(client);
         Objects.requireNonNull(delegator);
-        if (maxFragmentSize < 1) {
-            throw new IllegalArgumentException("maxFragmentSize must be >= 1");
-        }
-        if (maxNumberFragments < 2) {
-            throw new IllegalArgumentException("maxNumberFragments must be >= 2");
-        }
+        Objects.requireNonNull(options);
 
-        logger.debug("max read ahead fragments '{}' with size '{}' bytes", maxNumberFragments, maxFragmentSize);
+        this.options = options;
         this.client = client;
         this.path = path;
         this.delegator = delegator;
-        this.size = delegator.size();
-        this.maxFragmentSize = maxFragmentSize;
-        this.numFragmentsInObject = (int) Math.ceil((float) size / (float) maxFragmentSize);
-        this.readAheadBuffersCache = Caffeine.newBuilder().maximumSize(maxNumberFragments).recordStats().build();
-        this.maxNumberFragments = maxNumberFragments;
+        this.maxFragmentSize = options.maxFragmentSize;
+        this.maxNumberFragments = options.maxNumberFragments;
+        this.prefetchTargetBytes = options.prefetchTargetBytes;
+        this.hedger = options.hedger;
+        this.executor = options.executor;
+        this.accessPatternTracker = new AccessPatternTracker(options.accessPatternListener);
+        this.tailBytes = options.tailBytes;
         this.open = true;
-        this.timeout = timeout != null ? timeout : TimeOutUtils.TIMEOUT_TIME_LENGTH_5;
-        this.timeUnit = timeUnit != null ? timeUnit : TimeUnit.MINUTES;
+        this.timeout = options.timeout;
+        this.timeUnit = options.timeUnit;
+        logger.debug("max read ahead fragments '{}' with size '{}' bytes", maxNumberFragments, maxFragmentSize);
+        // the caches are looked up before anything is downloaded, so they need the ETag up front
+        this.eTag = options.sharedCache != null || options.diskCache != null ? delegator.eTag() : null;
+        this.sharedCache = eTag != null ? options.sharedCache : null;
+        this.diskCache = eTag != null ? options.diskCache : null;
+        if (eTag != null) {
+            this.size = delegator.size();
+        }
+        var bufferPool = options.bufferPool;
+        this.bufferPool = eTag == null && bufferPool != null && bufferPool.bufferSize() >= maxFragmentSize
+            ? bufferPool : null;
+
+        var cacheBuilder = Caffeine.newBuilder().maximumSize(maxNumberFragments).recordStats();
+        // pooled fragments are released by the thread that evicts them, so that the pool sees them again right away
+        this.readAheadBuffersCache = this.bufferPool == null ? cacheBuilder.build()
+            : cacheBuilder.executor(Runnable::run).removalListener(this::releaseFragment).build();
     }
 
+    /**
+     * Reads a sequence of bytes into the given buffer at the position of the delegator, waiting for the fragment that
+     * holds them if it is still being downloaded.
+     *
+     * @param dst the buffer into which bytes are to be transferred
+     * @return the number of bytes read or {@code -1} if the position of the delegator is at the end of the object
+     * @throws ReadPendingException if a read started by {@link #readAsync(ByteBuffer)} is not complete
+     * @throws IOException          if the bytes could not be read
+     */
     @Override
     public int read(ByteBuffer dst) throws IOException {
         Objects.requireNonNull(dst);
+        if (!readPending.compareAndSet(false, true)) {
+            throw new ReadPendingException();
+        }
+        try {
+            return readAt(dst, delegator.position());
+        } finally {
+            readPending.set(false);
+        }
+    }
+
+    /**
+     * Reads a sequence of bytes into the given buffer at the position of the delegator without blocking the calling
+     * thread. The returned future completes once the fragment holding the bytes, or the next bytes of the streaming GET,
+     * are available, with the number of bytes read or {@code -1} at the end of the object, like
+     * {@link #read(ByteBuffer)}. The bytes are transferred by the executor of the {@link Options} rather than by the
+     * thread that completes the download, as the transfer may still block, e.g. to read the disk cache, to fetch a fragment again
+     * that left the cache or to request the size of the object. In random access mode the whole fragment holding the
+     * bytes is fetched rather than about the requested number of bytes.
+     *
+     * @param dst the buffer into which bytes are to be transferred. It must not be used until the future is complete.
+     * @return a future of the number of bytes read, which completes exceptionally with an {@code IOException} if the
+     * bytes could not be read
+     * @throws ReadPendingException if another read is not complete
+     */
+    CompletableFuture<Integer> readAsync(ByteBuffer dst) {
+        Objects.requireNonNull(dst);
+        if (!readPending.compareAndSet(false, true)) {
+            throw new ReadPendingException();
+        }
+
+        final long channelPosition;
+        final CompletableFuture<?> available;
+        try {
+            channelPosition = delegator.position();
+            available = whenAvailable(channelPosition).copy().orTimeout(timeout, timeUnit);
+        } catch (IOException | RuntimeException e) {
+            readPending.set(false);
+            return CompletableFuture.failedFuture(e);
+        }
 
-        var channelPosition = delegator.position();
+        return available.handleAsync((ignored, e) -> {
+            try {
+                if (e != null && (e instanceof TimeoutException || e.getCause() instanceof TimeoutException)) {
+                    throw TimeOutUtils.logAndGenerateExceptionOnTimeOut(logger, "read",
+                        TimeOutUtils.TIMEOUT_TIME_LENGTH_5, TimeUnit.MINUTES);
+                }
+                // the bytes are available, so this does not wait. a failed download fails the read as usual.
+                return readAt(dst, channelPosition);
+            } catch (IOException ioException) {
+                throw new CompletionException(ioException);
+            } finally {
+                readPending.set(false);
+            }
+        }, executor);
+    }
+
+    /**
+     * @return a future that completes once a read at {@code channelPosition} would not wait
+     */
+    private CompletableFuture<?> whenAvailable(long channelPosition) {
+        startTail();
+        if (awaitsTail(channelPosition)) {
+            return tail.handle((bytes, e) -> null).thenCompose(ignored -> whenAvailable(channelPosition));
+        }
+        if (size >= 0 && channelPosition >= size) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (isInTail(channelPosition)) {
+            // a failed tail leaves the read to the fragments
+            return tail.handle((bytes, e) -> e).thenCompose(e -> e == null ? CompletableFuture.completedFuture(null)
+                : whenFragmentAvailable(channelPosition));
+        }
+        return whenFragmentAvailable(channelPosition);
+    }
+
+    private CompletableFuture<?> whenFragmentAvailable(long channelPosition) {
+        if (streamingReader != null && channelPosition >= streamingReader.startPosition()
+            && channelPosition == streamingReader.position()) {
+            return streamingReader.whenReadable();
+        }
+        if (randomBlock != null && channelPosition >= randomBlockPosition
+            && channelPosition < randomBlockPosition + randomBlock.limit()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        var fragmentIndex = fragmentIndexForByteNumber(channelPosition);
+        var fragment = cachedFragment(fragmentIndex);
+        return fragment != null ? fragment
+            : Objects.requireNonNull(readAheadBuffersCache.get(fragmentIndex, this::computeFragmentFuture));
+    }
+
+    private int readAt(ByteBuffer dst, long channelPosition) throws IOException {
         logger.debug("delegator position: {}", channelPosition);
 
+        var pinnedTail = tailHolding(channelPosition);
+        if (pinnedTail != null) {
+            var bytesRead = transfer(pinnedTail, (int) (channelPosition - (size - pinnedTail.remaining())), dst);
+            delegator.position(channelPosition + bytesRead);
+            return bytesRead;
+        }
+
+        CompletableFuture<ByteBuffer> firstFragment = null;
+        if (size < 0) {
+            firstFragment = fetchFirstFragment(channelPosition);
+            if (firstFragment == null) {
+                return -1;
+            }
+        }
+
         // if the position of the delegator is at the end (>= size) return -1. we're finished reading.
         if (channelPosition >= size) {
             return -1;
         }
 
+        var accessPattern = accessPatternTracker.onRead(channelPosition);
+        if (accessPattern != S3AccessPattern.SEQUENTIAL) {
+            prefetchDepth = 1;
+        }
+
+        if (streamingReader != null && (!accessPatternTracker.isSequentialFromStart()
+            || channelPosition >= streamingReader.startPosition() && channelPosition != streamingReader.position())) {
+            logger.debug("seek to {} ends streaming of '{}'", channelPosition, path.toUri());
+            stopStreaming();
+            streamingDisabled = true;
+        }
+
+        final int bytesRead;
+        if (streamingReader != null && channelPosition >= streamingReader.startPosition()) {
+            bytesRead = readStream(dst);
+        } else if (accessPattern == S3AccessPattern.RANDOM
+            || (accessPattern == S3AccessPattern.STRIDED
+                && accessPatternTracker.stride() >= maxFragmentSize)) {
+            bytesRead = readRandom(dst, channelPosition);
+        } else {
+            bytesRead = readFragment(dst, channelPosition, accessPattern, firstFragment);
+        }
+
+        accessPatternTracker.onReadCompleted(channelPosition + bytesRead);
+        delegator.position(channelPosition + bytesRead);
+        return bytesRead;
+    }
+
+    /**
+     * Fetches the fragment holding {@code channelPosition} before the size of the object is known. The response to the
+     * ranged GET reports the size, the ETag and the last modified time of the object in its headers, which saves the
+     * HEAD request that would otherwise be needed to open the channel. Only if the response does not report the size
+     * is it requested from the delegator.
+     *
+     * @return the completed fragment, or {@code null} if {@code channelPosition} is beyond the end of the object
+     */
+    private CompletableFuture<ByteBuffer> fetchFirstFragment(long channelPosition) throws IOException {
+        var fragmentIndex = fragmentIndexForByteNumber(channelPosition);
+        var fragment = Objects.requireNonNull(readAheadBuffersCache.get(fragmentIndex, this::computeFragmentFuture));
+        try {
+            awaitFragment(fragment);
+        } catch (EOFException e) {
+            readAheadBuffersCache.invalidate(fragmentIndex);
+            logger.debug("position {} is beyond the end of '{}'", channelPosition, path.toUri());
+            return null;
+        }
+        if (size < 0) {
+            size = delegator.size();
+        }
+        return fragment;
+    }
+
+    /**
+     * Reads from the fragment holding {@code channelPosition}, which is {@code fetchedFragment} if that is not
+     * {@code null}, and moves the prefetch window once the reader enters a new fragment. The first window of the
+     * channel only opens once the reader is half way through its fragment, so that reading a header does not prefetch.
+     */
+    private int readFragment(ByteBuffer dst, long channelPosition, S3AccessPattern accessPattern,
+                             CompletableFuture<ByteBuffer> fetchedFragment) throws IOException {
         //figure out the index of the fragment the bytes would start in
         var fragmentIndex = fragmentIndexForByteNumber(channelPosition);
         logger.debug("fragment index: {}", fragmentIndex);
@@ -110,63 +374,370 @@ class S3ReadAheadByteChannel implements ReadableByteChannel {
         var fragmentOffset = (int) (channelPosition - (fragmentIndex.longValue() * maxFragmentSize));
         logger.debug("fragment {} offset: {}", fragmentIndex, fragmentOffset);
 
-        try {
-            final var fragment = Objects.requireNonNull(readAheadBuffersCache.get(fragmentIndex, this::computeFragmentFuture))
-                .get(timeout, timeUnit)
-                .asReadOnlyBuffer();
+        var fragment = fetchedFragment != null ? fetchedFragment
+            : Objects.requireNonNull(readAheadBuffersCache.get(fragmentIndex, this::computeFragmentFuture));
+        int limit;
+        while ((limit = transferCached(fragmentIndex, fragment, fragmentOffset, dst)) < 0) {
+            // the pooled fragment left the cache before it could be read
+            fragment = Objects.requireNonNull(readAheadBuffersCache.get(fragmentIndex, this::computeFragmentFuture));
+        }
+
+        var fragmentLength = Math.min(maxFragmentSize, size - fragmentIndex.longValue() * maxFragmentSize);
+        if (fragmentIndex == prefetchFragmentIndex) {
+            // the window may not be full, e.g. if the buffer pool was exhausted
+            fillPrefetchWindow();
+        } else if (prefetchFragmentIndex >= 0 || fragmentOffset + limit >= fragmentLength / 2) {
+            prefetchFragmentIndex = fragmentIndex;
 
-            fragment.position(fragmentOffset);
-            logger.debug("fragment remaining: {}", fragment.remaining());
-            logger.debug("dst remaining: {}", dst.remaining());
+            // clear any fragments in cache that are lower index than this one
+            clearPriorFragments(fragmentIndex);
 
-            //put the bytes from fragment from the offset upto the min of fragment remaining or dst remaining
-            var limit = Math.min(fragment.remaining(), dst.remaining());
-            logger.debug("byte limit: {}", limit);
+            prefetch(fragmentIndex, accessPattern);
+        }
 
-            var copiedBytes = new byte[limit];
-            fragment.get(copiedBytes, 0, limit);
-            dst.put(copiedBytes);
+        return limit;
+    }
 
-            if (fragment.position() >= fragment.limit() / 2) {
+    /**
+     * Reads in random access mode: no fragments are prefetched and, unless the bytes are already cached, only about the
+     * requested number of bytes are fetched. The fetched block is kept so that small reads following each other, such
+     * as a page header followed by its page, are served by a single request.
+     */
+    private int readRandom(ByteBuffer dst, long channelPosition) throws IOException {
+        var fragmentIndex = fragmentIndexForByteNumber(channelPosition);
+        var cachedFragment = cachedFragment(fragmentIndex);
+        if (cachedFragment != null) {
+            var fragmentOffset = (int) (channelPosition - (fragmentIndex.longValue() * maxFragmentSize));
+            var bytesRead = transferCached(fragmentIndex, cachedFragment, fragmentOffset, dst);
+            if (bytesRead >= 0) {
+                return bytesRead;
+            }
+        }
 
-                // clear any fragments in cache that are lower index than this one
-                clearPriorFragments(fragmentIndex);
+        if (randomBlock == null || channelPosition < randomBlockPosition
+            || channelPosition >= randomBlockPosition + randomBlock.limit()) {
+            var length = Math.min(Math.max(dst.remaining(), RANDOM_READ_MIN_SIZE), maxFragmentSize);
+            var readTo = Math.min(channelPosition + length, size) - 1;
+            logger.debug("random read of '{}' bytes at position {}", readTo - channelPosition + 1, channelPosition);
+            randomBlock = awaitFragment(fetchRange(channelPosition, readTo));
+            randomBlockPosition = channelPosition;
+        }
 
-                // until available cache slots are filled or number of fragments in file
-                var maxFragmentsToLoad = Math.min(maxNumberFragments - 1, numFragmentsInObject - fragmentIndex - 1);
+        return transfer(randomBlock.duplicate(), (int) (channelPosition - randomBlockPosition), dst);
+    }
 
-                for (var i = 0; i < maxFragmentsToLoad; i++) {
-                    final var idxToLoad = i + fragmentIndex + 1;
+    /**
+     * Moves the prefetch window to the fragments that follow {@code fragmentIndex} and starts filling it. Sequential
+     * readers get a window of {@code prefetchDepth} fragments, loaded in requests of up to a quarter of the depth (at
+     * most {@link #MAX_FRAGMENTS_PER_REQUEST} fragments), and double the depth for the next window. Strided readers get
+     * a window of the next fragment only.
+     */
+    private void prefetch(int fragmentIndex, S3AccessPattern accessPattern) {
+        if (startStreaming(fragmentIndex)) {
+            return;
+        }
 
-                    //  add the index if it's not already there
-                    if (readAheadBuffersCache.asMap().containsKey(idxToLoad)) {
-                        continue;
-                    }
+        var sequential = accessPattern == S3AccessPattern.SEQUENTIAL;
+        var depth = sequential ? prefetchDepth : 1;
 
-                    logger.debug("initiate pre-loading fragment with index '{}' from '{}'", idxToLoad, path.toUri());
-                    readAheadBuffersCache.put(idxToLoad, computeFragmentFuture(idxToLoad));
+        synchronized (prefetchLock) {
+            prefetchNext = fragmentIndex + 1;
+            // until the prefetch depth is reached or number of fragments in file
+            prefetchLast = fragmentIndex + Math.min(depth, numFragmentsInObject() - fragmentIndex - 1);
+            prefetchFragmentsPerRequest = sequential ? Math.max(1, Math.min(depth / 4, MAX_FRAGMENTS_PER_REQUEST)) : 1;
+        }
+
+        if (fillPrefetchWindow() && sequential) {
+            prefetchDepth = Math.min(prefetchDepth * 2, maxNumberFragments - 1);
+        }
+    }
+
+    /**
+     * Loads the fragments of the prefetch window that are neither cached nor loading, as long as fewer than
+     * {@code prefetchTargetBytes} bytes are in flight. Invoked when the window moves and by the completion of every
+     * prefetched fragment, which frees room for the next fragments of the window.
+     *
+     * @return {@code false} if prefetching backed off because the buffer pool is exhausted
+     */
+    private boolean fillPrefetchWindow() {
+        var loading = new ArrayList<CompletableFuture<ByteBuffer>>();
+        var backedOff = false;
+        synchronized (prefetchLock) {
+            while (open && prefetchNext <= prefetchLast && prefetchBytesInFlight < prefetchTargetBytes) {
+                var idxToLoad = prefetchNext;
+                //  add the index if it's not already there
+                if (readAheadBuffersCache.asMap().containsKey(idxToLoad) || takeFromCaches(idxToLoad)) {
+                    prefetchNext++;
+                    continue;
+                }
+
+                var maxCount = Math.min(prefetchFragmentsPerRequest,
+                    (prefetchTargetBytes - prefetchBytesInFlight + maxFragmentSize - 1) / maxFragmentSize);
+                var count = 1;
+                while (count < maxCount && idxToLoad + count <= prefetchLast
+                    && !readAheadBuffersCache.asMap().containsKey(idxToLoad + count)
+                    && !takeFromCaches(idxToLoad + count)) {
+                    count++;
                 }
+
+                logger.debug("initiate pre-loading {} fragment(s) from index '{}' from '{}'", count, idxToLoad,
+                    path.toUri());
+                var fragments = loadFragments(idxToLoad, count);
+                if (fragments.isEmpty()) {
+                    logger.debug("read buffer pool exhausted, prefetching of '{}' backs off", path.toUri());
+                    backedOff = true;
+                    break;
+                }
+                prefetchBytesInFlight += (long) fragments.size() * maxFragmentSize;
+                prefetchNext += fragments.size();
+                loading.addAll(fragments);
+            }
+        }
+
+        // off the threads of the client, as filling the window reads the disk cache
+        for (var fragment : loading) {
+            fragment.whenCompleteAsync((bytes, e) -> onPrefetchCompleted(), executor);
+        }
+        return !backedOff;
+    }
+
+    private void onPrefetchCompleted() {
+        synchronized (prefetchLock) {
+            prefetchBytesInFlight -= maxFragmentSize;
+        }
+        fillPrefetchWindow();
+    }
+
+    /**
+     * Replaces prefetching by a streaming GET of the rest of the object if the object is read sequentially from its
+     * first byte. The stream starts after the fragments that are already cached or loading.
+     *
+     * @return {@code true} if the rest of the object is or will be read by the streaming GET, so nothing needs to be
+     * prefetched
+     */
+    private boolean startStreaming(int fragmentIndex) {
+        if (streamingReader != null) {
+            return true;
+        }
+        if (streamingDisabled || sharedCache != null || diskCache != null
+            || !accessPatternTracker.isSequentialFromStart()) {
+            return false;
+        }
+
+        synchronized (prefetchLock) {
+            // the prefetch window stops filling, so the stream does not overlap with fragments loaded later
+            prefetchLast = -1;
+            var firstIndexToStream = fragmentIndex + 1;
+            while (firstIndexToStream < numFragmentsInObject()
+                && readAheadBuffersCache.asMap().containsKey(firstIndexToStream)) {
+                firstIndexToStream++;
+            }
+            if (firstIndexToStream >= numFragmentsInObject()) {
+                return true;
             }
 
-            delegator.position(channelPosition + copiedBytes.length);
-            return copiedBytes.length;
+            streamingReader = S3StreamingReader.open(client, path, (long) firstIndexToStream * maxFragmentSize, size,
+                (long) maxNumberFragments * maxFragmentSize);
+        }
+        return true;
+    }
 
+    private int readStream(ByteBuffer dst) throws IOException {
+        try {
+            var bytesRead = streamingReader.read(dst, timeout, timeUnit);
+            if (bytesRead < 0) {
+                throw new IOException(String.format("the stream of '%s' ended at position %d of %d",
+                    path.toUri(), streamingReader.position(), size));
+            }
+            return bytesRead;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new RuntimeException(e);
-        } catch (ExecutionException e) {
-            // the async execution completed exceptionally.
-            // not currently obvious when this will happen or if we can recover
-            logger.error(
-                "an exception occurred while reading bytes from {} that was not recovered by the S3 Client RetryCondition(s)",
-                path.toUri());
-            throw new IOException(e);
         } catch (TimeoutException e) {
             throw TimeOutUtils.logAndGenerateExceptionOnTimeOut(logger, "read",
                 TimeOutUtils.TIMEOUT_TIME_LENGTH_5, TimeUnit.MINUTES);
         }
     }
 
+    private void stopStreaming() {
+        if (streamingReader != null) {
+            streamingReader.cancel();
+            streamingReader = null;
+        }
+    }
+
+    /**
+     * Reads a sequence of bytes into the given buffer, starting at the given position of the object. Neither the
+     * position of the delegator nor the read ahead state of this channel is changed. If the fragment holding
+     * {@code position} is already cached the bytes are taken from it, otherwise only the requested range is fetched
+     * with a ranged GET that bypasses the cache. This method may be invoked concurrently by several threads.
+     *
+     * @param dst      the buffer into which bytes are to be transferred
+     * @param position the position of the object at which the transfer is to begin. Must be {@code >= 0}.
+     * @return the number of bytes read, possibly zero, or {@code -1} if the given position is greater than or equal to
+     * the size of the object
+     * @throws IOException if the bytes could not be read
+     */
+    int read(ByteBuffer dst, long position) throws IOException {
+        Objects.requireNonNull(dst);
+        if (position < 0) {
+            throw new IllegalArgumentException("position cannot be < 0");
+        }
+
+        if (size >= 0 && position >= size) {
+            return -1;
+        }
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+
+        var pinnedTail = tailHolding(position);
+        if (pinnedTail != null) {
+            return transfer(pinnedTail, (int) (position - (size - pinnedTail.remaining())), dst);
+        }
+
+        var fragmentIndex = fragmentIndexForByteNumber(position);
+        var cachedFragment = cachedFragment(fragmentIndex);
+        if (cachedFragment != null) {
+            var fragmentOffset = (int) (position - (fragmentIndex.longValue() * maxFragmentSize));
+            var bytesRead = transferCached(fragmentIndex, cachedFragment, fragmentOffset, dst);
+            if (bytesRead >= 0) {
+                logger.debug("positional read at {} served from cached fragment {}", position, fragmentIndex);
+                return bytesRead;
+            }
+        }
+
+        var readTo = position + dst.remaining() - 1;
+        if (size >= 0) {
+            readTo = Math.min(readTo, size - 1);
+        }
+        try {
+            return transfer(awaitFragment(fetchRange(position, readTo)), 0, dst);
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Reads several ranges of the object at once without changing the position of the delegator. Ranges that lie
+     * within a cached fragment are served from it. The other ranges are sorted and merged into as few ranged GETs as
+     * possible: a range is added to the previous request if the gap between them is at most {@code maxMergeGap} bytes
+     * and the request stays within {@code maxMergedSize} bytes. The requests run in parallel and the {@code data} of
+     * every range completes with a read-only slice of the response of its request, or exceptionally if the request
+     * failed or the range extends beyond the end of the object.
+     *
+     * @param ranges        the ranges to read
+     * @param maxMergeGap   the largest gap, in bytes, between ranges fetched by the same request
+     * @param maxMergedSize the largest size, in bytes, of a request fetching several ranges. A single range larger
+     *                      than this is fetched by a request of its own.
+     * @return a future that completes once the data of all ranges is complete
+     */
+    CompletableFuture<Void> readVectored(List<S3FileRange> ranges, int maxMergeGap, int maxMergedSize) {
+        Objects.requireNonNull(ranges);
+
+        var toFetch = new ArrayList<S3FileRange>();
+        for (var range : ranges) {
+            if (size >= 0 && range.end() > size) {
+                range.data().completeExceptionally(new EOFException(
+                    String.format("%s extends beyond the end of '%s' of %d bytes", range, path.toUri(), size)));
+            } else if (range.length() == 0) {
+                range.data().complete(ByteBuffer.allocate(0).asReadOnlyBuffer());
+            } else if (!completeFromCache(range)) {
+                toFetch.add(range);
+            }
+        }
+        toFetch.sort(Comparator.comparingLong(S3FileRange::offset));
+
+        var merged = new ArrayList<S3FileRange>();
+        var mergedEnd = 0L;
+        for (var range : toFetch) {
+            if (!merged.isEmpty()) {
+                var mergedStart = merged.get(0).offset();
+                if (range.offset() - mergedEnd <= maxMergeGap
+                    && Math.max(mergedEnd, range.end()) - mergedStart <= maxMergedSize) {
+                    merged.add(range);
+                    mergedEnd = Math.max(mergedEnd, range.end());
+                    continue;
+                }
+                fetchMerged(merged, mergedEnd);
+                merged = new ArrayList<>();
+            }
+            merged.add(range);
+            mergedEnd = range.end();
+        }
+        if (!merged.isEmpty()) {
+            fetchMerged(merged, mergedEnd);
+        }
+
+        return CompletableFuture.allOf(ranges.stream().map(S3FileRange::data).toArray(CompletableFuture[]::new));
+    }
+
+    private boolean completeFromCache(S3FileRange range) {
+        var pinnedTail = tail;
+        if (pinnedTail != null && pinnedTail.isDone() && !pinnedTail.isCompletedExceptionally() && size >= 0) {
+            var tailStart = size - pinnedTail.join().remaining();
+            if (range.offset() >= tailStart) {
+                completeWithSlice(range, pinnedTail, (int) (range.offset() - tailStart));
+                return true;
+            }
+        }
+        var fragmentIndex = fragmentIndexForByteNumber(range.offset());
+        if (!fragmentIndex.equals(fragmentIndexForByteNumber(range.end() - 1))) {
+            return false;
+        }
+        var cachedFragment = cachedFragment(fragmentIndex);
+        if (cachedFragment == null) {
+            return false;
+        }
+        var fragmentOffset = (int) (range.offset() - fragmentIndex.longValue() * maxFragmentSize);
+        if (bufferPool == null) {
+            completeWithSlice(range, cachedFragment, fragmentOffset);
+            return true;
+        }
+
+        // a pooled fragment is reused once it leaves the cache, so the range gets a copy of its bytes
+        if (!cachedFragment.isDone() || cachedFragment.isCompletedExceptionally()) {
+            return false;
+        }
+        var bytes = ByteBuffer.allocate(range.length());
+        try {
+            if (transferCached(fragmentIndex, cachedFragment, fragmentOffset, bytes) < 0) {
+                return false;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        range.data().complete(bytes.flip().asReadOnlyBuffer());
+        return true;
+    }
+
+    private void fetchMerged(List<S3FileRange> merged, long end) {
+        var start = merged.get(0).offset();
+        logger.debug("vectored read of {} range(s) of '{}' with one request of {} bytes", merged.size(), path.toUri(),
+            end - start);
+        var bytes = fetchRange(start, end - 1);
+        for (var range : merged) {
+            completeWithSlice(range, bytes, (int) (range.offset() - start));
+        }
+    }
+
+    private void completeWithSlice(S3FileRange range, CompletableFuture<ByteBuffer> bytes, int offset) {
+        bytes.whenComplete((buffer, e) -> {
+            if (e != null && isRangeNotSatisfiable(e) || e == null && buffer.remaining() < offset + range.length()) {
+                // only possible while the size of the object is unknown
+                range.data().completeExceptionally(new EOFException(
+                    String.format("%s extends beyond the end of '%s'", range, path.toUri())));
+            } else if (e != null) {
+                range.data().completeExceptionally(e);
+            } else {
+                var slice = buffer.duplicate();
+                slice.position(slice.position() + offset);
+                slice.limit(slice.position() + range.length());
+                range.data().complete(slice.slice().asReadOnlyBuffer());
+            }
+        });
+    }
+
     @Override
     public boolean isOpen() {
         return open;
@@ -174,10 +745,13 @@ class S3ReadAheadByteChannel implements ReadableByteChannel {
 
     @Override
     public void close() {
-        open = false;
+        synchronized (prefetchLock) {
+            // fragments completing after this do not load the rest of the prefetch window
+            open = false;
+        }
+        stopStreaming();
         readAheadBuffersCache.invalidateAll();
         readAheadBuffersCache.cleanUp();
-        client.close();
     }
 
     private void clearPriorFragments(int currentFragIndx) {
@@ -215,19 +789,457 @@ class S3ReadAheadByteChannel implements ReadableByteChannel {
         return readAheadBuffersCache.stats();
     }
 
+    /**
+     * The access pattern this channel currently assumes for its reads, reported together with the
+     * {@link #cacheStatistics() cache statistics} when tuning.
+     *
+     * @return the current access pattern
+     */
+    S3AccessPattern accessPattern() {
+        return accessPatternTracker.accessPattern();
+    }
+
+    /**
+     * @return the options this channel was created with
+     */
+    Options options() {
+        return options;
+    }
+
+    /**
+     * @return {@code true} if the rest of the object is read by a streaming GET
+     */
+    boolean isStreaming() {
+        return streamingReader != null;
+    }
+
+    /**
+     * @return the number of times the access pattern of this channel changed
+     */
+    long accessPatternSwitches() {
+        return accessPatternTracker.switches();
+    }
+
+    /**
+     * Transfers bytes of a fragment of the read ahead cache into {@code dst}, see {@link #transfer}. Pooled fragments
+     * are reused once they leave the cache, so they are only read while they are still cached and under a lock that
+     * keeps them from being released.
+     *
+     * @return the number of bytes transferred, or {@code -1} if the pooled fragment left the cache
+     */
+    private int transferCached(int fragmentIndex, CompletableFuture<ByteBuffer> fragment, int fragmentOffset,
+                               ByteBuffer dst) throws IOException {
+        var bytes = awaitFragment(fragment);
+        if (bufferPool == null) {
+            return transfer(bytes, fragmentOffset, dst);
+        }
+
+        pooledFragmentsLock.readLock().lock();
+        try {
+            if (readAheadBuffersCache.asMap().get(fragmentIndex) != fragment) {
+                return -1;
+            }
+            return transfer(bytes, fragmentOffset, dst);
+        } finally {
+            pooledFragmentsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the buffer of a fragment that left the read ahead cache to the pool, once nobody reads from it. If the
+     * evicting thread is itself reading a fragment, the buffer is released by another thread.
+     */
+    private void releaseFragment(Integer fragmentIndex, CompletableFuture<ByteBuffer> fragment, RemovalCause cause) {
+        if (fragment == null) {
+            return;
+        }
+        fragment.thenAccept(buffer -> {
+            if (pooledFragmentsLock.writeLock().tryLock()) {
+                releaseLocked(buffer);
+            } else {
+                executor.execute(() -> {
+                    pooledFragmentsLock.writeLock().lock();
+                    releaseLocked(buffer);
+                });
+            }
+        });
+    }
+
+    private void releaseLocked(ByteBuffer buffer) {
+        try {
+            bufferPool.release(buffer);
+        } finally {
+            pooledFragmentsLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Transfers the bytes of {@code fragment} from {@code fragmentOffset} up to the min of the bytes remaining in the
+     * fragment or in {@code dst}. The bytes are put straight from the fragment into {@code dst} without an intermediate
+     * array; {@code fragment} must therefore be a duplicate that may be repositioned.
+     *
+     * @return the number of bytes transferred
+     */
+    private int transfer(ByteBuffer fragment, int fragmentOffset, ByteBuffer dst) {
+        fragment.position(fragmentOffset);
+        logger.debug("fragment remaining: {}", fragment.remaining());
+        logger.debug("dst remaining: {}", dst.remaining());
+
+        var limit = Math.min(fragment.remaining(), dst.remaining());
+        logger.debug("byte limit: {}", limit);
+
+        fragment.limit(fragmentOffset + limit);
+        dst.put(fragment);
+        return limit;
+    }
+
+    private ByteBuffer awaitFragment(CompletableFuture<ByteBuffer> fragmentFuture) throws IOException {
+        try {
+            return fragmentFuture.get(timeout, timeUnit).asReadOnlyBuffer();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (isRangeNotSatisfiable(e.getCause())) {
+                var eof = new EOFException("read beyond the end of '" + path.toUri() + "'");
+                eof.initCause(e.getCause());
+                throw eof;
+            }
+            if (isNoSuchKey(e.getCause())) {
+                var noSuchFile = new NoSuchFileException(path.toString());
+                noSuchFile.initCause(e.getCause());
+                throw noSuchFile;
+            }
+            // the async execution completed exceptionally.
+            // not currently obvious when this will happen or if we can recover
+            logger.error(
+                "an exception occurred while reading bytes from {} that was not recovered by the S3 Client RetryCondition(s)",
+                path.toUri());
+            throw new IOException(e);
+        } catch (TimeoutException e) {
+            throw TimeOutUtils.logAndGenerateExceptionOnTimeOut(logger, "read",
+                TimeOutUtils.TIMEOUT_TIME_LENGTH_5, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Starts to load the pinned tail with a suffix range, unless it is disabled or already loading. The size of the
+     * object is taken from the delegator if it knows it, so that a first read of the tail does not wait for the tail
+     * to learn whether it reads the tail.
+     */
+    private void startTail() {
+        if (tailBytes == 0 || tail != null) {
+            return;
+        }
+        synchronized (tailLock) {
+            if (tail != null) {
+                return;
+            }
+            if (size < 0 && delegator.knownSize() >= 0) {
+                size = delegator.knownSize();
+            }
+            logger.debug("pinning the last {} bytes of '{}'", tailBytes, path.toUri());
+            var range = "bytes=-" + tailBytes;
+            tail = sharedCache != null ? sharedCache.getTail(path, eTag, tailBytes, () -> fetchRange(range))
+                : fetchRange(range);
+        }
+    }
+
+    /**
+     * Whether a read at {@code channelPosition} must wait for the tail, as only its response tells the size of the
+     * object and so whether the read is in the tail. A read at the start of the object never waits.
+     */
+    private boolean awaitsTail(long channelPosition) {
+        var pinnedTail = tail;
+        return pinnedTail != null && !pinnedTail.isDone() && size < 0 && channelPosition > 0;
+    }
+
+    private boolean isInTail(long channelPosition) {
+        return tail != null && size >= 0 && channelPosition < size && channelPosition >= size - Math.min(tailBytes, size);
+    }
+
+    /**
+     * Starts to load the pinned tail, if it is enabled, and waits for it if the read at {@code channelPosition} is in
+     * the tail or could be.
+     *
+     * @return the pinned tail if it holds {@code channelPosition}, otherwise {@code null}, also if it failed to load
+     */
+    private ByteBuffer tailHolding(long channelPosition) throws IOException {
+        startTail();
+        if (awaitsTail(channelPosition)) {
+            try {
+                awaitFragment(tail);
+            } catch (IOException e) {
+                logger.debug("could not pin the tail of '{}'", path.toUri(), e);
+            }
+        }
+        if (!isInTail(channelPosition) || tail.isCompletedExceptionally()) {
+            return null;
+        }
+        try {
+            var pinnedTail = awaitFragment(tail);
+            return channelPosition >= size - pinnedTail.remaining() ? pinnedTail : null;
+        } catch (IOException e) {
+            logger.debug("could not pin the tail of '{}'", path.toUri(), e);
+            return null;
+        }
+    }
+
+    /**
+     * The fragment with the given index if it is held by this channel, by the shared cache or by the disk cache
+     */
+    private CompletableFuture<ByteBuffer> cachedFragment(int fragmentIndex) {
+        var fragment = readAheadBuffersCache.getIfPresent(fragmentIndex);
+        if (fragment == null && sharedCache != null) {
+            fragment = sharedCache.getIfPresent(path, eTag, maxFragmentSize, fragmentIndex);
+        }
+        if (fragment == null && diskCache != null) {
+            var stored = diskCache.get(path, eTag, maxFragmentSize, fragmentIndex);
+            if (stored != null) {
+                fragment = CompletableFuture.completedFuture(stored);
+            }
+        }
+        return fragment;
+    }
+
+    /**
+     * Adds the fragment with the given index to the read ahead fragments of this channel if the shared cache or the
+     * disk cache holds it.
+     *
+     * @return {@code true} if the fragment was taken from one of the caches
+     */
+    private boolean takeFromCaches(int fragmentIndex) {
+        var fragment = sharedCache != null ? sharedCache.getIfPresent(path, eTag, maxFragmentSize, fragmentIndex) : null;
+        if (fragment == null && diskCache != null) {
+            var stored = diskCache.get(path, eTag, maxFragmentSize, fragmentIndex);
+            if (stored != null) {
+                fragment = CompletableFuture.completedFuture(stored);
+                if (sharedCache != null) {
+                    sharedCache.put(path, eTag, maxFragmentSize, fragmentIndex, fragment);
+                }
+            }
+        }
+        if (fragment == null) {
+            return false;
+        }
+        readAheadBuffersCache.put(fragmentIndex, fragment);
+        return true;
+    }
+
+    /**
+     * Loads {@code count} consecutive fragments with a single ranged GET and caches a slice of the response for each,
+     * in this channel and in the shared cache. With a buffer pool, each fragment is read into a buffer of the pool and
+     * fewer fragments are loaded if the pool cannot provide enough buffers.
+     *
+     * @return the fragments that are loaded
+     */
+    private List<CompletableFuture<ByteBuffer>> loadFragments(int firstFragmentIndex, int count) {
+        if (bufferPool != null) {
+            return loadPooledFragments(firstFragmentIndex, count);
+        }
+        if (count == 1) {
+            return List.of(cacheFragment(firstFragmentIndex, downloadFragment(firstFragmentIndex)));
+        }
+
+        var readFrom = (long) firstFragmentIndex * maxFragmentSize;
+        var readTo = Math.min(readFrom + (long) count * maxFragmentSize, size) - 1;
+        var response = fetchRange(readFrom, readTo);
+        var fragments = new ArrayList<CompletableFuture<ByteBuffer>>(count);
+        for (var i = 0; i < count; i++) {
+            final var offset = i * maxFragmentSize;
+            fragments.add(cacheFragment(firstFragmentIndex + i, response.thenApply(buffer -> slice(buffer, offset))));
+        }
+        return fragments;
+    }
+
+    private List<CompletableFuture<ByteBuffer>> loadPooledFragments(int firstFragmentIndex, int count) {
+        var buffers = new ArrayList<ByteBuffer>(count);
+        ByteBuffer buffer;
+        while (buffers.size() < count && (buffer = bufferPool.tryAcquire()) != null) {
+            buffers.add(buffer.limit(maxFragmentSize));
+        }
+        if (buffers.isEmpty()) {
+            return List.of();
+        }
+
+        var readFrom = (long) firstFragmentIndex * maxFragmentSize;
+        var readTo = Math.min(readFrom + (long) buffers.size() * maxFragmentSize, size) - 1;
+        var response = fetchRangeInto(readFrom, readTo, buffers);
+        var fragments = new ArrayList<CompletableFuture<ByteBuffer>>(buffers.size());
+        for (var i = 0; i < buffers.size(); i++) {
+            final var fragment = buffers.get(i);
+            var future = response.thenApply(r -> fragment);
+            readAheadBuffersCache.put(firstFragmentIndex + i, future);
+            fragments.add(future);
+        }
+        return fragments;
+    }
+
+    private CompletableFuture<ByteBuffer> cacheFragment(int fragmentIndex, CompletableFuture<ByteBuffer> fragment) {
+        readAheadBuffersCache.put(fragmentIndex, fragment);
+        if (sharedCache != null) {
+            sharedCache.put(path, eTag, maxFragmentSize, fragmentIndex, fragment);
+        }
+        storeOnDisk(fragmentIndex, fragment);
+        return fragment;
+    }
+
+    /**
+     * Writes the fragment to the disk cache once it is downloaded, off the thread that completes the download
+     */
+    private void storeOnDisk(int fragmentIndex, CompletableFuture<ByteBuffer> fragment) {
+        if (diskCache != null) {
+            fragment.thenAcceptAsync(bytes -> diskCache.put(path, eTag, maxFragmentSize, fragmentIndex, bytes),
+                executor);
+        }
+    }
+
+    private ByteBuffer slice(ByteBuffer buffer, int offset) {
+        var fragment = buffer.duplicate();
+        fragment.position(fragment.position() + offset);
+        fragment.limit(Math.min(fragment.position() + maxFragmentSize, fragment.limit()));
+        return fragment.slice();
+    }
+
     private CompletableFuture<ByteBuffer> computeFragmentFuture(int fragmentIndex) {
+        if (sharedCache != null) {
+            return sharedCache.get(path, eTag, maxFragmentSize, fragmentIndex, () -> fetchFragment(fragmentIndex));
+        }
+        return fetchFragment(fragmentIndex);
+    }
+
+    private CompletableFuture<ByteBuffer> fetchFragment(int fragmentIndex) {
+        if (diskCache != null) {
+            var stored = diskCache.get(path, eTag, maxFragmentSize, fragmentIndex);
+            if (stored != null) {
+                return CompletableFuture.completedFuture(stored);
+            }
+        }
+
+        var fragment = downloadFragment(fragmentIndex);
+        storeOnDisk(fragmentIndex, fragment);
+        return fragment;
+    }
+
+    private CompletableFuture<ByteBuffer> downloadFragment(int fragmentIndex) {
         var readFrom = (long) fragmentIndex * maxFragmentSize;
-        var readTo = Math.min(readFrom + maxFragmentSize, size) - 1;
-        var range = "bytes=" + readFrom + "-" + readTo;
+        var readTo = readFrom + maxFragmentSize - 1;
+        if (size >= 0) {
+            readTo = Math.min(readTo, size - 1);
+        }
+        if (bufferPool != null) {
+            var fragment = bufferPool.acquire().limit(maxFragmentSize);
+            return fetchRangeInto(readFrom, readTo, List.of(fragment)).thenApply(response -> fragment);
+        }
+        return fetchRange(readFrom, readTo);
+    }
+
+    private CompletableFuture<ByteBuffer> fetchRange(long readFrom, long readTo) {
+        return fetchRange("bytes=" + readFrom + "-" + readTo);
+    }
+
+    private CompletableFuture<ByteBuffer> fetchRange(String range) {
         logger.debug("byte range for {} is '{}'", path.getKey(), range);
 
+        // fragments that go to the shared or disk cache must belong to the version of the object identified by the ETag
+        Function<AsyncResponseTransformer<GetObjectResponse, ResponseBytes<GetObjectResponse>>,
+            CompletableFuture<ResponseBytes<GetObjectResponse>>> request = transformer -> client.getObject(
+                builder -> builder
+                    .bucket(path.bucketName())
+                    .key(path.getKey())
+                    .range(range)
+                    .ifMatch(sharedCache != null || diskCache != null ? eTag : null),
+                transformer);
+        var fetched = hedger != null ? hedger.send(request, AsyncResponseTransformer::toBytes)
+            : request.apply(AsyncResponseTransformer.toBytes());
+        return fetched
+            .thenApply(response -> {
+                recordObjectMetadata(response.response());
+                return response.asByteBuffer();
+            });
+    }
+
+    /**
+     * Fetches a range of the object into buffers of the buffer pool, which are released to the pool if the GET fails
+     */
+    private CompletableFuture<GetObjectResponse> fetchRangeInto(long readFrom, long readTo, List<ByteBuffer> buffers) {
+        var range = "bytes=" + readFrom + "-" + readTo;
+        logger.debug("byte range for {} is '{}' into {} pooled buffer(s)", path.getKey(), range, buffers.size());
+
         return client.getObject(
                 builder -> builder
                     .bucket(path.bucketName())
                     .key(path.getKey())
                     .range(range),
-                AsyncResponseTransformer.toBytes())
-            .thenApply(BytesWrapper::asByteBuffer);
+                new FragmentBuffersResponseTransformer(buffers))
+            .whenComplete((response, e) -> {
+                if (e != null) {
+                    buffers.forEach(bufferPool::release);
+                } else {
+                    recordObjectMetadata(response);
+                }
+            });
+    }
+
+    /**
+     * Takes the size of the object from a ranged GET response, if the size is not known yet, and passes it to the
+     * delegator together with the ETag and the last modified time of the response.
+     */
+    private void recordObjectMetadata(GetObjectResponse response) {
+        if (size >= 0) {
+            return;
+        }
+        var objectSize = objectSize(response);
+        if (objectSize < 0) {
+            return;
+        }
+        delegator.objectMetadata(objectSize, response.eTag(), response.lastModified());
+        size = objectSize;
+    }
+
+    /**
+     * Takes the size of the object from the {@code Content-Range} header of a ranged GET response, e.g.
+     * {@code bytes 0-1023/146515}.
+     *
+     * @param response the response to a ranged GET
+     * @return the size of the object, or {@code -1} if the response does not report it
+     */
+    static long objectSize(GetObjectResponse response) {
+        var contentRange = response.contentRange();
+        if (contentRange == null) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(contentRange.substring(contentRange.lastIndexOf('/') + 1).trim());
+        } catch (NumberFormatException e) {
+            logger.debug("no object size in Content-Range '{}'", contentRange);
+            return -1L;
+        }
+    }
+
+    /**
+     * @param e the failure of a ranged GET
+     * @return {@code true} if {@code e} is, or is caused by, a response with status 416, the answer to a ranged GET
+     * that starts beyond the end of the object
+     */
+    static boolean isRangeNotSatisfiable(Throwable e) {
+        var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause instanceof S3Exception && ((S3Exception) cause).statusCode() == RANGE_NOT_SATISFIABLE;
+    }
+
+    /**
+     * @param e the failure of a GET
+     * @return {@code true} if {@code e} is, or is caused by, a {@code NoSuchKeyException} or a response with status
+     * 404, the answer to a GET of an object that does not exist
+     */
+    static boolean isNoSuchKey(Throwable e) {
+        var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause instanceof NoSuchKeyException
+            || cause instanceof S3Exception && ((S3Exception) cause).statusCode() == NOT_FOUND;
+    }
+
+    private int numFragmentsInObject() {
+        return Math.toIntExact(Math.floorDiv(size + maxFragmentSize - 1, (long) maxFragmentSize));
     }
 
     /**
@@ -239,4 +1251,166 @@ class S3ReadAheadByteChannel implements ReadableByteChannel {
     Integer fragmentIndexForByteNumber(long byteNumber) {
         return Math.toIntExact(Math.floorDiv(byteNumber, (long) maxFragmentSize));
     }
+
+    /**
+     * The settings of a read channel and the caches, buffer pool and hedger it shares with the other read channels of
+     * its file system. Each setting has a default; the caches, the buffer pool and the hedger are not used by default.
+     */
+    static final class Options {
+
+        private int maxFragmentSize = S3NioSpiConfiguration.S3_SPI_READ_MAX_FRAGMENT_SIZE_DEFAULT;
+        private int maxNumberFragments = S3NioSpiConfiguration.S3_SPI_READ_MAX_FRAGMENT_NUMBER_DEFAULT;
+        private long timeout = TimeOutUtils.TIMEOUT_TIME_LENGTH_5;
+        private TimeUnit timeUnit = TimeUnit.MINUTES;
+        private S3FragmentCache sharedCache;
+        private S3DiskFragmentCache diskCache;
+        private S3FragmentBufferPool bufferPool;
+        private long prefetchTargetBytes = S3NioSpiConfiguration.S3_SPI_READ_PREFETCH_TARGET_BYTES_DEFAULT;
+        private S3RequestHedger hedger;
+        private Executor executor = ForkJoinPool.commonPool();
+        private int tailBytes = S3NioSpiConfiguration.S3_SPI_READ_TAIL_BYTES_DEFAULT;
+        private Consumer<S3AccessPattern> accessPatternListener;
+
+        /**
+         * @param maxFragmentSize the maximum amount of bytes in a read ahead fragment. Must be {@code >= 1}.
+         * @return this instance
+         */
+        Options withMaxFragmentSize(int maxFragmentSize) {
+            if (maxFragmentSize < 1) {
+                throw new IllegalArgumentException("maxFragmentSize must be >= 1");
+            }
+            this.maxFragmentSize = maxFragmentSize;
+            return this;
+        }
+
+        /**
+         * @param maxNumberFragments the maximum number of read ahead fragments to hold. Must be {@code >= 2}.
+         * @return this instance
+         */
+        Options withMaxNumberFragments(int maxNumberFragments) {
+            if (maxNumberFragments < 2) {
+                throw new IllegalArgumentException("maxNumberFragments must be >= 2");
+            }
+            this.maxNumberFragments = maxNumberFragments;
+            return this;
+        }
+
+        /**
+         * @param timeout  the amount of time to wait for a read ahead fragment to be available, {@code null} for the
+         *                 default of 5 minutes
+         * @param timeUnit the {@code TimeUnit} for the {@code timeout}, {@code null} for minutes
+         * @return this instance
+         */
+        Options withTimeout(Long timeout, TimeUnit timeUnit) {
+            this.timeout = timeout != null ? timeout : TimeOutUtils.TIMEOUT_TIME_LENGTH_5;
+            this.timeUnit = timeUnit != null ? timeUnit : TimeUnit.MINUTES;
+            return this;
+        }
+
+        /**
+         * @param sharedCache the fragment cache shared by the read channels of the file system, may be {@code null}.
+         *                    It is not used if the ETag of the object is unknown. It also holds the pinned tail, which
+         *                    then outlives the channel.
+         * @return this instance
+         */
+        Options withSharedCache(S3FragmentCache sharedCache) {
+            this.sharedCache = sharedCache;
+            return this;
+        }
+
+        /**
+         * @param diskCache the on-disk fragment cache, may be {@code null}. It is not used if the ETag of the object is
+         *                  unknown.
+         * @return this instance
+         */
+        Options withDiskCache(S3DiskFragmentCache diskCache) {
+            this.diskCache = diskCache;
+            return this;
+        }
+
+        /**
+         * @param bufferPool the pool of the buffers holding the read ahead fragments, may be {@code null}. It is not
+         *                   used if its buffers are smaller than the fragments or if a cache is used, as cached
+         *                   fragments outlive the channel. Prefetching backs off while the target size of the pool is
+         *                   in use, and fragments are returned to the pool once they leave the read ahead cache.
+         * @return this instance
+         */
+        Options withBufferPool(S3FragmentBufferPool bufferPool) {
+            this.bufferPool = bufferPool;
+            return this;
+        }
+
+        /**
+         * @param prefetchTargetBytes the number of bytes kept in flight ahead of the read position while prefetching.
+         *                            Must be {@code >= 0}; {@code 0} disables prefetching.
+         * @return this instance
+         */
+        Options withPrefetchTargetBytes(long prefetchTargetBytes) {
+            if (prefetchTargetBytes < 0) {
+                throw new IllegalArgumentException("prefetchTargetBytes must be >= 0");
+            }
+            this.prefetchTargetBytes = prefetchTargetBytes;
+            return this;
+        }
+
+        /**
+         * @param hedger the hedger of the ranged GETs, may be {@code null}. GETs into pooled buffers are not hedged, as
+         *               two requests cannot fill the same buffers.
+         * @return this instance
+         */
+        Options withHedger(S3RequestHedger hedger) {
+            this.hedger = hedger;
+            return this;
+        }
+
+        /**
+         * @param executor the executor that runs the work that must not block the threads of the client: the transfers
+         *                 of {@link #readAsync(ByteBuffer)}, the filling of the prefetch window, the writes to the disk
+         *                 cache and the release of pooled fragments. {@code null} for the common pool.
+         * @return this instance
+         */
+        Options withExecutor(Executor executor) {
+            this.executor = executor != null ? executor : ForkJoinPool.commonPool();
+            return this;
+        }
+
+        /**
+         * @param tailBytes the number of bytes at the end of the object that are fetched with the first read and kept.
+         *                  Must be {@code >= 0}; {@code 0} disables the pinned tail.
+         * @return this instance
+         */
+        Options withTailBytes(int tailBytes) {
+            if (tailBytes < 0) {
+                throw new IllegalArgumentException("tailBytes must be >= 0");
+            }
+            this.tailBytes = tailBytes;
+            return this;
+        }
+
+        /**
+         * @param accessPatternListener told of the new access pattern whenever the access pattern of the channel
+         *                              changes, {@code null} for none
+         * @return this instance
+         */
+        Options withAccessPatternListener(Consumer<S3AccessPattern> accessPatternListener) {
+            this.accessPatternListener = accessPatternListener;
+            return this;
+        }
+
+        int maxFragmentSize() {
+            return maxFragmentSize;
+        }
+
+        int maxNumberFragments() {
+            return maxNumberFragments;
+        }
+
+        long prefetchTargetBytes() {
+            return prefetchTargetBytes;
+        }
+
+        int tailBytes() {
+            return tailBytes;
+        }
+    }
 }
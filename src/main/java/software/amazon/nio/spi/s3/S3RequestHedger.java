@@ -0,0 +1,264 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+/**
+ * Hedges GET requests against the long tail of S3 latencies. If a request has not received the headers of its response
+ * after a delay, the same request is sent a second time and whichever of the two completes first is used, while the
+ * other is cancelled.
+ * <p>
+ * The delay is a percentile of the time to first byte of the last {@value #SAMPLE_WINDOW} requests, but no less than a
+ * minimum delay. No request is hedged before {@value #MIN_SAMPLES} requests were measured, and at most a given share
+ * of the requests is hedged, so that a slow bucket does not double the load on it. A hedger is shared by the read
+ * channels of a file system and counts the hedges it issued and the hedges that completed first.
+ */
+class S3RequestHedger {
+
+    /**
+     * The number of latest times to first byte the hedge delay is computed from
+     */
+    static final int SAMPLE_WINDOW = 1024;
+
+    /**
+     * The number of times to first byte that must be measured before a request is hedged
+     */
+    static final int MIN_SAMPLES = 20;
+
+    private static final int SAMPLES_PER_UPDATE = 32;
+
+    private static final Logger logger = LoggerFactory.getLogger(S3RequestHedger.class);
+
+    private final int percentile;
+    private final long minDelayNanos;
+    private final int maxHedgePercent;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedgesIssued = new AtomicLong();
+    private final AtomicLong hedgesWon = new AtomicLong();
+
+    // the times to first byte in nanoseconds, a ring buffer guarded by this
+    private final long[] samples = new long[SAMPLE_WINDOW];
+    private int sampleCount;
+    private int nextSample;
+    private int samplesSinceUpdate;
+    private volatile long delayNanos = -1L;
+
+    /**
+     * @param percentile      the percentile of the times to first byte after which a request is hedged, between
+     *                        {@code 1} and {@code 99}
+     * @param minDelayMillis  the minimum delay after which a request is hedged, in milliseconds
+     * @param maxHedgePercent the maximum share of requests that are hedged, in percent
+     */
+    S3RequestHedger(int percentile, long minDelayMillis, int maxHedgePercent) {
+        if (percentile < 1 || percentile > 99) {
+            throw new IllegalArgumentException("percentile must be between 1 and 99");
+        }
+        if (minDelayMillis < 0) {
+            throw new IllegalArgumentException("minDelayMillis must be >= 0");
+        }
+        if (maxHedgePercent < 0 || maxHedgePercent > 100) {
+            throw new IllegalArgumentException("maxHedgePercent must be between 0 and 100");
+        }
+        this.percentile = percentile;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMillis);
+        this.maxHedgePercent = maxHedgePercent;
+    }
+
+    /**
+     * Sends a GET request, and sends it again if no response arrived within the hedge delay.
+     *
+     * @param request      sends the request with the given transformer, may be called twice
+     * @param transformers creates the transformer of each request, as the transformers of two requests cannot be
+     *                     shared
+     * @param <T>          the result of the transformer
+     * @return the result of the request that completed first, or the failure of the last request if all failed
+     */
+    <T> CompletableFuture<T> send(
+        Function<AsyncResponseTransformer<GetObjectResponse, T>, CompletableFuture<T>> request,
+        Supplier<AsyncResponseTransformer<GetObjectResponse, T>> transformers
+    ) {
+        requests.incrementAndGet();
+        var race = new Race<T>();
+        var primaryResponded = new CompletableFuture<Void>();
+        race.start(request, timed(transformers.get(), primaryResponded), false);
+
+        var delay = delayNanos;
+        if (delay >= 0) {
+            CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(() -> {
+                if (primaryResponded.isDone() || race.result.isDone() || !tryAcquireHedge()) {
+                    return;
+                }
+                logger.debug("hedging a GET that has not responded within {} ms",
+                    TimeUnit.NANOSECONDS.toMillis(delay));
+                race.start(request, timed(transformers.get(), new CompletableFuture<>()), true);
+            });
+        }
+        race.result.whenComplete((value, e) -> {
+            if (race.result.isCancelled()) {
+                race.cancel();
+            }
+        });
+        return race.result;
+    }
+
+    /**
+     * @return the number of requests that were hedged
+     */
+    long hedgesIssued() {
+        return hedgesIssued.get();
+    }
+
+    /**
+     * @return the number of hedging requests that completed before the request they hedged
+     */
+    long hedgesWon() {
+        return hedgesWon.get();
+    }
+
+    /**
+     * @return the current hedge delay in nanoseconds, or {@code -1} if too few requests were measured yet
+     */
+    long delayNanos() {
+        return delayNanos;
+    }
+
+    private boolean tryAcquireHedge() {
+        while (true) {
+            var issued = hedgesIssued.get();
+            if ((issued + 1) * 100 > requests.get() * maxHedgePercent) {
+                return false;
+            }
+            if (hedgesIssued.compareAndSet(issued, issued + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private synchronized void recordTimeToFirstByte(long nanos) {
+        samples[nextSample] = nanos;
+        nextSample = (nextSample + 1) % SAMPLE_WINDOW;
+        sampleCount = Math.min(sampleCount + 1, SAMPLE_WINDOW);
+        samplesSinceUpdate++;
+        if (sampleCount >= MIN_SAMPLES && (delayNanos < 0 || samplesSinceUpdate >= SAMPLES_PER_UPDATE)) {
+            var sorted = Arrays.copyOf(samples, sampleCount);
+            Arrays.sort(sorted);
+            var index = Math.max(0, (int) Math.ceil(sorted.length * percentile / 100.0) - 1);
+            delayNanos = Math.max(minDelayNanos, sorted[index]);
+            samplesSinceUpdate = 0;
+        }
+    }
+
+    private <T> AsyncResponseTransformer<GetObjectResponse, T> timed(
+        AsyncResponseTransformer<GetObjectResponse, T> transformer,
+        CompletableFuture<Void> responded
+    ) {
+        return new TimedResponseTransformer<>(transformer, responded);
+    }
+
+    /**
+     * The requests sent for one GET, the first of which to succeed completes the result
+     */
+    private final class Race<T> {
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final AtomicInteger running = new AtomicInteger();
+        private volatile CompletableFuture<T> primary;
+        private volatile CompletableFuture<T> hedge;
+
+        private void start(
+            Function<AsyncResponseTransformer<GetObjectResponse, T>, CompletableFuture<T>> request,
+            AsyncResponseTransformer<GetObjectResponse, T> transformer,
+            boolean hedging
+        ) {
+            running.incrementAndGet();
+            var attempt = request.apply(transformer);
+            if (hedging) {
+                hedge = attempt;
+            } else {
+                primary = attempt;
+            }
+            if (result.isDone()) {
+                // the other attempt won before this one was assigned, so it could not cancel this one
+                attempt.cancel(true);
+            }
+            attempt.whenComplete((value, e) -> {
+                if (e == null) {
+                    if (result.complete(value)) {
+                        var other = hedging ? primary : hedge;
+                        if (hedging) {
+                            hedgesWon.incrementAndGet();
+                        }
+                        if (other != null) {
+                            other.cancel(true);
+                        }
+                    }
+                } else if (running.decrementAndGet() == 0) {
+                    result.completeExceptionally(e);
+                }
+            });
+        }
+
+        private void cancel() {
+            for (var attempt : Arrays.asList(primary, hedge)) {
+                if (attempt != null) {
+                    attempt.cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Measures the time until the response of a request arrives
+     */
+    private final class TimedResponseTransformer<T> implements AsyncResponseTransformer<GetObjectResponse, T> {
+
+        private final AsyncResponseTransformer<GetObjectResponse, T> delegate;
+        private final CompletableFuture<Void> responded;
+        private volatile long start;
+
+        private TimedResponseTransformer(AsyncResponseTransformer<GetObjectResponse, T> delegate,
+                                         CompletableFuture<Void> responded) {
+            this.delegate = delegate;
+            this.responded = responded;
+        }
+
+        @Override
+        public CompletableFuture<T> prepare() {
+            start = System.nanoTime();
+            return delegate.prepare();
+        }
+
+        @Override
+        public void onResponse(GetObjectResponse response) {
+            recordTimeToFirstByte(System.nanoTime() - start);
+            responded.complete(null);
+            delegate.onResponse(response);
+        }
+
+        @Override
+        public void onStream(SdkPublisher<ByteBuffer> publisher) {
+            delegate.onStream(publisher);
+        }
+
+        @Override
+        public void exceptionOccurred(Throwable error) {
+            delegate.exceptionOccurred(error);
+        }
+    }
+}
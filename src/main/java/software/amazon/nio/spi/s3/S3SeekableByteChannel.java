@@ -10,13 +10,18 @@ import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.NonReadableChannelException;
 import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ReadPendingException;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.OpenOption;
 import java.nio.file.StandardOpenOption;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,17 +29,30 @@ import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.nio.spi.s3.config.S3NioSpiConfiguration;
 import software.amazon.nio.spi.s3.util.TimeOutUtils;
 
-class S3SeekableByteChannel implements SeekableByteChannel {
+/**
+ * A {@code SeekableByteChannel} for an S3 object. A channel is either opened for reading, in which case reads are
+ * delegated to an {@code S3ReadAheadByteChannel}, or for writing, in which case writes are delegated to an
+ * {@code S3WritableByteChannel}.
+ * <p>
+ * Besides the {@code SeekableByteChannel} operations, read channels support positional reads with
+ * {@link #read(ByteBuffer, long)} which, like {@link java.nio.channels.FileChannel#read(ByteBuffer, long)}, do not
+ * change the position of the channel and may be used concurrently by several threads, and vectored reads with
+ * {@link #readVectored(List)} which read many ranges at once with as few requests as possible. Reactive pipelines may
+ * read with {@link #readAsync(ByteBuffer)}, which does not park the calling thread.
+ */
+public class S3SeekableByteChannel implements SeekableByteChannel {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(S3SeekableByteChannel.class);
 
     private long position;
     private final S3Path path;
-    private final ReadableByteChannel readDelegate;
+    private final S3ReadAheadByteChannel readDelegate;
     private final S3WritableByteChannel writeDelegate;
 
     private boolean closed;
-    private long size = -1L;
+    private volatile long size = -1L;
+    private String eTag;
+    private Instant lastModified;
 
     S3SeekableByteChannel(S3Path s3Path, S3AsyncClient s3Client, Set<? extends OpenOption> options) throws IOException {
         this(s3Path, s3Client, 0L, options, null, null);
@@ -56,19 +74,35 @@ class S3SeekableByteChannel implements SeekableByteChannel {
 
         // later we will add a constructor that allows providing delegates for composition
 
-        var config = new S3NioSpiConfiguration();
+        var fileSystem = s3Path.getFileSystem();
+        var config = fileSystem.configuration();
         if (options.contains(StandardOpenOption.WRITE)) {
             LOGGER.debug("using S3WritableByteChannel as write delegate for path '{}'", s3Path.toUri());
             readDelegate = null;
-            var transferUtil = new S3TransferUtil(s3Client, timeout, timeUnit);
-            writeDelegate = new S3WritableByteChannel(s3Path, s3Client, transferUtil, options);
+            var transferUtil = new S3TransferUtil(s3Client, timeout, timeUnit, config, fileSystem::transferManager);
+            writeDelegate = new S3WritableByteChannel(s3Path, s3Client, transferUtil, options, config);
             position = 0L;
         } else if (options.contains(StandardOpenOption.READ) || options.isEmpty()) {
             LOGGER.debug("using S3ReadAheadByteChannel as read delegate for path '{}'", s3Path.toUri());
-            var readClient = s3Path.getFileSystem().readClient();
-            readDelegate =
-                new S3ReadAheadByteChannel(s3Path, config.getMaxFragmentSize(), config.getMaxFragmentNumber(), readClient, this,
-                    timeout, timeUnit);
+            var readClient = fileSystem.acquireReadClient();
+            try {
+                readDelegate = new S3ReadAheadByteChannel(s3Path, readClient, this, new S3ReadAheadByteChannel.Options()
+                    .withMaxFragmentSize(config.getMaxFragmentSize())
+                    .withMaxNumberFragments(config.getMaxFragmentNumber())
+                    .withTimeout(timeout, timeUnit)
+                    .withSharedCache(fileSystem.fragmentCache())
+                    .withDiskCache(fileSystem.diskFragmentCache())
+                    .withBufferPool(
+                        S3FragmentBufferPool.shared(config.getMaxFragmentSize(), config.getReadBufferPoolTargetBytes()))
+                    .withPrefetchTargetBytes(config.getPrefetchTargetBytes())
+                    .withHedger(fileSystem.requestHedger())
+                    .withExecutor(fileSystem.readExecutor())
+                    .withTailBytes(config.getTailBytes())
+                    .withAccessPatternListener(fileSystem::accessPatternSwitched));
+            } catch (IOException | RuntimeException e) {
+                fileSystem.releaseReadClient();
+                throw e;
+            }
             writeDelegate = null;
         } else {
             throw new IOException("Invalid channel mode");
@@ -97,6 +131,126 @@ class S3SeekableByteChannel implements SeekableByteChannel {
         return readDelegate.read(dst);
     }
 
+    /**
+     * Reads a sequence of bytes from this channel into the given buffer without blocking the calling thread.
+     *
+     * <p> This method works in the same manner as the {@link #read(ByteBuffer)} method, except that it returns as soon
+     * as the read is started. The returned future completes once the bytes at this channel's position have been
+     * downloaded and transferred into {@code dst}, and this channel's position has been updated. The bytes are
+     * transferred, and the future is completed, by a thread of the read executor of the file system, whose size is
+     * {@link software.amazon.nio.spi.s3.config.S3NioSpiConfiguration#getReadExecutorThreads()}, rather than by a thread
+     * of the S3 client. Only one read may be outstanding at a time: {@code dst} and this channel must not be read until
+     * the future is complete.
+     *
+     * @param dst the destination buffer
+     * @return a future of the number of bytes read, or -1 if no more bytes can be read. It completes exceptionally with
+     * an {@code IOException} if the bytes could not be read.
+     * @throws ReadPendingException        if a read of this channel is not complete
+     * @throws NonReadableChannelException if this channel was not opened for reading
+     * @throws ClosedChannelException      if this channel is closed
+     */
+    public CompletableFuture<Integer> readAsync(ByteBuffer dst) throws ClosedChannelException {
+        Objects.requireNonNull(dst);
+        validateOpen();
+
+        if (readDelegate == null) {
+            throw new NonReadableChannelException();
+        }
+
+        return readDelegate.readAsync(dst);
+    }
+
+    /**
+     * Reads a sequence of bytes from this channel into the given buffer, starting at the given position.
+     *
+     * <p> This method works in the same manner as the {@link #read(ByteBuffer)} method, except that bytes are read
+     * starting at the given position rather than at the channel's current position. This method does not modify this
+     * channel's position and does not disturb the read ahead of sequential reads. It is safe to invoke this method
+     * concurrently from several threads sharing this channel. If the given position is greater than or equal to the
+     * size of the object then no bytes are read.
+     *
+     * @param dst      the buffer into which bytes are to be transferred
+     * @param position the position at which the transfer is to begin; must be non-negative
+     * @return the number of bytes read, possibly zero, or {@code -1} if the given position is greater than or equal to
+     * the object's size
+     * @throws IllegalArgumentException    if the position is negative
+     * @throws NonReadableChannelException if this channel was not opened for reading
+     * @throws ClosedChannelException      if this channel is closed
+     * @throws IOException                 if some other I/O error occurs
+     */
+    public int read(ByteBuffer dst, long position) throws IOException {
+        if (position < 0) {
+            throw new IllegalArgumentException("position cannot be < 0");
+        }
+        validateOpen();
+
+        if (readDelegate == null) {
+            throw new NonReadableChannelException();
+        }
+
+        return readDelegate.read(dst, position);
+    }
+
+    /**
+     * Reads several ranges of the object at once, for example the column chunks of a Parquet file, without changing
+     * this channel's position.
+     *
+     * <p> Ranges are merged into as few ranged GETs as possible: ranges separated by at most
+     * {@link S3NioSpiConfiguration#getVectoredReadMaxMergeGap()} bytes are fetched together as long as the request
+     * stays within {@link S3NioSpiConfiguration#getVectoredReadMaxMergedSize()} bytes. The requests run in parallel.
+     * Ranges held by the read-ahead cache are served from it. The {@link S3FileRange#data() data} of each range completes
+     * with a read-only buffer of its bytes, or exceptionally if they could not be read, e.g. with an
+     * {@code EOFException} if the range extends beyond the end of the object. Ranges may be given in any order.
+     *
+     * @param ranges the ranges to read
+     * @return a future that completes once the data of all ranges is complete
+     * @throws NonReadableChannelException if this channel was not opened for reading
+     * @throws ClosedChannelException      if this channel is closed
+     */
+    public CompletableFuture<Void> readVectored(List<S3FileRange> ranges) throws ClosedChannelException {
+        Objects.requireNonNull(ranges);
+        validateOpen();
+
+        if (readDelegate == null) {
+            throw new NonReadableChannelException();
+        }
+
+        var config = path.getFileSystem().configuration();
+        return readDelegate.readVectored(ranges, config.getVectoredReadMaxMergeGap(),
+            config.getVectoredReadMaxMergedSize());
+    }
+
+    /**
+     * The access pattern this channel detected from the positions of its reads, which decides how much it fetches and
+     * prefetches. A channel starts out {@link S3AccessPattern#SEQUENTIAL sequential} and changes its pattern once two
+     * consecutive reads agree on another one. The statistic remains available after the channel is closed.
+     *
+     * @return the current access pattern
+     * @throws NonReadableChannelException if this channel was not opened for reading
+     */
+    public S3AccessPattern accessPattern() {
+        if (readDelegate == null) {
+            throw new NonReadableChannelException();
+        }
+
+        return readDelegate.accessPattern();
+    }
+
+    /**
+     * The number of times the {@link #accessPattern() access pattern} of this channel changed. A reader whose pattern
+     * keeps changing gets little out of the prefetching of the channel.
+     *
+     * @return the number of access pattern changes
+     * @throws NonReadableChannelException if this channel was not opened for reading
+     */
+    public long accessPatternSwitches() {
+        if (readDelegate == null) {
+            throw new NonReadableChannelException();
+        }
+
+        return readDelegate.accessPatternSwitches();
+    }
+
     /**
      * Writes a sequence of bytes to this channel from the given buffer.
      *
@@ -125,6 +279,29 @@ class S3SeekableByteChannel implements SeekableByteChannel {
         return writeDelegate.write(src);
     }
 
+    /**
+     * Writes as many bytes from the given buffer as can be buffered without waiting for the upload of the object to
+     * make progress, like a {@code write} in non-blocking mode. When too many parts of a new object are in flight, see
+     * {@link S3NioSpiConfiguration#withWriteMaxInFlightParts(int)}, this writes nothing and returns {@code 0}, and the
+     * caller should try again later.
+     *
+     * @param src the src of the bytes to write to this channel
+     * @return the number of bytes written, possibly {@code 0}
+     * @throws NonWritableChannelException if this channel was not opened for writing
+     * @throws IOException                 if this channel is closed or the upload of a part failed
+     */
+    public int tryWrite(ByteBuffer src) throws IOException {
+        validateOpen();
+
+        if (writeDelegate == null) {
+            throw new NonWritableChannelException();
+        }
+
+        var written = writeDelegate.tryWrite(src);
+        this.position += written;
+        return written;
+    }
+
     /**
      * Returns this channel's position.
      *
@@ -188,6 +365,9 @@ class S3SeekableByteChannel implements SeekableByteChannel {
     /**
      * Returns the current size of entity to which this channel is connected.
      *
+     * <p> A read channel learns the size of the object from the response to its first read. Calling this method before
+     * anything was read fetches the size with a HEAD request.
+     *
      * @return The current size, measured in bytes
      * @throws IOException If some other I/O error occurs
      */
@@ -201,9 +381,71 @@ class S3SeekableByteChannel implements SeekableByteChannel {
         return this.size;
     }
 
+    /**
+     * Returns the size of the object if it is already known, without sending a request.
+     *
+     * @return the size or {@code -1} if it is not known yet
+     */
+    long knownSize() {
+        return size;
+    }
+
+    /**
+     * Returns the ETag of the object this channel reads, as reported when its size was fetched.
+     *
+     * @return the ETag or {@code null} if not known
+     * @throws IOException If some other I/O error occurs
+     */
+    String eTag() throws IOException {
+        validateOpen();
+
+        if (size < 0) {
+            fetchSize();
+        }
+        return this.eTag;
+    }
+
+    /**
+     * Returns the last modified time of the object this channel reads, as reported when its size was fetched.
+     *
+     * @return the last modified time or {@code null} if not known
+     * @throws IOException If some other I/O error occurs
+     */
+    Instant lastModified() throws IOException {
+        validateOpen();
+
+        if (size < 0) {
+            fetchSize();
+        }
+        return this.lastModified;
+    }
+
+    /**
+     * Records the metadata of the object as reported by the response to a GET of the read delegate, so that
+     * {@link #size()} does not need a HEAD request. Metadata that is already known is kept.
+     *
+     * @param size         the size of the object
+     * @param eTag         the ETag of the object, may be {@code null}
+     * @param lastModified the last modified time of the object, may be {@code null}
+     */
+    synchronized void objectMetadata(long size, String eTag, Instant lastModified) {
+        if (this.size < 0) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.size = size;
+            LOGGER.debug("size of '{}' is '{}'", path.toUri(), this.size);
+        }
+    }
+
     private void fetchSize() throws IOException {
         synchronized (this) {
-            this.size = S3BasicFileAttributes.get(path, Duration.ofMinutes(TimeOutUtils.TIMEOUT_TIME_LENGTH_1)).size();
+            if (size >= 0) {
+                return;
+            }
+            var attributes = S3BasicFileAttributes.get(path, Duration.ofMinutes(TimeOutUtils.TIMEOUT_TIME_LENGTH_1));
+            this.eTag = (String) attributes.fileKey();
+            this.lastModified = attributes.lastModifiedTime().toInstant();
+            this.size = attributes.size();
             LOGGER.debug("size of '{}' is '{}'", path.toUri(), this.size);
         }
     }
@@ -262,6 +504,9 @@ class S3SeekableByteChannel implements SeekableByteChannel {
         synchronized (this) {
             if (readDelegate != null) {
                 readDelegate.close();
+                if (!closed) {
+                    path.getFileSystem().releaseReadClient();
+                }
             }
             if (writeDelegate != null) {
                 writeDelegate.close();
@@ -0,0 +1,298 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.ChecksumMode;
+
+/**
+ * Reads the rest of an object, from a start position to its end, with a single streaming GET. The body of the response
+ * is consumed as a reactive stream: the buffers published by the SDK are queued until they are read and the reader only
+ * requests more of them while less than {@code maxBufferedBytes} bytes are queued, so a slow consumer applies
+ * backpressure to the download instead of accumulating the object in memory.
+ */
+class S3StreamingReader implements Subscriber<ByteBuffer> {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3StreamingReader.class);
+
+    private final S3Path path;
+    private final long startPosition;
+    private final long maxBufferedBytes;
+    private final ArrayDeque<ByteBuffer> buffers = new ArrayDeque<>();
+
+    private Subscription subscription;
+    private long bufferedBytes;
+    private long position;
+    private boolean requested;
+    private boolean complete;
+    private boolean cancelled;
+    private Throwable error;
+    private CompletableFuture<Void> readable;
+
+    /**
+     * @param path             the path of the object being read
+     * @param startPosition    the position of the first byte delivered by the stream
+     * @param maxBufferedBytes the number of queued bytes at which the reader stops requesting more of the body
+     */
+    S3StreamingReader(S3Path path, long startPosition, long maxBufferedBytes) {
+        this.path = path;
+        this.startPosition = startPosition;
+        this.position = startPosition;
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    /**
+     * Starts a GET of the object from {@code startPosition} to {@code size - 1} whose body is consumed by a new reader
+     *
+     * @param client           the client to use
+     * @param path             the path of the object to read
+     * @param startPosition    the position of the first byte to read
+     * @param size             the size of the object, or {@code -1} to read to the end of the object whatever its size
+     * @param maxBufferedBytes the number of queued bytes at which the reader stops requesting more of the body
+     * @return the reader
+     */
+    static S3StreamingReader open(S3AsyncClient client, S3Path path, long startPosition, long size,
+                                  long maxBufferedBytes) {
+        var reader = new S3StreamingReader(path, startPosition, maxBufferedBytes);
+        // a whole object of unknown size is requested without a range, as a range cannot be satisfied if it is empty
+        var range = size >= 0 ? "bytes=" + startPosition + "-" + (size - 1)
+            : startPosition > 0 ? "bytes=" + startPosition + "-" : null;
+        logger.debug("streaming '{}' of '{}'", range, path.toUri());
+
+        // S3 only returns the checksum of a whole object, which the SDK then verifies as the body streams in
+        client.getObject(
+                builder -> builder
+                    .bucket(path.bucketName())
+                    .key(path.getKey())
+                    .range(range)
+                    .checksumMode(range == null ? ChecksumMode.ENABLED : null),
+                AsyncResponseTransformer.toPublisher())
+            .whenComplete((publisher, e) -> {
+                if (e != null) {
+                    reader.onError(e);
+                } else {
+                    publisher.subscribe(reader);
+                }
+            });
+        return reader;
+    }
+
+    /**
+     * @return the position of the first byte delivered by the stream
+     */
+    long startPosition() {
+        return startPosition;
+    }
+
+    /**
+     * @return the position of the next byte {@link #read(ByteBuffer, long, TimeUnit)} returns
+     */
+    synchronized long position() {
+        return position;
+    }
+
+    /**
+     * Reads queued bytes into {@code dst}, waiting for the next buffer of the body if none is queued.
+     *
+     * @param dst      the buffer into which bytes are transferred
+     * @param timeout  how long to wait for the next buffer of the body
+     * @param timeUnit the unit of {@code timeout}
+     * @return the number of bytes read, or {@code -1} if the stream is complete
+     * @throws IOException          if the download failed or the reader was cancelled, a
+     *                              {@code NoSuchFileException} if the object does not exist
+     * @throws TimeoutException     if no buffer arrived in time
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    int read(ByteBuffer dst, long timeout, TimeUnit timeUnit) throws IOException, TimeoutException,
+            InterruptedException {
+        int bytesRead;
+        synchronized (this) {
+            if (!dst.hasRemaining()) {
+                return 0;
+            }
+
+            var deadline = System.nanoTime() + timeUnit.toNanos(timeout);
+            while (buffers.isEmpty() && !complete && error == null && !cancelled) {
+                var remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TimeoutException();
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+
+            if (buffers.isEmpty()) {
+                if (cancelled) {
+                    throw new IOException("the stream of '" + path.toUri() + "' was cancelled");
+                }
+                if (error != null && S3ReadAheadByteChannel.isNoSuchKey(error)) {
+                    var noSuchFile = new NoSuchFileException(path.toString());
+                    noSuchFile.initCause(error);
+                    throw noSuchFile;
+                }
+                if (error != null) {
+                    throw new IOException(error);
+                }
+                return -1;
+            }
+
+            bytesRead = 0;
+            while (dst.hasRemaining() && !buffers.isEmpty()) {
+                var head = buffers.peek();
+                var length = Math.min(head.remaining(), dst.remaining());
+                var bytes = head.duplicate();
+                bytes.limit(bytes.position() + length);
+                dst.put(bytes);
+                head.position(head.position() + length);
+                if (!head.hasRemaining()) {
+                    buffers.poll();
+                }
+                bytesRead += length;
+            }
+            bufferedBytes -= bytesRead;
+            position += bytesRead;
+        }
+
+        requestMore();
+        return bytesRead;
+    }
+
+    /**
+     * Returns a future that completes once {@link #read(ByteBuffer, long, TimeUnit)} would not wait, because a buffer
+     * of the body is queued or because the stream ended, failed or was cancelled.
+     *
+     * @return the future, already complete if a read would not wait
+     */
+    synchronized CompletableFuture<Void> whenReadable() {
+        if (!buffers.isEmpty() || complete || error != null || cancelled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (readable == null) {
+            readable = new CompletableFuture<>();
+        }
+        return readable;
+    }
+
+    /**
+     * Stops the download and drops the queued bytes
+     */
+    void cancel() {
+        Subscription toCancel;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            buffers.clear();
+            bufferedBytes = 0;
+            toCancel = subscription;
+            notifyAll();
+        }
+        signalReadable();
+        if (toCancel != null) {
+            logger.debug("cancelling stream of '{}' at position {}", path.toUri(), position);
+            toCancel.cancel();
+        }
+    }
+
+    /**
+     * @return the number of bytes received but not yet read
+     */
+    synchronized long bufferedBytes() {
+        return bufferedBytes;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        synchronized (this) {
+            if (this.subscription != null || cancelled) {
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+        }
+        requestMore();
+    }
+
+    @Override
+    public void onNext(ByteBuffer buffer) {
+        synchronized (this) {
+            requested = false;
+            if (cancelled) {
+                return;
+            }
+            if (buffer.hasRemaining()) {
+                buffers.add(buffer);
+                bufferedBytes += buffer.remaining();
+            }
+            notifyAll();
+        }
+        signalReadable();
+        requestMore();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        logger.debug("stream of '{}' failed", path.toUri(), t);
+        synchronized (this) {
+            error = t;
+            notifyAll();
+        }
+        signalReadable();
+    }
+
+    @Override
+    public void onComplete() {
+        synchronized (this) {
+            complete = true;
+            notifyAll();
+        }
+        signalReadable();
+    }
+
+    /**
+     * Completes the future returned by {@link #whenReadable()}, outside the lock of the reader as its dependents may
+     * read right away
+     */
+    private void signalReadable() {
+        CompletableFuture<Void> toComplete;
+        synchronized (this) {
+            toComplete = readable;
+            readable = null;
+        }
+        if (toComplete != null) {
+            toComplete.complete(null);
+        }
+    }
+
+    /**
+     * Requests the next buffer of the body unless one is already requested or enough bytes are queued
+     */
+    private void requestMore() {
+        Subscription toRequest = null;
+        synchronized (this) {
+            if (subscription != null && !requested && !cancelled && !complete && error == null
+                && bufferedBytes < maxBufferedBytes) {
+                requested = true;
+                toRequest = subscription;
+            }
+        }
+        if (toRequest != null) {
+            toRequest.request(1);
+        }
+    }
+}
@@ -5,63 +5,114 @@
 
 package software.amazon.nio.spi.s3;
 
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static software.amazon.nio.spi.s3.util.TimeOutUtils.TIMEOUT_TIME_LENGTH_5;
+
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
-import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.transfer.s3.S3TransferManager;
-import software.amazon.awssdk.transfer.s3.model.DownloadFileRequest;
 import software.amazon.awssdk.transfer.s3.model.UploadFileRequest;
+import software.amazon.nio.spi.s3.config.S3NioSpiConfiguration;
 
 final class S3TransferUtil {
     private final S3AsyncClient client;
     private final Long timeout;
     private final TimeUnit timeUnit;
+    private final S3ParallelDownloader downloader;
+    private final Supplier<S3TransferManager> transferManager;
+    private final ChecksumAlgorithm checksumAlgorithm;
 
     S3TransferUtil(S3AsyncClient client, Long timeout, TimeUnit timeUnit) {
+        this(client, timeout, timeUnit, new S3NioSpiConfiguration(), null);
+    }
+
+    /**
+     * @param client          the client to download with
+     * @param timeout         the maximum time to wait for a transfer, or {@code null} to wait without a limit
+     * @param timeUnit        the unit of {@code timeout}
+     * @param configuration   the configuration of the parallel downloads and of the checksums of the uploads
+     * @param transferManager supplies the transfer manager that uploads local files, which is not closed by this
+     *                        utility; {@code null} to build a transfer manager for each upload
+     */
+    S3TransferUtil(S3AsyncClient client, Long timeout, TimeUnit timeUnit, S3NioSpiConfiguration configuration,
+                   Supplier<S3TransferManager> transferManager) {
         this.client = client;
         this.timeout = timeout;
         this.timeUnit = timeUnit;
+        this.transferManager = transferManager;
+        this.checksumAlgorithm = configuration.getWriteChecksumAlgorithm();
+        this.downloader = new S3ParallelDownloader(client, configuration.getParallelPartSize(),
+            configuration.getParallelConcurrency());
     }
 
     void downloadToLocalFile(S3Path path, Path destination) throws InterruptedException, ExecutionException, TimeoutException {
-        try (var s3TransferManager = S3TransferManager.builder().s3Client(client).build()) {
-            var downloadCompletableFuture = s3TransferManager.downloadFile(
-                DownloadFileRequest.builder()
-                    .getObjectRequest(GetObjectRequest.builder()
-                        .bucket(path.bucketName())
-                        .key(path.getKey())
-                        .build())
-                    .destination(destination)
-                    .build()
-            ).completionFuture();
+        var downloadCompletableFuture = downloader.downloadToFile(path, destination, TIMEOUT_TIME_LENGTH_5, MINUTES);
 
-            if (timeout != null && timeUnit != null) {
-                downloadCompletableFuture.get(timeout, timeUnit);
-            } else {
-                downloadCompletableFuture.join();
-            }
+        if (timeout != null && timeUnit != null) {
+            downloadCompletableFuture.get(timeout, timeUnit);
+        } else {
+            downloadCompletableFuture.join();
         }
     }
 
-    void uploadLocalFile(S3Path path, Path localFile) throws IOException {
+    /**
+     * Uploads a local file and waits for it
+     *
+     * @param path        the path of the object to upload to
+     * @param localFile   the file to upload
+     * @param contentType the content type of the object, see {@link S3ContentType}, or {@code null}
+     */
+    void uploadLocalFile(S3Path path, Path localFile, String contentType) throws IOException {
+        if (transferManager != null) {
+            await(path, startUpload(transferManager.get(), path, localFile, contentType));
+            return;
+        }
         try (var s3TransferManager = S3TransferManager.builder().s3Client(client).build()) {
-            var uploadCompletableFuture = s3TransferManager.uploadFile(
-                UploadFileRequest.builder()
-                    .putObjectRequest(PutObjectRequest.builder()
-                        .bucket(path.bucketName())
-                        .key(path.getKey())
-                        .contentType(Files.probeContentType(localFile))
-                        .build())
-                    .source(localFile)
-                    .build()
-            ).completionFuture();
+            await(path, startUpload(s3TransferManager, path, localFile, contentType));
+        }
+    }
+
+    /**
+     * Starts the upload of a local file without waiting for it
+     *
+     * @return a future that completes once the file is uploaded
+     */
+    CompletableFuture<?> uploadLocalFileAsync(S3Path path, Path localFile, String contentType) {
+        if (transferManager != null) {
+            return startUpload(transferManager.get(), path, localFile, contentType);
+        }
+        var s3TransferManager = S3TransferManager.builder().s3Client(client).build();
+        // not closed on the thread completing the upload, which may belong to the transfer manager
+        return startUpload(s3TransferManager, path, localFile, contentType)
+            .whenCompleteAsync((result, e) -> s3TransferManager.close());
+    }
+
+    private CompletableFuture<?> startUpload(S3TransferManager s3TransferManager, S3Path path, Path localFile,
+                                             String contentType) {
+        return s3TransferManager.uploadFile(
+            UploadFileRequest.builder()
+                .putObjectRequest(PutObjectRequest.builder()
+                    .bucket(path.bucketName())
+                    .key(path.getKey())
+                    .contentType(contentType)
+                    // computed by the SDK while it streams the file
+                    .checksumAlgorithm(checksumAlgorithm)
+                    .build())
+                .source(localFile)
+                .build()
+        ).completionFuture();
+    }
 
+    private void await(S3Path path, CompletableFuture<?> uploadCompletableFuture) throws IOException {
+        try {
             if (timeout != null && timeUnit != null) {
                 uploadCompletableFuture.get(timeout, timeUnit);
             } else {
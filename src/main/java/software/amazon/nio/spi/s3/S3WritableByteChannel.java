@@ -5,8 +5,13 @@
 
 package software.amazon.nio.spi.s3;
 
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static software.amazon.nio.spi.s3.util.TimeOutUtils.TIMEOUT_TIME_LENGTH_1;
+import static software.amazon.nio.spi.s3.util.TimeOutUtils.TIMEOUT_TIME_LENGTH_5;
+
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.FileAlreadyExistsException;
@@ -18,16 +23,55 @@ import java.nio.file.StandardOpenOption;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.nio.spi.s3.config.S3NioSpiConfiguration;
+import software.amazon.nio.spi.s3.util.TimeOutUtils;
 
+/**
+ * A {@code WritableByteChannel} for an S3 object. A new object is streamed to a {@link S3MultipartUpload}: each part is
+ * uploaded as soon as it is full, and closing the channel only uploads the last part and completes the upload. An
+ * object smaller than {@link S3NioSpiConfiguration#getWriteSinglePutThreshold()} is kept in memory and uploaded with a
+ * single PUT on close. An existing object opened with
+ * {@link StandardOpenOption#TRUNCATE_EXISTING TRUNCATE_EXISTING} is replaced the same way, without being downloaded.
+ * An existing object opened with {@link StandardOpenOption#APPEND APPEND} is copied by S3 into the first parts of the
+ * upload, see {@link S3MultipartUpload#copyExisting}, unless it is too small to be a part of its own, in which case it
+ * is downloaded into the first part. Any other existing object is downloaded to a temporary file first, which is
+ * written and uploaded as a whole on close.
+ * <p>
+ * The memory held by a streamed object is bounded by {@link S3NioSpiConfiguration#getWriteMaxInFlightParts()} and
+ * {@link S3NioSpiConfiguration#getWriteMaxBufferedBytes()}: once they are reached, {@link #write(ByteBuffer)} waits
+ * for a part to finish uploading, while {@link #tryWrite(ByteBuffer)} writes only what fits and may write nothing.
+ * <p>
+ * Opening a channel with {@link StandardOpenOption#CREATE_NEW CREATE_NEW}, or with both
+ * {@link StandardOpenOption#CREATE CREATE} and {@link StandardOpenOption#TRUNCATE_EXISTING TRUNCATE_EXISTING}, does
+ * not send a HEAD request, as whether the object exists does not change how it is written. With {@code CREATE_NEW} the
+ * upload is conditional on no object existing when it completes, so an existing object is only reported by
+ * {@link #close()}, with a {@link FileAlreadyExistsException}.
+ * <p>
+ * If the file system writes behind, see {@link S3NioSpiConfiguration#withWriteMaxPendingUploads(int)}, closing the
+ * channel only starts the upload of the rest of the object, and its failure is reported by
+ * {@link S3FileSystem#flushPendingWrites()} and the {@link S3WriteFailureListener}s of the file system.
+ */
 class S3WritableByteChannel implements WritableByteChannel {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3WritableByteChannel.class);
+
     private final S3Path path;
     private final Path tempFile;
     private final SeekableByteChannel channel;
+    private final S3MultipartUpload upload;
     private final S3TransferUtil s3TransferUtil;
+    private final boolean createNew;
+    private final String contentType;
 
     private boolean open;
 
@@ -36,29 +80,55 @@ class S3WritableByteChannel implements WritableByteChannel {
         S3AsyncClient client,
         S3TransferUtil s3TransferUtil,
         Set<? extends OpenOption> options
+    ) throws IOException {
+        this(path, client, s3TransferUtil, options, new S3NioSpiConfiguration());
+    }
+
+    S3WritableByteChannel(
+        S3Path path,
+        S3AsyncClient client,
+        S3TransferUtil s3TransferUtil,
+        Set<? extends OpenOption> options,
+        S3NioSpiConfiguration config
     ) throws IOException {
         Objects.requireNonNull(path);
         Objects.requireNonNull(client);
         this.s3TransferUtil = s3TransferUtil;
         this.path = path;
+        this.createNew = options.contains(StandardOpenOption.CREATE_NEW);
+        this.contentType = S3ContentType.contentType(path, options);
 
         try {
             var fileSystemProvider = (S3FileSystemProvider) path.getFileSystem().provider();
-            var exists = fileSystemProvider.exists(client, path);
+            var replaces = createNew
+                || options.contains(StandardOpenOption.CREATE) && options.contains(StandardOpenOption.TRUNCATE_EXISTING);
+            var exists = !replaces && fileSystemProvider.exists(client, path);
 
-            if (exists && options.contains(StandardOpenOption.CREATE_NEW)) {
-                throw new FileAlreadyExistsException("File at path:" + path + " already exists");
-            }
             if (!exists && !options.contains(StandardOpenOption.CREATE_NEW) && !options.contains(StandardOpenOption.CREATE)) {
                 throw new NoSuchFileException("File at path:" + path + " does not exist yet");
             }
 
-            tempFile = Files.createTempFile("aws-s3-nio-", ".tmp");
-            if (exists) {
+            if (exists && !options.contains(StandardOpenOption.APPEND)
+                && !options.contains(StandardOpenOption.TRUNCATE_EXISTING)) {
+                tempFile = Files.createTempFile("aws-s3-nio-", ".tmp");
                 s3TransferUtil.downloadToLocalFile(path, tempFile);
+                channel = Files.newByteChannel(this.tempFile, localOptions(options));
+                upload = null;
+            } else {
+                tempFile = null;
+                channel = null;
+                upload = new S3MultipartUpload(client, path, S3MultipartUpload.DEFAULT_PART_SIZE,
+                    config.getWriteMaxInFlightParts(), config.getWriteMaxBufferedBytes(),
+                    config.getWriteSinglePutThreshold(), config.getWriteChecksumAlgorithm(),
+                    path.getFileSystem().writeMetrics());
+                upload.contentType(contentType);
+                if (createNew) {
+                    upload.createNew();
+                }
+                if (exists && options.contains(StandardOpenOption.APPEND)) {
+                    appendToExisting(client);
+                }
             }
-
-            channel = Files.newByteChannel(this.tempFile, removeCreateNew(options));
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new IOException("Could not open the path:" + path, e);
@@ -68,15 +138,70 @@ class S3WritableByteChannel implements WritableByteChannel {
         this.open = true;
     }
 
-    private @NonNull Set<? extends OpenOption> removeCreateNew(Set<? extends OpenOption> options) {
+    private void appendToExisting(S3AsyncClient client)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        var head = client.headObject(builder -> builder.bucket(path.bucketName()).key(path.getKey()))
+            .get(TIMEOUT_TIME_LENGTH_1, MINUTES);
+        if (head.contentLength() >= S3MultipartUpload.MIN_PART_SIZE) {
+            upload.copyExisting(head.contentLength(), head.eTag());
+            return;
+        }
+
+        // too small to be a part of its own, the object becomes the start of the first part
+        logger.debug("downloading '{}' of {} bytes to append to it", path.getKey(), head.contentLength());
+        var existing = client.getObject(
+                builder -> builder
+                    .bucket(path.bucketName())
+                    .key(path.getKey())
+                    .ifMatch(head.eTag()),
+                AsyncResponseTransformer.toBytes())
+            .get(TIMEOUT_TIME_LENGTH_5, MINUTES);
+        upload.write(existing.asByteBuffer());
+    }
+
+    /**
+     * The options to open the temporary file with: those given without {@code CREATE_NEW}, as the file exists, and
+     * without the options of S3 that the default file system does not support
+     */
+    private @NonNull Set<? extends OpenOption> localOptions(Set<? extends OpenOption> options) {
         var auxOptions = new HashSet<>(options);
         auxOptions.remove(StandardOpenOption.CREATE_NEW);
+        auxOptions.removeIf(option -> option instanceof S3ContentType);
         return Set.copyOf(auxOptions);
     }
 
+    /**
+     * Writes all remaining bytes of {@code src}, waiting for parts to finish uploading if too many are in flight.
+     */
     @Override
     public int write(ByteBuffer src) throws IOException {
-        return channel.write(src);
+        if (upload == null) {
+            return channel.write(src);
+        }
+        validateOpen();
+
+        var length = src.remaining();
+        upload.tryWrite(src);
+        while (src.hasRemaining()) {
+            upload.awaitCapacity(TIMEOUT_TIME_LENGTH_5, MINUTES);
+            upload.tryWrite(src);
+        }
+        return length;
+    }
+
+    /**
+     * Writes as many bytes of {@code src} as can be buffered without waiting for a part to finish uploading.
+     *
+     * @param src the bytes to write
+     * @return the number of bytes written, possibly {@code 0}
+     * @throws IOException if the channel is closed or the upload of a part failed
+     */
+    int tryWrite(ByteBuffer src) throws IOException {
+        if (upload == null) {
+            return channel.write(src);
+        }
+        validateOpen();
+        return upload.tryWrite(src);
     }
 
     @Override
@@ -84,13 +209,90 @@ class S3WritableByteChannel implements WritableByteChannel {
         return open;
     }
 
+    /**
+     * Uploads the rest of the object and waits for it, unless the file system writes behind, see
+     * {@link S3NioSpiConfiguration#withWriteMaxPendingUploads(int)}, in which case the upload is handed to the file
+     * system and only its start is waited for.
+     */
     @Override
     public void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        var pendingUploads = path.getFileSystem().pendingUploads();
+        if (upload != null) {
+            open = false;
+            if (pendingUploads != null) {
+                pendingUploads.submit(path, this::finishUpload, TIMEOUT_TIME_LENGTH_5, MINUTES);
+                return;
+            }
+            // completing the upload waits for the parts in flight, and aborts it if one of them failed
+            await(finishUpload());
+            return;
+        }
+
         channel.close();
 
-        s3TransferUtil.uploadLocalFile(path, tempFile);
+        if (pendingUploads != null) {
+            open = false;
+            pendingUploads.submit(path, this::uploadTempFile, TIMEOUT_TIME_LENGTH_5, MINUTES);
+            return;
+        }
+        s3TransferUtil.uploadLocalFile(path, tempFile, contentType);
         Files.deleteIfExists(tempFile);
 
         open = false;
     }
+
+    /**
+     * Completes the upload of a streamed object, failing with a {@code FileAlreadyExistsException} if the object was
+     * to be created but exists
+     */
+    private CompletableFuture<?> finishUpload() {
+        return upload.finish().handle((response, e) -> {
+            if (e == null) {
+                return response;
+            }
+            var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (createNew && cause instanceof S3Exception && ((S3Exception) cause).statusCode() == 412) {
+                cause = new FileAlreadyExistsException("File at path:" + path + " already exists");
+            }
+            throw new CompletionException(cause);
+        });
+    }
+
+    /**
+     * Starts the upload of the temporary file, which is deleted once it is uploaded
+     */
+    private CompletableFuture<?> uploadTempFile() {
+        return s3TransferUtil.uploadLocalFileAsync(path, tempFile, contentType).whenComplete((response, e) -> {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException deleteFailure) {
+                logger.warn("could not delete the temporary file '{}' of '{}'", tempFile, path.getKey(), deleteFailure);
+            }
+        });
+    }
+
+    private void validateOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    private void await(CompletableFuture<?> written) throws IOException {
+        try {
+            written.get(TIMEOUT_TIME_LENGTH_5, MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Could not write to path:" + path, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof FileAlreadyExistsException) {
+                throw (FileAlreadyExistsException) e.getCause();
+            }
+            throw new IOException("Could not write to path:" + path, e.getCause());
+        } catch (TimeoutException e) {
+            throw TimeOutUtils.logAndGenerateExceptionOnTimeOut(logger, "write", TIMEOUT_TIME_LENGTH_5, MINUTES);
+        }
+    }
 }
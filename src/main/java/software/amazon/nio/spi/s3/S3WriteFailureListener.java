@@ -0,0 +1,25 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import java.nio.file.Path;
+
+/**
+ * Notified when an object written behind, i.e. whose upload continued after its write channel was closed, could not be
+ * uploaded, see {@link S3FileSystem#addWriteFailureListener(S3WriteFailureListener)}. The failure is also reported by
+ * the next {@link S3FileSystem#flushPendingWrites()}.
+ */
+@FunctionalInterface
+public interface S3WriteFailureListener {
+
+    /**
+     * Called on the thread that completed the upload, which must not be blocked
+     *
+     * @param path  the path of the object that was not written
+     * @param cause the reason the upload failed
+     */
+    void uploadFailed(Path path, Throwable cause);
+}
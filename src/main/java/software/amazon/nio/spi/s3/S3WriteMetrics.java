@@ -0,0 +1,84 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the part uploads of the write channels of a file system: the parts being uploaded, the bytes uploaded and the
+ * time during which at least one part was uploading, which gives the upload throughput, and the time writers spent
+ * waiting for a part buffer because too many parts were in flight.
+ */
+class S3WriteMetrics {
+
+    private final LongAdder uploadedBytes = new LongAdder();
+    private final LongAdder blockedNanos = new LongAdder();
+
+    // guarded by this
+    private int queuedParts;
+    private long busySince;
+    private long busyNanos;
+
+    /**
+     * Records that a part started uploading
+     */
+    synchronized void partQueued() {
+        if (queuedParts++ == 0) {
+            busySince = System.nanoTime();
+        }
+    }
+
+    /**
+     * Records that a part finished uploading
+     *
+     * @param bytes the number of bytes of the part, or {@code 0} if its upload failed
+     */
+    synchronized void partDone(long bytes) {
+        uploadedBytes.add(bytes);
+        if (--queuedParts == 0) {
+            busyNanos += System.nanoTime() - busySince;
+        }
+    }
+
+    /**
+     * Records the time a writer waited for a part buffer
+     *
+     * @param nanos the time waited in nanoseconds
+     */
+    void blocked(long nanos) {
+        blockedNanos.add(nanos);
+    }
+
+    /**
+     * @return the number of parts being uploaded
+     */
+    synchronized int queuedParts() {
+        return queuedParts;
+    }
+
+    /**
+     * @return the number of bytes of the parts uploaded successfully
+     */
+    long uploadedBytes() {
+        return uploadedBytes.sum();
+    }
+
+    /**
+     * @return the bytes uploaded per second while at least one part was uploading, {@code 0} if nothing was uploaded
+     */
+    synchronized double throughput() {
+        var nanos = busyNanos + (queuedParts > 0 ? System.nanoTime() - busySince : 0L);
+        return nanos == 0 ? 0.0 : uploadedBytes.sum() * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    /**
+     * @return the time writers waited for a part buffer in nanoseconds
+     */
+    long blockedNanos() {
+        return blockedNanos.sum();
+    }
+}
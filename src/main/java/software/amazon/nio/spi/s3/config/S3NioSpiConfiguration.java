@@ -6,6 +6,7 @@
 package software.amazon.nio.spi.s3.config;
 
 import java.net.URI;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
@@ -18,6 +19,7 @@ import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentials;
 import software.amazon.awssdk.services.s3.internal.BucketUtils;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
 import software.amazon.awssdk.utils.Pair;
 
 /**
@@ -45,6 +47,175 @@ public class S3NioSpiConfiguration extends HashMap<String, Object> {
      * The default value of the maximum fragment size property
      */
     public static final int S3_SPI_READ_MAX_FRAGMENT_NUMBER_DEFAULT = 50;
+    /**
+     * The name of the shared fragment cache size property
+     */
+    public static final String S3_SPI_READ_CACHE_MAX_BYTES_PROPERTY = "s3.spi.read.cache.max-bytes";
+    /**
+     * The default value of the shared fragment cache size property; {@code 0} disables the cache
+     */
+    public static final long S3_SPI_READ_CACHE_MAX_BYTES_DEFAULT = 0L;
+    /**
+     * The name of the read buffer pool target size property
+     */
+    public static final String S3_SPI_READ_BUFFER_POOL_TARGET_BYTES_PROPERTY = "s3.spi.read.buffer-pool.target-bytes";
+    /**
+     * The default value of the read buffer pool target size property; {@code 0} disables the pool
+     */
+    public static final long S3_SPI_READ_BUFFER_POOL_TARGET_BYTES_DEFAULT = 0L;
+    /**
+     * The name of the prefetch target property
+     */
+    public static final String S3_SPI_READ_PREFETCH_TARGET_BYTES_PROPERTY = "s3.spi.read.prefetch.target-bytes";
+    /**
+     * The default value of the prefetch target property; {@code 0} disables prefetching
+     */
+    public static final long S3_SPI_READ_PREFETCH_TARGET_BYTES_DEFAULT = 32L * 1024 * 1024;
+    /**
+     * The name of the disk fragment cache directory property
+     */
+    public static final String S3_SPI_READ_DISK_CACHE_DIRECTORY_PROPERTY = "s3.spi.read.disk-cache.directory";
+    /**
+     * The default value of the disk fragment cache directory property; blank disables the disk cache
+     */
+    public static final String S3_SPI_READ_DISK_CACHE_DIRECTORY_DEFAULT = "";
+    /**
+     * The name of the disk fragment cache size property
+     */
+    public static final String S3_SPI_READ_DISK_CACHE_MAX_BYTES_PROPERTY = "s3.spi.read.disk-cache.max-bytes";
+    /**
+     * The default value of the disk fragment cache size property
+     */
+    public static final long S3_SPI_READ_DISK_CACHE_MAX_BYTES_DEFAULT = 10L * 1024 * 1024 * 1024;
+    /**
+     * The name of the vectored read merge gap property
+     */
+    public static final String S3_SPI_READ_VECTORED_MAX_MERGE_GAP_PROPERTY = "s3.spi.read.vectored.max-merge-gap";
+    /**
+     * The default value of the vectored read merge gap property
+     */
+    public static final int S3_SPI_READ_VECTORED_MAX_MERGE_GAP_DEFAULT = 4096;
+    /**
+     * The name of the vectored read merged size property
+     */
+    public static final String S3_SPI_READ_VECTORED_MAX_MERGED_SIZE_PROPERTY = "s3.spi.read.vectored.max-merged-size";
+    /**
+     * The default value of the vectored read merged size property
+     */
+    public static final int S3_SPI_READ_VECTORED_MAX_MERGED_SIZE_DEFAULT = 1048576;
+    /**
+     * The name of the pinned tail size property
+     */
+    public static final String S3_SPI_READ_TAIL_BYTES_PROPERTY = "s3.spi.read.tail-bytes";
+    /**
+     * The default value of the pinned tail size property; {@code 0} disables the pinned tail
+     */
+    public static final int S3_SPI_READ_TAIL_BYTES_DEFAULT = 0;
+    /**
+     * The name of the property of the budget of the pinned tails held by the shared fragment cache
+     */
+    public static final String S3_SPI_READ_TAIL_CACHE_MAX_BYTES_PROPERTY = "s3.spi.read.tail-cache.max-bytes";
+    /**
+     * The default value of the property of the budget of the pinned tails held by the shared fragment cache
+     */
+    public static final long S3_SPI_READ_TAIL_CACHE_MAX_BYTES_DEFAULT = 16L * 1024 * 1024;
+    /**
+     * The name of the hedging percentile property
+     */
+    public static final String S3_SPI_READ_HEDGE_PERCENTILE_PROPERTY = "s3.spi.read.hedge.percentile";
+    /**
+     * The default value of the hedging percentile property; {@code 0} disables hedging
+     */
+    public static final int S3_SPI_READ_HEDGE_PERCENTILE_DEFAULT = 0;
+    /**
+     * The name of the minimum hedge delay property
+     */
+    public static final String S3_SPI_READ_HEDGE_MIN_DELAY_MILLIS_PROPERTY = "s3.spi.read.hedge.min-delay-millis";
+    /**
+     * The default value of the minimum hedge delay property
+     */
+    public static final long S3_SPI_READ_HEDGE_MIN_DELAY_MILLIS_DEFAULT = 20L;
+    /**
+     * The name of the maximum hedge rate property
+     */
+    public static final String S3_SPI_READ_HEDGE_MAX_RATE_PERCENT_PROPERTY = "s3.spi.read.hedge.max-rate-percent";
+    /**
+     * The default value of the maximum hedge rate property
+     */
+    public static final int S3_SPI_READ_HEDGE_MAX_RATE_PERCENT_DEFAULT = 5;
+    /**
+     * The name of the parallel download part size property
+     */
+    public static final String S3_SPI_READ_PARALLEL_PART_SIZE_PROPERTY = "s3.spi.read.parallel.part-size";
+    /**
+     * The default value of the parallel download part size property
+     */
+    public static final int S3_SPI_READ_PARALLEL_PART_SIZE_DEFAULT = 8 * 1024 * 1024;
+    /**
+     * The name of the parallel download concurrency property
+     */
+    public static final String S3_SPI_READ_PARALLEL_CONCURRENCY_PROPERTY = "s3.spi.read.parallel.concurrency";
+    /**
+     * The default value of the parallel download concurrency property
+     */
+    public static final int S3_SPI_READ_PARALLEL_CONCURRENCY_DEFAULT = 16;
+    /**
+     * The name of the number of threads of the read executor property
+     */
+    public static final String S3_SPI_READ_EXECUTOR_THREADS_PROPERTY = "s3.spi.read.executor-threads";
+    /**
+     * The default value of the number of threads of the read executor property
+     */
+    public static final int S3_SPI_READ_EXECUTOR_THREADS_DEFAULT = 8;
+    /**
+     * The name of the maximum number of parts a write channel uploads at the same time property
+     */
+    public static final String S3_SPI_WRITE_MAX_INFLIGHT_PARTS_PROPERTY = "s3.spi.write.max-inflight-parts";
+    /**
+     * The default value of the maximum number of parts a write channel uploads at the same time property
+     */
+    public static final int S3_SPI_WRITE_MAX_INFLIGHT_PARTS_DEFAULT = 4;
+    /**
+     * The name of the maximum bytes a write channel buffers property
+     */
+    public static final String S3_SPI_WRITE_MAX_BUFFERED_BYTES_PROPERTY = "s3.spi.write.max-buffered-bytes";
+    /**
+     * The default value of the maximum bytes a write channel buffers property
+     */
+    public static final long S3_SPI_WRITE_MAX_BUFFERED_BYTES_DEFAULT = 64L * 1024 * 1024;
+    /**
+     * The name of the size below which a write channel puts an object with a single request property
+     */
+    public static final String S3_SPI_WRITE_SINGLE_PUT_THRESHOLD_PROPERTY = "s3.spi.write.single-put-threshold";
+    /**
+     * The default value of the size below which a write channel puts an object with a single request property
+     */
+    public static final long S3_SPI_WRITE_SINGLE_PUT_THRESHOLD_DEFAULT = 8L * 1024 * 1024;
+    /**
+     * The name of the algorithm of the checksums a write channel sends property
+     */
+    public static final String S3_SPI_WRITE_CHECKSUM_ALGORITHM_PROPERTY = "s3.spi.write.checksum-algorithm";
+    /**
+     * The default value of the algorithm of the checksums a write channel sends property
+     */
+    public static final String S3_SPI_WRITE_CHECKSUM_ALGORITHM_DEFAULT = "CRC32C";
+    /**
+     * The name of the maximum number of uploads a file system writes behind property
+     */
+    public static final String S3_SPI_WRITE_MAX_PENDING_UPLOADS_PROPERTY = "s3.spi.write.max-pending-uploads";
+    /**
+     * The default value of the maximum number of uploads a file system writes behind property, which disables writing
+     * behind
+     */
+    public static final int S3_SPI_WRITE_MAX_PENDING_UPLOADS_DEFAULT = 0;
+    /**
+     * The name of the number of threads of the transfer manager property
+     */
+    public static final String S3_SPI_TRANSFER_EXECUTOR_THREADS_PROPERTY = "s3.spi.transfer.executor-threads";
+    /**
+     * The default value of the number of threads of the transfer manager property
+     */
+    public static final int S3_SPI_TRANSFER_EXECUTOR_THREADS_DEFAULT = 16;
     /**
      * The name of the endpoint property
      */
@@ -97,6 +268,27 @@ public class S3NioSpiConfiguration extends HashMap<String, Object> {
         //
         put(S3_SPI_READ_MAX_FRAGMENT_NUMBER_PROPERTY, String.valueOf(S3_SPI_READ_MAX_FRAGMENT_NUMBER_DEFAULT));
         put(S3_SPI_READ_MAX_FRAGMENT_SIZE_PROPERTY, String.valueOf(S3_SPI_READ_MAX_FRAGMENT_SIZE_DEFAULT));
+        put(S3_SPI_READ_CACHE_MAX_BYTES_PROPERTY, String.valueOf(S3_SPI_READ_CACHE_MAX_BYTES_DEFAULT));
+        put(S3_SPI_READ_BUFFER_POOL_TARGET_BYTES_PROPERTY, String.valueOf(S3_SPI_READ_BUFFER_POOL_TARGET_BYTES_DEFAULT));
+        put(S3_SPI_READ_PREFETCH_TARGET_BYTES_PROPERTY, String.valueOf(S3_SPI_READ_PREFETCH_TARGET_BYTES_DEFAULT));
+        put(S3_SPI_READ_DISK_CACHE_DIRECTORY_PROPERTY, S3_SPI_READ_DISK_CACHE_DIRECTORY_DEFAULT);
+        put(S3_SPI_READ_DISK_CACHE_MAX_BYTES_PROPERTY, String.valueOf(S3_SPI_READ_DISK_CACHE_MAX_BYTES_DEFAULT));
+        put(S3_SPI_READ_VECTORED_MAX_MERGE_GAP_PROPERTY, String.valueOf(S3_SPI_READ_VECTORED_MAX_MERGE_GAP_DEFAULT));
+        put(S3_SPI_READ_VECTORED_MAX_MERGED_SIZE_PROPERTY, String.valueOf(S3_SPI_READ_VECTORED_MAX_MERGED_SIZE_DEFAULT));
+        put(S3_SPI_READ_TAIL_BYTES_PROPERTY, String.valueOf(S3_SPI_READ_TAIL_BYTES_DEFAULT));
+        put(S3_SPI_READ_TAIL_CACHE_MAX_BYTES_PROPERTY, String.valueOf(S3_SPI_READ_TAIL_CACHE_MAX_BYTES_DEFAULT));
+        put(S3_SPI_READ_HEDGE_PERCENTILE_PROPERTY, String.valueOf(S3_SPI_READ_HEDGE_PERCENTILE_DEFAULT));
+        put(S3_SPI_READ_HEDGE_MIN_DELAY_MILLIS_PROPERTY, String.valueOf(S3_SPI_READ_HEDGE_MIN_DELAY_MILLIS_DEFAULT));
+        put(S3_SPI_READ_HEDGE_MAX_RATE_PERCENT_PROPERTY, String.valueOf(S3_SPI_READ_HEDGE_MAX_RATE_PERCENT_DEFAULT));
+        put(S3_SPI_READ_PARALLEL_PART_SIZE_PROPERTY, String.valueOf(S3_SPI_READ_PARALLEL_PART_SIZE_DEFAULT));
+        put(S3_SPI_READ_PARALLEL_CONCURRENCY_PROPERTY, String.valueOf(S3_SPI_READ_PARALLEL_CONCURRENCY_DEFAULT));
+        put(S3_SPI_READ_EXECUTOR_THREADS_PROPERTY, String.valueOf(S3_SPI_READ_EXECUTOR_THREADS_DEFAULT));
+        put(S3_SPI_WRITE_MAX_INFLIGHT_PARTS_PROPERTY, String.valueOf(S3_SPI_WRITE_MAX_INFLIGHT_PARTS_DEFAULT));
+        put(S3_SPI_WRITE_MAX_BUFFERED_BYTES_PROPERTY, String.valueOf(S3_SPI_WRITE_MAX_BUFFERED_BYTES_DEFAULT));
+        put(S3_SPI_WRITE_SINGLE_PUT_THRESHOLD_PROPERTY, String.valueOf(S3_SPI_WRITE_SINGLE_PUT_THRESHOLD_DEFAULT));
+        put(S3_SPI_WRITE_CHECKSUM_ALGORITHM_PROPERTY, S3_SPI_WRITE_CHECKSUM_ALGORITHM_DEFAULT);
+        put(S3_SPI_WRITE_MAX_PENDING_UPLOADS_PROPERTY, String.valueOf(S3_SPI_WRITE_MAX_PENDING_UPLOADS_DEFAULT));
+        put(S3_SPI_TRANSFER_EXECUTOR_THREADS_PROPERTY, String.valueOf(S3_SPI_TRANSFER_EXECUTOR_THREADS_DEFAULT));
         put(S3_SPI_ENDPOINT_PROTOCOL_PROPERTY, S3_SPI_ENDPOINT_PROTOCOL_DEFAULT);
 
         //
@@ -160,6 +352,317 @@ public class S3NioSpiConfiguration extends HashMap<String, Object> {
         return this;
     }
 
+    /**
+     * Fluently sets the maximum number of bytes held by the fragment cache shared by the read channels of a file system
+     *
+     * @param readCacheMaxBytes the maximum number of bytes; {@code 0} disables the shared cache
+     * @return this instance
+     */
+    public S3NioSpiConfiguration withReadCacheMaxBytes(long readCacheMaxBytes) {
+        if (readCacheMaxBytes < 0) {
+            throw new IllegalArgumentException("readCacheMaxBytes must not be negative");
+        }
+        put(S3_SPI_READ_CACHE_MAX_BYTES_PROPERTY, String.valueOf(readCacheMaxBytes));
+        return this;
+    }
+
+    /**
+     * Fluently sets the number of bytes of the direct buffers that the read channels of the process hold their read
+     * ahead fragments in. The file systems with the same fragment size and target share the buffers and the target.
+     * This is a soft target: prefetching stays within it, but a read that needs a fragment that is not cached
+     * allocates one beyond it rather than wait.
+     *
+     * @param readBufferPoolTargetBytes the target number of bytes; {@code 0} disables the buffer pool
+     * @return this instance
+     */
+    public S3NioSpiConfiguration withReadBufferPoolTargetBytes(long readBufferPoolTargetBytes) {
+        if (readBufferPoolTargetBytes < 0) {
+            throw new IllegalArgumentException("readBufferPoolTargetBytes must not be negative");
+        }
+        put(S3_SPI_READ_BUFFER_POOL_TARGET_BYTES_PROPERTY, String.valueOf(readBufferPoolTargetBytes));
+        return this;
+    }
+
+    /**
+     * Fluently sets the number of bytes a read channel keeps in flight ahead of its read position while prefetching
+     *
+     * @param prefetchTargetBytes the number of bytes; {@code 0} disables prefetching
+     * @return this instance
+     */
+    public S3NioSpiConfiguration withPrefetchTargetBytes(long prefetchTargetBytes) {
+        if (prefetchTargetBytes < 0) {
+            throw new IllegalArgumentException("prefetchTargetBytes must not be negative");
+        }
+        put(S3_SPI_READ_PREFETCH_TARGET_BYTES_PROPERTY, String.valueOf(prefetchTargetBytes));
+        return this;
+    }
+
+    /**
+     * Fluently sets the directory of the on-disk fragment cache of read channels
+     *
+     * @param directory the directory; if null or blank the disk cache is disabled
+     * @return this instance
+     */
+    public S3NioSpiConfiguration withReadDiskCacheDirectory(String directory) {
+        put(S3_SPI_READ_DISK_CACHE_DIRECTORY_PROPERTY, directory == null ? "" : directory.trim());
+        return this;
+    }
+
+    /**
+     * Fluently sets the maximum number of bytes held by the on-disk fragment cache of read channels
+     *
+     * @param readDiskCacheMaxBytes the maximum number of bytes
+     * @return this instance
+     */
+    public S3NioSpiConfiguration withReadDiskCacheMaxBytes(long readDiskCacheMaxBytes) {
+        if (readDiskCacheMaxBytes < 1) {
+            throw new IllegalArgumentException("readDiskCacheMaxBytes must be positive");
+        }
+        put(S3_SPI_READ_DISK_CACHE_MAX_BYTES_PROPERTY, String.valueOf(readDiskCacheMaxBytes));
+        return this;
+    }
+
+    /**
+     * Fluently sets the largest gap between two ranges of a vectored read for which the ranges are fetched with a
+     * single request
+     *
+     * @param maxMergeGap the maximum number of bytes between merged ranges
+     * @return this instance
+     */
+    public S3NioSpiConfiguration withVectoredReadMaxMergeGap(int maxMergeGap) {
+        if (maxMergeGap < 0) {
+            throw new IllegalArgumentException("maxMergeGap must not be negative");
+        }
+        put(S3_SPI_READ_VECTORED_MAX_MERGE_GAP_PROPERTY, String.valueOf(maxMergeGap));
+        return this;
+    }
+
+    /**
+     * Fluently sets the maximum size of the request that fetches merged ranges of a vectored read
+     *
+     * @param maxMergedSize the maximum number of bytes fetched for merged ranges
+     * @return this instance
+     */
+    public S3NioSpiConfiguration withVectoredReadMaxMergedSize(int maxMergedSize) {
+        if (maxMergedSize < 1) {
+            throw new IllegalArgumentException("maxMergedSize must be positive");
+        }
+        put(S3_SPI_READ_VECTORED_MAX_MERGED_SIZE_PROPERTY, String.valueOf(maxMergedSize));
+        return this;
+    }
+
+    /**
+     * Fluently sets the number of bytes at the end of an object that a read channel fetches with its first read and
+     * keeps for its lifetime, or for the lifetime of the shared fragment cache
+     *
+     * @param tailBytes the size of the pinned tail in bytes; {@code 0} disables the pinned tail
+     * @return this instance
+     */
+    public S3NioSpiConfiguration withTailBytes(int tailBytes) {
+        if (tailBytes < 0) {
+            throw new IllegalArgumentException("tailBytes must not be negative");
+        }
+        put(S3_SPI_READ_TAIL_BYTES_PROPERTY, String.valueOf(tailBytes));
+        return this;
+    }
+
+    /**
+     * Fluently sets the maximum number of bytes of pinned tails held by the shared fragment cache, on top of the
+     * {@link #withReadCacheMaxBytes(long) bytes of its fragments}
+     *
+     * @param readTailCacheMaxBytes the maximum number of bytes of tails
+     * @return this instance
+     */
+    public S3NioSpiConfiguration withReadTailCacheMaxBytes(long readTailCacheMaxBytes) {
+        if (readTailCacheMaxBytes < 1) {
+            throw new IllegalArgumentException("readTailCacheMaxBytes must be positive");
+        }
+        put(S3_SPI_READ_TAIL_CACHE_MAX_BYTES_PROPERTY, String.valueOf(readTailCacheMaxBytes));
+        return this;
+    }
+
+    /**
+     * Fluently sets the percentile of the times to first byte of ranged GETs after which a GET is hedged with a second,
+     * identical request
+     *
+     * @param percentile the percentile, between {@code 1} and {@code 99}; {@code 0} disables hedging
+     * @return this instance
+     */
+    public S3NioSpiConfiguration withHedgePercentile(int percentile) {
+        if (percentile < 0 || percentile > 99) {
+            throw new IllegalArgumentException("percentile must be between 0 and 99");
+        }
+        put(S3_SPI_READ_HEDGE_PERCENTILE_PROPERTY, String.valueOf(percentile));
+        return this;
+    }
+
+    /**
+     * Fluently sets the minimum delay after which a ranged GET is hedged
+     *
+     * @param minDelayMillis the minimum delay in milliseconds
+     * @return this instance
+     */
+    public S3NioSpiConfiguration withHedgeMinDelayMillis(long minDelayMillis) {
+        if (minDelayMillis < 0) {
+            throw new IllegalArgumentException("minDelayMillis must not be negative");
+        }
+        put(S3_SPI_READ_HEDGE_MIN_DELAY_MILLIS_PROPERTY, String.valueOf(minDelayMillis));
+        return this;
+    }
+
+    /**
+     * Fluently sets the maximum share of ranged GETs that are hedged
+     *
+     * @param maxRatePercent the maximum share in percent, between {@code 0} and {@code 100}
+     * @return this instance
+     */
+    public S3NioSpiConfiguration withHedgeMaxRatePercent(int maxRatePercent) {
+        if (maxRatePercent < 0 || maxRatePercent > 100) {
+            throw new IllegalArgumentException("maxRatePercent must be between 0 and 100");
+        }
+        put(S3_SPI_READ_HEDGE_MAX_RATE_PERCENT_PROPERTY, String.valueOf(maxRatePercent));
+        return this;
+    }
+
+    /**
+     * Fluently sets the size of the byte ranges a parallel download splits an object into
+     *
+     * @param partSize the size of a part in bytes
+     * @return this instance
+     */
+    public S3NioSpiConfiguration withParallelPartSize(int partSize) {
+        if (partSize <= 0) {
+            throw new IllegalArgumentException("partSize must be positive");
+        }
+        put(S3_SPI_READ_PARALLEL_PART_SIZE_PROPERTY, String.valueOf(partSize));
+        return this;
+    }
+
+    /**
+     * Fluently sets the number of byte ranges a parallel download fetches at the same time
+     *
+     * @param concurrency the number of concurrent ranged GETs
+     * @return this instance
+     */
+    public S3NioSpiConfiguration withParallelConcurrency(int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency must be positive");
+        }
+        put(S3_SPI_READ_PARALLEL_CONCURRENCY_PROPERTY, String.valueOf(concurrency));
+        return this;
+    }
+
+    /**
+     * Fluently sets the number of threads of the read executor of a file system, which run the work of read channels
+     * that must not block the threads of the S3 client, e.g. transferring the bytes of
+     * {@code S3SeekableByteChannel.readAsync}, filling the prefetch window or writing downloaded blocks to the local
+     * file of a file channel
+     *
+     * @param threads the number of threads
+     * @return this instance
+     */
+    public S3NioSpiConfiguration withReadExecutorThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        put(S3_SPI_READ_EXECUTOR_THREADS_PROPERTY, String.valueOf(threads));
+        return this;
+    }
+
+    /**
+     * Fluently sets the maximum number of parts a write channel uploads at the same time. A write waits, or a
+     * non-blocking write writes nothing, while that many parts are being uploaded.
+     *
+     * @param maxInFlightParts the maximum number of concurrent part uploads of a write channel
+     * @return this instance
+     */
+    public S3NioSpiConfiguration withWriteMaxInFlightParts(int maxInFlightParts) {
+        if (maxInFlightParts <= 0) {
+            throw new IllegalArgumentException("maxInFlightParts must be positive");
+        }
+        put(S3_SPI_WRITE_MAX_INFLIGHT_PARTS_PROPERTY, String.valueOf(maxInFlightParts));
+        return this;
+    }
+
+    /**
+     * Fluently sets the maximum number of bytes a write channel holds in the parts it fills and uploads. A channel
+     * always holds at least one part.
+     *
+     * @param maxBufferedBytes the maximum size of the part buffers of a write channel
+     * @return this instance
+     */
+    public S3NioSpiConfiguration withWriteMaxBufferedBytes(long maxBufferedBytes) {
+        if (maxBufferedBytes <= 0) {
+            throw new IllegalArgumentException("maxBufferedBytes must be positive");
+        }
+        put(S3_SPI_WRITE_MAX_BUFFERED_BYTES_PROPERTY, String.valueOf(maxBufferedBytes));
+        return this;
+    }
+
+    /**
+     * Fluently sets the size below which a write channel keeps a new object in memory and puts it with a single
+     * request on close, instead of uploading it in parts
+     *
+     * @param threshold the size in bytes
+     * @return this instance
+     */
+    public S3NioSpiConfiguration withWriteSinglePutThreshold(long threshold) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("threshold must be positive");
+        }
+        put(S3_SPI_WRITE_SINGLE_PUT_THRESHOLD_PROPERTY, String.valueOf(threshold));
+        return this;
+    }
+
+    /**
+     * Fluently sets the algorithm of the checksums a write channel computes while the bytes are written and sends
+     * with the object or its parts, for S3 to verify them
+     *
+     * @param algorithm one of {@code CRC32C}, {@code CRC32} or {@code NONE} to send no checksum
+     * @return this instance
+     */
+    public S3NioSpiConfiguration withWriteChecksumAlgorithm(String algorithm) {
+        if (algorithm != null) {
+            algorithm = algorithm.trim().toUpperCase(Locale.ROOT);
+        }
+        if (!"CRC32C".equals(algorithm) && !"CRC32".equals(algorithm) && !"NONE".equals(algorithm)) {
+            throw new IllegalArgumentException("checksum algorithm must be one of ('CRC32C', 'CRC32', 'NONE')");
+        }
+        put(S3_SPI_WRITE_CHECKSUM_ALGORITHM_PROPERTY, algorithm);
+        return this;
+    }
+
+    /**
+     * Fluently sets the maximum number of uploads a file system writes behind. A positive value enables writing behind:
+     * closing a write channel starts the upload of the rest of the object and returns without waiting for it, unless
+     * this many uploads are pending already. {@code 0} disables writing behind.
+     *
+     * @param maxPendingUploads the maximum number of pending uploads, or {@code 0}
+     * @return this instance
+     */
+    public S3NioSpiConfiguration withWriteMaxPendingUploads(int maxPendingUploads) {
+        if (maxPendingUploads < 0) {
+            throw new IllegalArgumentException("maxPendingUploads must not be negative");
+        }
+        put(S3_SPI_WRITE_MAX_PENDING_UPLOADS_PROPERTY, String.valueOf(maxPendingUploads));
+        return this;
+    }
+
+    /**
+     * Fluently sets the number of threads of the transfer manager of a file system, which run the transfers of local
+     * files and directories
+     *
+     * @param threads the number of threads
+     * @return this instance
+     */
+    public S3NioSpiConfiguration withTransferExecutorThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        put(S3_SPI_TRANSFER_EXECUTOR_THREADS_PROPERTY, String.valueOf(threads));
+        return this;
+    }
+
     /**
      * Fluently sets the value of the endpoint
      *
@@ -316,6 +819,271 @@ public class S3NioSpiConfiguration extends HashMap<String, Object> {
         );
     }
 
+    /**
+     * Get the maximum number of bytes held by the fragment cache shared by the read channels of a file system
+     *
+     * @return the configured value or the default if not overridden; {@code 0} if the shared cache is disabled
+     */
+    public long getReadCacheMaxBytes() {
+        return parseLongProperty(
+            S3_SPI_READ_CACHE_MAX_BYTES_PROPERTY,
+            S3_SPI_READ_CACHE_MAX_BYTES_DEFAULT
+        );
+    }
+
+    /**
+     * Get the target number of bytes of the direct buffers that the read channels of the process hold their read ahead
+     * fragments in
+     *
+     * @return the configured value or the default if not overridden; {@code 0} if the buffer pool is disabled
+     */
+    public long getReadBufferPoolTargetBytes() {
+        return parseLongProperty(
+            S3_SPI_READ_BUFFER_POOL_TARGET_BYTES_PROPERTY,
+            S3_SPI_READ_BUFFER_POOL_TARGET_BYTES_DEFAULT
+        );
+    }
+
+    /**
+     * Get the number of bytes a read channel keeps in flight ahead of its read position while prefetching
+     *
+     * @return the configured value or the default if not overridden; {@code 0} if prefetching is disabled
+     */
+    public long getPrefetchTargetBytes() {
+        return parseLongProperty(
+            S3_SPI_READ_PREFETCH_TARGET_BYTES_PROPERTY,
+            S3_SPI_READ_PREFETCH_TARGET_BYTES_DEFAULT
+        );
+    }
+
+    /**
+     * Get the directory of the on-disk fragment cache of read channels
+     *
+     * @return the configured directory or null if the disk cache is disabled
+     */
+    public Path getReadDiskCacheDirectory() {
+        var directory = (String) getOrDefault(S3_SPI_READ_DISK_CACHE_DIRECTORY_PROPERTY,
+            S3_SPI_READ_DISK_CACHE_DIRECTORY_DEFAULT);
+        if (directory == null || directory.isBlank()) {
+            return null;
+        }
+        return Path.of(directory.trim());
+    }
+
+    /**
+     * Get the maximum number of bytes held by the on-disk fragment cache of read channels
+     *
+     * @return the configured value or the default if not overridden
+     */
+    public long getReadDiskCacheMaxBytes() {
+        return parseLongProperty(
+            S3_SPI_READ_DISK_CACHE_MAX_BYTES_PROPERTY,
+            S3_SPI_READ_DISK_CACHE_MAX_BYTES_DEFAULT
+        );
+    }
+
+    /**
+     * Get the largest gap between two ranges of a vectored read for which the ranges are fetched with a single request
+     *
+     * @return the configured value or the default if not overridden
+     */
+    public int getVectoredReadMaxMergeGap() {
+        return parseIntProperty(
+            S3_SPI_READ_VECTORED_MAX_MERGE_GAP_PROPERTY,
+            S3_SPI_READ_VECTORED_MAX_MERGE_GAP_DEFAULT
+        );
+    }
+
+    /**
+     * Get the maximum size of the request that fetches merged ranges of a vectored read
+     *
+     * @return the configured value or the default if not overridden
+     */
+    public int getVectoredReadMaxMergedSize() {
+        return parseIntProperty(
+            S3_SPI_READ_VECTORED_MAX_MERGED_SIZE_PROPERTY,
+            S3_SPI_READ_VECTORED_MAX_MERGED_SIZE_DEFAULT
+        );
+    }
+
+    /**
+     * Get the number of bytes at the end of an object that a read channel fetches with its first read and keeps
+     *
+     * @return the configured value or the default if not overridden; {@code 0} if the pinned tail is disabled
+     */
+    public int getTailBytes() {
+        return parseIntProperty(
+            S3_SPI_READ_TAIL_BYTES_PROPERTY,
+            S3_SPI_READ_TAIL_BYTES_DEFAULT
+        );
+    }
+
+    /**
+     * Get the maximum number of bytes of pinned tails held by the shared fragment cache
+     *
+     * @return the configured value or the default if not overridden
+     */
+    public long getReadTailCacheMaxBytes() {
+        return parseLongProperty(
+            S3_SPI_READ_TAIL_CACHE_MAX_BYTES_PROPERTY,
+            S3_SPI_READ_TAIL_CACHE_MAX_BYTES_DEFAULT
+        );
+    }
+
+    /**
+     * Get the percentile of the times to first byte of ranged GETs after which a GET is hedged
+     *
+     * @return the configured value or the default if not overridden; {@code 0} if hedging is disabled
+     */
+    public int getHedgePercentile() {
+        return parseIntProperty(
+            S3_SPI_READ_HEDGE_PERCENTILE_PROPERTY,
+            S3_SPI_READ_HEDGE_PERCENTILE_DEFAULT
+        );
+    }
+
+    /**
+     * Get the minimum delay in milliseconds after which a ranged GET is hedged
+     *
+     * @return the configured value or the default if not overridden
+     */
+    public long getHedgeMinDelayMillis() {
+        return parseLongProperty(
+            S3_SPI_READ_HEDGE_MIN_DELAY_MILLIS_PROPERTY,
+            S3_SPI_READ_HEDGE_MIN_DELAY_MILLIS_DEFAULT
+        );
+    }
+
+    /**
+     * Get the maximum share of ranged GETs that are hedged, in percent
+     *
+     * @return the configured value or the default if not overridden
+     */
+    public int getHedgeMaxRatePercent() {
+        return parseIntProperty(
+            S3_SPI_READ_HEDGE_MAX_RATE_PERCENT_PROPERTY,
+            S3_SPI_READ_HEDGE_MAX_RATE_PERCENT_DEFAULT
+        );
+    }
+
+    /**
+     * Get the size in bytes of the byte ranges a parallel download splits an object into
+     *
+     * @return the configured value or the default if not overridden
+     */
+    public int getParallelPartSize() {
+        return parseIntProperty(
+            S3_SPI_READ_PARALLEL_PART_SIZE_PROPERTY,
+            S3_SPI_READ_PARALLEL_PART_SIZE_DEFAULT
+        );
+    }
+
+    /**
+     * Get the number of byte ranges a parallel download fetches at the same time
+     *
+     * @return the configured value or the default if not overridden
+     */
+    public int getParallelConcurrency() {
+        return parseIntProperty(
+            S3_SPI_READ_PARALLEL_CONCURRENCY_PROPERTY,
+            S3_SPI_READ_PARALLEL_CONCURRENCY_DEFAULT
+        );
+    }
+
+    /**
+     * Get the number of threads of the read executor of a file system
+     *
+     * @return the configured value or the default if not overridden
+     */
+    public int getReadExecutorThreads() {
+        return parseIntProperty(
+            S3_SPI_READ_EXECUTOR_THREADS_PROPERTY,
+            S3_SPI_READ_EXECUTOR_THREADS_DEFAULT
+        );
+    }
+
+    /**
+     * Get the maximum number of parts a write channel uploads at the same time
+     *
+     * @return the configured value or the default if not overridden
+     */
+    public int getWriteMaxInFlightParts() {
+        return parseIntProperty(
+            S3_SPI_WRITE_MAX_INFLIGHT_PARTS_PROPERTY,
+            S3_SPI_WRITE_MAX_INFLIGHT_PARTS_DEFAULT
+        );
+    }
+
+    /**
+     * Get the maximum number of bytes a write channel holds in the parts it fills and uploads
+     *
+     * @return the configured value or the default if not overridden
+     */
+    public long getWriteMaxBufferedBytes() {
+        return parseLongProperty(
+            S3_SPI_WRITE_MAX_BUFFERED_BYTES_PROPERTY,
+            S3_SPI_WRITE_MAX_BUFFERED_BYTES_DEFAULT
+        );
+    }
+
+    /**
+     * Get the size below which a write channel puts an object with a single request
+     *
+     * @return the configured value or the default if not overridden
+     */
+    public long getWriteSinglePutThreshold() {
+        return parseLongProperty(
+            S3_SPI_WRITE_SINGLE_PUT_THRESHOLD_PROPERTY,
+            S3_SPI_WRITE_SINGLE_PUT_THRESHOLD_DEFAULT
+        );
+    }
+
+    /**
+     * Get the maximum number of uploads a file system writes behind
+     *
+     * @return the configured value or the default if not overridden, {@code 0} if writing behind is disabled
+     */
+    public int getWriteMaxPendingUploads() {
+        return parseIntProperty(
+            S3_SPI_WRITE_MAX_PENDING_UPLOADS_PROPERTY,
+            S3_SPI_WRITE_MAX_PENDING_UPLOADS_DEFAULT
+        );
+    }
+
+    /**
+     * Get the algorithm of the checksums a write channel sends
+     *
+     * @return the configured algorithm or the default if not overridden or invalid, {@code null} if no checksum is sent
+     */
+    public ChecksumAlgorithm getWriteChecksumAlgorithm() {
+        var algorithm = ((String) getOrDefault(S3_SPI_WRITE_CHECKSUM_ALGORITHM_PROPERTY,
+            S3_SPI_WRITE_CHECKSUM_ALGORITHM_DEFAULT)).trim().toUpperCase(Locale.ROOT);
+        switch (algorithm) {
+            case "CRC32C":
+                return ChecksumAlgorithm.CRC32_C;
+            case "CRC32":
+                return ChecksumAlgorithm.CRC32;
+            case "NONE":
+                return null;
+            default:
+                logger.warn("the value of '{}' for '{}' is not 'CRC32C'|'CRC32'|'NONE', using default value of '{}'",
+                    algorithm, S3_SPI_WRITE_CHECKSUM_ALGORITHM_PROPERTY, S3_SPI_WRITE_CHECKSUM_ALGORITHM_DEFAULT);
+                return ChecksumAlgorithm.CRC32_C;
+        }
+    }
+
+    /**
+     * Get the number of threads of the transfer manager of a file system
+     *
+     * @return the configured value or the default if not overridden
+     */
+    public int getTransferExecutorThreads() {
+        return parseIntProperty(
+            S3_SPI_TRANSFER_EXECUTOR_THREADS_PROPERTY,
+            S3_SPI_TRANSFER_EXECUTOR_THREADS_DEFAULT
+        );
+    }
+
     /**
      * Get the value of the endpoint. Not that no endvar/sysprop is taken as
      * default.
@@ -418,6 +1186,17 @@ public class S3NioSpiConfiguration extends HashMap<String, Object> {
         }
     }
 
+    private long parseLongProperty(String propName, long defaultVal) {
+        var propertyVal = (String) get(propName);
+        try {
+            return Long.parseLong(propertyVal);
+        } catch (NumberFormatException e) {
+            logger.warn("the value of '{}' for '{}' is not a long, using default value of '{}'",
+                propertyVal, propName, defaultVal);
+            return defaultVal;
+        }
+    }
+
     public URI endpointUri() {
         var endpoint = getEndpoint();
         if (endpoint.isBlank()) {
@@ -0,0 +1,84 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class AccessPatternTrackerTest {
+
+    private final AccessPatternTracker tracker = new AccessPatternTracker();
+
+    @Test
+    void readsFollowingEachOtherAreSequential() {
+        read(0, 100);
+        read(100, 100);
+        read(200, 100);
+
+        assertThat(tracker.accessPattern()).isEqualTo(S3AccessPattern.SEQUENTIAL);
+        assertThat(tracker.switches()).isZero();
+    }
+
+    @Test
+    void readsFromTheFirstByteOnwardAreSequentialFromStart() {
+        read(0, 100);
+        assertThat(tracker.isSequentialFromStart()).isFalse();
+
+        read(100, 100);
+        assertThat(tracker.isSequentialFromStart()).isTrue();
+
+        read(500, 100);
+        read(600, 100);
+        assertThat(tracker.isSequentialFromStart()).isFalse();
+    }
+
+    @Test
+    void singleSeekDoesNotChangeThePattern() {
+        read(0, 100);
+        read(5000, 100);
+        read(5100, 100);
+
+        assertThat(tracker.accessPattern()).isEqualTo(S3AccessPattern.SEQUENTIAL);
+        assertThat(tracker.switches()).isZero();
+    }
+
+    @Test
+    void repeatedSeeksSwitchToRandom() {
+        read(9000, 10);
+        read(300, 10);
+
+        assertThat(tracker.accessPattern()).isEqualTo(S3AccessPattern.RANDOM);
+        assertThat(tracker.switches()).isEqualTo(1);
+    }
+
+    @Test
+    void constantForwardSkipsAreStrided() {
+        read(0, 10);
+        read(1010, 10);
+        read(2020, 10);
+        read(3030, 10);
+
+        assertThat(tracker.accessPattern()).isEqualTo(S3AccessPattern.STRIDED);
+        assertThat(tracker.stride()).isEqualTo(1000);
+    }
+
+    @Test
+    void returnsToSequentialAfterRandomReads() {
+        read(9000, 10);
+        read(300, 10);
+        read(310, 10);
+        read(320, 10);
+
+        assertThat(tracker.accessPattern()).isEqualTo(S3AccessPattern.SEQUENTIAL);
+        assertThat(tracker.switches()).isEqualTo(2);
+    }
+
+    private void read(long position, int length) {
+        tracker.onRead(position);
+        tracker.onReadCompleted(position + length);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+class FragmentBuffersResponseTransformerTest {
+
+    @Test
+    void fillsTheBuffersOneAfterTheOther() throws Exception {
+        var first = ByteBuffer.allocateDirect(4);
+        var second = ByteBuffer.allocateDirect(4);
+        var transformer = new FragmentBuffersResponseTransformer(List.of(first, second));
+        var response = GetObjectResponse.builder().contentRange("bytes 0-5/6").build();
+
+        var future = transformer.prepare();
+        transformer.onResponse(response);
+        transformer.onStream(AsyncRequestBody.fromString("abcdef"));
+
+        assertThat(future.get()).isSameAs(response);
+        assertThat(StandardCharsets.UTF_8.decode(first).toString()).isEqualTo("abcd");
+        assertThat(StandardCharsets.UTF_8.decode(second).toString()).isEqualTo("ef");
+    }
+
+    @Test
+    void failsIfTheBodyDoesNotFit() {
+        var transformer = new FragmentBuffersResponseTransformer(List.of(ByteBuffer.allocate(2)));
+
+        var future = transformer.prepare();
+        transformer.onResponse(GetObjectResponse.builder().build());
+        transformer.onStream(AsyncRequestBody.fromString("abc"));
+
+        assertThatThrownBy(() -> future.get())
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    void aRetryStartsFromTheBeginning() throws Exception {
+        var buffer = ByteBuffer.allocate(4);
+        var transformer = new FragmentBuffersResponseTransformer(List.of(buffer));
+
+        transformer.prepare();
+        transformer.onResponse(GetObjectResponse.builder().build());
+        transformer.onStream(AsyncRequestBody.fromString("ab"));
+        transformer.exceptionOccurred(new IOException("connection reset"));
+
+        var future = transformer.prepare();
+        transformer.onResponse(GetObjectResponse.builder().build());
+        transformer.onStream(AsyncRequestBody.fromString("wxyz"));
+
+        future.get();
+        assertThat(StandardCharsets.UTF_8.decode(buffer).toString()).isEqualTo("wxyz");
+    }
+}
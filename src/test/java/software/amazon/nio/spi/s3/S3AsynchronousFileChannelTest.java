@@ -0,0 +1,279 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static software.amazon.nio.spi.s3.S3Matchers.anyConsumer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.NoSuchFileException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("unchecked")
+class S3AsynchronousFileChannelTest {
+
+    private final byte[] content = "abcdefghijklmnopqrstuvwxyz".getBytes();
+
+    @Mock
+    S3AsyncClient client;
+
+    S3FileSystem fs;
+    S3Path path;
+
+    @BeforeEach
+    void init() {
+        fs = new S3FileSystemProvider().getFileSystem(URI.create("s3://test-bucket"), true);
+        fs.clientProvider(new FixedS3ClientProvider(client));
+        path = (S3Path) fs.getPath("/object");
+    }
+
+    @AfterEach
+    void after() throws IOException {
+        fs.close();
+    }
+
+    @Test
+    void readsTheRequestedRangeIntoTheBuffer() throws Exception {
+        serveRangesOf(content);
+        var channel = fs.provider().newAsynchronousFileChannel(path, Set.of(READ), null);
+
+        var dst = ByteBuffer.allocate(8).position(2);
+        assertThat(channel.read(dst, 3).get(5, TimeUnit.SECONDS)).isEqualTo(6);
+
+        assertThat(dst.position()).isEqualTo(8);
+        assertThat(Arrays.copyOfRange(dst.array(), 2, 8)).isEqualTo("defghi".getBytes());
+        assertThat(channel.size()).isEqualTo(26L);
+        verify(client, never()).headObject(anyConsumer());
+    }
+
+    @Test
+    void completesTheHandlerWithTheBytesRead() throws Exception {
+        serveRangesOf(content);
+        var channel = fs.provider().newAsynchronousFileChannel(path, Set.of(READ), null);
+        var result = new CompletableFuture<Integer>();
+
+        var dst = ByteBuffer.allocate(10);
+        channel.read(dst, 20, "attachment", new CompletionHandler<Integer, String>() {
+            @Override
+            public void completed(Integer bytesRead, String attachment) {
+                assertThat(attachment).isEqualTo("attachment");
+                result.complete(bytesRead);
+            }
+
+            @Override
+            public void failed(Throwable e, String attachment) {
+                result.completeExceptionally(e);
+            }
+        });
+
+        // the end of the range is capped at the end of the object
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(6);
+        assertThat(dst.flip()).isEqualTo(ByteBuffer.wrap("uvwxyz".getBytes()));
+    }
+
+    @Test
+    void readBeyondTheEndSignalsTheEnd() throws Exception {
+        serveRangesOf(content);
+        var channel = fs.provider().newAsynchronousFileChannel(path, Set.of(READ), null);
+
+        assertThat(channel.read(ByteBuffer.allocate(4), 26).get(5, TimeUnit.SECONDS)).isEqualTo(-1);
+    }
+
+    @Test
+    void failedReadCompletesExceptionally() throws Exception {
+        when(client.getObject(anyConsumer(), any(AsyncResponseTransformer.class)))
+            .thenReturn(CompletableFuture.failedFuture(S3Exception.builder().statusCode(500).build()));
+        var channel = fs.provider().newAsynchronousFileChannel(path, Set.of(READ), null);
+
+        var bytesRead = channel.read(ByteBuffer.allocate(4), 0);
+
+        assertThatThrownBy(() -> bytesRead.get(5, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    void writesAreUploadedInPartsAndCompletedOnClose() throws Exception {
+        objectDoesNotExist();
+        when(client.createMultipartUpload(anyConsumer()))
+            .thenReturn(CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder().uploadId("id").build()));
+        when(client.uploadPart(anyConsumer(), any(AsyncRequestBody.class)))
+            .thenReturn(CompletableFuture.completedFuture(UploadPartResponse.builder().eTag("1").build()),
+                CompletableFuture.completedFuture(UploadPartResponse.builder().eTag("2").build()));
+        when(client.completeMultipartUpload(anyConsumer()))
+            .thenReturn(CompletableFuture.completedFuture(CompleteMultipartUploadResponse.builder().build()));
+        var channel = fs.provider().newAsynchronousFileChannel(path, Set.of(WRITE, CREATE), null);
+
+        var firstPart = S3AsynchronousFileChannel.PART_SIZE - 10;
+        assertThat(channel.write(ByteBuffer.allocate(firstPart), 0).get(5, TimeUnit.SECONDS)).isEqualTo(firstPart);
+        verify(client, never()).createMultipartUpload(anyConsumer());
+        assertThat(channel.write(ByteBuffer.allocate(20), firstPart).get(5, TimeUnit.SECONDS)).isEqualTo(20);
+        verify(client, times(1)).uploadPart(anyConsumer(), any(AsyncRequestBody.class));
+        assertThat(channel.size()).isEqualTo(S3AsynchronousFileChannel.PART_SIZE + 10L);
+
+        channel.close();
+
+        verify(client, times(2)).uploadPart(anyConsumer(), any(AsyncRequestBody.class));
+        ArgumentCaptor<Consumer<CompleteMultipartUploadRequest.Builder>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(client).completeMultipartUpload(captor.capture());
+        var request = CompleteMultipartUploadRequest.builder();
+        captor.getValue().accept(request);
+        assertThat(request.build().uploadId()).isEqualTo("id");
+        assertThat(request.build().multipartUpload().parts()).hasSize(2);
+        verify(client, never()).putObject(any(Consumer.class), any(AsyncRequestBody.class));
+        assertThat(fs.getOpenChannels()).isEmpty();
+    }
+
+    @Test
+    void smallObjectIsPutOnClose() throws Exception {
+        objectDoesNotExist();
+        var channel = fs.provider().newAsynchronousFileChannel(path, Set.of(WRITE, CREATE), null);
+
+        channel.write(ByteBuffer.wrap(content), 0).get(5, TimeUnit.SECONDS);
+        channel.close();
+
+        ArgumentCaptor<Consumer<PutObjectRequest.Builder>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(client).putObject(captor.capture(), any(AsyncRequestBody.class));
+        var request = PutObjectRequest.builder();
+        captor.getValue().accept(request);
+        assertThat(request.build().contentLength()).isEqualTo(26L);
+        verify(client, never()).createMultipartUpload(anyConsumer());
+    }
+
+    @Test
+    void writesMustBeSequential() throws Exception {
+        objectDoesNotExist();
+        var channel = fs.provider().newAsynchronousFileChannel(path, Set.of(WRITE, CREATE), null);
+
+        var written = channel.write(ByteBuffer.wrap(content), 10);
+
+        assertThatThrownBy(() -> written.get(5, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    void rejectsUnsupportedOptions() {
+        objectDoesNotExist();
+        var provider = fs.provider();
+
+        assertThatThrownBy(() -> provider.newAsynchronousFileChannel(path, Set.of(READ, WRITE), null))
+            .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> provider.newAsynchronousFileChannel(path, Set.of(WRITE), null))
+            .isInstanceOf(NoSuchFileException.class);
+        assertThat(fs.getOpenChannels()).isEmpty();
+    }
+
+    @Test
+    void createNewIsCheckedByTheUploadInsteadOfAHead() throws Exception {
+        when(client.putObject(any(Consumer.class), any(AsyncRequestBody.class)))
+            .thenReturn(CompletableFuture.failedFuture(S3Exception.builder().statusCode(412).build()));
+        var channel = fs.provider().newAsynchronousFileChannel(path, Set.of(WRITE, CREATE_NEW), null);
+
+        channel.write(ByteBuffer.wrap(content), 0).get(5, TimeUnit.SECONDS);
+
+        assertThatThrownBy(channel::close).isInstanceOf(FileAlreadyExistsException.class);
+        ArgumentCaptor<Consumer<PutObjectRequest.Builder>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(client).putObject(captor.capture(), any(AsyncRequestBody.class));
+        var request = PutObjectRequest.builder();
+        captor.getValue().accept(request);
+        assertThat(request.build().overrideConfiguration()).hasValueSatisfying(
+            override -> assertThat(override.headers()).containsEntry("If-None-Match", List.of("*")));
+        verify(client, never()).headObject(any(HeadObjectRequest.class));
+    }
+
+    @Test
+    void existingObjectIsOnlyReplacedWhenTruncated() throws Exception {
+        when(client.headObject(any(HeadObjectRequest.class)))
+            .thenReturn(CompletableFuture.completedFuture(null));
+        when(client.putObject(any(Consumer.class), any(AsyncRequestBody.class)))
+            .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+        var provider = fs.provider();
+
+        assertThatThrownBy(() -> provider.newAsynchronousFileChannel(path, Set.of(WRITE, CREATE), null))
+            .isInstanceOf(UnsupportedOperationException.class);
+        assertThat(provider.newAsynchronousFileChannel(path, Set.of(WRITE, TRUNCATE_EXISTING), null))
+            .isInstanceOf(AsynchronousFileChannel.class);
+    }
+
+    private void objectDoesNotExist() {
+        lenient().when(client.headObject(any(HeadObjectRequest.class)))
+            .thenReturn(CompletableFuture.failedFuture(NoSuchKeyException.builder().build()));
+        lenient().when(client.putObject(any(Consumer.class), any(AsyncRequestBody.class)))
+            .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+    }
+
+    /**
+     * Makes the client serve ranged GETs from {@code content} like S3 does, see
+     * {@code S3ReadAheadByteChannelTest#serveRangesOf}
+     */
+    private void serveRangesOf(byte[] content) {
+        when(client.getObject(anyConsumer(), any(AsyncResponseTransformer.class))).thenAnswer(invocation -> {
+            var request = GetObjectRequest.builder();
+            invocation.<Consumer<GetObjectRequest.Builder>>getArgument(0).accept(request);
+            var bounds = request.build().range().substring("bytes=".length()).split("-");
+            var from = Integer.parseInt(bounds[0]);
+            var to = Math.min(Integer.parseInt(bounds[1]), content.length - 1);
+
+            AsyncResponseTransformer<GetObjectResponse, GetObjectResponse> transformer = invocation.getArgument(1);
+            var future = transformer.prepare();
+            if (from >= content.length) {
+                transformer.exceptionOccurred(S3Exception.builder().statusCode(416).build());
+            } else {
+                transformer.onResponse(GetObjectResponse.builder()
+                    .contentRange("bytes " + from + "-" + to + "/" + content.length)
+                    .build());
+                transformer.onStream(AsyncRequestBody.fromBytes(Arrays.copyOfRange(content, from, to + 1)));
+            }
+            return future;
+        });
+    }
+}
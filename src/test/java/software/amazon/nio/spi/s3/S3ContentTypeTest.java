@@ -0,0 +1,65 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class S3ContentTypeTest {
+
+    S3FileSystem fs;
+
+    @BeforeEach
+    void init() {
+        fs = new S3FileSystemProvider().getFileSystem(URI.create("s3://test-bucket"), true);
+    }
+
+    @AfterEach
+    void after() throws IOException {
+        fs.close();
+    }
+
+    @Test
+    void contentTypeIsDerivedFromTheExtensionOfTheKey() {
+        assertThat(contentType("/data/table.csv")).isEqualTo("text/csv");
+        assertThat(contentType("/data/part-0001.PARQUET")).isEqualTo("application/vnd.apache.parquet");
+        assertThat(contentType("/site/index.html")).isEqualTo("text/html");
+    }
+
+    @Test
+    void contentTypeIsLeftToS3WithoutAKnownExtension() {
+        assertThat(contentType("/data/object")).isNull();
+        assertThat(contentType("/data/object.unknown")).isNull();
+        assertThat(contentType("/data.csv/object")).isNull();
+    }
+
+    @Test
+    void optionOverridesTheExtension() {
+        var path = (S3Path) fs.getPath("/data/table.csv");
+        var options = Set.of(StandardOpenOption.WRITE, S3ContentType.of("text/csv; charset=utf-8"));
+
+        assertThat(S3ContentType.contentType(path, options)).isEqualTo("text/csv; charset=utf-8");
+    }
+
+    @Test
+    void optionMustNotBeBlank() {
+        assertThatThrownBy(() -> S3ContentType.of(" ")).isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("contentType cannot be blank");
+        assertThatThrownBy(() -> S3ContentType.of(null)).isInstanceOf(NullPointerException.class);
+    }
+
+    private String contentType(String key) {
+        return S3ContentType.contentType((S3Path) fs.getPath(key), Set.of(StandardOpenOption.WRITE));
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class S3DiskFragmentCacheTest {
+
+    private final S3Path path =
+        S3Path.getPath(new S3FileSystemProvider().getFileSystem(URI.create("s3://my-bucket"), true), "/object");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void servesStoredFragmentsFromMappedFiles() throws IOException {
+        var cache = new S3DiskFragmentCache(directory, 1024L);
+        cache.put(path, "etag", 10, 0, bytes("0123456789"));
+
+        var fragment = cache.get(path, "etag", 10, 0);
+
+        assertThat(fragment).isNotNull();
+        assertThat(fragment.isDirect()).isTrue();
+        assertThat(fragment.isReadOnly()).isTrue();
+        assertThat(string(fragment)).isEqualTo("0123456789");
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(cache.get(path, "etag", 10, 1)).isNull();
+        assertThat(cache.missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void fragmentsSurviveARestart() throws IOException {
+        new S3DiskFragmentCache(directory, 1024L).put(path, "etag", 10, 0, bytes("0123456789"));
+
+        var cache = new S3DiskFragmentCache(directory, 1024L);
+
+        assertThat(cache.cachedBytes()).isGreaterThan(10L);
+        assertThat(string(cache.get(path, "etag", 10, 0))).isEqualTo("0123456789");
+    }
+
+    @Test
+    void neverServesTheFragmentsOfAnotherETag() throws IOException {
+        var cache = new S3DiskFragmentCache(directory, 1024L);
+        cache.put(path, "etag-1", 10, 0, bytes("0123456789"));
+
+        assertThat(cache.get(path, "etag-2", 10, 0)).isNull();
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedFragments() throws IOException {
+        var cache = new S3DiskFragmentCache(directory, 2 * (10 + 20));
+        cache.put(path, "etag", 10, 0, bytes("0123456789"));
+        cache.put(path, "etag", 10, 1, bytes("abcdefghij"));
+        cache.get(path, "etag", 10, 0);
+
+        cache.put(path, "etag", 10, 2, bytes("ABCDEFGHIJ"));
+
+        assertThat(cache.cachedBytes()).isLessThanOrEqualTo(2 * (10 + 20));
+        assertThat(cache.get(path, "etag", 10, 0)).isNotNull();
+        assertThat(cache.get(path, "etag", 10, 1)).isNull();
+        assertThat(cache.get(path, "etag", 10, 2)).isNotNull();
+        assertThat(fragmentFiles()).hasSize(2);
+    }
+
+    @Test
+    void discardsIncompleteFiles() throws IOException {
+        var cache = new S3DiskFragmentCache(directory, 1024L);
+        cache.put(path, "etag", 10, 0, bytes("0123456789"));
+        var file = fragmentFiles().iterator().next();
+        var content = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(content, content.length - 1));
+
+        assertThat(cache.get(path, "etag", 10, 0)).isNull();
+        assertThat(fragmentFiles()).isEmpty();
+        assertThat(cache.cachedBytes()).isZero();
+    }
+
+    @Test
+    void deletesTemporaryFilesLeftBehind() throws IOException {
+        Files.write(directory.resolve("abc.fragment123.tmp"), new byte[10]);
+        Files.write(directory.resolve(Long.MAX_VALUE + "-abc.fragment123.tmp"), new byte[10]);
+
+        new S3DiskFragmentCache(directory, 1024L);
+
+        try (var files = Files.list(directory)) {
+            assertThat(files.collect(Collectors.toList())).isEmpty();
+        }
+    }
+
+    @Test
+    void keepsTheTemporaryFilesOfRunningProcesses() throws IOException {
+        var inFlight = directory.resolve(ProcessHandle.current().pid() + "-abc.fragment123.tmp");
+        Files.write(inFlight, new byte[10]);
+
+        new S3DiskFragmentCache(directory, 1024L);
+
+        assertThat(inFlight).exists();
+    }
+
+    @Test
+    void fileSystemsShareTheCacheOfADirectory() throws IOException {
+        var provider = new S3FileSystemProvider();
+        try (var first = provider.getFileSystem(URI.create("s3://first-bucket"), true);
+             var second = provider.getFileSystem(URI.create("s3://second-bucket"), true)) {
+            first.configuration().withReadDiskCacheDirectory(directory.toString()).withReadDiskCacheMaxBytes(1024L);
+            second.configuration().withReadDiskCacheDirectory(directory.resolve(".").toString())
+                .withReadDiskCacheMaxBytes(1024L);
+
+            var cache = first.diskFragmentCache();
+            assertThat(second.diskFragmentCache()).isSameAs(cache);
+
+            cache.put(S3Path.getPath(first, "/object"), "etag", 10, 0, bytes("0123456789"));
+            cache.put(S3Path.getPath(second, "/object"), "etag", 10, 0, bytes("abcdefghij"));
+            assertThat(fragmentFiles()).hasSize(2);
+            assertThat(cache.cachedBytes()).isEqualTo(fragmentFiles().stream().mapToLong(file -> file.toFile().length())
+                .sum());
+        }
+    }
+
+    private List<Path> fragmentFiles() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(S3DiskFragmentCache.FILE_SUFFIX))
+                .collect(Collectors.toList());
+        }
+    }
+
+    private static ByteBuffer bytes(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String string(ByteBuffer buffer) {
+        var bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
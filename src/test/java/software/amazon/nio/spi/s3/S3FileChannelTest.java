@@ -0,0 +1,240 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static software.amazon.nio.spi.s3.S3Matchers.anyConsumer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.nio.spi.s3.config.S3NioSpiConfiguration;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("unchecked")
+class S3FileChannelTest {
+
+    private final byte[] content = "abcdefghijklmnopqrstuvwxyz".getBytes();
+    private final List<GetObjectRequest> requests = new ArrayList<>();
+
+    @Mock
+    S3AsyncClient client;
+
+    S3FileSystem fs;
+    S3Path path;
+
+    @BeforeEach
+    void init() {
+        var config = new S3NioSpiConfiguration().withBucketName("test-bucket").withMaxFragmentSize(8)
+            .withReadExecutorThreads(1);
+        fs = new S3FileSystem(new S3FileSystemProvider(), config);
+        fs.clientProvider(new FixedS3ClientProvider(client));
+        path = (S3Path) fs.getPath("/object");
+    }
+
+    @AfterEach
+    void after() throws IOException {
+        fs.close();
+    }
+
+    @Test
+    void readsDownloadOnlyTheBlocksOfTheRange() throws IOException {
+        objectExists();
+        serveRangesOf(content);
+
+        try (var channel = FileChannel.open(path)) {
+            assertThat(channel).isInstanceOf(S3FileChannel.class);
+            assertThat(channel.size()).isEqualTo(26L);
+
+            var dst = ByteBuffer.allocate(4);
+            assertThat(channel.read(dst, 10)).isEqualTo(4);
+            assertThat(dst.flip()).isEqualTo(ByteBuffer.wrap("klmn".getBytes()));
+            assertThat(channel.position()).isZero();
+
+            channel.position(12);
+            dst.clear();
+            assertThat(channel.read(dst)).isEqualTo(4);
+            assertThat(dst.flip()).isEqualTo(ByteBuffer.wrap("mnop".getBytes()));
+            assertThat(channel.position()).isEqualTo(16L);
+        }
+
+        assertThat(requests).hasSize(1);
+        assertThat(requests.get(0).range()).isEqualTo("bytes=8-15");
+        assertThat(requests.get(0).ifMatch()).isEqualTo("etag");
+    }
+
+    @Test
+    void downloadedBlocksAreWrittenByTheReadExecutor() throws Exception {
+        objectExists();
+        serveRangesOf(content);
+        var executorBusy = new CountDownLatch(1);
+        fs.readExecutor().execute(() -> {
+            try {
+                executorBusy.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        try (var channel = FileChannel.open(path)) {
+            var read = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return channel.read(ByteBuffer.allocate(4), 10);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            // the response completed on the thread that sent the request, the block waits for the executor
+            Thread.sleep(50);
+            assertThat(requests).hasSize(1);
+            assertThat(read).isNotDone();
+
+            executorBusy.countDown();
+            assertThat(read.get(5, TimeUnit.SECONDS)).isEqualTo(4);
+        }
+    }
+
+    @Test
+    void mapReturnsTheDownloadedRange() throws IOException {
+        objectExists();
+        serveRangesOf(content);
+
+        try (var channel = FileChannel.open(path, READ)) {
+            var mapped = channel.map(FileChannel.MapMode.READ_ONLY, 4, 20);
+
+            assertThat(mapped).isEqualTo(ByteBuffer.wrap(content, 4, 20));
+            assertThat(requests).extracting(GetObjectRequest::range)
+                .containsExactlyInAnyOrder("bytes=0-7", "bytes=8-15", "bytes=16-23");
+            assertThatThrownBy(() -> channel.map(FileChannel.MapMode.READ_ONLY, 20, 10))
+                .isInstanceOf(IOException.class);
+            assertThatThrownBy(() -> channel.map(FileChannel.MapMode.READ_WRITE, 0, 10))
+                .isInstanceOf(NonWritableChannelException.class);
+        }
+    }
+
+    @Test
+    void transfersTheObjectToAChannel() throws IOException {
+        objectExists();
+        serveRangesOf(content);
+        var out = new ByteArrayOutputStream();
+
+        try (var channel = FileChannel.open(path)) {
+            assertThat(channel.transferTo(0, 100, Channels.newChannel(out))).isEqualTo(26L);
+        }
+
+        assertThat(out.toByteArray()).isEqualTo(content);
+        assertThat(requests).hasSize(4);
+    }
+
+    @Test
+    void failedBlocksAreDownloadedAgain() throws IOException {
+        objectExists();
+        when(client.getObject(anyConsumer(), any(AsyncResponseTransformer.class)))
+            .thenReturn(CompletableFuture.failedFuture(S3Exception.builder().statusCode(500).build()))
+            .thenAnswer(invocation -> serve(content, invocation.getArgument(0), invocation.getArgument(1)));
+
+        try (var channel = FileChannel.open(path)) {
+            assertThatThrownBy(() -> channel.read(ByteBuffer.allocate(4), 0))
+                .isInstanceOf(IOException.class);
+            assertThat(channel.read(ByteBuffer.allocate(4), 0)).isEqualTo(4);
+        }
+
+        verify(client, times(2)).getObject(anyConsumer(), any(AsyncResponseTransformer.class));
+    }
+
+    @Test
+    void channelIsReadOnly() throws IOException {
+        objectExists();
+        var provider = fs.provider();
+
+        assertThatThrownBy(() -> provider.newFileChannel(path, Set.of(WRITE)))
+            .isInstanceOf(UnsupportedOperationException.class);
+        try (var channel = FileChannel.open(path)) {
+            assertThatThrownBy(() -> channel.write(ByteBuffer.allocate(1)))
+                .isInstanceOf(NonWritableChannelException.class);
+            assertThatThrownBy(() -> channel.truncate(0))
+                .isInstanceOf(NonWritableChannelException.class);
+        }
+        assertThat(fs.getOpenChannels()).isEmpty();
+    }
+
+    @Test
+    void missingObjectCannotBeOpened() {
+        when(client.headObject(anyConsumer()))
+            .thenReturn(CompletableFuture.failedFuture(NoSuchKeyException.builder().build()));
+
+        assertThatThrownBy(() -> FileChannel.open(path)).isInstanceOf(NoSuchFileException.class);
+        assertThat(fs.getOpenChannels()).isEmpty();
+    }
+
+    private void objectExists() {
+        when(client.headObject(anyConsumer())).thenReturn(CompletableFuture.completedFuture(
+            HeadObjectResponse.builder().contentLength((long) content.length).eTag("etag").build()));
+    }
+
+    private void serveRangesOf(byte[] content) {
+        when(client.getObject(anyConsumer(), any(AsyncResponseTransformer.class))).thenAnswer(
+            invocation -> serve(content, invocation.getArgument(0), invocation.getArgument(1)));
+    }
+
+    private CompletableFuture<GetObjectResponse> serve(
+        byte[] content,
+        Consumer<GetObjectRequest.Builder> requestConsumer,
+        AsyncResponseTransformer<GetObjectResponse, GetObjectResponse> transformer
+    ) {
+        var builder = GetObjectRequest.builder();
+        requestConsumer.accept(builder);
+        var request = builder.build();
+        synchronized (requests) {
+            requests.add(request);
+        }
+        var bounds = request.range().substring("bytes=".length()).split("-");
+        var from = Integer.parseInt(bounds[0]);
+        var to = Math.min(Integer.parseInt(bounds[1]), content.length - 1);
+
+        var future = transformer.prepare();
+        transformer.onResponse(GetObjectResponse.builder()
+            .contentRange("bytes " + from + "-" + to + "/" + content.length)
+            .build());
+        transformer.onStream(AsyncRequestBody.fromBytes(Arrays.copyOfRange(content, from, to + 1)));
+        return future;
+    }
+}
@@ -9,21 +9,38 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.transfer.s3.progress.TransferListener;
+import software.amazon.nio.spi.s3.config.S3NioSpiConfiguration;
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.ClosedFileSystemException;
 import java.nio.file.FileSystemNotFoundException;
 import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.BDDAssertions.then;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static software.amazon.nio.spi.s3.Constants.PATH_SEPARATOR;
 import static software.amazon.nio.spi.s3.S3Matchers.anyConsumer;
 
@@ -65,6 +82,119 @@ public class S3FileSystemTest {
         assertThrows(FileSystemNotFoundException.class, () -> provider.getFileSystem(s3Uri));
     }
 
+    @Test
+    public void closeClosesTheSharedReadClient() throws IOException {
+        assertSame(s3FileSystem.acquireReadClient(), s3FileSystem.acquireReadClient());
+        s3FileSystem.releaseReadClient();
+        assertEquals(1, s3FileSystem.readClientReferences());
+
+        s3FileSystem.close();
+        verify(mockClient).close();
+        assertEquals(0, s3FileSystem.readClientReferences());
+    }
+
+    @Test
+    public void readClientIsNotCreatedOnceTheFileSystemIsClosed() throws IOException {
+        s3FileSystem.close();
+
+        assertThrows(ClosedFileSystemException.class, () -> s3FileSystem.acquireReadClient());
+        assertEquals(0, s3FileSystem.readClientReferences());
+        verify(mockClient, never()).close();
+    }
+
+    @Test
+    public void transferManagerIsSharedUntilTheFileSystemIsClosed() throws IOException {
+        var transferManager = s3FileSystem.transferManager();
+        assertSame(transferManager, s3FileSystem.transferManager());
+
+        s3FileSystem.close();
+        assertNotSame(transferManager, s3FileSystem.transferManager());
+    }
+
+    @Test
+    public void closeWaitsForTheObjectsWrittenBehind() throws IOException {
+        var config = new S3NioSpiConfiguration().withBucketName("mybucket").withWriteMaxPendingUploads(1);
+        var fs = new S3FileSystem(provider, config);
+        var failed = new CopyOnWriteArrayList<Path>();
+        fs.addWriteFailureListener((path, cause) -> failed.add(path));
+        var path = (S3Path) fs.getPath("/object");
+        var upload = new CompletableFuture<Void>();
+        fs.pendingUploads().submit(path, () -> upload, 1, TimeUnit.SECONDS);
+        assertEquals(1, fs.pendingWrites());
+
+        CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS)
+            .execute(() -> upload.completeExceptionally(new IOException("failed")));
+        assertThrows(IOException.class, fs::close);
+
+        assertFalse(fs.isOpen());
+        assertEquals(0, fs.pendingWrites());
+        assertEquals(1, failed.size());
+    }
+
+    @Test
+    public void flushPendingWritesReturnsAtOnceWithoutWritingBehind() throws IOException {
+        s3FileSystem.flushPendingWrites();
+        assertNull(s3FileSystem.pendingUploads());
+        assertEquals(0, s3FileSystem.pendingWrites());
+    }
+
+    @Test
+    public void uploadDirectoryReportsTheProgressOfEveryFile(@TempDir Path directory) throws Exception {
+        Files.writeString(directory.resolve("a.txt"), "a");
+        Files.createDirectory(directory.resolve("sub"));
+        Files.writeString(directory.resolve("sub").resolve("b.txt"), "b");
+        var keys = new CopyOnWriteArrayList<String>();
+        when(mockClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class))).thenAnswer(invocation -> {
+            keys.add(invocation.<PutObjectRequest>getArgument(0).key());
+            return CompletableFuture.completedFuture(PutObjectResponse.builder().build());
+        });
+        var initiated = new AtomicInteger();
+        TransferListener listener = new TransferListener() {
+            @Override
+            public void transferInitiated(Context.TransferInitiated context) {
+                initiated.incrementAndGet();
+            }
+        };
+
+        var upload = s3FileSystem.uploadDirectory(directory, s3FileSystem.getPath("/dir/"), listener);
+
+        then(upload.completionFuture().get(1, TimeUnit.MINUTES).failedTransfers()).isEmpty();
+        then(keys).containsExactlyInAnyOrder("dir/a.txt", "dir/sub/b.txt");
+        then(initiated).hasValue(2);
+    }
+
+    @Test
+    public void fragmentCacheIsDisabledByDefault() {
+        assertNull(s3FileSystem.fragmentCache());
+    }
+
+    @Test
+    public void fragmentCacheIsSharedWhenConfigured() {
+        s3FileSystem.configuration().withReadCacheMaxBytes(1024L);
+
+        var fragmentCache = s3FileSystem.fragmentCache();
+        assertNotNull(fragmentCache);
+        assertSame(fragmentCache, s3FileSystem.fragmentCache());
+        assertEquals(1024L, fragmentCache.maxBytes());
+    }
+
+    @Test
+    public void fragmentCacheStatisticsArePublic() {
+        assertEquals(0L, s3FileSystem.fragmentCacheMisses());
+        s3FileSystem.configuration().withReadCacheMaxBytes(1024L);
+        var fragmentCache = s3FileSystem.fragmentCache();
+        var path = (S3Path) s3FileSystem.getPath("/object");
+
+        assertNull(fragmentCache.getIfPresent(path, "etag", 16, 0));
+        fragmentCache.put(path, "etag", 16, 0, CompletableFuture.completedFuture(ByteBuffer.allocate(16)));
+        assertNotNull(fragmentCache.getIfPresent(path, "etag", 16, 0));
+
+        assertEquals(1L, s3FileSystem.fragmentCacheHits());
+        assertEquals(1L, s3FileSystem.fragmentCacheMisses());
+        assertEquals(0L, s3FileSystem.fragmentCacheEvictions());
+        assertEquals(16L, s3FileSystem.fragmentCacheBytes());
+    }
+
     @Test
     public void isOpen() {
         assertTrue(s3FileSystem.isOpen(), "File system should be open when newly created");
@@ -122,6 +252,26 @@ public class S3FileSystemTest {
                 s3FileSystem.getPathMatcher("glob:*.*").getClass());
     }
 
+    @Test
+    public void readBufferPoolGaugesReportTheSharedPool() {
+        s3FileSystem.configuration().withMaxFragmentSize(1024).withReadBufferPoolTargetBytes(2048L);
+        var pool = S3FragmentBufferPool.shared(1024, 2048L);
+        var first = pool.tryAcquire();
+        var second = pool.tryAcquire();
+        assertNull(pool.tryAcquire());
+        var beyondTarget = pool.acquire();
+
+        assertEquals(3072L, s3FileSystem.readBufferPoolBytesInUse());
+        assertEquals(3072L, s3FileSystem.readBufferPoolAllocatedBytes());
+        assertEquals(1L, s3FileSystem.readBufferPoolBackOffs());
+
+        pool.release(beyondTarget);
+        pool.release(second);
+        pool.release(first);
+        s3FileSystem.configuration().withReadBufferPoolTargetBytes(0L);
+        assertEquals(0L, s3FileSystem.readBufferPoolBytesInUse());
+    }
+
     @Test
     public void testGetOpenChannelsIsNotModifiable() {
         //
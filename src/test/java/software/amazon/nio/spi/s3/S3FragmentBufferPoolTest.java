@@ -0,0 +1,103 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+class S3FragmentBufferPoolTest {
+
+    @Test
+    void prefetchBuffersStayWithinTheBudget() {
+        var pool = new S3FragmentBufferPool(10, 25L);
+
+        var first = pool.tryAcquire();
+        var second = pool.tryAcquire();
+
+        assertThat(first.isDirect()).isTrue();
+        assertThat(first.capacity()).isEqualTo(10);
+        assertThat(second).isNotSameAs(first);
+        assertThat(pool.tryAcquire()).isNull();
+        assertThat(pool.backOffCount()).isEqualTo(1);
+        assertThat(pool.bytesInUse()).isEqualTo(20L);
+        assertThat(pool.allocatedBytes()).isEqualTo(20L);
+    }
+
+    @Test
+    void releasedBuffersAreReused() {
+        var pool = new S3FragmentBufferPool(10, 10L);
+        var buffer = pool.tryAcquire();
+        buffer.put((byte) 1).flip();
+
+        pool.release(buffer);
+        var reused = pool.tryAcquire();
+
+        assertThat(reused).isSameAs(buffer);
+        assertThat(reused.position()).isZero();
+        assertThat(reused.remaining()).isEqualTo(10);
+        assertThat(pool.allocatedBytes()).isEqualTo(10L);
+    }
+
+    @Test
+    void readsAllocateBeyondTheBudgetAndDropTheExcessOnRelease() {
+        var pool = new S3FragmentBufferPool(10, 10L);
+        var pooled = pool.acquire();
+        var excess = pool.acquire();
+
+        assertThat(pool.bytesInUse()).isEqualTo(20L);
+        assertThat(pool.allocatedBytes()).isEqualTo(20L);
+
+        pool.release(excess);
+        assertThat(pool.allocatedBytes()).isEqualTo(10L);
+        pool.release(pooled);
+        assertThat(pool.bytesInUse()).isZero();
+        assertThat(pool.allocatedBytes()).isEqualTo(10L);
+        assertThat(pool.tryAcquire()).isSameAs(pooled);
+    }
+
+    @Test
+    void sharedPoolFollowsTheConfiguration() {
+        assertThat(S3FragmentBufferPool.shared(10, 0L)).isNull();
+
+        var pool = S3FragmentBufferPool.shared(10, 100L);
+        assertThat(S3FragmentBufferPool.shared(10, 100L)).isSameAs(pool);
+
+        var resized = S3FragmentBufferPool.shared(20, 100L);
+        assertThat(resized).isNotSameAs(pool);
+        assertThat(resized.bufferSize()).isEqualTo(20);
+        assertThat(resized.targetBytes()).isEqualTo(100L);
+        // a target below a single buffer still allows one buffer
+        assertThat(S3FragmentBufferPool.shared(20, 1L).targetBytes()).isEqualTo(20L);
+    }
+
+    @Test
+    void differentlyConfiguredPoolsDoNotReplaceEachOther() {
+        var pool = S3FragmentBufferPool.shared(30, 300L);
+        var buffer = pool.tryAcquire();
+        var other = S3FragmentBufferPool.shared(40, 300L);
+
+        assertThat(S3FragmentBufferPool.shared(30, 300L)).isSameAs(pool);
+        assertThat(S3FragmentBufferPool.sharedIfPresent(30, 300L)).isSameAs(pool);
+        assertThat(S3FragmentBufferPool.sharedIfPresent(40, 300L)).isSameAs(other);
+        assertThat(S3FragmentBufferPool.sharedIfPresent(50, 300L)).isNull();
+
+        pool.release(buffer);
+        assertThat(pool.bytesInUse()).isZero();
+        assertThat(pool.tryAcquire()).isSameAs(buffer);
+    }
+
+    @Test
+    void rejectsInvalidSizes() {
+        assertThatThrownBy(() -> new S3FragmentBufferPool(0, 10L))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("bufferSize must be > 0");
+        assertThatThrownBy(() -> new S3FragmentBufferPool(10, 9L))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("targetBytes must be >= bufferSize");
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class S3FragmentCacheTest {
+
+    private final S3Path path =
+        S3Path.getPath(new S3FileSystemProvider().getFileSystem(URI.create("s3://my-bucket"), true), "/object");
+
+    @Test
+    void loadsAMissingFragmentOnce() {
+        var cache = new S3FragmentCache(1024L, 1024L);
+        var loads = new AtomicInteger();
+
+        cache.get(path, "etag", 10, 0, () -> load(loads, 10)).join();
+        cache.get(path, "etag", 10, 0, () -> load(loads, 10)).join();
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats().hitCount()).isEqualTo(1);
+        assertThat(cache.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void fragmentsOfAnotherETagAreNotShared() {
+        var cache = new S3FragmentCache(1024L, 1024L);
+        var loads = new AtomicInteger();
+
+        cache.get(path, "etag-1", 10, 0, () -> load(loads, 10)).join();
+        cache.get(path, "etag-2", 10, 0, () -> load(loads, 10)).join();
+
+        assertThat(loads).hasValue(2);
+        assertThat(cache.getIfPresent(path, "etag-3", 10, 0)).isNull();
+    }
+
+    @Test
+    void evictsFragmentsBeyondTheByteBudget() {
+        var cache = new S3FragmentCache(100L, 1024L);
+        for (var i = 0; i < 5; i++) {
+            cache.put(path, "etag", 40, i, CompletableFuture.completedFuture(ByteBuffer.allocate(40)));
+        }
+
+        assertThat(cache.cachedBytes()).isLessThanOrEqualTo(100L);
+        assertThat(cache.stats().evictionCount()).isGreaterThanOrEqualTo(3);
+    }
+
+    @Test
+    void doesNotCacheFailedFragments() {
+        var cache = new S3FragmentCache(1024L, 1024L);
+        cache.get(path, "etag", 10, 0, () -> CompletableFuture.failedFuture(new IllegalStateException()));
+
+        assertThat(cache.getIfPresent(path, "etag", 10, 0)).isNull();
+        assertThat(cache.cachedBytes()).isZero();
+    }
+
+    @Test
+    void tailsHaveABudgetOfTheirOwn() {
+        var cache = new S3FragmentCache(100L, 50L);
+        cache.put(path, "etag", 40, 0, CompletableFuture.completedFuture(ByteBuffer.allocate(40)));
+        for (var i = 0; i < 3; i++) {
+            var tailOwner = S3Path.getPath(path.getFileSystem(), "/object-" + i);
+            cache.getTail(tailOwner, "etag", 20, () -> CompletableFuture.completedFuture(ByteBuffer.allocate(20)));
+        }
+
+        assertThat(cache.cachedTailBytes()).isLessThanOrEqualTo(50L);
+        assertThat(cache.cachedBytes()).isEqualTo(40L);
+    }
+
+    @Test
+    void requiresAPositiveBudget() {
+        assertThatThrownBy(() -> new S3FragmentCache(0L, 1024L)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new S3FragmentCache(1024L, 0L)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static CompletableFuture<ByteBuffer> load(AtomicInteger loads, int size) {
+        loads.incrementAndGet();
+        return CompletableFuture.completedFuture(ByteBuffer.allocate(size));
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static software.amazon.nio.spi.s3.S3Matchers.anyConsumer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("unchecked")
+class S3InputStreamTest {
+
+    private final byte[] content = "abcdefghijklmnopqrstuvwxyz".getBytes();
+    private final List<String> ranges = new ArrayList<>();
+
+    @Mock
+    S3AsyncClient client;
+
+    S3FileSystem fs;
+    S3Path path;
+
+    @BeforeEach
+    void init() {
+        fs = new S3FileSystemProvider().getFileSystem(URI.create("s3://test-bucket"), true);
+        fs.clientProvider(new FixedS3ClientProvider(client));
+        path = (S3Path) fs.getPath("/object");
+    }
+
+    @AfterEach
+    void after() throws IOException {
+        fs.close();
+    }
+
+    @Test
+    void readsTheObjectWithOneRequest() throws IOException {
+        serve(content);
+
+        try (var in = Files.newInputStream(path)) {
+            assertThat(in).isInstanceOf(S3InputStream.class);
+            assertThat(in.read()).isEqualTo('a');
+            assertThat(in.readAllBytes()).isEqualTo(Arrays.copyOfRange(content, 1, content.length));
+            assertThat(in.read()).isEqualTo(-1);
+        }
+
+        assertThat(ranges).containsExactly((String) null);
+    }
+
+    @Test
+    void transfersTheObjectToAnOutputStream() throws IOException {
+        serve(content);
+        var out = new ByteArrayOutputStream();
+
+        try (var in = Files.newInputStream(path)) {
+            assertThat(in.transferTo(out)).isEqualTo(26L);
+        }
+
+        assertThat(out.toByteArray()).isEqualTo(content);
+    }
+
+    @Test
+    void skipRequestsTheRestOfTheObjectFromTheNewPosition() throws IOException {
+        serve(content);
+
+        try (var in = Files.newInputStream(path)) {
+            assertThat(in.skip(10)).isEqualTo(10L);
+            assertThat(in.read()).isEqualTo('k');
+
+            // the rest of the object was received with the first read, so this skip drops received bytes
+            assertThat(in.skip(5)).isEqualTo(5L);
+            assertThat(in.read()).isEqualTo('q');
+
+            assertThat(in.skip(100)).isEqualTo(100L);
+            assertThat(in.read()).isEqualTo(-1);
+        }
+
+        assertThat(ranges).containsExactly("bytes=10-", "bytes=117-");
+    }
+
+    @Test
+    void readOfAMissingObjectFails() throws IOException {
+        when(client.getObject(anyConsumer(), any(AsyncResponseTransformer.class)))
+            .thenReturn(CompletableFuture.failedFuture(NoSuchKeyException.builder().build()));
+
+        try (var in = Files.newInputStream(path)) {
+            assertThatThrownBy(() -> in.read()).isInstanceOf(NoSuchFileException.class);
+        }
+    }
+
+    @Test
+    void readOfAnObjectNotFoundFails() throws IOException {
+        when(client.getObject(anyConsumer(), any(AsyncResponseTransformer.class)))
+            .thenReturn(CompletableFuture.failedFuture(S3Exception.builder().statusCode(404).build()));
+
+        try (var in = Files.newInputStream(path)) {
+            assertThatThrownBy(() -> in.read()).isInstanceOf(NoSuchFileException.class);
+        }
+    }
+
+    @Test
+    void writeOptionsAreRejected() {
+        assertThatThrownBy(() -> Files.newInputStream(path, WRITE))
+            .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    private void serve(byte[] content) {
+        when(client.getObject(anyConsumer(), any(AsyncResponseTransformer.class))).thenAnswer(invocation -> {
+            var request = GetObjectRequest.builder();
+            invocation.<Consumer<GetObjectRequest.Builder>>getArgument(0).accept(request);
+            var range = request.build().range();
+            ranges.add(range);
+            var from = range == null ? 0 : Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+            if (from >= content.length) {
+                return CompletableFuture.failedFuture(S3Exception.builder().statusCode(416).build());
+            }
+
+            AsyncResponseTransformer<GetObjectResponse, Object> transformer = invocation.getArgument(1);
+            var future = transformer.prepare();
+            transformer.onResponse(GetObjectResponse.builder().build());
+            transformer.onStream(AsyncRequestBody.fromBytes(Arrays.copyOfRange(content, from, content.length)));
+            return future;
+        });
+    }
+}
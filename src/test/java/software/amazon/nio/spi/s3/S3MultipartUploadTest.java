@@ -0,0 +1,272 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static software.amazon.nio.spi.s3.S3Matchers.anyConsumer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartCopyRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("unchecked")
+class S3MultipartUploadTest {
+
+    private final List<CompletableFuture<UploadPartResponse>> uploads = new CopyOnWriteArrayList<>();
+    private final S3WriteMetrics metrics = new S3WriteMetrics();
+
+    @Mock
+    S3AsyncClient client;
+
+    S3FileSystem fs;
+    S3Path path;
+
+    @BeforeEach
+    void init() {
+        fs = new S3FileSystemProvider().getFileSystem(URI.create("s3://test-bucket"), true);
+        path = (S3Path) fs.getPath("/object");
+        lenient().when(client.createMultipartUpload(anyConsumer()))
+            .thenReturn(CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder().uploadId("id").build()));
+        lenient().when(client.uploadPart(anyConsumer(), any(AsyncRequestBody.class))).thenAnswer(invocation -> {
+            var upload = new CompletableFuture<UploadPartResponse>();
+            uploads.add(upload);
+            return upload;
+        });
+    }
+
+    @AfterEach
+    void after() throws IOException {
+        fs.close();
+    }
+
+    @Test
+    void tryWriteStopsOnceTooManyPartsAreInFlight() throws IOException {
+        var upload = new S3MultipartUpload(client, path, 4, 2, Long.MAX_VALUE, 4, null, metrics);
+
+        assertThat(upload.tryWrite(ByteBuffer.allocate(20))).isEqualTo(8);
+        assertThat(upload.tryWrite(ByteBuffer.allocate(20))).isZero();
+        assertThat(metrics.queuedParts()).isEqualTo(2);
+
+        uploads.get(0).complete(UploadPartResponse.builder().eTag("1").build());
+
+        assertThat(upload.tryWrite(ByteBuffer.allocate(20))).isEqualTo(4);
+        assertThat(upload.bytesWritten()).isEqualTo(12L);
+        assertThat(metrics.uploadedBytes()).isEqualTo(4L);
+    }
+
+    @Test
+    void tryWriteStopsOnceTheBufferedBytesAreInUse() throws IOException {
+        var upload = new S3MultipartUpload(client, path, 4, 10, 8, 4, null, metrics);
+
+        assertThat(upload.tryWrite(ByteBuffer.allocate(20))).isEqualTo(8);
+        assertThat(uploads).hasSize(2);
+    }
+
+    @Test
+    void partialPartIsFilledWhileTheBoundsAreReached() throws IOException {
+        var upload = new S3MultipartUpload(client, path, 4, 1, Long.MAX_VALUE, 4, null, metrics);
+
+        assertThat(upload.tryWrite(ByteBuffer.allocate(4))).isEqualTo(4);
+        assertThat(upload.tryWrite(ByteBuffer.allocate(2))).isZero();
+
+        uploads.get(0).complete(UploadPartResponse.builder().eTag("1").build());
+        assertThat(upload.tryWrite(ByteBuffer.allocate(2))).isEqualTo(2);
+        assertThat(upload.tryWrite(ByteBuffer.allocate(1))).isEqualTo(1);
+    }
+
+    @Test
+    void awaitCapacityWaitsForAPartToBeUploaded() throws Exception {
+        var upload = new S3MultipartUpload(client, path, 4, 1, Long.MAX_VALUE, 4, null, metrics);
+        upload.tryWrite(ByteBuffer.allocate(4));
+
+        CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS)
+            .execute(() -> uploads.get(0).complete(UploadPartResponse.builder().eTag("1").build()));
+        upload.awaitCapacity(5, TimeUnit.SECONDS);
+
+        assertThat(upload.tryWrite(ByteBuffer.allocate(4))).isEqualTo(4);
+        assertThat(metrics.blockedNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(40));
+        assertThat(metrics.throughput()).isPositive();
+    }
+
+    @Test
+    void objectSmallerThanTheThresholdIsPutWithASingleRequest() {
+        when(client.putObject(anyConsumer(), any(AsyncRequestBody.class)))
+            .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+        var upload = new S3MultipartUpload(client, path, 4, 1, Long.MAX_VALUE, 10, null, metrics);
+
+        upload.write(ByteBuffer.allocate(9));
+        upload.finish();
+
+        ArgumentCaptor<Consumer<PutObjectRequest.Builder>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(client).putObject(captor.capture(), any(AsyncRequestBody.class));
+        var request = PutObjectRequest.builder();
+        captor.getValue().accept(request);
+        assertThat(request.build().contentLength()).isEqualTo(9L);
+        assertThat(uploads).isEmpty();
+        verify(client, never()).createMultipartUpload(anyConsumer());
+    }
+
+    @Test
+    void partsKeptBelowTheThresholdAreUploadedOnceItIsReached() throws IOException {
+        var upload = new S3MultipartUpload(client, path, 4, 1, Long.MAX_VALUE, 10, null, metrics);
+
+        assertThat(upload.tryWrite(ByteBuffer.allocate(8))).isEqualTo(8);
+        assertThat(uploads).isEmpty();
+
+        assertThat(upload.tryWrite(ByteBuffer.allocate(4))).isEqualTo(4);
+        assertThat(uploads).hasSize(3);
+        assertThat(metrics.queuedParts()).isEqualTo(3);
+    }
+
+    @Test
+    void checksumOfEveryPartIsSentWithItAndWithTheCompletion() {
+        when(client.completeMultipartUpload(anyConsumer()))
+            .thenReturn(CompletableFuture.completedFuture(CompleteMultipartUploadResponse.builder().build()));
+        var upload = new S3MultipartUpload(client, path, 4, 2, Long.MAX_VALUE, 4, ChecksumAlgorithm.CRC32_C, metrics);
+
+        upload.write(ByteBuffer.wrap(new byte[]{1, 2}));
+        upload.write(ByteBuffer.wrap(new byte[]{3, 4, 5, 6}));
+        upload.finish();
+        uploads.forEach(uploaded -> uploaded.complete(UploadPartResponse.builder().eTag("etag").build()));
+
+        ArgumentCaptor<Consumer<UploadPartRequest.Builder>> partCaptor = ArgumentCaptor.forClass(Consumer.class);
+        verify(client, times(2)).uploadPart(partCaptor.capture(), any(AsyncRequestBody.class));
+        assertThat(partCaptor.getAllValues()).map(consumer -> {
+            var request = UploadPartRequest.builder();
+            consumer.accept(request);
+            return request.build().checksumCRC32C();
+        }).containsExactly(crc32c(1, 2, 3, 4), crc32c(5, 6));
+        ArgumentCaptor<Consumer<CompleteMultipartUploadRequest.Builder>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(client).completeMultipartUpload(captor.capture());
+        var request = CompleteMultipartUploadRequest.builder();
+        captor.getValue().accept(request);
+        assertThat(request.build().multipartUpload().parts()).extracting(CompletedPart::checksumCRC32C)
+            .containsExactly(crc32c(1, 2, 3, 4), crc32c(5, 6));
+    }
+
+    @Test
+    void checksumOfAnObjectPutWithASingleRequestCoversAllOfIt() {
+        when(client.putObject(anyConsumer(), any(AsyncRequestBody.class)))
+            .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+        var upload = new S3MultipartUpload(client, path, 4, 1, Long.MAX_VALUE, 10, ChecksumAlgorithm.CRC32_C, metrics);
+
+        upload.write(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5, 6}));
+        upload.finish();
+
+        ArgumentCaptor<Consumer<PutObjectRequest.Builder>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(client).putObject(captor.capture(), any(AsyncRequestBody.class));
+        var request = PutObjectRequest.builder();
+        captor.getValue().accept(request);
+        assertThat(request.build().checksumAlgorithm()).isEqualTo(ChecksumAlgorithm.CRC32_C);
+        assertThat(request.build().checksumCRC32C()).isEqualTo(crc32c(1, 2, 3, 4, 5, 6));
+    }
+
+    @Test
+    void objectsLargerThanAPartAreCopiedInSeveralParts() throws IOException {
+        var copies = new CopyOnWriteArrayList<UploadPartCopyRequest>();
+        when(client.uploadPartCopy(anyConsumer())).thenAnswer(invocation -> {
+            var builder = UploadPartCopyRequest.builder();
+            invocation.<Consumer<UploadPartCopyRequest.Builder>>getArgument(0).accept(builder);
+            copies.add(builder.build());
+            return new CompletableFuture<>();
+        });
+        var upload = new S3MultipartUpload(client, path, 4, 1, Long.MAX_VALUE, 4, null, metrics);
+        var size = 2 * S3MultipartUpload.MAX_PART_SIZE + 1;
+
+        upload.copyExisting(size, "etag");
+
+        assertThat(copies).extracting(UploadPartCopyRequest::copySourceRange).containsExactly(
+            "bytes=0-3579139413", "bytes=3579139414-7158278827", "bytes=7158278828-10737418240");
+        assertThat(copies).extracting(UploadPartCopyRequest::partNumber).containsExactly(1, 2, 3);
+        assertThat(upload.bytesWritten()).isEqualTo(size);
+        assertThat(upload.tryWrite(ByteBuffer.allocate(4))).isEqualTo(4);
+        assertThatThrownBy(() -> upload.copyExisting(size, "etag")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void failedPartFailsTheNextWrite() throws IOException {
+        var upload = new S3MultipartUpload(client, path, 4, 1, Long.MAX_VALUE, 4, null, metrics);
+        upload.tryWrite(ByteBuffer.allocate(4));
+
+        uploads.get(0).completeExceptionally(S3Exception.builder().statusCode(500).build());
+
+        assertThatThrownBy(() -> upload.tryWrite(ByteBuffer.allocate(4))).isInstanceOf(IOException.class)
+            .hasCauseInstanceOf(S3Exception.class);
+        assertThatThrownBy(() -> upload.awaitCapacity(5, TimeUnit.SECONDS)).isInstanceOf(IOException.class);
+        assertThat(metrics.queuedParts()).isZero();
+        assertThat(metrics.uploadedBytes()).isZero();
+    }
+
+    @Test
+    void partsGrowEveryThousandParts() {
+        var upload = new S3MultipartUpload(client, path, 1, Integer.MAX_VALUE, Long.MAX_VALUE, 1, null, metrics);
+
+        upload.write(ByteBuffer.allocate(S3MultipartUpload.PARTS_PER_PART_SIZE + 1));
+        assertThat(uploads).hasSize(S3MultipartUpload.PARTS_PER_PART_SIZE);
+        upload.write(ByteBuffer.allocate(1));
+        assertThat(uploads).hasSize(S3MultipartUpload.PARTS_PER_PART_SIZE + 1);
+    }
+
+    @Test
+    void writeBeyondTheLastPartFailsTheUpload() {
+        when(client.abortMultipartUpload(anyConsumer())).thenReturn(new CompletableFuture<>());
+        var upload = new S3MultipartUpload(client, path, 1, Integer.MAX_VALUE, Long.MAX_VALUE, 1, null, metrics);
+        // 1000 parts of each size from 1 to 512 bytes
+        var capacity = S3MultipartUpload.PARTS_PER_PART_SIZE * 1023;
+
+        assertThat(upload.write(ByteBuffer.allocate(capacity))).isNotCompletedExceptionally();
+        assertThat(uploads).hasSize(S3MultipartUpload.MAX_PARTS);
+        assertThatThrownBy(() -> upload.tryWrite(ByteBuffer.allocate(1))).isInstanceOf(IOException.class)
+            .hasMessageContaining("exceeds the 10000 parts");
+        assertThat(upload.write(ByteBuffer.allocate(1))).isCompletedExceptionally();
+        assertThat(upload.finish()).isCompletedExceptionally();
+        verify(client, never()).completeMultipartUpload(anyConsumer());
+        verify(client).abortMultipartUpload(anyConsumer());
+    }
+
+    private static String crc32c(int... bytes) {
+        var crc = new CRC32C();
+        for (var b : bytes) {
+            crc.update(b);
+        }
+        return Base64.getEncoder().encodeToString(ByteBuffer.allocate(4).putInt((int) crc.getValue()).array());
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static software.amazon.nio.spi.s3.S3Matchers.anyConsumer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+import software.amazon.nio.spi.s3.config.S3NioSpiConfiguration;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("unchecked")
+class S3OutputStreamTest {
+
+    @Mock
+    S3AsyncClient client;
+
+    S3FileSystem fs;
+    S3Path path;
+
+    @BeforeEach
+    void init() {
+        fs = new S3FileSystemProvider().getFileSystem(URI.create("s3://test-bucket"), true);
+        fs.clientProvider(new FixedS3ClientProvider(client));
+        path = (S3Path) fs.getPath("/object");
+    }
+
+    @AfterEach
+    void after() throws IOException {
+        fs.close();
+    }
+
+    @Test
+    void uploadsFullPartsWhileWriting() throws IOException {
+        when(client.createMultipartUpload(anyConsumer()))
+            .thenReturn(CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder().uploadId("id").build()));
+        when(client.uploadPart(anyConsumer(), any(AsyncRequestBody.class)))
+            .thenReturn(CompletableFuture.completedFuture(UploadPartResponse.builder().eTag("etag").build()));
+        when(client.completeMultipartUpload(anyConsumer()))
+            .thenReturn(CompletableFuture.completedFuture(CompleteMultipartUploadResponse.builder().build()));
+
+        try (var out = Files.newOutputStream(path)) {
+            assertThat(out).isInstanceOf(S3OutputStream.class);
+            out.write(new byte[S3AsynchronousFileChannel.PART_SIZE * 2 + 10]);
+            verify(client, times(2)).uploadPart(anyConsumer(), any(AsyncRequestBody.class));
+            verify(client, never()).completeMultipartUpload(anyConsumer());
+        }
+
+        verify(client, times(3)).uploadPart(anyConsumer(), any(AsyncRequestBody.class));
+        verify(client).completeMultipartUpload(anyConsumer());
+        verify(client, never()).headObject(any(HeadObjectRequest.class));
+    }
+
+    @Test
+    void writesWaitWithinTheConfiguredBoundsAndAreCountedInTheWriteMetrics() throws Exception {
+        var config = new S3NioSpiConfiguration().withBucketName("test-bucket").withWriteMaxInFlightParts(1);
+        var firstPart = new CompletableFuture<UploadPartResponse>();
+        try (var boundedFs = new S3FileSystem(new S3FileSystemProvider(), config)) {
+            boundedFs.clientProvider(new FixedS3ClientProvider(client));
+            when(client.createMultipartUpload(anyConsumer())).thenReturn(
+                CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder().uploadId("id").build()));
+            when(client.uploadPart(anyConsumer(), any(AsyncRequestBody.class)))
+                .thenReturn(firstPart)
+                .thenReturn(CompletableFuture.completedFuture(UploadPartResponse.builder().eTag("etag").build()));
+            when(client.completeMultipartUpload(anyConsumer()))
+                .thenReturn(CompletableFuture.completedFuture(CompleteMultipartUploadResponse.builder().build()));
+
+            var out = Files.newOutputStream(boundedFs.getPath("/object"));
+            var written = CompletableFuture.runAsync(() -> {
+                try {
+                    out.write(new byte[S3AsynchronousFileChannel.PART_SIZE * 2 + 10]);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            verify(client, timeout(5000)).uploadPart(anyConsumer(), any(AsyncRequestBody.class));
+            Thread.sleep(50);
+            assertThat(written).isNotDone();
+            assertThat(boundedFs.queuedUploadParts()).isEqualTo(1);
+
+            firstPart.complete(UploadPartResponse.builder().eTag("etag").build());
+            written.get(5, TimeUnit.SECONDS);
+            out.close();
+
+            verify(client, times(3)).uploadPart(anyConsumer(), any(AsyncRequestBody.class));
+            assertThat(boundedFs.writeBlockedNanos()).isPositive();
+        }
+    }
+
+    @Test
+    void smallObjectIsPutOnClose() throws IOException {
+        when(client.putObject(any(Consumer.class), any(AsyncRequestBody.class)))
+            .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+
+        try (var out = Files.newOutputStream(path)) {
+            out.write('a');
+            out.write("bcd".getBytes());
+        }
+
+        ArgumentCaptor<Consumer<PutObjectRequest.Builder>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(client).putObject(captor.capture(), any(AsyncRequestBody.class));
+        var request = PutObjectRequest.builder();
+        captor.getValue().accept(request);
+        assertThat(request.build().contentLength()).isEqualTo(4L);
+    }
+
+    @Test
+    void filesWriteBelowTheThresholdSendsASinglePut() throws IOException {
+        var config = new S3NioSpiConfiguration().withBucketName("test-bucket").withWriteSinglePutThreshold(16);
+        try (var smallFs = new S3FileSystem(new S3FileSystemProvider(), config)) {
+            smallFs.clientProvider(new FixedS3ClientProvider(client));
+            when(client.putObject(any(Consumer.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+
+            Files.write(smallFs.getPath("/object"), "0123456789".getBytes());
+        }
+
+        verify(client).putObject(any(Consumer.class), any(AsyncRequestBody.class));
+        verify(client, never()).headObject(any(HeadObjectRequest.class));
+        verify(client, never()).headObject(anyConsumer());
+        verify(client, never()).createMultipartUpload(anyConsumer());
+    }
+
+    @Test
+    void createNewIsCheckedByTheUploadInsteadOfAHead() {
+        when(client.putObject(any(Consumer.class), any(AsyncRequestBody.class)))
+            .thenReturn(CompletableFuture.failedFuture(S3Exception.builder().statusCode(412).build()));
+
+        assertThatThrownBy(() -> Files.write(path, "abc".getBytes(), CREATE_NEW))
+            .isInstanceOf(FileAlreadyExistsException.class);
+
+        ArgumentCaptor<Consumer<PutObjectRequest.Builder>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(client).putObject(captor.capture(), any(AsyncRequestBody.class));
+        var request = PutObjectRequest.builder();
+        captor.getValue().accept(request);
+        assertThat(request.build().overrideConfiguration()).hasValueSatisfying(
+            override -> assertThat(override.headers()).containsEntry("If-None-Match", List.of("*")));
+        verify(client, never()).headObject(any(HeadObjectRequest.class));
+    }
+
+    @Test
+    void failedPartFailsALaterWrite() throws IOException {
+        when(client.createMultipartUpload(anyConsumer()))
+            .thenReturn(CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder().uploadId("id").build()));
+        when(client.uploadPart(anyConsumer(), any(AsyncRequestBody.class)))
+            .thenReturn(CompletableFuture.failedFuture(S3Exception.builder().statusCode(500).build()));
+        when(client.abortMultipartUpload(anyConsumer())).thenReturn(CompletableFuture.completedFuture(null));
+
+        var out = Files.newOutputStream(path);
+
+        assertThatThrownBy(() -> out.write(new byte[S3AsynchronousFileChannel.PART_SIZE]))
+            .isInstanceOf(IOException.class);
+        assertThatThrownBy(out::close).isInstanceOf(IOException.class);
+        verify(client).abortMultipartUpload(anyConsumer());
+    }
+
+    @Test
+    void readOptionIsRejected() {
+        assertThatThrownBy(() -> Files.newOutputStream(path, READ, WRITE))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
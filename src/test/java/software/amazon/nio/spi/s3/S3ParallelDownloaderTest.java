@@ -0,0 +1,175 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static software.amazon.nio.spi.s3.S3Matchers.anyConsumer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("unchecked")
+class S3ParallelDownloaderTest {
+
+    private final byte[] content = "abcdefghijklmnopqrstuvwxyz".getBytes();
+    private final List<GetObjectRequest> requests = new CopyOnWriteArrayList<>();
+
+    @Mock
+    S3AsyncClient client;
+
+    @TempDir
+    Path tempDir;
+
+    S3FileSystem fs;
+    S3Path path;
+
+    @BeforeEach
+    void init() {
+        fs = new S3FileSystemProvider().getFileSystem(URI.create("s3://test-bucket"), true);
+        fs.clientProvider(new FixedS3ClientProvider(client));
+        path = (S3Path) fs.getPath("/object");
+    }
+
+    @AfterEach
+    void after() throws IOException {
+        fs.close();
+    }
+
+    @Test
+    void downloadsThePartsIntoAFile() throws Exception {
+        serve(content);
+        var destination = tempDir.resolve("object");
+        Files.write(destination, new byte[100]);
+
+        var size = new S3ParallelDownloader(client, 8, 2).downloadToFile(path, destination, 5, TimeUnit.SECONDS)
+            .get(5, TimeUnit.SECONDS);
+
+        assertThat(size).isEqualTo(26L);
+        assertThat(Files.readAllBytes(destination)).isEqualTo(content);
+        assertThat(requests).extracting(GetObjectRequest::range)
+            .containsExactlyInAnyOrder("bytes=0-7", "bytes=8-15", "bytes=16-23", "bytes=24-31");
+        assertThat(requests.get(0).ifMatch()).isNull();
+        assertThat(requests.subList(1, requests.size())).extracting(GetObjectRequest::ifMatch).containsOnly("etag");
+    }
+
+    @Test
+    void writesThePartsInOrderIntoAChannel() throws IOException {
+        serve(content);
+        var out = new ByteArrayOutputStream();
+
+        var size = new S3ParallelDownloader(client, 5, 3).download(path, Channels.newChannel(out), 5, TimeUnit.SECONDS);
+
+        assertThat(size).isEqualTo(26L);
+        assertThat(out.toByteArray()).isEqualTo(content);
+        assertThat(requests).hasSize(6);
+    }
+
+    @Test
+    void emptyObjectIsDownloaded() throws Exception {
+        serve(new byte[0]);
+        var destination = tempDir.resolve("object");
+
+        assertThat(new S3ParallelDownloader(client, 8, 2).downloadToFile(path, destination, 5, TimeUnit.SECONDS).get())
+            .isZero();
+        assertThat(destination).isEmptyFile();
+        var out = new ByteArrayOutputStream();
+        assertThat(new S3ParallelDownloader(client, 8, 2).download(path, Channels.newChannel(out), 5, TimeUnit.SECONDS))
+            .isZero();
+    }
+
+    @Test
+    void downloadOfAMissingObjectFails() {
+        when(client.getObject(anyConsumer(), any(AsyncResponseTransformer.class)))
+            .thenReturn(CompletableFuture.failedFuture(NoSuchKeyException.builder().build()));
+        var downloader = new S3ParallelDownloader(client, 8, 2);
+
+        assertThatThrownBy(() -> downloader.downloadToFile(path, tempDir.resolve("object"), 5, TimeUnit.SECONDS).get())
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(NoSuchFileException.class);
+        assertThatThrownBy(() -> downloader.download(path, Channels.newChannel(new ByteArrayOutputStream()), 5,
+            TimeUnit.SECONDS))
+            .isInstanceOf(NoSuchFileException.class);
+    }
+
+    @Test
+    void downloadFailsIfAPartTakesTooLong() {
+        when(client.getObject(anyConsumer(), any(AsyncResponseTransformer.class)))
+            .thenReturn(new CompletableFuture<>());
+        var downloader = new S3ParallelDownloader(client, 8, 2);
+
+        assertThatThrownBy(() -> downloader.downloadToFile(path, tempDir.resolve("object"), 50, TimeUnit.MILLISECONDS)
+            .get(5, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(TimeoutException.class);
+    }
+
+    @Test
+    void fileSystemDownloadsWithItsConfiguration() throws IOException {
+        serve(content);
+        var destination = tempDir.resolve("object");
+
+        assertThat(fs.download(path, destination)).isEqualTo(26L);
+
+        assertThat(Files.readAllBytes(destination)).isEqualTo(content);
+        assertThat(fs.readClientReferences()).isZero();
+    }
+
+    private void serve(byte[] content) {
+        when(client.getObject(anyConsumer(), any(AsyncResponseTransformer.class))).thenAnswer(invocation -> {
+            var builder = GetObjectRequest.builder();
+            invocation.<Consumer<GetObjectRequest.Builder>>getArgument(0).accept(builder);
+            var request = builder.build();
+            requests.add(request);
+            var range = request.range().substring("bytes=".length()).split("-");
+            var from = Integer.parseInt(range[0]);
+            if (from >= content.length) {
+                return CompletableFuture.failedFuture(S3Exception.builder().statusCode(416).build());
+            }
+            var to = Math.min(Integer.parseInt(range[1]), content.length - 1);
+
+            AsyncResponseTransformer<GetObjectResponse, Object> transformer = invocation.getArgument(1);
+            var future = transformer.prepare();
+            transformer.onResponse(GetObjectResponse.builder()
+                .eTag("etag")
+                .contentLength((long) to - from + 1)
+                .contentRange("bytes " + from + "-" + to + "/" + content.length)
+                .build());
+            transformer.onStream(AsyncRequestBody.fromBytes(Arrays.copyOfRange(content, from, to + 1)));
+            return future;
+        });
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+class S3PendingUploadsTest {
+
+    private final List<Path> failedPaths = new CopyOnWriteArrayList<>();
+
+    S3FileSystem fs;
+    S3Path path;
+    S3PendingUploads pendingUploads;
+
+    @BeforeEach
+    void init() {
+        fs = new S3FileSystemProvider().getFileSystem(URI.create("s3://test-bucket"), true);
+        path = (S3Path) fs.getPath("/object");
+        pendingUploads = new S3PendingUploads(2);
+        pendingUploads.addListener((failed, cause) -> failedPaths.add(failed));
+    }
+
+    @AfterEach
+    void after() throws IOException {
+        fs.close();
+    }
+
+    @Test
+    void submitDoesNotWaitForTheUpload() throws IOException {
+        var upload = new CompletableFuture<Void>();
+
+        pendingUploads.submit(path, () -> upload, 1, TimeUnit.SECONDS);
+        assertThat(pendingUploads.pendingUploads()).isEqualTo(1);
+
+        upload.complete(null);
+        assertThat(pendingUploads.pendingUploads()).isZero();
+    }
+
+    @Test
+    void submitWaitsOnceTooManyUploadsArePending() throws IOException {
+        pendingUploads.submit(path, CompletableFuture::new, 1, TimeUnit.SECONDS);
+        var second = new CompletableFuture<Void>();
+        pendingUploads.submit(path, () -> second, 1, TimeUnit.SECONDS);
+
+        assertThatThrownBy(() -> pendingUploads.submit(path, CompletableFuture::new, 50, TimeUnit.MILLISECONDS))
+            .hasMessageContaining("timed out");
+        assertThat(pendingUploads.pendingUploads()).isEqualTo(2);
+
+        CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS).execute(() -> second.complete(null));
+        pendingUploads.submit(path, CompletableFuture::new, 5, TimeUnit.SECONDS);
+        assertThat(pendingUploads.pendingUploads()).isEqualTo(2);
+    }
+
+    @Test
+    void flushWaitsForThePendingUploads() throws IOException {
+        var upload = new CompletableFuture<Void>();
+        pendingUploads.submit(path, () -> upload, 1, TimeUnit.SECONDS);
+
+        CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS).execute(() -> upload.complete(null));
+        pendingUploads.flush();
+
+        assertThat(upload).isDone();
+        assertThat(pendingUploads.pendingUploads()).isZero();
+    }
+
+    @Test
+    void flushGivesUpOnceItTimesOut() throws IOException {
+        var upload = new CompletableFuture<Void>();
+        pendingUploads.submit(path, () -> upload, 1, TimeUnit.SECONDS);
+
+        assertThatThrownBy(() -> pendingUploads.flush(50, TimeUnit.MILLISECONDS)).hasMessageContaining("timed out");
+        assertThat(pendingUploads.pendingUploads()).isEqualTo(1);
+
+        upload.complete(null);
+        assertThatCode(() -> pendingUploads.flush()).doesNotThrowAnyException();
+    }
+
+    @Test
+    void failuresAreReportedToTheListenersAndByTheNextFlush() throws IOException {
+        var other = (S3Path) fs.getPath("/other");
+        pendingUploads.submit(path, () -> CompletableFuture.failedFuture(S3Exception.builder().statusCode(500).build()),
+            1, TimeUnit.SECONDS);
+        pendingUploads.submit(other, () -> CompletableFuture.failedFuture(new FileAlreadyExistsException("other")),
+            1, TimeUnit.SECONDS);
+
+        assertThat(failedPaths).containsExactly(path, other);
+        assertThatThrownBy(() -> pendingUploads.flush()).isInstanceOf(IOException.class)
+            .hasMessage("2 upload(s) written behind failed")
+            .satisfies(e -> assertThat(e.getCause()).hasCauseInstanceOf(S3Exception.class))
+            .satisfies(e -> assertThat(e.getSuppressed()).singleElement()
+                .isInstanceOf(FileAlreadyExistsException.class));
+        assertThatCode(() -> pendingUploads.flush()).doesNotThrowAnyException();
+    }
+}
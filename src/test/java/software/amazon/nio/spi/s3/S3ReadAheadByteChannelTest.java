@@ -7,26 +7,55 @@ package software.amazon.nio.spi.s3;
 
 import org.mockito.Mock;
 import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.async.ResponsePublisher;
+import software.amazon.awssdk.core.internal.async.PublisherAsyncResponseTransformer;
 import software.amazon.awssdk.core.internal.async.ByteArrayAsyncResponseTransformer;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.ByteBuffer;
+import java.nio.channels.ReadPendingException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static software.amazon.nio.spi.s3.S3Matchers.anyConsumer;
 
+import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 
 @ExtendWith(MockitoExtension.class)
 @SuppressWarnings("unchecked")
@@ -57,7 +86,7 @@ public class S3ReadAheadByteChannelTest {
         final var bytes2 = ResponseBytes.fromByteArray(response, "ABCDEFGHIJKLMNOPQRSTUVWXYZ".getBytes(StandardCharsets.UTF_8));
         lenient().when(client.getObject(anyConsumer(), any(ByteArrayAsyncResponseTransformer.class))).thenReturn(CompletableFuture.supplyAsync(() -> bytes1), CompletableFuture.supplyAsync(() -> bytes2));
 
-        readAheadByteChannel = new S3ReadAheadByteChannel(path, 26, 2, client, delegator, null, null);
+        readAheadByteChannel = new S3ReadAheadByteChannel(path, client, delegator, options(26, 2));
     }
 
     @Test
@@ -81,6 +110,17 @@ public class S3ReadAheadByteChannelTest {
         assertEquals('z', dst.get(25));
     }
 
+    @Test
+    public void readIntoDirectBufferFromPosition3() throws IOException {
+        when(delegator.position()).thenReturn(3L);
+        var dst = ByteBuffer.allocateDirect(4);
+        assertEquals(4, readAheadByteChannel.read(dst));
+        dst.flip();
+        var bytes = new byte[4];
+        dst.get(bytes);
+        assertArrayEquals("defg".getBytes(StandardCharsets.UTF_8), bytes);
+    }
+
     @Test
     public void read6BytesFromPosition1() throws IOException {
         when(delegator.position()).thenReturn(1L);
@@ -137,6 +177,525 @@ public class S3ReadAheadByteChannelTest {
     }
 
 
+    @Test
+    public void positionalReadIsServedFromCachedFragment() throws IOException {
+        when(delegator.position()).thenReturn(0L);
+        readAheadByteChannel.read(ByteBuffer.allocate(2));
+
+        var dst = ByteBuffer.allocate(4);
+        assertEquals(4, readAheadByteChannel.read(dst, 3L));
+        assertArrayEquals("defg".getBytes(StandardCharsets.UTF_8), dst.array());
+        verify(client, times(1)).getObject(anyConsumer(), any(ByteArrayAsyncResponseTransformer.class));
+        verify(delegator, times(1)).position(anyLong());
+    }
+
+    @Test
+    public void positionalReadOfUncachedFragmentFetchesOnlyTheRequestedRange() throws IOException {
+        var dst = ByteBuffer.allocate(6);
+        assertEquals(6, readAheadByteChannel.read(dst, 30L));
+
+        ArgumentCaptor<Consumer<GetObjectRequest.Builder>> requestCaptor = ArgumentCaptor.forClass(Consumer.class);
+        verify(client).getObject(requestCaptor.capture(), any(ByteArrayAsyncResponseTransformer.class));
+        var request = GetObjectRequest.builder();
+        requestCaptor.getValue().accept(request);
+        assertEquals("bytes=30-35", request.build().range());
+
+        verify(delegator, never()).position(anyLong());
+        verify(delegator, never()).position();
+        assertEquals(0, readAheadByteChannel.numberOfCachedFragments());
+    }
+
+    @Test
+    public void positionalReadAtEndSignalsFinished() throws IOException {
+        serveRangesOf(content(52));
+
+        assertEquals(-1, readAheadByteChannel.read(ByteBuffer.allocate(6), 52L));
+        assertThrows(IllegalArgumentException.class, () -> readAheadByteChannel.read(ByteBuffer.allocate(6), -1L));
+        verify(delegator, never()).size();
+    }
+
+    @Test
+    public void firstReadTakesTheObjectMetadataFromTheResponse() throws IOException {
+        var content = content(100);
+        when(delegator.position()).thenReturn(0L, 30L, 100L);
+        var ranges = serveRangesOf(content);
+
+        var channel = new S3ReadAheadByteChannel(path, client, delegator, options(26, 2));
+        var dst = ByteBuffer.allocate(10);
+        assertEquals(10, channel.read(dst));
+        assertArrayEquals(Arrays.copyOfRange(content, 0, 10), dst.array());
+
+        verify(delegator).objectMetadata(eq(100L), eq("\"etag\""), any());
+        verify(delegator, never()).size();
+        assertEquals(List.of("bytes=0-25"), ranges);
+        assertEquals(4, channel.read(ByteBuffer.allocate(4)));
+        assertEquals(-1, channel.read(ByteBuffer.allocate(4)));
+    }
+
+    @Test
+    public void readOfAnEmptyObjectSignalsFinished() throws IOException {
+        when(delegator.position()).thenReturn(0L);
+        serveRangesOf(new byte[0]);
+
+        var channel = new S3ReadAheadByteChannel(path, client, delegator, options(26, 2));
+
+        assertEquals(-1, channel.read(ByteBuffer.allocate(10)));
+        verify(delegator, never()).size();
+        verify(delegator, never()).position(anyLong());
+        assertEquals(0, channel.numberOfCachedFragments());
+    }
+
+    @Test
+    public void sizeIsRequestedIfTheResponseDoesNotReportIt() throws IOException {
+        when(delegator.position()).thenReturn(0L);
+
+        readAheadByteChannel.read(ByteBuffer.allocate(6));
+
+        verify(delegator).size();
+    }
+
+    @Test
+    public void randomReadsFetchAboutTheRequestedBytesWithoutPrefetching() throws IOException {
+        when(delegator.position()).thenReturn(40L, 5L);
+        readAheadByteChannel.read(ByteBuffer.allocate(2));
+        readAheadByteChannel.read(ByteBuffer.allocate(2));
+
+        assertEquals(S3AccessPattern.RANDOM, readAheadByteChannel.accessPattern());
+        assertEquals(1, readAheadByteChannel.accessPatternSwitches());
+
+        ArgumentCaptor<Consumer<GetObjectRequest.Builder>> requestCaptor = ArgumentCaptor.forClass(Consumer.class);
+        verify(client, times(2)).getObject(requestCaptor.capture(), any(ByteArrayAsyncResponseTransformer.class));
+        var request = GetObjectRequest.builder();
+        requestCaptor.getValue().accept(request);
+        // the random read is not aligned to, nor cached as, a fragment
+        assertEquals("bytes=5-30", request.build().range());
+        assertEquals(1, readAheadByteChannel.numberOfCachedFragments());
+    }
+
+    @Test
+    public void sequentialReadsRampUpThePrefetch() throws IOException {
+        var content = content(26 * 20);
+        // start after the first fragment so that the reads do not stream the object from its first byte
+        var position = new AtomicLong(26);
+        when(delegator.position()).thenAnswer(invocation -> position.get());
+        doAnswer(invocation -> {
+            position.set(invocation.getArgument(0));
+            return delegator;
+        }).when(delegator).position(anyLong());
+
+        var ranges = serveRangesOf(content);
+
+        var channel = new S3ReadAheadByteChannel(path, client, delegator, options(26, 16));
+        var dst = ByteBuffer.allocate(content.length - 26);
+        while (channel.read(dst) > 0) {
+            // read the rest of the object
+        }
+
+        assertArrayEquals(Arrays.copyOfRange(content, 26, content.length), dst.array());
+        assertEquals(S3AccessPattern.SEQUENTIAL, channel.accessPattern());
+        assertFalse(channel.isStreaming());
+        // the first prefetch loads a single fragment, later prefetches load several fragments per request
+        assertEquals("bytes=52-77", ranges.get(1));
+        assertTrue(ranges.size() < 19, "expected fewer requests than fragments but was " + ranges);
+        assertTrue(ranges.contains("bytes=208-259"), "expected a request for two fragments but was " + ranges);
+    }
+
+    @Test
+    public void readsFromTheFirstByteStreamTheRestOfTheObject() throws IOException {
+        var content = content(26 * 20);
+        var position = new AtomicLong();
+        when(delegator.position()).thenAnswer(invocation -> position.get());
+        doAnswer(invocation -> {
+            position.set(invocation.getArgument(0));
+            return delegator;
+        }).when(delegator).position(anyLong());
+        var ranges = serveRangesOf(content);
+
+        var channel = new S3ReadAheadByteChannel(path, client, delegator, options(26, 4));
+        var dst = ByteBuffer.allocate(content.length);
+        while (dst.hasRemaining()) {
+            var chunk = dst.slice();
+            chunk.limit(Math.min(10, chunk.remaining()));
+            var bytesRead = channel.read(chunk);
+            assertTrue(bytesRead > 0);
+            dst.position(dst.position() + bytesRead);
+        }
+
+        assertArrayEquals(content, dst.array());
+        assertEquals(-1, channel.read(ByteBuffer.allocate(10)));
+        assertTrue(channel.isStreaming());
+        // the first fragment, then the rest of the object with a single GET
+        assertEquals(List.of("bytes=0-25", "bytes=26-519"), ranges);
+    }
+
+    @Test
+    public void seekEndsStreaming() throws IOException {
+        var content = content(26 * 20);
+        when(delegator.position()).thenReturn(0L, 10L, 20L, 300L);
+        var ranges = serveRangesOf(content);
+
+        var channel = new S3ReadAheadByteChannel(path, client, delegator, options(26, 4));
+        channel.read(ByteBuffer.allocate(10));
+        channel.read(ByteBuffer.allocate(10));
+        channel.read(ByteBuffer.allocate(10));
+        assertTrue(channel.isStreaming());
+
+        var dst = ByteBuffer.allocate(4);
+        channel.read(dst);
+
+        assertFalse(channel.isStreaming());
+        assertEquals((byte) 300, dst.get(0));
+        assertEquals("bytes=26-519", ranges.get(1));
+    }
+
+    @Test
+    public void pooledFragmentsBackOffWhenTheBudgetIsInUse() throws Exception {
+        var content = content(26 * 20);
+        // start after the first fragment so that the reads do not stream the object from its first byte
+        var position = new AtomicLong(26);
+        when(delegator.position()).thenAnswer(invocation -> position.get());
+        doAnswer(invocation -> {
+            position.set(invocation.getArgument(0));
+            return delegator;
+        }).when(delegator).position(anyLong());
+        var ranges = servePooledRangesOf(content);
+        var pool = new S3FragmentBufferPool(26, 26 * 3);
+
+        var channel = new S3ReadAheadByteChannel(path, client, delegator, options(26, 16).withBufferPool(pool));
+        var dst = ByteBuffer.allocate(content.length - 26);
+        while (channel.read(dst) > 0) {
+            assertTrue(pool.bytesInUse() <= 26 * 4, "more than the budget and one fragment in use");
+        }
+
+        assertArrayEquals(Arrays.copyOfRange(content, 26, content.length), dst.array());
+        assertTrue(pool.backOffCount() > 0);
+        assertFalse(ranges.isEmpty());
+
+        channel.close();
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pool.bytesInUse() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, pool.bytesInUse());
+    }
+
+    @Test
+    public void positionalAndVectoredReadsCopyPooledFragments() throws Exception {
+        var content = content(52);
+        when(delegator.position()).thenReturn(0L);
+        servePooledRangesOf(content);
+        var pool = new S3FragmentBufferPool(26, 26 * 4);
+        var channel = new S3ReadAheadByteChannel(path, client, delegator, options(26, 2).withBufferPool(pool));
+        channel.read(ByteBuffer.allocate(2));
+
+        var dst = ByteBuffer.allocate(4);
+        assertEquals(4, channel.read(dst, 3L));
+        var range = S3FileRange.of(3, 4);
+        channel.readVectored(List.of(range), 8, 1000).get(5, TimeUnit.SECONDS);
+
+        assertArrayEquals(Arrays.copyOfRange(content, 3, 7), dst.array());
+        assertEquals(ByteBuffer.wrap(content, 3, 4), range.data().get());
+        assertFalse(range.data().get().isDirect());
+        verify(client, times(1)).getObject(anyConsumer(), any(FragmentBuffersResponseTransformer.class));
+    }
+
+    @Test
+    public void completedPrefetchesLoadTheRestOfTheWindow() throws Exception {
+        var content = content(26 * 8);
+        // start after the first fragment so that the reads do not stream the object from its first byte
+        var position = new AtomicLong(26);
+        when(delegator.position()).thenAnswer(invocation -> position.get());
+        doAnswer(invocation -> {
+            position.set(invocation.getArgument(0));
+            return delegator;
+        }).when(delegator).position(anyLong());
+        var downloads = new CopyOnWriteArrayList<Runnable>();
+        var ranges = serveRangesOf(content, downloads);
+
+        // a single fragment in flight at a time
+        var channel = new S3ReadAheadByteChannel(path, client, delegator, options(26, 8).withPrefetchTargetBytes(26));
+        var bytesRead = channel.readAsync(ByteBuffer.allocate(26));
+        downloads.remove(0).run();
+        assertEquals(26, bytesRead.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("bytes=26-51", "bytes=52-77"), ranges);
+
+        bytesRead = channel.readAsync(ByteBuffer.allocate(26));
+        downloads.remove(0).run();
+        assertEquals(26, bytesRead.get(5, TimeUnit.SECONDS));
+        // the window now spans two fragments, of which only the first is loaded
+        assertEquals(List.of("bytes=26-51", "bytes=52-77", "bytes=78-103"), ranges);
+
+        downloads.remove(0).run();
+        // the completion of the prefetched fragment loads the next one without a read
+        verify(client, timeout(5000).times(4)).getObject(anyConsumer(), any(ByteArrayAsyncResponseTransformer.class));
+        assertEquals("bytes=104-129", ranges.get(3));
+        assertEquals(4, ranges.size());
+    }
+
+    @Test
+    public void readAsyncCompletesOnceTheFragmentIsDownloaded() throws Exception {
+        var content = content(52);
+        when(delegator.position()).thenReturn(0L);
+        var downloads = new CopyOnWriteArrayList<Runnable>();
+        serveRangesOf(content, downloads);
+
+        var dst = ByteBuffer.allocate(10);
+        var bytesRead = readAheadByteChannel.readAsync(dst);
+        assertFalse(bytesRead.isDone());
+        assertThrows(ReadPendingException.class, () -> readAheadByteChannel.readAsync(ByteBuffer.allocate(1)));
+        assertThrows(ReadPendingException.class, () -> readAheadByteChannel.read(ByteBuffer.allocate(1)));
+
+        downloads.remove(0).run();
+        assertEquals(10, bytesRead.get(5, TimeUnit.SECONDS));
+        assertArrayEquals(Arrays.copyOfRange(content, 0, 10), dst.array());
+        verify(delegator).position(10L);
+    }
+
+    @Test
+    public void readAsyncTransfersOffTheThreadThatCompletesTheDownload() throws Exception {
+        when(delegator.position()).thenReturn(0L);
+        var transferredBy = new CompletableFuture<Thread>();
+        doAnswer(invocation -> {
+            transferredBy.complete(Thread.currentThread());
+            return delegator;
+        }).when(delegator).position(anyLong());
+        var downloads = new CopyOnWriteArrayList<Runnable>();
+        serveRangesOf(content(52), downloads);
+
+        var bytesRead = readAheadByteChannel.readAsync(ByteBuffer.allocate(10));
+        downloads.remove(0).run();
+
+        assertEquals(10, bytesRead.get(5, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), transferredBy.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void readAsyncTransfersOnTheExecutorOfTheOptions() throws Exception {
+        when(delegator.position()).thenReturn(0L);
+        var transferredBy = new CompletableFuture<Thread>();
+        doAnswer(invocation -> {
+            transferredBy.complete(Thread.currentThread());
+            return delegator;
+        }).when(delegator).position(anyLong());
+        var downloads = new CopyOnWriteArrayList<Runnable>();
+        serveRangesOf(content(52), downloads);
+        var executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "read-executor"));
+        try {
+            var channel = new S3ReadAheadByteChannel(path, client, delegator, options(26, 2).withExecutor(executor));
+
+            var bytesRead = channel.readAsync(ByteBuffer.allocate(10));
+            downloads.remove(0).run();
+
+            assertEquals(10, bytesRead.get(5, TimeUnit.SECONDS));
+            assertEquals("read-executor", transferredBy.get(5, TimeUnit.SECONDS).getName());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void readOfAMissingObjectFailsWithNoSuchFileException() throws IOException {
+        when(delegator.position()).thenReturn(0L);
+        when(client.getObject(anyConsumer(), any(ByteArrayAsyncResponseTransformer.class)))
+            .thenReturn(CompletableFuture.failedFuture(NoSuchKeyException.builder().build()));
+
+        assertThrows(NoSuchFileException.class, () -> readAheadByteChannel.read(ByteBuffer.allocate(10)));
+    }
+
+    @Test
+    public void readAsyncOfAMissingObjectFailsWithNoSuchFileException() throws IOException {
+        when(delegator.position()).thenReturn(0L);
+        when(client.getObject(anyConsumer(), any(ByteArrayAsyncResponseTransformer.class)))
+            .thenReturn(CompletableFuture.failedFuture(S3Exception.builder().statusCode(404).build()));
+
+        var bytesRead = readAheadByteChannel.readAsync(ByteBuffer.allocate(10));
+
+        var e = assertThrows(ExecutionException.class, () -> bytesRead.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(NoSuchFileException.class, e.getCause());
+    }
+
+    @Test
+    public void readAsyncFailsIfTheDownloadFails() throws IOException {
+        when(delegator.position()).thenReturn(0L);
+        when(client.getObject(anyConsumer(), any(ByteArrayAsyncResponseTransformer.class)))
+            .thenReturn(CompletableFuture.failedFuture(S3Exception.builder().statusCode(500).build()));
+
+        var bytesRead = readAheadByteChannel.readAsync(ByteBuffer.allocate(10));
+
+        var e = assertThrows(ExecutionException.class, () -> bytesRead.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, e.getCause());
+    }
+
+    @Test
+    public void fragmentsAreSharedThroughTheFileSystemCache() throws IOException {
+        when(delegator.eTag()).thenReturn("\"etag\"");
+        when(delegator.position()).thenReturn(0L);
+        var sharedCache = new S3FragmentCache(1024L, 1024L);
+
+        var first = new S3ReadAheadByteChannel(path, client, delegator, options(26, 2).withSharedCache(sharedCache));
+        first.read(ByteBuffer.allocate(6));
+        first.close();
+
+        var second = new S3ReadAheadByteChannel(path, client, delegator, options(26, 2).withSharedCache(sharedCache));
+        var dst = ByteBuffer.allocate(6);
+        second.read(dst);
+
+        assertArrayEquals("abcdef".getBytes(StandardCharsets.UTF_8), dst.array());
+        verify(client, times(1)).getObject(anyConsumer(), any(ByteArrayAsyncResponseTransformer.class));
+        assertEquals(1, sharedCache.stats().hitCount());
+        assertEquals(1, sharedCache.stats().missCount());
+        assertEquals(26, sharedCache.cachedBytes());
+    }
+
+    @Test
+    public void fragmentsAreStoredOnAndServedFromDisk() throws IOException {
+        when(delegator.eTag()).thenReturn("\"etag\"");
+        when(delegator.position()).thenReturn(0L);
+        var diskCache = mock(S3DiskFragmentCache.class);
+
+        var first = new S3ReadAheadByteChannel(path, client, delegator, options(26, 2).withDiskCache(diskCache));
+        first.read(ByteBuffer.allocate(6));
+        verify(diskCache, timeout(5000)).put(eq(path), eq("\"etag\""), eq(26), eq(0), any(ByteBuffer.class));
+
+        when(diskCache.get(path, "\"etag\"", 26, 0))
+            .thenReturn(ByteBuffer.wrap("0123456789ABCDEFGHIJKLMNOP".getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer());
+        var second = new S3ReadAheadByteChannel(path, client, delegator, options(26, 2).withDiskCache(diskCache));
+        var dst = ByteBuffer.allocate(6);
+        second.read(dst);
+
+        assertArrayEquals("012345".getBytes(StandardCharsets.UTF_8), dst.array());
+        verify(client, times(1)).getObject(anyConsumer(), any(ByteArrayAsyncResponseTransformer.class));
+    }
+
+    @Test
+    public void footerIsReadFromThePinnedTail() throws IOException {
+        var content = content(520);
+        var position = new AtomicLong(512);
+        when(delegator.knownSize()).thenReturn(-1L);
+        when(delegator.position()).thenAnswer(invocation -> position.get());
+        var ranges = serveRangesOf(content);
+        var channel = new S3ReadAheadByteChannel(path, client, delegator, options(26, 4)
+            .withPrefetchTargetBytes(0L).withTailBytes(16));
+
+        var footer = ByteBuffer.allocate(8);
+        assertEquals(8, channel.read(footer));
+        assertArrayEquals(Arrays.copyOfRange(content, 512, 520), footer.array());
+        // the response to the suffix range tells the size, so the footer does not download a fragment
+        assertEquals(List.of("bytes=-16"), ranges);
+
+        position.set(0);
+        channel.read(ByteBuffer.allocate(26));
+        var metadata = ByteBuffer.allocate(10);
+        assertEquals(10, channel.read(metadata, 506));
+        assertArrayEquals(Arrays.copyOfRange(content, 506, 516), metadata.array());
+        assertEquals(List.of("bytes=-16", "bytes=0-25"), ranges);
+    }
+
+    @Test
+    public void tailIsFetchedTogetherWithTheFirstRead() throws IOException {
+        var content = content(520);
+        var position = new AtomicLong(0);
+        when(delegator.knownSize()).thenReturn(520L);
+        when(delegator.position()).thenAnswer(invocation -> position.get());
+        doAnswer(invocation -> {
+            position.set(invocation.getArgument(0));
+            return delegator;
+        }).when(delegator).position(anyLong());
+        var ranges = serveRangesOf(content);
+        var channel = new S3ReadAheadByteChannel(path, client, delegator, options(26, 4)
+            .withPrefetchTargetBytes(0L).withTailBytes(16));
+
+        channel.read(ByteBuffer.allocate(10));
+        assertEquals(List.of("bytes=-16", "bytes=0-25"), ranges);
+
+        position.set(510);
+        var dst = ByteBuffer.allocate(20);
+        assertEquals(10, channel.read(dst));
+        assertEquals((byte) 510, dst.get(0));
+        assertEquals(520L, position.get());
+        assertEquals(2, ranges.size());
+    }
+
+    @Test
+    public void pinnedTailIsSharedThroughTheFileSystemCache() throws IOException {
+        var content = content(520);
+        when(delegator.eTag()).thenReturn("\"etag\"");
+        when(delegator.size()).thenReturn(520L);
+        when(delegator.position()).thenReturn(512L);
+        var ranges = serveRangesOf(content);
+        var sharedCache = new S3FragmentCache(1024L, 1024L);
+
+        var first = new S3ReadAheadByteChannel(path, client, delegator, options(26, 4)
+            .withSharedCache(sharedCache).withPrefetchTargetBytes(0L).withTailBytes(16));
+        first.read(ByteBuffer.allocate(8));
+        first.close();
+        var second = new S3ReadAheadByteChannel(path, client, delegator, options(26, 4)
+            .withSharedCache(sharedCache).withPrefetchTargetBytes(0L).withTailBytes(16));
+        var dst = ByteBuffer.allocate(8);
+        second.read(dst);
+
+        assertArrayEquals(Arrays.copyOfRange(content, 512, 520), dst.array());
+        assertEquals(List.of("bytes=-16"), ranges);
+        // the tail is not one of the fragments
+        assertEquals(0, sharedCache.cachedBytes());
+    }
+
+    @Test
+    public void vectoredReadMergesNearbyRanges() throws Exception {
+        var content = content(520);
+        var requestedRanges = serveRangesOf(content);
+        var channel = new S3ReadAheadByteChannel(path, client, delegator, options(26, 2));
+
+        var ranges = List.of(S3FileRange.of(100, 10), S3FileRange.of(0, 10), S3FileRange.of(115, 5),
+            S3FileRange.of(400, 20));
+        channel.readVectored(ranges, 8, 1000).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("bytes=0-9", "bytes=100-119", "bytes=400-419"), requestedRanges);
+        for (var range : ranges) {
+            var data = range.data().get();
+            assertTrue(data.isReadOnly());
+            assertEquals(range.length(), data.remaining());
+            assertEquals((byte) range.offset(), data.get(0));
+        }
+        verify(delegator, never()).position(anyLong());
+    }
+
+    @Test
+    public void vectoredReadDoesNotMergeBeyondTheMaximumSize() throws Exception {
+        var content = content(520);
+        var requestedRanges = serveRangesOf(content);
+        var channel = new S3ReadAheadByteChannel(path, client, delegator, options(26, 2));
+
+        channel.readVectored(List.of(S3FileRange.of(0, 10), S3FileRange.of(12, 10)), 8, 15).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("bytes=0-9", "bytes=12-21"), requestedRanges);
+    }
+
+    @Test
+    public void vectoredReadOfARangeBeyondTheEndFails() {
+        serveRangesOf(content(52));
+        var range = S3FileRange.of(50, 10);
+
+        readAheadByteChannel.readVectored(List.of(range), 8, 1000);
+
+        var e = assertThrows(ExecutionException.class, () -> range.data().get());
+        assertInstanceOf(EOFException.class, e.getCause());
+    }
+
+    @Test
+    public void vectoredReadServesRangesFromCachedFragments() throws Exception {
+        when(delegator.position()).thenReturn(0L);
+        readAheadByteChannel.read(ByteBuffer.allocate(2));
+
+        var range = S3FileRange.of(3, 4);
+        readAheadByteChannel.readVectored(List.of(range), 8, 1000).get(5, TimeUnit.SECONDS);
+
+        var bytes = new byte[4];
+        range.data().get().get(bytes);
+        assertArrayEquals("defg".getBytes(StandardCharsets.UTF_8), bytes);
+        verify(client, times(1)).getObject(anyConsumer(), any(ByteArrayAsyncResponseTransformer.class));
+    }
+
     @Test
     public void isOpen() {
         assertTrue(readAheadByteChannel.isOpen());
@@ -157,4 +716,119 @@ public class S3ReadAheadByteChannelTest {
         assertEquals(Integer.valueOf(0), readAheadByteChannel.fragmentIndexForByteNumber(0L));
         assertEquals(Integer.valueOf(1), readAheadByteChannel.fragmentIndexForByteNumber(26L));
     }
-}
\ No newline at end of file
+
+    private static byte[] content(int size) {
+        var content = new byte[size];
+        for (var i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        return content;
+    }
+
+    /**
+     * Makes the client serve ranged GETs from {@code content} like S3 does: the end of a range is capped at the end of
+     * the object, the response reports the size of the object in its {@code Content-Range} header and a range that
+     * starts beyond the end of the object fails with status 416.
+     *
+     * @return the ranges requested from the client
+     */
+    private List<String> serveRangesOf(byte[] content) {
+        List<String> ranges = new CopyOnWriteArrayList<>();
+        when(client.getObject(anyConsumer(), any(ByteArrayAsyncResponseTransformer.class))).thenAnswer(invocation -> {
+            var bytes = requestedBytes(content, invocation.getArgument(0), ranges);
+            if (bytes == null) {
+                return CompletableFuture.failedFuture(S3Exception.builder().statusCode(416).build());
+            }
+            return CompletableFuture.completedFuture(ResponseBytes.fromByteArray(response(content, ranges), bytes));
+        });
+        lenient().when(client.getObject(anyConsumer(), any(PublisherAsyncResponseTransformer.class))).thenAnswer(invocation -> {
+            var bytes = requestedBytes(content, invocation.getArgument(0), ranges);
+            return CompletableFuture.completedFuture(new ResponsePublisher<>(response(content, ranges),
+                AsyncRequestBody.fromBytes(bytes)));
+        });
+        return ranges;
+    }
+
+    /**
+     * Makes the client serve ranged GETs from {@code content} like {@link #serveRangesOf(byte[])}, but the responses
+     * only complete once the test runs the download added to {@code downloads} for each request.
+     *
+     * @return the ranges requested from the client
+     */
+    private List<String> serveRangesOf(byte[] content, List<Runnable> downloads) {
+        // requested by the threads that complete the reads, too
+        List<String> ranges = new CopyOnWriteArrayList<>();
+        when(client.getObject(anyConsumer(), any(ByteArrayAsyncResponseTransformer.class))).thenAnswer(invocation -> {
+            var bytes = requestedBytes(content, invocation.getArgument(0), ranges);
+            var response = response(content, ranges);
+            var future = new CompletableFuture<ResponseBytes<GetObjectResponse>>();
+            downloads.add(() -> future.complete(ResponseBytes.fromByteArray(response, bytes)));
+            return future;
+        });
+        return ranges;
+    }
+
+    /**
+     * Makes the client serve ranged GETs into pooled buffers from {@code content}, see {@link #serveRangesOf(byte[])}
+     *
+     * @return the ranges requested from the client
+     */
+    private List<String> servePooledRangesOf(byte[] content) {
+        List<String> ranges = new CopyOnWriteArrayList<>();
+        when(client.getObject(anyConsumer(), any(FragmentBuffersResponseTransformer.class))).thenAnswer(invocation -> {
+            AsyncResponseTransformer<GetObjectResponse, GetObjectResponse> transformer = invocation.getArgument(1);
+            var future = transformer.prepare();
+            var bytes = requestedBytes(content, invocation.getArgument(0), ranges);
+            if (bytes == null) {
+                transformer.exceptionOccurred(S3Exception.builder().statusCode(416).build());
+            } else {
+                transformer.onResponse(response(content, ranges));
+                transformer.onStream(AsyncRequestBody.fromBytes(bytes));
+            }
+            return future;
+        });
+        return ranges;
+    }
+
+    private static GetObjectResponse response(byte[] content, List<String> ranges) {
+        var bounds = bounds(ranges.get(ranges.size() - 1), content);
+        return GetObjectResponse.builder()
+            .contentRange("bytes " + bounds[0] + "-" + bounds[1] + "/" + content.length)
+            .eTag("\"etag\"")
+            .lastModified(Instant.EPOCH)
+            .build();
+    }
+
+    /**
+     * @return the bytes of the requested range or {@code null} if it starts beyond the end of {@code content}
+     */
+    private static byte[] requestedBytes(byte[] content, Consumer<GetObjectRequest.Builder> requestConsumer,
+                                         List<String> ranges) {
+        var request = GetObjectRequest.builder();
+        requestConsumer.accept(request);
+        var range = request.build().range();
+        ranges.add(range);
+        var bounds = bounds(range, content);
+        if (bounds[0] >= content.length) {
+            return null;
+        }
+        return Arrays.copyOfRange(content, bounds[0], bounds[1] + 1);
+    }
+
+    /**
+     * @return the first and the last byte of a range, which may be a suffix range such as {@code bytes=-16}, with the
+     * end capped at the end of {@code content}
+     */
+    private static int[] bounds(String range, byte[] content) {
+        var bounds = range.substring("bytes=".length()).split("-");
+        if (bounds[0].isEmpty()) {
+            return new int[] {Math.max(0, content.length - Integer.parseInt(bounds[1])), content.length - 1};
+        }
+        return new int[] {Integer.parseInt(bounds[0]), Math.min(Integer.parseInt(bounds[1]), content.length - 1)};
+    }
+
+    private static S3ReadAheadByteChannel.Options options(int maxFragmentSize, int maxNumberFragments) {
+        return new S3ReadAheadByteChannel.Options().withMaxFragmentSize(maxFragmentSize)
+            .withMaxNumberFragments(maxNumberFragments);
+    }
+}
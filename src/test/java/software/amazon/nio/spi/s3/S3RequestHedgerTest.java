@@ -0,0 +1,159 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+class S3RequestHedgerTest {
+
+    private final List<AsyncResponseTransformer<GetObjectResponse, ResponseBytes<GetObjectResponse>>> transformers =
+        new CopyOnWriteArrayList<>();
+    private final List<CompletableFuture<ResponseBytes<GetObjectResponse>>> attempts = new CopyOnWriteArrayList<>();
+
+    @Test
+    void doesNotHedgeBeforeEnoughRequestsWereMeasured() {
+        var hedger = new S3RequestHedger(50, 0, 100);
+
+        warmUp(hedger, S3RequestHedger.MIN_SAMPLES - 1);
+
+        assertThat(hedger.delayNanos()).isEqualTo(-1L);
+        warmUp(hedger, 1);
+        assertThat(hedger.delayNanos()).isGreaterThanOrEqualTo(0L);
+    }
+
+    @Test
+    void delayIsNotShorterThanTheMinimumDelay() {
+        var hedger = new S3RequestHedger(50, 1000, 100);
+
+        warmUp(hedger, S3RequestHedger.MIN_SAMPLES);
+
+        assertThat(hedger.delayNanos()).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void slowRequestIsHedgedAndTheFirstResponseWins() throws Exception {
+        var hedger = new S3RequestHedger(50, 0, 100);
+        warmUp(hedger, S3RequestHedger.MIN_SAMPLES);
+
+        var result = send(hedger);
+        awaitAttempts(S3RequestHedger.MIN_SAMPLES + 2);
+        var slow = attempts.get(S3RequestHedger.MIN_SAMPLES);
+        respond(S3RequestHedger.MIN_SAMPLES + 1, "hedge");
+
+        assertThat(result.get(5, TimeUnit.SECONDS).asUtf8String()).isEqualTo("hedge");
+        assertThat(slow).isCancelled();
+        assertThat(hedger.hedgesIssued()).isEqualTo(1L);
+        assertThat(hedger.hedgesWon()).isEqualTo(1L);
+    }
+
+    @Test
+    void hedgeIsCancelledIfTheRequestWinsWhileTheHedgeIsSent() throws Exception {
+        var hedger = new S3RequestHedger(50, 0, 100);
+        warmUp(hedger, S3RequestHedger.MIN_SAMPLES);
+
+        var result = hedger.send(transformer -> {
+            var future = transformer.prepare();
+            transformers.add(transformer);
+            attempts.add(future);
+            if (attempts.size() == S3RequestHedger.MIN_SAMPLES + 2) {
+                // the hedged request completes before sending the hedge returns
+                respond(S3RequestHedger.MIN_SAMPLES, "primary");
+                attempts.get(S3RequestHedger.MIN_SAMPLES).join();
+            }
+            return future;
+        }, AsyncResponseTransformer::toBytes);
+        awaitAttempts(S3RequestHedger.MIN_SAMPLES + 2);
+
+        assertThat(result.get(5, TimeUnit.SECONDS).asUtf8String()).isEqualTo("primary");
+        var hedge = attempts.get(S3RequestHedger.MIN_SAMPLES + 1);
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!hedge.isDone() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(hedge).isCancelled();
+        assertThat(hedger.hedgesWon()).isZero();
+    }
+
+    @Test
+    void hedgesAreCapped() throws Exception {
+        // 5% of 21 requests allow a single hedge
+        var hedger = new S3RequestHedger(50, 0, 5);
+        warmUp(hedger, S3RequestHedger.MIN_SAMPLES);
+
+        var first = send(hedger);
+        awaitAttempts(S3RequestHedger.MIN_SAMPLES + 2);
+        var second = send(hedger);
+        Thread.sleep(100);
+
+        assertThat(attempts).hasSize(S3RequestHedger.MIN_SAMPLES + 3);
+        assertThat(hedger.hedgesIssued()).isEqualTo(1L);
+        respond(S3RequestHedger.MIN_SAMPLES, "first");
+        respond(S3RequestHedger.MIN_SAMPLES + 2, "second");
+        assertThat(first.get(5, TimeUnit.SECONDS).asUtf8String()).isEqualTo("first");
+        assertThat(second.get(5, TimeUnit.SECONDS).asUtf8String()).isEqualTo("second");
+        assertThat(hedger.hedgesWon()).isZero();
+    }
+
+    @Test
+    void failsOnlyIfAllRequestsFail() throws Exception {
+        var hedger = new S3RequestHedger(50, 0, 100);
+        warmUp(hedger, S3RequestHedger.MIN_SAMPLES);
+
+        var result = send(hedger);
+        awaitAttempts(S3RequestHedger.MIN_SAMPLES + 2);
+        transformers.get(S3RequestHedger.MIN_SAMPLES).exceptionOccurred(new IOException("first"));
+        assertThat(result).isNotDone();
+        transformers.get(S3RequestHedger.MIN_SAMPLES + 1).exceptionOccurred(new IOException("second"));
+
+        assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasRootCauseMessage("second");
+    }
+
+    private void warmUp(S3RequestHedger hedger, int requests) {
+        for (var i = 0; i < requests; i++) {
+            var result = send(hedger);
+            respond(attempts.size() - 1, "fast");
+            result.join();
+        }
+    }
+
+    private CompletableFuture<ResponseBytes<GetObjectResponse>> send(S3RequestHedger hedger) {
+        return hedger.send(transformer -> {
+            var future = transformer.prepare();
+            transformers.add(transformer);
+            attempts.add(future);
+            return future;
+        }, AsyncResponseTransformer::toBytes);
+    }
+
+    private void respond(int attempt, String body) {
+        var transformer = transformers.get(attempt);
+        transformer.onResponse(GetObjectResponse.builder().build());
+        transformer.onStream(AsyncRequestBody.fromString(body));
+    }
+
+    private void awaitAttempts(int count) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (attempts.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(attempts).hasSize(count);
+    }
+}
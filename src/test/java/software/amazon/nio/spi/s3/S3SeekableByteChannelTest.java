@@ -18,9 +18,16 @@ import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.OpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.AfterEach;
 
 import static java.nio.file.StandardOpenOption.CREATE;
@@ -32,7 +39,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static software.amazon.nio.spi.s3.S3Matchers.anyConsumer;
 
@@ -82,6 +92,17 @@ public class S3SeekableByteChannelTest {
         }
     }
 
+    @Test
+    public void readDelegateUsesTheConfigurationOfTheFileSystem() throws IOException {
+        fs.configuration().withTailBytes(16).withMaxFragmentSize(1024).withPrefetchTargetBytes(2048L);
+        try(var channel = seekableByteChannelForRead()) {
+            var options = ((S3ReadAheadByteChannel) channel.getReadDelegate()).options();
+            assertEquals(16, options.tailBytes());
+            assertEquals(1024, options.maxFragmentSize());
+            assertEquals(2048L, options.prefetchTargetBytes());
+        }
+    }
+
     @Test
     public void read() throws IOException {
         try(var channel = seekableByteChannelForRead()) {
@@ -92,9 +113,106 @@ public class S3SeekableByteChannelTest {
         }
     }
 
+    @Test
+    public void positionalReadDoesNotMoveThePosition() throws IOException {
+        try(var channel = seekableByteChannelForRead()) {
+            var dst = ByteBuffer.allocate(6);
+            assertEquals(6, channel.read(dst, 0L));
+            assertArrayEquals(bytes, dst.array());
+            assertEquals(0L, channel.position());
+        }
+    }
+
+    @Test
+    public void positionalReadsAreSafeAlongsideRelativeReads() throws Exception {
+        var content = new byte[4096];
+        for (var i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        doAnswer(invocation -> serveRange(content, invocation.getArgument(0), invocation.getArgument(1)))
+            .when(mockClient).getObject(anyConsumer(), any(AsyncResponseTransformer.class));
+        fs.configuration().withMaxFragmentSize(64).withTailBytes(0);
+
+        var readers = Executors.newFixedThreadPool(4);
+        try (var channel = seekableByteChannelForRead()) {
+            channel.position(100L);
+            var positionalReads = new ArrayList<Future<?>>();
+            for (var reader = 0; reader < 4; reader++) {
+                var seed = reader;
+                positionalReads.add(readers.submit(() -> {
+                    for (var i = 0; i < 50; i++) {
+                        var position = (seed * 997 + i * 61) % (content.length - 16);
+                        var dst = ByteBuffer.allocate(16);
+                        while (dst.hasRemaining() && channel.read(dst, position + dst.position()) >= 0) {
+                            // read the rest of the range
+                        }
+                        assertArrayEquals(Arrays.copyOfRange(content, position, position + 16), dst.array());
+                    }
+                    return null;
+                }));
+            }
+
+            var dst = ByteBuffer.allocate(content.length - 100);
+            while (dst.hasRemaining() && channel.read(dst) >= 0) {
+                // read the rest of the object
+            }
+            for (var positionalRead : positionalReads) {
+                positionalRead.get(30, TimeUnit.SECONDS);
+            }
+
+            assertArrayEquals(Arrays.copyOfRange(content, 100, content.length), dst.array());
+            assertEquals(content.length, channel.position());
+        } finally {
+            readers.shutdown();
+        }
+    }
+
+    @Test
+    public void positionalReadRejectsNegativePosition() throws IOException {
+        try(var channel = seekableByteChannelForRead()) {
+            assertThrows(IllegalArgumentException.class, () -> channel.read(ByteBuffer.allocate(1), -1L));
+        }
+    }
+
+    @Test
+    public void vectoredReadReadsEveryRange() throws Exception {
+        try(var channel = seekableByteChannelForRead()) {
+            var first = S3FileRange.of(0, 2);
+            var second = S3FileRange.of(4, 2);
+            channel.readVectored(List.of(second, first)).get(5, TimeUnit.SECONDS);
+
+            assertEquals(ByteBuffer.wrap(bytes, 0, 2), first.data().get());
+            assertEquals(ByteBuffer.wrap(bytes, 4, 2), second.data().get());
+            assertEquals(0L, channel.position());
+        }
+    }
+
+    @Test
+    public void accessPatternIsReportedByTheChannelAndItsFileSystem() throws IOException {
+        var content = new byte[4096];
+        doAnswer(invocation -> serveRange(content, invocation.getArgument(0), invocation.getArgument(1)))
+            .when(mockClient).getObject(anyConsumer(), any(AsyncResponseTransformer.class));
+        fs.configuration().withMaxFragmentSize(64).withTailBytes(0);
+
+        try(var channel = seekableByteChannelForRead()) {
+            assertEquals(S3AccessPattern.SEQUENTIAL, channel.accessPattern());
+            for (var position : new long[] {0L, 2000L, 500L, 3000L}) {
+                channel.position(position);
+                channel.read(ByteBuffer.allocate(16));
+            }
+
+            assertEquals(S3AccessPattern.RANDOM, channel.accessPattern());
+            assertEquals(1L, channel.accessPatternSwitches());
+        }
+        assertEquals(1L, fs.accessPatternSwitches());
+        assertEquals(1L, fs.accessPatternSwitches(S3AccessPattern.RANDOM));
+        assertEquals(0L, fs.accessPatternSwitches(S3AccessPattern.SEQUENTIAL));
+    }
+
     @Test
     public void write() throws IOException {
         when(mockClient.headObject(any(HeadObjectRequest.class))).thenThrow(NoSuchKeyException.class);
+        when(mockClient.putObject(anyConsumer(), any(AsyncRequestBody.class))).thenCallRealMethod();
         when(mockClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class))).thenReturn(CompletableFuture.supplyAsync(() ->
                 PutObjectResponse.builder().build()));
         try(var channel = new S3SeekableByteChannel(path, mockClient, Set.<OpenOption>of(CREATE, WRITE))){
@@ -124,6 +242,20 @@ public class S3SeekableByteChannelTest {
         }
     }
 
+    @Test
+    public void sizeIsTakenFromTheFirstRead() throws IOException {
+        when(mockClient.getObject(any(GetObjectRequest.class), any(AsyncResponseTransformer.class))).thenReturn(
+                CompletableFuture.completedFuture(ResponseBytes.fromByteArray(
+                        GetObjectResponse.builder().contentRange("bytes 0-5/6").eTag("\"etag\"").build(),
+                        bytes)));
+        try(var channel = seekableByteChannelForRead()) {
+            channel.read(ByteBuffer.allocate(6));
+            assertEquals(6L, channel.size());
+            assertEquals("\"etag\"", channel.eTag());
+        }
+        verify(mockClient, never()).headObject(any(HeadObjectRequest.class));
+    }
+
     @Test
     public void truncate() throws IOException {
         try(var channel = seekableByteChannelForRead()) {
@@ -145,8 +277,41 @@ public class S3SeekableByteChannelTest {
         assertFalse(channel.isOpen());
     }
 
+    @Test
+    public void readChannelsShareTheReadClientOfTheFileSystem() throws IOException {
+        try(var first = seekableByteChannelForRead(); var second = seekableByteChannelForRead()) {
+            assertTrue(first.isOpen() && second.isOpen());
+            assertEquals(2, fs.readClientReferences());
+        }
+        assertEquals(0, fs.readClientReferences());
+        verify(mockClient, never()).close();
+    }
+
     private S3SeekableByteChannel seekableByteChannelForRead() throws IOException {
         return new S3SeekableByteChannel(path, mockClient, Collections.singleton(READ));
     }
 
+    /**
+     * Serves the range of a GET from {@code content} like S3 does, see {@code S3FileChannelTest#serve}
+     */
+    private CompletableFuture<?> serveRange(
+        byte[] content,
+        Consumer<GetObjectRequest.Builder> requestConsumer,
+        AsyncResponseTransformer<GetObjectResponse, ?> transformer
+    ) {
+        var builder = GetObjectRequest.builder();
+        requestConsumer.accept(builder);
+        var bounds = builder.build().range().substring("bytes=".length()).split("-", -1);
+        var from = Integer.parseInt(bounds[0]);
+        var to = bounds[1].isEmpty() ? content.length - 1 : Math.min(Integer.parseInt(bounds[1]), content.length - 1);
+
+        var future = transformer.prepare();
+        transformer.onResponse(GetObjectResponse.builder()
+            .contentLength((long) to - from + 1)
+            .contentRange("bytes " + from + "-" + to + "/" + content.length)
+            .build());
+        transformer.onStream(AsyncRequestBody.fromBytes(Arrays.copyOfRange(content, from, to + 1)));
+        return future;
+    }
+
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package software.amazon.nio.spi.s3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.NoSuchFileException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+class S3StreamingReaderTest {
+
+    private final S3Path path =
+        S3Path.getPath(new S3FileSystemProvider().getFileSystem(URI.create("s3://my-bucket"), true), "/object");
+
+    /**
+     * A subscription that only counts requests, buffers are published by the tests
+     */
+    private static class CountingSubscription implements Subscription {
+        long requested;
+        boolean cancelled;
+
+        @Override
+        public void request(long n) {
+            requested += n;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    @Test
+    void stopsRequestingWhenTheBufferedBytesReachTheLimit() throws Exception {
+        var reader = new S3StreamingReader(path, 100L, 20L);
+        var subscription = new CountingSubscription();
+        reader.onSubscribe(subscription);
+        assertThat(subscription.requested).isEqualTo(1);
+
+        reader.onNext(ByteBuffer.wrap(new byte[10]));
+        reader.onNext(ByteBuffer.wrap(new byte[10]));
+        assertThat(subscription.requested).isEqualTo(2);
+        assertThat(reader.bufferedBytes()).isEqualTo(20);
+
+        assertThat(reader.read(ByteBuffer.allocate(5), 1, TimeUnit.SECONDS)).isEqualTo(5);
+        assertThat(subscription.requested).isEqualTo(3);
+        assertThat(reader.position()).isEqualTo(105L);
+    }
+
+    @Test
+    void readsAcrossBuffersAndSignalsTheEnd() throws Exception {
+        var reader = new S3StreamingReader(path, 0L, 1024L);
+        reader.onSubscribe(new CountingSubscription());
+        reader.onNext(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        reader.onNext(ByteBuffer.wrap(new byte[]{4, 5}));
+        reader.onComplete();
+
+        var dst = ByteBuffer.allocate(4);
+        assertThat(reader.read(dst, 1, TimeUnit.SECONDS)).isEqualTo(4);
+        assertThat(dst.array()).containsExactly(1, 2, 3, 4);
+        assertThat(reader.read(ByteBuffer.allocate(4), 1, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(reader.read(ByteBuffer.allocate(4), 1, TimeUnit.SECONDS)).isEqualTo(-1);
+    }
+
+    @Test
+    void signalsWhenAReadWouldNotWait() {
+        var reader = new S3StreamingReader(path, 0L, 1024L);
+        reader.onSubscribe(new CountingSubscription());
+
+        var readable = reader.whenReadable();
+        assertThat(readable).isNotDone();
+        reader.onNext(ByteBuffer.wrap(new byte[]{1}));
+        assertThat(readable).isCompleted();
+        assertThat(reader.whenReadable()).isCompleted();
+    }
+
+    @Test
+    void failsWhenTheDownloadFails() {
+        var reader = new S3StreamingReader(path, 0L, 1024L);
+        reader.onError(new IllegalStateException("boom"));
+
+        assertThatThrownBy(() -> reader.read(ByteBuffer.allocate(4), 1, TimeUnit.SECONDS))
+            .isInstanceOf(IOException.class)
+            .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void failsWithNoSuchFileExceptionWhenTheObjectDoesNotExist() {
+        var reader = new S3StreamingReader(path, 0L, 1024L);
+        reader.onError(new CompletionException(S3Exception.builder().statusCode(404).build()));
+
+        assertThatThrownBy(() -> reader.read(ByteBuffer.allocate(4), 1, TimeUnit.SECONDS))
+            .isInstanceOf(NoSuchFileException.class);
+    }
+
+    @Test
+    void timesOutWithoutData() {
+        var reader = new S3StreamingReader(path, 0L, 1024L);
+
+        assertThatThrownBy(() -> reader.read(ByteBuffer.allocate(4), 10, TimeUnit.MILLISECONDS))
+            .isInstanceOf(TimeoutException.class);
+    }
+
+    @Test
+    void cancelStopsTheDownload() {
+        var reader = new S3StreamingReader(path, 0L, 1024L);
+        var subscription = new CountingSubscription();
+        reader.onSubscribe(subscription);
+
+        reader.cancel();
+
+        assertThat(subscription.cancelled).isTrue();
+        assertThatThrownBy(() -> reader.read(ByteBuffer.allocate(4), 1, TimeUnit.SECONDS))
+            .isInstanceOf(IOException.class);
+    }
+}
@@ -7,6 +7,7 @@ package software.amazon.nio.spi.s3;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import software.amazon.awssdk.core.async.AsyncRequestBody;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
@@ -20,10 +21,12 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @DisplayName("S3TransferUtil")
@@ -41,7 +44,11 @@ class S3TransferUtilTest {
 
         var util = new S3TransferUtil(client, 1L, TimeUnit.MINUTES);
         var tmpFile = Files.createTempFile(null, null);
-        assertThatCode(() -> util.uploadLocalFile(file, tmpFile)).doesNotThrowAnyException();
+        assertThatCode(() -> util.uploadLocalFile(file, tmpFile, "text/csv")).doesNotThrowAnyException();
+
+        var request = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(client).putObject(request.capture(), any(AsyncRequestBody.class));
+        assertThat(request.getValue().contentType()).isEqualTo("text/csv");
     }
 
     @Test
@@ -65,7 +72,7 @@ class S3TransferUtilTest {
 
         var util = new S3TransferUtil(client, 1L, TimeUnit.MILLISECONDS);
         var tmpFile = Files.createTempFile(null, null);
-        assertThatThrownBy(() -> util.uploadLocalFile(file, tmpFile))
+        assertThatThrownBy(() -> util.uploadLocalFile(file, tmpFile, null))
                 .isInstanceOf(IOException.class)
                 .hasCauseInstanceOf(TimeoutException.class);
     }
@@ -14,39 +14,80 @@ import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CopyPartResult;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartCopyRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartCopyResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
 
+import static java.nio.file.StandardOpenOption.APPEND;
 import static java.nio.file.StandardOpenOption.CREATE;
 import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
 import static java.util.Collections.emptySet;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static software.amazon.nio.spi.s3.S3Matchers.anyConsumer;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SuppressWarnings("unchecked")
 class S3WritableByteChannelTest {
 
     @Test
-    @DisplayName("when file exists and constructor is invoked with option `CREATE_NEW` should throw FileAlreadyExistsException")
-    void whenFileExistsAndCreateNewShouldThrowFileAlreadyExistsException() throws InterruptedException, TimeoutException {
+    @DisplayName("when file exists and the channel is opened with option `CREATE_NEW` close() should throw FileAlreadyExistsException")
+    void whenFileExistsAndCreateNewShouldThrowFileAlreadyExistsException() throws Exception {
         S3FileSystemProvider provider = mock();
-        when(provider.exists(any(), any())).thenReturn(true);
-
         S3FileSystem fs = mock();
         when(fs.provider()).thenReturn(provider);
-
         var file = S3Path.getPath(fs, "somefile");
-        assertThatThrownBy(() -> new S3WritableByteChannel(file, mock(), mock(), Set.of(CREATE_NEW)))
-                .isInstanceOf(FileAlreadyExistsException.class);
+        S3AsyncClient client = mock();
+        when(client.putObject(any(Consumer.class), any(AsyncRequestBody.class)))
+            .thenReturn(CompletableFuture.failedFuture(S3Exception.builder().statusCode(412).build()));
+
+        var channel = new S3WritableByteChannel(file, client, mock(), Set.of(CREATE_NEW));
+        channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        assertThatThrownBy(channel::close).isInstanceOf(FileAlreadyExistsException.class);
+
+        verify(provider, never()).exists(any(), any());
+        ArgumentCaptor<Consumer<PutObjectRequest.Builder>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(client).putObject(captor.capture(), any(AsyncRequestBody.class));
+        var request = PutObjectRequest.builder();
+        captor.getValue().accept(request);
+        assertThat(request.build().overrideConfiguration()).hasValueSatisfying(
+            override -> assertThat(override.headers()).containsEntry("If-None-Match", List.of("*")));
     }
 
     @Test
@@ -74,7 +115,7 @@ class S3WritableByteChannelTest {
         when(fs.provider()).thenReturn(provider);
 
         var file = S3Path.getPath(fs, "somefile");
-        new S3WritableByteChannel(file, mock(), mock(), openOptions).close();
+        new S3WritableByteChannel(file, client(), mock(), openOptions).close();
     }
 
     @Test
@@ -87,7 +128,7 @@ class S3WritableByteChannelTest {
         when(fs.provider()).thenReturn(provider);
 
         var file = S3Path.getPath(fs, "somefile");
-        try(var channel = new S3WritableByteChannel(file, mock(), mock(), Set.of(CREATE))){
+        try(var channel = new S3WritableByteChannel(file, client(), mock(), Set.of(CREATE))){
             assertThat(channel.isOpen()).isTrue();
         }
     }
@@ -102,16 +143,16 @@ class S3WritableByteChannelTest {
         when(fs.provider()).thenReturn(provider);
 
         var file = S3Path.getPath(fs, "somefile");
-        var channel = new S3WritableByteChannel(file, mock(), mock(), Set.of(CREATE));
+        var channel = new S3WritableByteChannel(file, client(), mock(), Set.of(CREATE));
         channel.close();
         assertThat(channel.isOpen()).isFalse();
     }
 
     @Test
-    @DisplayName("close() should clean up the temporary file")
+    @DisplayName("close() should clean up the temporary file of an existing object")
     void tmpFileIsCleanedUpAfterClose(@TempDir Path tempDir) throws InterruptedException, TimeoutException, IOException {
         S3FileSystemProvider provider = mock();
-        when(provider.exists(any(), any())).thenReturn(false);
+        when(provider.exists(any(), any())).thenReturn(true);
         S3FileSystem fs = mock();
         when(fs.provider()).thenReturn(provider);
         var file = S3Path.getPath(fs, "somefile");
@@ -124,6 +165,292 @@ class S3WritableByteChannelTest {
         assertThat(countAfterClosing).isLessThan(countAfterOpening);
     }
 
+    @Test
+    @DisplayName("close() should upload the temporary file of an existing object only once")
+    void secondCloseDoesNotUploadAgain() throws Exception {
+        S3FileSystemProvider provider = mock();
+        when(provider.exists(any(), any())).thenReturn(true);
+        S3FileSystem fs = mock();
+        when(fs.provider()).thenReturn(provider);
+        var file = S3Path.getPath(fs, "somefile");
+        S3TransferUtil transferUtil = mock();
+
+        var channel = new S3WritableByteChannel(file, mock(), transferUtil, Set.of(CREATE));
+        channel.close();
+        channel.close();
+
+        verify(transferUtil, times(1)).uploadLocalFile(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("close() should hand the temporary file of an existing object to the file system only once")
+    void secondCloseDoesNotWriteBehindAgain() throws Exception {
+        S3FileSystemProvider provider = mock();
+        when(provider.exists(any(), any())).thenReturn(true);
+        S3FileSystem fs = mock();
+        when(fs.provider()).thenReturn(provider);
+        var pendingUploads = new S3PendingUploads(2);
+        when(fs.pendingUploads()).thenReturn(pendingUploads);
+        var file = S3Path.getPath(fs, "somefile");
+        S3TransferUtil transferUtil = mock();
+        when(transferUtil.uploadLocalFileAsync(any(), any(), any())).thenReturn(new CompletableFuture<>());
+
+        var channel = new S3WritableByteChannel(file, mock(), transferUtil, Set.of(CREATE));
+        channel.close();
+        channel.close();
+
+        verify(transferUtil, times(1)).uploadLocalFileAsync(any(), any(), any());
+        assertThat(pendingUploads.pendingUploads()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("a new object should not be staged in a temporary file")
+    void newObjectIsNotStagedInATemporaryFile(@TempDir Path tempDir) throws Exception {
+        S3FileSystemProvider provider = mock();
+        when(provider.exists(any(), any())).thenReturn(false);
+        S3FileSystem fs = mock();
+        when(fs.provider()).thenReturn(provider);
+        var file = S3Path.getPath(fs, "somefile");
+        var countBeforeOpening = countTemporaryFiles(tempDir);
+
+        S3TransferUtil transferUtil = mock();
+        try (var channel = new S3WritableByteChannel(file, client(), transferUtil, Set.of(CREATE_NEW))) {
+            assertThat(countTemporaryFiles(tempDir)).isEqualTo(countBeforeOpening);
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        }
+
+        verifyNoInteractions(transferUtil);
+    }
+
+    @Test
+    @DisplayName("a new object smaller than a part should be uploaded with a single PUT on close()")
+    void smallNewObjectIsPutOnClose() throws Exception {
+        S3FileSystemProvider provider = mock();
+        when(provider.exists(any(), any())).thenReturn(false);
+        S3FileSystem fs = mock();
+        when(fs.provider()).thenReturn(provider);
+        var file = S3Path.getPath(fs, "somefile");
+        var client = client();
+
+        var channel = new S3WritableByteChannel(file, client, mock(), Set.of(CREATE));
+        assertThat(channel.write(ByteBuffer.wrap(new byte[100]))).isEqualTo(100);
+        verify(client, never()).putObject(any(Consumer.class), any(AsyncRequestBody.class));
+        channel.close();
+
+        ArgumentCaptor<Consumer<PutObjectRequest.Builder>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(client).putObject(captor.capture(), any(AsyncRequestBody.class));
+        var request = PutObjectRequest.builder();
+        captor.getValue().accept(request);
+        assertThat(request.build().contentLength()).isEqualTo(100L);
+        verify(client, never()).createMultipartUpload(anyConsumer());
+    }
+
+    @Test
+    @DisplayName("an object should be uploaded with the content type of an option, or else of its extension")
+    void contentTypeIsSetFromTheOptionsOrTheKey() throws Exception {
+        S3FileSystemProvider provider = mock();
+        when(provider.exists(any(), any())).thenReturn(false);
+        S3FileSystem fs = mock();
+        when(fs.provider()).thenReturn(provider);
+        var client = client();
+
+        new S3WritableByteChannel(S3Path.getPath(fs, "table.csv"), client, mock(), Set.of(CREATE)).close();
+        new S3WritableByteChannel(S3Path.getPath(fs, "table.csv"), client, mock(),
+            Set.of(CREATE, S3ContentType.of("text/plain"))).close();
+
+        ArgumentCaptor<Consumer<PutObjectRequest.Builder>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(client, times(2)).putObject(captor.capture(), any(AsyncRequestBody.class));
+        assertThat(captor.getAllValues()).extracting(consumer -> {
+            var request = PutObjectRequest.builder();
+            consumer.accept(request);
+            return request.build().contentType();
+        }).containsExactly("text/csv", "text/plain");
+    }
+
+    @Test
+    @DisplayName("a new object should be uploaded in parts as they fill, and close() should complete the upload")
+    void newObjectIsStreamedInParts() throws Exception {
+        S3FileSystemProvider provider = mock();
+        when(provider.exists(any(), any())).thenReturn(false);
+        S3FileSystem fs = mock();
+        when(fs.provider()).thenReturn(provider);
+        var file = S3Path.getPath(fs, "somefile");
+        var client = client();
+        when(client.createMultipartUpload(anyConsumer()))
+            .thenReturn(CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder().uploadId("id").build()));
+        when(client.uploadPart(anyConsumer(), any(AsyncRequestBody.class)))
+            .thenReturn(CompletableFuture.completedFuture(UploadPartResponse.builder().eTag("etag").build()));
+        when(client.completeMultipartUpload(anyConsumer()))
+            .thenReturn(CompletableFuture.completedFuture(CompleteMultipartUploadResponse.builder().build()));
+
+        var channel = new S3WritableByteChannel(file, client, mock(), Set.of(CREATE));
+        channel.write(ByteBuffer.allocate(S3MultipartUpload.DEFAULT_PART_SIZE * 2 + 10));
+        verify(client, times(2)).uploadPart(anyConsumer(), any(AsyncRequestBody.class));
+        verify(client, never()).completeMultipartUpload(anyConsumer());
+        channel.close();
+
+        verify(client, times(3)).uploadPart(anyConsumer(), any(AsyncRequestBody.class));
+        ArgumentCaptor<Consumer<CompleteMultipartUploadRequest.Builder>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(client).completeMultipartUpload(captor.capture());
+        var request = CompleteMultipartUploadRequest.builder();
+        captor.getValue().accept(request);
+        assertThat(request.build().multipartUpload().parts()).extracting(CompletedPart::partNumber)
+            .containsExactly(1, 2, 3);
+        verify(client, never()).putObject(any(Consumer.class), any(AsyncRequestBody.class));
+    }
+
+    @Test
+    @DisplayName("close() should abort the upload of a new object if a part failed")
+    void uploadIsAbortedIfAPartFailed() throws Exception {
+        S3FileSystemProvider provider = mock();
+        when(provider.exists(any(), any())).thenReturn(false);
+        S3FileSystem fs = mock();
+        when(fs.provider()).thenReturn(provider);
+        var file = S3Path.getPath(fs, "somefile");
+        var client = client();
+        when(client.createMultipartUpload(anyConsumer()))
+            .thenReturn(CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder().uploadId("id").build()));
+        when(client.uploadPart(anyConsumer(), any(AsyncRequestBody.class)))
+            .thenReturn(CompletableFuture.failedFuture(S3Exception.builder().statusCode(500).build()));
+
+        var channel = new S3WritableByteChannel(file, client, mock(), Set.of(CREATE));
+        assertThatThrownBy(() -> channel.write(ByteBuffer.allocate(S3MultipartUpload.DEFAULT_PART_SIZE)))
+            .isInstanceOf(IOException.class);
+        assertThatThrownBy(channel::close).isInstanceOf(IOException.class);
+
+        verify(client).abortMultipartUpload(anyConsumer());
+        verify(client, never()).completeMultipartUpload(anyConsumer());
+    }
+
+    @Test
+    @DisplayName("an existing object opened with `TRUNCATE_EXISTING` should be replaced without being downloaded")
+    void truncatedObjectIsNotDownloaded() throws Exception {
+        S3FileSystemProvider provider = mock();
+        when(provider.exists(any(), any())).thenReturn(true);
+        S3FileSystem fs = mock();
+        when(fs.provider()).thenReturn(provider);
+        var file = S3Path.getPath(fs, "somefile");
+        var client = client();
+
+        S3TransferUtil transferUtil = mock();
+        try (var channel = new S3WritableByteChannel(file, client, transferUtil, Set.of(CREATE, TRUNCATE_EXISTING))) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        }
+
+        verifyNoInteractions(transferUtil);
+        verify(provider, never()).exists(any(), any());
+        ArgumentCaptor<Consumer<PutObjectRequest.Builder>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(client).putObject(captor.capture(), any(AsyncRequestBody.class));
+        var request = PutObjectRequest.builder();
+        captor.getValue().accept(request);
+        assertThat(request.build().overrideConfiguration()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("an existing object opened with `APPEND` should be copied into the upload by S3")
+    void appendCopiesTheExistingObject() throws Exception {
+        S3FileSystemProvider provider = mock();
+        when(provider.exists(any(), any())).thenReturn(true);
+        S3FileSystem fs = mock();
+        when(fs.provider()).thenReturn(provider);
+        var file = S3Path.getPath(fs, "somefile");
+        var client = client();
+        var size = S3MultipartUpload.MIN_PART_SIZE + 1L;
+        when(client.headObject(anyConsumer()))
+            .thenReturn(CompletableFuture.completedFuture(HeadObjectResponse.builder()
+                .contentLength(size).eTag("existing").build()));
+        when(client.createMultipartUpload(anyConsumer()))
+            .thenReturn(CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder().uploadId("id").build()));
+        when(client.uploadPartCopy(anyConsumer()))
+            .thenReturn(CompletableFuture.completedFuture(UploadPartCopyResponse.builder()
+                .copyPartResult(CopyPartResult.builder().eTag("copy").build()).build()));
+        when(client.uploadPart(anyConsumer(), any(AsyncRequestBody.class)))
+            .thenReturn(CompletableFuture.completedFuture(UploadPartResponse.builder().eTag("etag").build()));
+        when(client.completeMultipartUpload(anyConsumer()))
+            .thenReturn(CompletableFuture.completedFuture(CompleteMultipartUploadResponse.builder().build()));
+
+        S3TransferUtil transferUtil = mock();
+        try (var channel = new S3WritableByteChannel(file, client, transferUtil, Set.of(APPEND))) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        }
+
+        ArgumentCaptor<Consumer<UploadPartCopyRequest.Builder>> copyCaptor = ArgumentCaptor.forClass(Consumer.class);
+        verify(client).uploadPartCopy(copyCaptor.capture());
+        var copy = UploadPartCopyRequest.builder();
+        copyCaptor.getValue().accept(copy);
+        assertThat(copy.build().partNumber()).isEqualTo(1);
+        assertThat(copy.build().copySourceRange()).isEqualTo("bytes=0-" + (size - 1));
+        assertThat(copy.build().copySourceIfMatch()).isEqualTo("existing");
+        ArgumentCaptor<Consumer<CompleteMultipartUploadRequest.Builder>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(client).completeMultipartUpload(captor.capture());
+        var request = CompleteMultipartUploadRequest.builder();
+        captor.getValue().accept(request);
+        assertThat(request.build().multipartUpload().parts()).extracting(CompletedPart::eTag)
+            .containsExactly("copy", "etag");
+        verify(client, never()).getObject(anyConsumer(), any(AsyncResponseTransformer.class));
+        verifyNoInteractions(transferUtil);
+    }
+
+    @Test
+    @DisplayName("an existing object smaller than a part opened with `APPEND` should be uploaded with the appended bytes")
+    void appendToASmallObjectUploadsBoth() throws Exception {
+        S3FileSystemProvider provider = mock();
+        when(provider.exists(any(), any())).thenReturn(true);
+        S3FileSystem fs = mock();
+        when(fs.provider()).thenReturn(provider);
+        var file = S3Path.getPath(fs, "somefile");
+        var client = client();
+        when(client.headObject(anyConsumer()))
+            .thenReturn(CompletableFuture.completedFuture(HeadObjectResponse.builder()
+                .contentLength(3L).eTag("existing").build()));
+        when(client.getObject(anyConsumer(), any(AsyncResponseTransformer.class)))
+            .thenReturn(CompletableFuture.completedFuture(
+                ResponseBytes.fromByteArray(GetObjectResponse.builder().build(), new byte[]{1, 2, 3})));
+
+        try (var channel = new S3WritableByteChannel(file, client, mock(), Set.of(APPEND))) {
+            channel.write(ByteBuffer.wrap(new byte[]{4, 5}));
+        }
+
+        ArgumentCaptor<Consumer<PutObjectRequest.Builder>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(client).putObject(captor.capture(), any(AsyncRequestBody.class));
+        var request = PutObjectRequest.builder();
+        captor.getValue().accept(request);
+        assertThat(request.build().contentLength()).isEqualTo(5L);
+        verify(client, never()).uploadPartCopy(anyConsumer());
+    }
+
+    @Test
+    @DisplayName("close() should not wait for the upload when the file system writes behind")
+    void closeHandsTheUploadToTheFileSystemWhenWritingBehind() throws Exception {
+        S3FileSystemProvider provider = mock();
+        S3FileSystem fs = mock();
+        when(fs.provider()).thenReturn(provider);
+        var pendingUploads = new S3PendingUploads(1);
+        when(fs.pendingUploads()).thenReturn(pendingUploads);
+        var file = S3Path.getPath(fs, "somefile");
+        S3AsyncClient client = mock();
+        var put = new CompletableFuture<PutObjectResponse>();
+        when(client.putObject(any(Consumer.class), any(AsyncRequestBody.class))).thenReturn(put);
+
+        var channel = new S3WritableByteChannel(file, client, mock(), Set.of(CREATE, TRUNCATE_EXISTING));
+        channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        channel.close();
+
+        assertThat(channel.isOpen()).isFalse();
+        assertThat(pendingUploads.pendingUploads()).isEqualTo(1);
+        put.complete(PutObjectResponse.builder().build());
+        pendingUploads.flush();
+        assertThat(pendingUploads.pendingUploads()).isZero();
+    }
+
+    @SuppressWarnings("unchecked")
+    private S3AsyncClient client() {
+        S3AsyncClient client = mock();
+        lenient().when(client.putObject(any(Consumer.class), any(AsyncRequestBody.class)))
+            .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+        return client;
+    }
+
     private long countTemporaryFiles(Path tempDir) throws IOException {
         try (var list = Files.list(tempDir.getParent())) {
             return list
@@ -7,6 +7,7 @@ package software.amazon.nio.spi.s3.config;
 import static com.github.stefanbirkner.systemlambda.SystemLambda.restoreSystemProperties;
 import static com.github.stefanbirkner.systemlambda.SystemLambda.withEnvironmentVariable;
 
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
@@ -21,6 +22,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
 
 import static software.amazon.nio.spi.s3.config.S3NioSpiConfiguration.*;
 
@@ -48,6 +50,27 @@ public class S3NioSpiConfigurationTest {
         then(config).isInstanceOf(Map.class);
         then(config.getMaxFragmentNumber()).isEqualTo(S3_SPI_READ_MAX_FRAGMENT_NUMBER_DEFAULT);
         then(config.getMaxFragmentSize()).isEqualTo(S3_SPI_READ_MAX_FRAGMENT_SIZE_DEFAULT);
+        then(config.getReadCacheMaxBytes()).isEqualTo(S3_SPI_READ_CACHE_MAX_BYTES_DEFAULT);
+        then(config.getReadBufferPoolTargetBytes()).isEqualTo(S3_SPI_READ_BUFFER_POOL_TARGET_BYTES_DEFAULT);
+        then(config.getPrefetchTargetBytes()).isEqualTo(S3_SPI_READ_PREFETCH_TARGET_BYTES_DEFAULT);
+        then(config.getReadDiskCacheDirectory()).isNull();
+        then(config.getReadDiskCacheMaxBytes()).isEqualTo(S3_SPI_READ_DISK_CACHE_MAX_BYTES_DEFAULT);
+        then(config.getVectoredReadMaxMergeGap()).isEqualTo(S3_SPI_READ_VECTORED_MAX_MERGE_GAP_DEFAULT);
+        then(config.getVectoredReadMaxMergedSize()).isEqualTo(S3_SPI_READ_VECTORED_MAX_MERGED_SIZE_DEFAULT);
+        then(config.getTailBytes()).isZero();
+        then(config.getReadTailCacheMaxBytes()).isEqualTo(S3_SPI_READ_TAIL_CACHE_MAX_BYTES_DEFAULT);
+        then(config.getHedgePercentile()).isZero();
+        then(config.getHedgeMinDelayMillis()).isEqualTo(S3_SPI_READ_HEDGE_MIN_DELAY_MILLIS_DEFAULT);
+        then(config.getHedgeMaxRatePercent()).isEqualTo(S3_SPI_READ_HEDGE_MAX_RATE_PERCENT_DEFAULT);
+        then(config.getParallelPartSize()).isEqualTo(S3_SPI_READ_PARALLEL_PART_SIZE_DEFAULT);
+        then(config.getParallelConcurrency()).isEqualTo(S3_SPI_READ_PARALLEL_CONCURRENCY_DEFAULT);
+        then(config.getReadExecutorThreads()).isEqualTo(S3_SPI_READ_EXECUTOR_THREADS_DEFAULT);
+        then(config.getWriteMaxInFlightParts()).isEqualTo(S3_SPI_WRITE_MAX_INFLIGHT_PARTS_DEFAULT);
+        then(config.getWriteMaxBufferedBytes()).isEqualTo(S3_SPI_WRITE_MAX_BUFFERED_BYTES_DEFAULT);
+        then(config.getWriteSinglePutThreshold()).isEqualTo(S3_SPI_WRITE_SINGLE_PUT_THRESHOLD_DEFAULT);
+        then(config.getWriteChecksumAlgorithm()).isEqualTo(ChecksumAlgorithm.CRC32_C);
+        then(config.getWriteMaxPendingUploads()).isEqualTo(S3_SPI_WRITE_MAX_PENDING_UPLOADS_DEFAULT);
+        then(config.getTransferExecutorThreads()).isEqualTo(S3_SPI_TRANSFER_EXECUTOR_THREADS_DEFAULT);
         then(config.getEndpointProtocol()).isEqualTo("https");
         then(config.getEndpoint()).isEmpty();
         then(config.getBucketName()).isNull();
@@ -154,6 +177,210 @@ public class S3NioSpiConfigurationTest {
                 .hasMessage("maxFragmentSize must be positive");
     }
 
+    @Test
+    public void withAndGetReadCacheMaxBytes() {
+        then(config.withReadCacheMaxBytes(8L * Integer.MAX_VALUE)).isSameAs(config);
+        then(config.getReadCacheMaxBytes()).isEqualTo(8L * Integer.MAX_VALUE);
+        then(badOverriddenConfig.getReadCacheMaxBytes()).isEqualTo(S3_SPI_READ_CACHE_MAX_BYTES_DEFAULT);
+
+        assertThatCode(() -> config.withReadCacheMaxBytes(-1))
+                .as("missing sanity check")
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("readCacheMaxBytes must not be negative");
+    }
+
+    @Test
+    public void withAndGetReadBufferPoolTargetBytes() {
+        then(config.withReadBufferPoolTargetBytes(512L * 1024 * 1024)).isSameAs(config);
+        then(config.getReadBufferPoolTargetBytes()).isEqualTo(512L * 1024 * 1024);
+
+        assertThatCode(() -> config.withReadBufferPoolTargetBytes(-1))
+                .as("missing sanity check")
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("readBufferPoolTargetBytes must not be negative");
+    }
+
+    @Test
+    public void withAndGetPrefetchTargetBytes() {
+        then(config.withPrefetchTargetBytes(8L * 1024 * 1024)).isSameAs(config);
+        then(config.getPrefetchTargetBytes()).isEqualTo(8L * 1024 * 1024);
+
+        assertThatCode(() -> config.withPrefetchTargetBytes(-1))
+                .as("missing sanity check")
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("prefetchTargetBytes must not be negative");
+    }
+
+    @Test
+    public void withAndGetTailBytes() {
+        then(config.withTailBytes(65536)).isSameAs(config);
+        then(config.getTailBytes()).isEqualTo(65536);
+
+        assertThatCode(() -> config.withTailBytes(-1))
+                .as("missing sanity check")
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("tailBytes must not be negative");
+    }
+
+    @Test
+    public void withAndGetReadTailCacheMaxBytes() {
+        then(config.withReadTailCacheMaxBytes(1024L * 1024)).isSameAs(config);
+        then(config.getReadTailCacheMaxBytes()).isEqualTo(1024L * 1024);
+
+        assertThatCode(() -> config.withReadTailCacheMaxBytes(0))
+                .as("missing sanity check")
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("readTailCacheMaxBytes must be positive");
+    }
+
+    @Test
+    public void withAndGetHedging() {
+        then(config.withHedgePercentile(95)).isSameAs(config);
+        then(config.getHedgePercentile()).isEqualTo(95);
+        then(config.withHedgeMinDelayMillis(50L)).isSameAs(config);
+        then(config.getHedgeMinDelayMillis()).isEqualTo(50L);
+        then(config.withHedgeMaxRatePercent(10)).isSameAs(config);
+        then(config.getHedgeMaxRatePercent()).isEqualTo(10);
+
+        assertThatCode(() -> config.withHedgePercentile(100))
+                .as("missing sanity check")
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("percentile must be between 0 and 99");
+        assertThatCode(() -> config.withHedgeMinDelayMillis(-1))
+                .as("missing sanity check")
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("minDelayMillis must not be negative");
+        assertThatCode(() -> config.withHedgeMaxRatePercent(101))
+                .as("missing sanity check")
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("maxRatePercent must be between 0 and 100");
+    }
+
+    @Test
+    public void withAndGetParallelDownload() {
+        then(config.withParallelPartSize(1024)).isSameAs(config);
+        then(config.getParallelPartSize()).isEqualTo(1024);
+        then(config.withParallelConcurrency(4)).isSameAs(config);
+        then(config.getParallelConcurrency()).isEqualTo(4);
+
+        assertThatCode(() -> config.withParallelPartSize(0))
+                .as("missing sanity check")
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("partSize must be positive");
+        assertThatCode(() -> config.withParallelConcurrency(0))
+                .as("missing sanity check")
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("concurrency must be positive");
+    }
+
+    @Test
+    public void withAndGetWriteBounds() {
+        then(config.withWriteMaxInFlightParts(2)).isSameAs(config);
+        then(config.getWriteMaxInFlightParts()).isEqualTo(2);
+        then(config.withWriteMaxBufferedBytes(1024L)).isSameAs(config);
+        then(config.getWriteMaxBufferedBytes()).isEqualTo(1024L);
+
+        assertThatCode(() -> config.withWriteMaxInFlightParts(0))
+                .as("missing sanity check")
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("maxInFlightParts must be positive");
+        assertThatCode(() -> config.withWriteMaxBufferedBytes(0))
+                .as("missing sanity check")
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("maxBufferedBytes must be positive");
+    }
+
+    @Test
+    public void withAndGetWriteSinglePutThreshold() {
+        then(config.withWriteSinglePutThreshold(1024L)).isSameAs(config);
+        then(config.getWriteSinglePutThreshold()).isEqualTo(1024L);
+
+        assertThatCode(() -> config.withWriteSinglePutThreshold(0))
+                .as("missing sanity check")
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("threshold must be positive");
+    }
+
+    @Test
+    public void withAndGetWriteChecksumAlgorithm() {
+        then(config.withWriteChecksumAlgorithm("crc32 ")).isSameAs(config);
+        then(config.getWriteChecksumAlgorithm()).isEqualTo(ChecksumAlgorithm.CRC32);
+        then(config.withWriteChecksumAlgorithm("NONE").getWriteChecksumAlgorithm()).isNull();
+        then(new S3NioSpiConfiguration(Map.of(S3_SPI_WRITE_CHECKSUM_ALGORITHM_PROPERTY, "MD5"))
+            .getWriteChecksumAlgorithm()).isEqualTo(ChecksumAlgorithm.CRC32_C);
+
+        assertThatCode(() -> config.withWriteChecksumAlgorithm("SHA256"))
+                .as("missing sanity check")
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("checksum algorithm must be one of ('CRC32C', 'CRC32', 'NONE')");
+    }
+
+    @Test
+    public void withAndGetWriteMaxPendingUploads() {
+        then(config.withWriteMaxPendingUploads(8)).isSameAs(config);
+        then(config.getWriteMaxPendingUploads()).isEqualTo(8);
+        then(config.withWriteMaxPendingUploads(0).getWriteMaxPendingUploads()).isZero();
+
+        assertThatCode(() -> config.withWriteMaxPendingUploads(-1))
+                .as("missing sanity check")
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("maxPendingUploads must not be negative");
+    }
+
+    @Test
+    public void withAndGetReadExecutorThreads() {
+        then(config.withReadExecutorThreads(2)).isSameAs(config);
+        then(config.getReadExecutorThreads()).isEqualTo(2);
+
+        assertThatCode(() -> config.withReadExecutorThreads(0))
+                .as("missing sanity check")
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("threads must be positive");
+    }
+
+    @Test
+    public void withAndGetTransferExecutorThreads() {
+        then(config.withTransferExecutorThreads(2)).isSameAs(config);
+        then(config.getTransferExecutorThreads()).isEqualTo(2);
+
+        assertThatCode(() -> config.withTransferExecutorThreads(0))
+                .as("missing sanity check")
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("threads must be positive");
+    }
+
+    @Test
+    public void withAndGetReadDiskCache() {
+        then(config.withReadDiskCacheDirectory(" /tmp/s3-cache ")).isSameAs(config);
+        then(config.getReadDiskCacheDirectory()).isEqualTo(Path.of("/tmp/s3-cache"));
+        then(config.withReadDiskCacheDirectory(null).getReadDiskCacheDirectory()).isNull();
+
+        then(config.withReadDiskCacheMaxBytes(1024L)).isSameAs(config);
+        then(config.getReadDiskCacheMaxBytes()).isEqualTo(1024L);
+
+        assertThatCode(() -> config.withReadDiskCacheMaxBytes(0))
+                .as("missing sanity check")
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("readDiskCacheMaxBytes must be positive");
+    }
+
+    @Test
+    public void withAndGetVectoredReadMerging() {
+        then(config.withVectoredReadMaxMergeGap(0)).isSameAs(config);
+        then(config.getVectoredReadMaxMergeGap()).isZero();
+        then(config.withVectoredReadMaxMergedSize(8192)).isSameAs(config);
+        then(config.getVectoredReadMaxMergedSize()).isEqualTo(8192);
+
+        assertThatCode(() -> config.withVectoredReadMaxMergeGap(-1))
+                .as("missing sanity check")
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("maxMergeGap must not be negative");
+        assertThatCode(() -> config.withVectoredReadMaxMergedSize(0))
+                .as("missing sanity check")
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("maxMergedSize must be positive");
+    }
+
     @Test
     public void withAndGetPlainCredentials() {
         then(config.withCredentials("akey", "asecret")).isSameAs(config);